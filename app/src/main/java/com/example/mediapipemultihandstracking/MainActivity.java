@@ -16,21 +16,54 @@ package com.example.mediapipemultihandstracking;
 
 import android.os.Bundle;
 import android.util.Log;
+import android.util.Size;
+import android.view.SurfaceHolder;
 import android.widget.TextView;
 
 import com.example.mediapipemultihandstracking.basic.BasicActivity;
-import com.google.mediapipe.formats.proto.LandmarkProto;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmark;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
-import com.google.mediapipe.formats.proto.RectProto;
+import com.example.mediapipemultihandstracking.gesture.GestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.GestureRules;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventBus;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventSource;
+import com.example.mediapipemultihandstracking.gesture.load.LoadGovernor;
+import com.example.mediapipemultihandstracking.gesture.load.LoadTier;
+import com.example.mediapipemultihandstracking.gesture.log.GestureEventLog;
+import com.example.mediapipemultihandstracking.gesture.log.GestureLog;
+import com.example.mediapipemultihandstracking.gesture.log.HandFrameText;
+import com.example.mediapipemultihandstracking.gesture.metrics.PipelineMetrics;
+import com.example.mediapipemultihandstracking.gesture.proto.HandednessListParser;
+import com.example.mediapipemultihandstracking.gesture.proto.LandmarkListParser;
+import com.example.mediapipemultihandstracking.gesture.proto.RectListParser;
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecorder;
+import com.example.mediapipemultihandstracking.gesture.stream.LandmarkExporter;
+import com.example.mediapipemultihandstracking.gesture.sync.FrameJoiner;
+import com.example.mediapipemultihandstracking.gesture.sync.LatestValueDispatcher;
 import com.google.mediapipe.framework.AndroidPacketCreator;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketCallback;
 import com.google.mediapipe.framework.PacketGetter;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main activity of MediaPipe multi-hand tracking app.
@@ -38,288 +71,433 @@ import java.util.Map;
 public class MainActivity extends BasicActivity {
     private static final String TAG = "MainActivity";
 
-    private static final String OUTPUT_HAND_RECT = "hand_rects_from_palm_detections";
-    private List<NormalizedLandmarkList> multiHandLandmarks;
+    // Emitted with every landmarks packet, in the same hand order. The palm detection rects only
+    // come while the graph looks for more hands, so they stop once every hand is tracked.
+    private static final String OUTPUT_HAND_RECT = "hand_rects_from_landmarks";
 
     private static final String INPUT_NUM_HANDS_SIDE_PACKET_NAME = "num_hands";
     private static final String OUTPUT_LANDMARKS_STREAM_NAME = "hand_landmarks";
-    // Max number of hands to detect/process.
+    private static final String OUTPUT_HANDEDNESS_STREAM_NAME = "handedness";
+    // Static gesture definitions, see GestureRules for the format.
+    private static final String GESTURE_RULES_ASSET = "gestures.txt";
+    // Learned gesture model, see KnnGestureClassifier; used instead of the rules when present.
+    private static final String GESTURE_MODEL_ASSET = "gestures.knn";
+    // Max number of hands to detect/process; the load tier may ask MediaPipe for fewer.
     private static final int NUM_HANDS = 2;
+    // Load tier to start from on the first launch: the camera helper's default resolution, see
+    // LoadTier.defaults().
+    private static final int START_LOAD_TIER = 0;
+    // Frames buffered per stream while waiting for the other streams' packets.
+    private static final int FRAME_JOIN_DEPTH = 8;
+    // Debug output rates; per-frame logs are built only when sampled, and only in debug builds.
+    private static final int PACKET_LOG_EVERY_NTH = 30;
+    private static final long LANDMARK_LOG_INTERVAL_MS = 1000;
+    // Debug builds record every joined frame for offline replay, see HandFrameRecording.
+    private static final boolean RECORD_FRAMES = BuildConfig.DEBUG;
+    private static final String RECORDINGS_DIR = "recordings";
+    // Latency histograms and frame counters, logged periodically and written out on pause.
+    private static final long METRICS_LOG_INTERVAL_MS = 10_000;
+    private static final String METRICS_FILE = "metrics.json";
+    // Smoothed hands can be moved ahead by the median processing latency, refreshed this often
+    // and capped by LandmarkSmoother.MAX_LEAD_MICROS; 0, the default, turns the prediction off.
+    private static final int LEAD_UPDATE_EVERY_NTH = 0;
+    // Streams the hands and gesture changes to this host, see LandmarkStreamDecoder for the
+    // receiving end; null streams nowhere.
+    private static final String EXPORT_HOST = null;
+    private static final int EXPORT_PORT = 7707;
+    private static final LandmarkExporter.Transport EXPORT_TRANSPORT = LandmarkExporter.Transport.UDP;
+    private static final int EXPORT_EVENT_QUEUE = 16;
+    // Gesture and motion changes kept on the device for usage analytics, see GestureUsage; the
+    // oldest files are folded into a summary once the log outgrows its size.
+    private static final String ANALYTICS_DIR = "analytics";
+    private static final long ANALYTICS_FILE_BYTES = 256 * 1024;
+    private static final long ANALYTICS_LOG_BYTES = 4 * 1024 * 1024;
+    private static final int ANALYTICS_EVENT_QUEUE = 16;
+
+    // Kept for the life of the process, so what it learned about the device survives the
+    // activity restarts it asks for.
+    private static LoadGovernor loadGovernor;
 
     private TextView gesture;
     private TextView moveGesture;
 
+    // Per-hand and two-hand gestures, per-hand tracking and motion of the joined frames.
+    private GesturePipeline gesturePipeline;
+    // The learned model, if one was loaded, told the frame shape once the preview is sized.
+    private KnnGestureClassifier gestureModel;
+    // Height over width of the frames the graph sees, which MediaPipe normalizes landmarks by;
+    // 0 until the preview display is sized.
+    private volatile float frameYScale;
+    // Landmarks and rects of all detected hands, decoded straight from the packets of each stream
+    // and reused across frames.
+    private final LandmarkListParser landmarkParser =
+            new LandmarkListParser(new float[NUM_HANDS * HandLandmark.FLOATS_PER_HAND]);
+    private final RectListParser rectParser =
+            new RectListParser(new float[NUM_HANDS * HandRect.FLOATS_PER_RECT]);
+    private final HandednessListParser handednessParser =
+            new HandednessListParser(new float[NUM_HANDS]);
+    // Joins landmarks, rects and handedness of the same camera frame before the pipeline sees them;
+    // a frame whose rects never come reuses the last ones rather than being lost.
+    private final FrameJoiner frameJoiner = new FrameJoiner(NUM_HANDS, FRAME_JOIN_DEPTH, true, true);
+    private final FrameJoiner.Listener handFrameListener = this::onHandFrame;
+    // Gesture and motion changes for the screen and any other consumer, each subscriber reading
+    // at its own pace.
+    private final GestureEventBus eventBus = new GestureEventBus(NUM_HANDS);
+    private final GestureEventSource eventSource = new GestureEventSource(eventBus);
+    private GestureEventBus.Subscription screenEvents;
+    // The screen only shows the latest gesture and the latest motion, each with at most one
+    // pending post on the UI thread; labels that change while it is busy replace each other.
+    private LatestValueDispatcher<String> gestureLabels;
+    private LatestValueDispatcher<String> motionLabels;
+    private final GestureLog gestureLog = new GestureLog((tag, message) -> Log.d(tag, message.toString()));
+    private final GestureLog.Channel packetLog = gestureLog.everyNth(TAG, PACKET_LOG_EVERY_NTH);
+    private final GestureLog.Channel landmarkLog = gestureLog.atMostEvery(TAG, LANDMARK_LOG_INTERVAL_MS);
+    private final GestureLog.Channel metricsLog = gestureLog.atMostEvery(TAG, METRICS_LOG_INTERVAL_MS);
+    // Set between onResume and onPause while recording.
+    private volatile HandFrameRecorder recorder;
+    // Set between onResume and onPause while streaming.
+    private volatile LandmarkExporter exporter;
+    private GestureEventBus.Subscription exportEvents;
+    // Set between onResume and onPause while logging analytics.
+    private volatile GestureEventLog eventLog;
+    private GestureEventBus.Subscription analyticsEvents;
+    // Opens and closes the analytics log, whose recovery, fsync and compaction are disk work kept
+    // off the UI thread. One thread, so a log reopened on resume waits for the last one to close.
+    private final ExecutorService analyticsExecutor = Executors.newSingleThreadExecutor();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    // Only touched by onHandFrame.
+    private int framesSinceLeadUpdate;
+    // Resolution and hand count the camera and graph of this activity run with.
+    private LoadTier startedTier;
+    // Between onResume and onPause; only touched on the UI thread.
+    private boolean resumed;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        gestureLog.setEnabled(BuildConfig.DEBUG);
         gesture = findViewById(R.id.gesture);
         moveGesture = findViewById(R.id.move_gesture);
+        gestureLabels = new LatestValueDispatcher<>(this::runOnUiThread, gesture::setText);
+        motionLabels = new LatestValueDispatcher<>(this::runOnUiThread, moveGesture::setText);
+        // Handing a label over only touches the mailboxes, so it runs on the publishing frame thread.
+        screenEvents = eventBus.subscribe(GestureEventBus.Policy.LATEST_ONLY, 1, Runnable::run, this::showEvent);
+        GestureClassifier gestureClassifier = loadGestureClassifier();
+        gesturePipeline = new GesturePipeline(NUM_HANDS, gestureClassifier);
+        // Checking that a hand is still costs more than the rules take to classify it, but far
+        // less than a k-NN search, see IncrementalGateBenchmark.
+        gesturePipeline.setIncremental(gestureClassifier instanceof KnnGestureClassifier);
+        if (gestureClassifier instanceof KnnGestureClassifier) {
+            gestureModel = (KnnGestureClassifier) gestureClassifier;
+        }
+        if (loadGovernor == null) {
+            loadGovernor = new LoadGovernor(LoadTier.defaults(), START_LOAD_TIER);
+        }
+        startedTier = loadGovernor.tier();
+        gesturePipeline.setAnalysisEveryNth(startedTier.analysisEveryNth());
+        loadGovernor.setListener(this::onLoadTierChanged);
+        Log.i(TAG, "Load tier: " + startedTier);
+        registerMetrics();
 
         AndroidPacketCreator packetCreator = processor.getPacketCreator();
         Map<String, Packet> inputSidePackets = new HashMap<>();
-        inputSidePackets.put(INPUT_NUM_HANDS_SIDE_PACKET_NAME, packetCreator.createInt32(NUM_HANDS));
+        inputSidePackets.put(INPUT_NUM_HANDS_SIDE_PACKET_NAME,
+                packetCreator.createInt32(Math.min(startedTier.maxHands(), NUM_HANDS)));
         processor.setInputSidePackets(inputSidePackets);
 
         processor.addPacketCallback(
                 OUTPUT_LANDMARKS_STREAM_NAME,
                 (packet) -> {
-                    Log.d(TAG, "Received multi-hand landmarks packet.");
-                    multiHandLandmarks =
-                            PacketGetter.getProtoVector(packet, NormalizedLandmarkList.parser());
-
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            gesture.setText(handGestureCalculator(multiHandLandmarks));
-                        }
-                    });
-                    Log.d(
-                            TAG,
-                            "[TS:"
-                                    + packet.getTimestamp()
-                                    + "] "
-                                    + getMultiHandLandmarksDebugString(multiHandLandmarks));
+                    long arrival = System.nanoTime();
+                    metrics.record(PipelineMetrics.Stage.ARRIVAL, arrival - packet.getTimestamp() * 1000);
+                    if (BuildConfig.DEBUG) {
+                        packetLog.log("Received multi-hand landmarks packet.");
+                    }
+                    landmarkParser.reset();
+                    PacketGetter.getProtoVector(packet, landmarkParser);
+                    metrics.record(PipelineMetrics.Stage.DECODE, System.nanoTime() - arrival);
+                    frameJoiner.offerLandmarks(
+                            packet.getTimestamp(), landmarkParser.landmarks(), landmarkParser.handCount());
+                    frameJoiner.drain(handFrameListener);
                 });
         processor.addPacketCallback(
                 OUTPUT_HAND_RECT
                 , new PacketCallback() {
                     @Override
                     public void process(Packet packet) {
-
-                        List<RectProto.NormalizedRect> normalizedRectsList = PacketGetter.getProtoVector(packet, RectProto.NormalizedRect.parser());
-
-                        try {
-                            runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    moveGesture.setText(handGestureMoveCalculator(normalizedRectsList));
-                                }
-                            });
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
+                        long start = System.nanoTime();
+                        rectParser.reset();
+                        PacketGetter.getProtoVector(packet, rectParser);
+                        metrics.record(PipelineMetrics.Stage.DECODE, System.nanoTime() - start);
+                        frameJoiner.offerRects(packet.getTimestamp(), rectParser.rects(), rectParser.rectCount());
+                        frameJoiner.drain(handFrameListener);
                     }
                 });
+        processor.addPacketCallback(
+                OUTPUT_HANDEDNESS_STREAM_NAME,
+                (packet) -> {
+                    long start = System.nanoTime();
+                    handednessParser.reset();
+                    PacketGetter.getProtoVector(packet, handednessParser);
+                    metrics.record(PipelineMetrics.Stage.DECODE, System.nanoTime() - start);
+                    frameJoiner.offerHandedness(
+                            packet.getTimestamp(), handednessParser.scores(), handednessParser.handCount());
+                    frameJoiner.drain(handFrameListener);
+                });
     }
 
-    private String getMultiHandLandmarksDebugString(List<NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return "No hand landmarks";
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        loadGovernor.reset();
+        // Otherwise recording starts once the preview display is sized.
+        if (RECORD_FRAMES && frameYScale > 0) {
+            startRecording();
         }
-        String multiHandLandmarksStr = "Number of hands detected: " + multiHandLandmarks.size() + "\n";
-        int handIndex = 0;
-        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
-            multiHandLandmarksStr +=
-                    "\t#Hand landmarks for hand[" + handIndex + "]: " + landmarks.getLandmarkCount() + "\n";
-            int landmarkIndex = 0;
-            for (NormalizedLandmark landmark : landmarks.getLandmarkList()) {
-                multiHandLandmarksStr +=
-                        "\t\tLandmark ["
-                                + landmarkIndex
-                                + "]: ("
-                                + landmark.getX()
-                                + ", "
-                                + landmark.getY()
-                                + ", "
-                                + landmark.getZ()
-                                + ")\n";
-                ++landmarkIndex;
-            }
-            ++handIndex;
+        if (EXPORT_HOST != null) {
+            startExporting();
         }
-        return multiHandLandmarksStr;
+        analyticsExecutor.execute(this::startAnalytics);
     }
 
-    private String handGestureCalculator(List<NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return "No hand deal";
-        }
-        boolean thumbIsOpen = false;
-        boolean firstFingerIsOpen = false;
-        boolean secondFingerIsOpen = false;
-        boolean thirdFingerIsOpen = false;
-        boolean fourthFingerIsOpen = false;
-
-        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        stopRecording();
+        stopExporting();
+        analyticsExecutor.execute(this::stopAnalytics);
+        writeMetrics();
+    }
 
-            List<NormalizedLandmark> landmarkList = landmarks.getLandmarkList();
-            float pseudoFixKeyPoint = landmarkList.get(2).getX();
-            if (pseudoFixKeyPoint < landmarkList.get(9).getX()) {
-                if (landmarkList.get(3).getX() < pseudoFixKeyPoint && landmarkList.get(4).getX() < pseudoFixKeyPoint) {
-                    thumbIsOpen = true;
-                }
-            }
-            if (pseudoFixKeyPoint > landmarkList.get(9).getX()) {
-                if (landmarkList.get(3).getX() > pseudoFixKeyPoint && landmarkList.get(4).getX() > pseudoFixKeyPoint) {
-                    thumbIsOpen = true;
-                }
-            }
-            Log.d(TAG, "pseudoFixKeyPoint == " + pseudoFixKeyPoint + "\nlandmarkList.get(2).getX() == " + landmarkList.get(2).getX()
-                    + "\nlandmarkList.get(4).getX() = " + landmarkList.get(4).getX());
-            pseudoFixKeyPoint = landmarkList.get(6).getY();
-            if (landmarkList.get(7).getY() < pseudoFixKeyPoint && landmarkList.get(8).getY() < landmarkList.get(7).getY()) {
-                firstFingerIsOpen = true;
-            }
-            pseudoFixKeyPoint = landmarkList.get(10).getY();
-            if (landmarkList.get(11).getY() < pseudoFixKeyPoint && landmarkList.get(12).getY() < landmarkList.get(11).getY()) {
-                secondFingerIsOpen = true;
-            }
-            pseudoFixKeyPoint = landmarkList.get(14).getY();
-            if (landmarkList.get(15).getY() < pseudoFixKeyPoint && landmarkList.get(16).getY() < landmarkList.get(15).getY()) {
-                thirdFingerIsOpen = true;
-            }
-            pseudoFixKeyPoint = landmarkList.get(18).getY();
-            if (landmarkList.get(19).getY() < pseudoFixKeyPoint && landmarkList.get(20).getY() < landmarkList.get(19).getY()) {
-                fourthFingerIsOpen = true;
-            }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loadGovernor.setListener(null);
+        screenEvents.cancel();
+        analyticsExecutor.shutdown();
+    }
 
-            // Hand gesture recognition
-            if (thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen) {
-                return "FIVE";
-            } else if (!thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen) {
-                return "FOUR";
-            } else if (thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
-                return "TREE";
-            } else if (thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
-                return "TWO";
-            } else if (!thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
-                return "ONE";
-            } else if (!thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
-                return "YEAH";
-            } else if (!thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && fourthFingerIsOpen) {
-                return "ROCK";
-            } else if (thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && fourthFingerIsOpen) {
-                return "Spider-Man";
-            } else if (!thumbIsOpen && !firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
-                return "fist";
-            } else if (!firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen && isThumbNearFirstFinger(landmarkList.get(4), landmarkList.get(8))) {
-                return "OK";
-            } else {
-                String info = "thumbIsOpen " + thumbIsOpen + "firstFingerIsOpen" + firstFingerIsOpen
-                        + "secondFingerIsOpen" + secondFingerIsOpen +
-                        "thirdFingerIsOpen" + thirdFingerIsOpen + "fourthFingerIsOpen" + fourthFingerIsOpen;
-                Log.d(TAG, "handGestureCalculator: == " + info);
-                return "___";
-            }
+    @Override
+    protected void onPreviewDisplaySurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        super.onPreviewDisplaySurfaceChanged(holder, format, width, height);
+        // The graph gets frames of the display size, turned back to the camera's orientation.
+        Size displaySize = cameraHelper.computeDisplaySizeFromViewSize(computeViewSize(width, height));
+        boolean isCameraRotated = cameraHelper.isCameraRotated();
+        float frameWidth = isCameraRotated ? displaySize.getHeight() : displaySize.getWidth();
+        float frameHeight = isCameraRotated ? displaySize.getWidth() : displaySize.getHeight();
+        float yScale = frameHeight / frameWidth;
+        if (yScale == frameYScale) {
+            return;
+        }
+        frameYScale = yScale;
+        if (gestureModel != null) {
+            gestureModel.setYScale(yScale);
+        }
+        if (RECORD_FRAMES && resumed) {
+            // A recording holds frames of one shape.
+            stopRecording();
+            startRecording();
         }
-        return "___";
     }
 
-    float previousXCenter;
-    float previousYCenter;
-    float previousAngle; // angle between the hand and the x-axis. in radian
-    float previous_rectangle_width;
-    float previousRectangleHeight;
-    boolean frameCounter;
-
-    private String handGestureMoveCalculator(List<RectProto.NormalizedRect> normalizedRectList) {
-
-        RectProto.NormalizedRect normalizedRect = normalizedRectList.get(0);
-        float height = normalizedRect.getHeight();
-        float centerX = normalizedRect.getXCenter();
-        float centerY = normalizedRect.getYCenter();
-        if (previousXCenter != 0) {
-            double mouvementDistance = getEuclideanDistanceAB(centerX, centerY,
-                    previousXCenter, previousYCenter);
-            // LOG(INFO) << "Distance: " << mouvementDistance;
-
-            double mouvementDistanceFactor = 0.02; // only large mouvements will be recognized.
+    @Override
+    protected Size cameraTargetResolution() {
+        return new Size(startedTier.width(), startedTier.height());
+    }
 
-            // the height is normed [0.0, 1.0] to the camera window height.
-            // so the mouvement (when the hand is near the camera) should be equivalent to the mouvement when the hand is far.
-            double mouvementDistanceThreshold = mouvementDistanceFactor * height;
-            if (mouvementDistance > mouvementDistanceThreshold) {
-                double angle = radianToDegree(getAngleABC(centerX, centerY,
-                        previousXCenter, previousYCenter, previousXCenter + 0.1,
-                        previousYCenter));
-                // LOG(INFO) << "Angle: " << angle;
-                if (angle >= -45 && angle < 45) {
-                    return "Scrolling right";
-                } else if (angle >= 45 && angle < 135) {
-                    return "Scrolling up";
-                } else if (angle >= 135 || angle < -135) {
-                    return "Scrolling left";
-                } else if (angle >= -135 && angle < -45) {
-                    return "Scrolling down";
-                }
-            }
+    // Runs on the frame thread. The analysis rate changes at once; the camera resolution and the
+    // num_hands side packet are fixed once the camera and graph run, so those restart the activity.
+    private void onLoadTierChanged(LoadTier previous, LoadTier current) {
+        Log.i(TAG, "Load tier: " + previous + " -> " + current);
+        gesturePipeline.setAnalysisEveryNth(current.analysisEveryNth());
+        if (current.needsRestart(startedTier)) {
+            runOnUiThread(this::recreate);
         }
+    }
 
-        previousXCenter = centerX;
-        previousYCenter = centerY;
-        // 2. FEATURE - Zoom in/out
-        if (previousRectangleHeight != 0) {
-            double heightDifferenceFactor = 0.03;
+    private void registerMetrics() {
+        gestureLabels.setDelayHistogram(metrics.histogram(PipelineMetrics.Stage.UI_DISPATCH));
+        motionLabels.setDelayHistogram(metrics.histogram(PipelineMetrics.Stage.UI_DISPATCH));
+        metrics.addCounter("frames_joined", frameJoiner::joinedCount);
+        metrics.addCounter("frames_dropped", frameJoiner::droppedCount);
+        metrics.addCounter("events_published", eventBus::publishedCount);
+        metrics.addCounter("screen_labels_coalesced",
+                () -> gestureLabels.coalescedCount() + motionLabels.coalescedCount());
+        metrics.addCounter("incremental_hits", gesturePipeline.incrementalGate()::hitCount);
+        metrics.addCounter("incremental_misses", gesturePipeline.incrementalGate()::missCount);
+        metrics.addCounter("incremental_saved_us", () -> gesturePipeline.incrementalGate().savedNanos() / 1000);
+        metrics.addCounter("load_tier", loadGovernor::tierIndex);
+        metrics.addCounter("load_tier_changes", loadGovernor::changeCount);
+        metrics.addCounter("recorded_frames_dropped", () -> {
+            HandFrameRecorder activeRecorder = recorder;
+            return activeRecorder == null ? 0 : activeRecorder.droppedCount();
+        });
+        metrics.addCounter("exported_frames_dropped", () -> {
+            LandmarkExporter activeExporter = exporter;
+            return activeExporter == null ? 0 : activeExporter.droppedCount();
+        });
+        metrics.addCounter("exported_events_dropped", () -> {
+            LandmarkExporter activeExporter = exporter;
+            return activeExporter == null ? 0 : activeExporter.droppedEventCount();
+        });
+        metrics.addCounter("analytics_events_dropped", () -> {
+            GestureEventLog activeLog = eventLog;
+            return activeLog == null ? 0 : activeLog.droppedCount();
+        });
+    }
 
-            // the height is normed [0.0, 1.0] to the camera window height.
-            // so the mouvement (when the hand is near the camera) should be equivalent to the mouvement when the hand is far.
-            double heightDifferenceThreshold = height * heightDifferenceFactor;
-            if (height < previousRectangleHeight - heightDifferenceThreshold) {
-                return "Zoom out";
-            } else if (height > previousRectangleHeight + heightDifferenceThreshold) {
-                return "Zoom in";
-            }
+    private void writeMetrics() {
+        StringBuilder json = new StringBuilder();
+        metrics.dumpJson(json);
+        File file = new File(getExternalFilesDir(null), METRICS_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + file, e);
         }
-        previousRectangleHeight = height;
-        // each odd Frame is skipped. For a better result.
-        frameCounter = !frameCounter;
-        if (frameCounter && multiHandLandmarks != null) {
-
-            for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
-
-                List<NormalizedLandmark> landmarkList = landmarks.getLandmarkList();
-                NormalizedLandmark wrist = landmarkList.get(0);
-                NormalizedLandmark MCP_of_second_finger = landmarkList.get(9);
+    }
 
-                // angle between the hand (wirst and MCP) and the x-axis.
-                double ang_in_radian =
-                        getAngleABC(MCP_of_second_finger.getX(), MCP_of_second_finger.getY(),
-                                wrist.getX(), wrist.getY(), wrist.getX() + 0.1, wrist.getY());
-                int ang_in_degree = radianToDegree(ang_in_radian);
-                // LOG(INFO) << "Angle: " << ang_in_degree;
-                if (previousAngle != 0) {
-                    double angleDifferenceTreshold = 12;
-                    if (previousAngle >= 80 && previousAngle <= 100) {
-                        if (ang_in_degree > previousAngle + angleDifferenceTreshold) {
-                            return "Slide left";
+    private void startRecording() {
+        File dir = new File(getExternalFilesDir(null), RECORDINGS_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return;
+        }
+        File file = new File(dir, "hands-" + System.currentTimeMillis() + ".hfr");
+        try {
+            recorder = new HandFrameRecorder(file, NUM_HANDS, frameYScale);
+            Log.i(TAG, "Recording hand frames to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot record to " + file, e);
+        }
+    }
 
-                        } else if (ang_in_degree < previousAngle - angleDifferenceTreshold) {
-                            return "Slide right";
+    private void stopRecording() {
+        HandFrameRecorder stopped = recorder;
+        recorder = null;
+        if (stopped == null) {
+            return;
+        }
+        try {
+            stopped.close();
+            Log.i(TAG, "Recorded " + stopped.recordedCount() + " hand frames, dropped "
+                    + stopped.droppedCount());
+        } catch (IOException e) {
+            Log.e(TAG, "Recording failed", e);
+        }
+    }
 
-                        }
-                    }
-                }
-                previousAngle = ang_in_degree;
-            }
+    private void startExporting() {
+        exportEvents = eventBus.subscribe(GestureEventBus.Policy.DROP_OLDEST, EXPORT_EVENT_QUEUE);
+        // Resolved by the exporter's own thread, off the UI thread.
+        InetSocketAddress target = InetSocketAddress.createUnresolved(EXPORT_HOST, EXPORT_PORT);
+        exporter = new LandmarkExporter(EXPORT_TRANSPORT, target, NUM_HANDS,
+                gesturePipeline.tracker().capacity(), exportEvents);
+        Log.i(TAG, "Streaming hands over " + EXPORT_TRANSPORT + " to " + target);
+    }
 
+    private void stopExporting() {
+        LandmarkExporter stopped = exporter;
+        exporter = null;
+        if (stopped == null) {
+            return;
+        }
+        exportEvents.cancel();
+        try {
+            stopped.close();
+            Log.i(TAG, "Streamed " + stopped.exportedCount() + " hand frames in " + stopped.sentBytes()
+                    + " bytes, dropped " + stopped.droppedCount() + " frames and "
+                    + stopped.droppedEventCount() + " events");
+        } catch (IOException e) {
+            Log.e(TAG, "Streaming failed", e);
         }
-        return "";
     }
 
-
-    private boolean isThumbNearFirstFinger(LandmarkProto.NormalizedLandmark point1, LandmarkProto.NormalizedLandmark point2) {
-        double distance = getEuclideanDistanceAB(point1.getX(), point1.getY(), point2.getX(), point2.getY());
-        return distance < 0.1;
+    // Runs on the analytics executor, as does stopAnalytics.
+    private void startAnalytics() {
+        File dir = new File(getFilesDir(), ANALYTICS_DIR);
+        try {
+            eventLog = new GestureEventLog(dir, ANALYTICS_FILE_BYTES, ANALYTICS_LOG_BYTES);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot log analytics to " + dir, e);
+            return;
+        }
+        // Appending only encodes into a block, so it runs right on the publishing frame thread.
+        analyticsEvents = eventBus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, ANALYTICS_EVENT_QUEUE,
+                Runnable::run, eventLog::append);
     }
 
-    private double getEuclideanDistanceAB(double a_x, double a_y, double b_x, double b_y) {
-        double dist = Math.pow(a_x - b_x, 2) + Math.pow(a_y - b_y, 2);
-        return Math.sqrt(dist);
+    private void stopAnalytics() {
+        GestureEventLog stopped = eventLog;
+        eventLog = null;
+        if (stopped == null) {
+            return;
+        }
+        analyticsEvents.cancel();
+        try {
+            stopped.close();
+            Log.i(TAG, "Logged " + stopped.appendedCount() + " gesture events in " + stopped.commitCount()
+                    + " commits, dropped " + stopped.droppedCount());
+        } catch (IOException e) {
+            Log.e(TAG, "Analytics log failed", e);
+        }
     }
 
-    private double getAngleABC(double a_x, double a_y, double b_x, double b_y, double c_x, double c_y) {
-        double ab_x = b_x - a_x;
-        double ab_y = b_y - a_y;
-        double cb_x = b_x - c_x;
-        double cb_y = b_y - c_y;
+    private GestureClassifier loadGestureClassifier() {
+        try (InputStream in = getAssets().open(GESTURE_MODEL_ASSET)) {
+            KnnGestureClassifier model = KnnGestureClassifier.read(in);
+            Log.i(TAG, "Loaded gesture model with " + model.sampleCount() + " examples of "
+                    + model.gestures());
+            return model;
+        } catch (FileNotFoundException e) {
+            // No model shipped: classify with the rules.
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load " + GESTURE_MODEL_ASSET + ", using the gesture rules", e);
+        }
+        return loadGestureRules();
+    }
 
-        double dot = (ab_x * cb_x + ab_y * cb_y);   // dot product
-        double cross = (ab_x * cb_y - ab_y * cb_x); // cross product
+    private GestureRules loadGestureRules() {
+        try (Reader reader = new InputStreamReader(getAssets().open(GESTURE_RULES_ASSET), StandardCharsets.UTF_8)) {
+            return GestureRules.parse(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot load " + GESTURE_RULES_ASSET + ", using the built-in gestures", e);
+            return GestureRules.defaults();
+        }
+    }
 
-        return Math.atan2(cross, dot);
+    // Runs on the publishing frame thread; the dispatchers post the labels to the UI thread.
+    private void showEvent(GestureEvent event) {
+        (event.type() == GestureEvent.Type.GESTURE ? gestureLabels : motionLabels).offer(event.label());
     }
 
-    private int radianToDegree(double radian) {
-        return (int) Math.floor(radian * 180. / Math.PI + 0.5);
+    // Runs on whichever callback thread completed the frame, one frame at a time.
+    private void onHandFrame(HandFrame frame) {
+        HandFrameRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.record(frame);
+        }
+        if (LEAD_UPDATE_EVERY_NTH > 0 && ++framesSinceLeadUpdate >= LEAD_UPDATE_EVERY_NTH) {
+            framesSinceLeadUpdate = 0;
+            gesturePipeline.smoother().setLeadMicros(metrics.medianProcessingNanos() / 1000);
+        }
+        long start = System.nanoTime();
+        gesturePipeline.process(frame);
+        long end = System.nanoTime();
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, end - start);
+        // Frame timestamps are camera timestamps in microseconds, on a clock that need not be
+        // nanoTime's; the governor only looks at how much this delay exceeds the shortest one.
+        loadGovernor.onFrame(end - frame.timestamp() * 1000);
+        eventSource.publish(gesturePipeline, frame.timestamp());
+        LandmarkExporter activeExporter = exporter;
+        if (activeExporter != null) {
+            activeExporter.export(frame, gesturePipeline.tracker());
+        }
+        if (BuildConfig.DEBUG) {
+            landmarkLog.log(frame, HandFrameText::landmarks);
+            metricsLog.log(metrics, PipelineMetrics::dumpText);
+        }
     }
 }
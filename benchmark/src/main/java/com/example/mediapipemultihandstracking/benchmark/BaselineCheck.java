@@ -0,0 +1,222 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks with the GC profiler and records their time and allocation per operation
+ * as a baseline, or checks them against one, failing on a regression.
+ *
+ * <pre>
+ * record &lt;baseline.csv&gt; [options] [benchmark regex]...
+ * check  &lt;baseline.csv&gt; [options] [benchmark regex]...
+ *
+ * options: --margin F        time regression tolerated, as a share of the baseline (default 0.25)
+ *          --alloc-margin F  allocation regression tolerated, as a share (default 0.10), on top
+ *                            of {@value #ALLOC_SLACK_BYTES} bytes per operation
+ *          --quick           2 warmup and 3 measurement iterations instead of the benchmarks' own
+ * </pre>
+ *
+ * <p>Every benchmark runs in average time mode in nanoseconds, whatever its annotations say, so
+ * the baseline has one unit. The baseline is one line per benchmark and parameter combination:
+ * {@code benchmark,params,ns_per_op,bytes_per_op}. Times only compare on the machine that
+ * recorded them, so the baseline is not checked in: record it on the machine that checks it,
+ * before the change to check, and a check without one fails before running anything. Benchmarks
+ * missing from the baseline are reported as new and never fail the check.
+ */
+public final class BaselineCheck {
+    private static final String HEADER = "benchmark,params,ns_per_op,bytes_per_op";
+    // Allocation the GC profiler reports for code that allocates nothing, rounded up generously.
+    private static final double ALLOC_SLACK_BYTES = 8;
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        if (args.length < 2 || !(args[0].equals("record") || args[0].equals("check"))) {
+            System.err.println("usage: BaselineCheck record|check <baseline.csv> [--margin F] [--alloc-margin F] [--quick] [regex]...");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[1]);
+        double margin = 0.25;
+        double allocMargin = 0.10;
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .addProfiler(GCProfiler.class);
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--margin":
+                    margin = Double.parseDouble(args[++i]);
+                    break;
+                case "--alloc-margin":
+                    allocMargin = Double.parseDouble(args[++i]);
+                    break;
+                case "--quick":
+                    options.warmupIterations(2).measurementIterations(3);
+                    break;
+                default:
+                    options.include(args[i]);
+            }
+        }
+
+        if (args[0].equals("check") && !baselineFile.isFile()) {
+            System.err.println("no baseline at " + baselineFile + ", record one on this machine first (jmhBaseline)");
+            System.exit(1);
+        }
+
+        Map<String, Measurement> measured = new TreeMap<>();
+        for (RunResult result : new Runner(options.build()).run()) {
+            Measurement measurement = Measurement.of(result);
+            measured.put(measurement.key(), measurement);
+        }
+        if (args[0].equals("record")) {
+            write(baselineFile, measured);
+            System.out.println("recorded " + measured.size() + " benchmarks in " + baselineFile);
+            return;
+        }
+        if (!check(read(baselineFile), measured, margin, allocMargin)) {
+            System.exit(1);
+        }
+    }
+
+    // Prints every benchmark against its baseline; false if any regressed.
+    private static boolean check(Map<String, Measurement> baseline, Map<String, Measurement> measured,
+                                 double margin, double allocMargin) {
+        int regressions = 0;
+        System.out.printf("%-60s %10s %10s %8s %10s %10s  %s%n",
+                "benchmark", "base ns", "ns", "change", "base B", "B", "");
+        for (Measurement current : measured.values()) {
+            Measurement base = baseline.get(current.key());
+            if (base == null) {
+                System.out.printf(Locale.US, "%-60s %10s %10.1f %8s %10s %10.1f  new%n",
+                        current.key(), "-", current.nanos, "", "-", current.bytes);
+                continue;
+            }
+            List<String> problems = new ArrayList<>();
+            if (current.nanos > base.nanos * (1 + margin)) {
+                problems.add("SLOWER");
+            }
+            if (current.bytes > base.bytes * (1 + allocMargin) + ALLOC_SLACK_BYTES) {
+                problems.add("ALLOCATES MORE");
+            }
+            if (!problems.isEmpty()) {
+                regressions++;
+            }
+            System.out.printf(Locale.US, "%-60s %10.1f %10.1f %+7.0f%% %10.1f %10.1f  %s%n",
+                    current.key(), base.nanos, current.nanos, 100 * (current.nanos / base.nanos - 1),
+                    base.bytes, current.bytes, problems.isEmpty() ? "ok" : String.join(", ", problems));
+        }
+        System.out.printf(Locale.US, "%d of %d benchmarks regressed beyond %.0f%% time, %.0f%% allocation%n",
+                regressions, measured.size(), 100 * margin, 100 * allocMargin);
+        return regressions == 0;
+    }
+
+    private static Map<String, Measurement> read(File file) throws IOException {
+        Map<String, Measurement> baseline = new TreeMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) {
+                throw new IOException(file + " is not a benchmark baseline");
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 4) {
+                    throw new IOException("bad baseline line: " + line);
+                }
+                Measurement measurement = new Measurement(fields[0], fields[1],
+                        Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+                baseline.put(measurement.key(), measurement);
+            }
+        }
+        return baseline;
+    }
+
+    private static void write(File file, Map<String, Measurement> measured) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "\n");
+            for (Measurement measurement : measured.values()) {
+                writer.write(String.format(Locale.US, "%s,%s,%.1f,%.1f\n", measurement.benchmark,
+                        measurement.params, measurement.nanos, measurement.bytes));
+            }
+        }
+    }
+
+    private static final class Measurement {
+        final String benchmark;
+        final String params;
+        final double nanos;
+        final double bytes;
+
+        Measurement(String benchmark, String params, double nanos, double bytes) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        static Measurement of(RunResult result) {
+            String name = result.getParams().getBenchmark();
+            // Class and method, without the package.
+            int method = name.lastIndexOf('.');
+            String benchmark = name.substring(name.lastIndexOf('.', method - 1) + 1);
+            StringBuilder params = new StringBuilder();
+            for (Map.Entry<String, String> param : sortedParams(result).entrySet()) {
+                if (params.length() > 0) {
+                    params.append(';');
+                }
+                params.append(param.getKey()).append('=').append(param.getValue());
+            }
+            double bytes = Double.NaN;
+            // JMH hands out a map of raw Results; only their scores are needed.
+            Map<String, ?> secondaries = result.getSecondaryResults();
+            for (Map.Entry<String, ?> secondary : secondaries.entrySet()) {
+                if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+                    bytes = ((Result<?>) secondary.getValue()).getScore();
+                }
+            }
+            if (Double.isNaN(bytes)) {
+                throw new IllegalStateException("no allocation rate for " + name + ", is the GC profiler missing?");
+            }
+            return new Measurement(benchmark, params.toString(), result.getPrimaryResult().getScore(), bytes);
+        }
+
+        private static Map<String, String> sortedParams(RunResult result) {
+            Map<String, String> params = new TreeMap<>();
+            for (String key : result.getParams().getParamsKeys()) {
+                params.put(key, result.getParams().getParam(key));
+            }
+            return params;
+        }
+
+        String key() {
+            return params.isEmpty() ? benchmark : benchmark + "," + params;
+        }
+    }
+}
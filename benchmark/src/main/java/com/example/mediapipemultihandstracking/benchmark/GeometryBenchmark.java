@@ -0,0 +1,91 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.Geometry;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Geometry} helpers over every landmark of every hand of a frame: the distance and the
+ * angle from the wrist, and the angle converted to whole degrees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    @Param({"1", "2", "8"})
+    public int hands;
+
+    private float[] landmarks;
+    private double[] radians;
+
+    @Setup
+    public void setUp() {
+        landmarks = new float[hands * HandLandmark.FLOATS_PER_HAND];
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            boolean open = hand % 2 == 0;
+            HandPoses.write(landmarks, offset, open, true, open, false, open);
+            HandPoses.translate(landmarks, offset, 0.1f * hand, 0f);
+        }
+        radians = new double[hands * HandLandmark.COUNT];
+        for (int i = 0; i < radians.length; i++) {
+            radians[i] = (i * 0.37) % (2 * Math.PI) - Math.PI;
+        }
+    }
+
+    @Benchmark
+    public double euclideanDistance() {
+        double sum = 0;
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            float wristX = landmarks[HandLandmark.x(offset, HandLandmark.WRIST)];
+            float wristY = landmarks[HandLandmark.y(offset, HandLandmark.WRIST)];
+            for (int landmark = 1; landmark < HandLandmark.COUNT; landmark++) {
+                sum += Geometry.getEuclideanDistanceAB(landmarks[HandLandmark.x(offset, landmark)],
+                        landmarks[HandLandmark.y(offset, landmark)], wristX, wristY);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double angle() {
+        double sum = 0;
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            float wristX = landmarks[HandLandmark.x(offset, HandLandmark.WRIST)];
+            float wristY = landmarks[HandLandmark.y(offset, HandLandmark.WRIST)];
+            for (int landmark = 1; landmark < HandLandmark.COUNT; landmark++) {
+                sum += Geometry.getAngleABC(landmarks[HandLandmark.x(offset, landmark)],
+                        landmarks[HandLandmark.y(offset, landmark)], wristX, wristY, wristX + 0.1, wristY);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int radianToDegree() {
+        int sum = 0;
+        for (double radian : radians) {
+            sum += Geometry.radianToDegree(radian);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.log.GestureEventLog;
+import com.example.mediapipemultihandstracking.gesture.log.GestureUsage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending one gesture or motion event to the analytics log, which only encodes it into a block
+ * for the writer thread, and reading the usage of a log of a million such events back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GestureEventLogBenchmark {
+    private static final int MAX_HANDS = 2;
+    private static final int WRITTEN_EVENTS = 1_000_000;
+    private static final Gesture[] GESTURES = {Gesture.FIVE, Gesture.FIST, Gesture.OK, Gesture.ONE, Gesture.ROCK};
+    private static final Motion[] MOTIONS = {Motion.NONE, Motion.SCROLL_LEFT, Motion.ZOOM_IN, Motion.SLIDE_RIGHT};
+
+    @State(Scope.Thread)
+    public static class Appending {
+        private final Events events = new Events(1);
+        private File dir;
+        private GestureEventLog log;
+
+        @Setup
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("events").toFile();
+            // Old files are compacted away, so the log stays within a few megabytes.
+            log = new GestureEventLog(dir, 1 << 20, 4 << 20);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            log.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Written {
+        private File dir;
+
+        @Setup
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("events").toFile();
+            Events events = new Events(11);
+            try (GestureEventLog log = new GestureEventLog(dir, 4 << 20, Long.MAX_VALUE, 8, 64 * 1024, 1000)) {
+                for (int i = 0; i < WRITTEN_EVENTS; i++) {
+                    // Waits for the writer rather than drop.
+                    while (!log.append(events.next())) {
+                        Thread.yield();
+                    }
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean append(Appending appending) {
+        return appending.log.append(appending.events.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long read(Written written) throws IOException {
+        return GestureUsage.read(written.dir).eventCount();
+    }
+
+    // A random mix of gesture events of up to two hands and motion events, a few frames apart.
+    private static final class Events {
+        private final Random random;
+        private final GestureEvent event = new GestureEvent(MAX_HANDS);
+        private final Gesture[] hands = new Gesture[MAX_HANDS];
+        private final Handedness[] handedness = {Handedness.RIGHT, Handedness.LEFT};
+        private long timestamp;
+
+        Events(long seed) {
+            random = new Random(seed);
+        }
+
+        GestureEvent next() {
+            timestamp += 33_333L * (1 + random.nextInt(30));
+            if (random.nextInt(3) == 0) {
+                event.setMotion(timestamp, "", MOTIONS[random.nextInt(MOTIONS.length)], null);
+            } else {
+                int count = random.nextInt(MAX_HANDS + 1);
+                for (int hand = 0; hand < count; hand++) {
+                    hands[hand] = GESTURES[random.nextInt(GESTURES.length)];
+                }
+                TwoHandGesture twoHand = count == 2 && random.nextBoolean() ? TwoHandGesture.BOTH_FIST
+                        : TwoHandGesture.NONE;
+                event.setGestures(timestamp, "", count, hands, handedness, twoHand);
+            }
+            return event;
+        }
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.GestureEngine;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.feature.HandFeatureExtractor;
+import com.example.mediapipemultihandstracking.gesture.feature.HandFeatures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full 3D feature extraction of one hand, against the 2D finger mask the rules classify from.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandFeatureBenchmark {
+    private final GestureEngine engine = new GestureEngine();
+    private final HandFeatureExtractor extractor = new HandFeatureExtractor();
+    private final float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+    private final float[] features = new float[HandFeatures.SIZE];
+
+    @Setup
+    public void setUp() {
+        HandPoses.write(landmarks, 0, true, true, false, false, true);
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            landmarks[HandLandmark.z(0, i)] = -0.01f * i;
+        }
+    }
+
+    @Benchmark
+    public float[] extract() {
+        extractor.extract(landmarks, 0, features, 0);
+        return features;
+    }
+
+    @Benchmark
+    public int fingerMask() {
+        return engine.fingerMask(landmarks, 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GestureEngine;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.IncrementalGate;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One still hand through the incremental gate, which reuses the last result, against classifying
+ * it in full with the rules or a 2000-example k-NN model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalGateBenchmark {
+    private static final int EXAMPLES = 2000;
+
+    @Param({"rules", "knn"})
+    public String classifier;
+
+    private final HandFrame frame = new HandFrame(1);
+    private GestureEngine engine;
+    private IncrementalGate gate;
+
+    @Setup
+    public void setUp() {
+        if (classifier.equals("knn")) {
+            Random random = new Random(1);
+            KnnGestureClassifier.Builder builder = new KnnGestureClassifier.Builder();
+            for (int i = 0; i < EXAMPLES; i++) {
+                float[] landmarks = i % 2 == 0
+                        ? HandPoses.pose(true, true, true, true, true)
+                        : HandPoses.pose(false, false, false, false, false);
+                for (int f = 0; f < landmarks.length; f++) {
+                    landmarks[f] += (random.nextFloat() - 0.5f) * 0.01f;
+                }
+                builder.add(i % 2 == 0 ? "FIVE" : "FIST", landmarks, 0);
+            }
+            engine = new GestureEngine(builder.build());
+        } else {
+            engine = new GestureEngine();
+        }
+        HandPoses.write(frame.landmarks(), 0, true, true, true, true, true);
+        float[] rects = frame.rects();
+        rects[HandRect.X_CENTER] = 0.5f;
+        rects[HandRect.Y_CENTER] = 0.6f;
+        rects[HandRect.WIDTH] = 0.4f;
+        rects[HandRect.HEIGHT] = 0.4f;
+        frame.setHandCount(1);
+        frame.setRectCount(1);
+        // Allow every call to reuse the first result.
+        gate = new IncrementalGate(1, 0.02f, 0.05f, Integer.MAX_VALUE);
+        gate.classify(engine, frame, 0, 0, 0);
+    }
+
+    @Benchmark
+    public Gesture gateHit() {
+        return gate.classify(engine, frame, 0, 0, 0);
+    }
+
+    @Benchmark
+    public Gesture full() {
+        float[] landmarks = frame.landmarks();
+        return engine.classify(landmarks, HandLandmark.handOffset(0), engine.fingerMask(landmarks, 0));
+    }
+}
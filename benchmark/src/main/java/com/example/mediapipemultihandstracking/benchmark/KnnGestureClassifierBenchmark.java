@@ -0,0 +1,80 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GestureEngine;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hand classified by the learned k-NN model, by index size, against the compiled rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnnGestureClassifierBenchmark {
+    private static final boolean[][] POSES = {
+            {true, true, true, true, true},
+            {false, false, false, false, false},
+            {false, true, true, false, false},
+            {true, false, false, false, false}
+    };
+    private static final String[] NAMES = {"FIVE", "FIST", "YEAH", "THUMB_UP"};
+
+    @Param({"200", "2000"})
+    public int examples;
+
+    private final GestureEngine rules = new GestureEngine();
+    private KnnGestureClassifier model;
+    private float[] hand;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        KnnGestureClassifier.Builder builder = new KnnGestureClassifier.Builder();
+        for (int i = 0; i < examples; i++) {
+            builder.add(NAMES[i % NAMES.length], jitter(pose(i % POSES.length), random), 0);
+        }
+        model = builder.build();
+        hand = jitter(pose(2), random);
+    }
+
+    private static float[] pose(int index) {
+        boolean[] fingers = POSES[index];
+        return HandPoses.pose(fingers[0], fingers[1], fingers[2], fingers[3], fingers[4]);
+    }
+
+    private static float[] jitter(float[] landmarks, Random random) {
+        for (int i = 0; i < landmarks.length; i++) {
+            landmarks[i] += (random.nextFloat() - 0.5f) * 0.01f;
+        }
+        return landmarks;
+    }
+
+    @Benchmark
+    public Gesture knn() {
+        return model.classify(hand, 0, 0);
+    }
+
+    @Benchmark
+    public Gesture rules() {
+        return rules.classify(hand, 0);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.proto.LandmarkListParser;
+import com.example.mediapipemultihandstracking.gesture.proto.MediaPipeProtos;
+import com.example.mediapipemultihandstracking.gesture.proto.RectListParser;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of one {@code hand_landmarks} and one {@code hand_rects_from_landmarks} packet
+ * payload: full message parsing followed by reading every float, against the streaming decoder
+ * writing into reused buffers.
+ *
+ * <p>The message path uses {@link DynamicMessage} over the mirrored schema, which is slower than
+ * the generated parser inside the MediaPipe AAR; compare allocation rates ({@code -prof gc}) as
+ * well as time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarkDecodeBenchmark {
+    @Param({"1", "2", "8"})
+    public int hands;
+
+    private byte[][] landmarkPayloads;
+    private byte[][] rectPayloads;
+    private LandmarkListParser landmarkParser;
+    private RectListParser rectParser;
+
+    private FieldDescriptor landmarkField;
+    private FieldDescriptor x;
+    private FieldDescriptor y;
+    private FieldDescriptor z;
+    private FieldDescriptor[] rectFields;
+    private float[] scratch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        landmarkPayloads = new byte[hands][];
+        rectPayloads = new byte[hands][];
+        float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+        for (int hand = 0; hand < hands; hand++) {
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = random.nextFloat();
+            }
+            landmarkPayloads[hand] = MediaPipeProtos.landmarkList(landmarks, 0, HandLandmark.COUNT);
+            rectPayloads[hand] = MediaPipeProtos.rect(random.nextFloat(), random.nextFloat(),
+                    random.nextFloat(), random.nextFloat(), random.nextFloat());
+        }
+        landmarkParser = new LandmarkListParser(new float[hands * HandLandmark.FLOATS_PER_HAND]);
+        rectParser = new RectListParser(new float[hands * HandRect.FLOATS_PER_RECT]);
+
+        landmarkField = MediaPipeProtos.NORMALIZED_LANDMARK_LIST.findFieldByName("landmark");
+        x = MediaPipeProtos.NORMALIZED_LANDMARK.findFieldByName("x");
+        y = MediaPipeProtos.NORMALIZED_LANDMARK.findFieldByName("y");
+        z = MediaPipeProtos.NORMALIZED_LANDMARK.findFieldByName("z");
+        rectFields = MediaPipeProtos.NORMALIZED_RECT.getFields().subList(0, HandRect.FLOATS_PER_RECT)
+                .toArray(new FieldDescriptor[0]);
+        scratch = new float[hands * HandLandmark.FLOATS_PER_HAND];
+    }
+
+    @Benchmark
+    public float messageParser() throws InvalidProtocolBufferException {
+        for (int hand = 0; hand < hands; hand++) {
+            DynamicMessage list =
+                    DynamicMessage.parseFrom(MediaPipeProtos.NORMALIZED_LANDMARK_LIST, landmarkPayloads[hand]);
+            @SuppressWarnings("unchecked")
+            List<DynamicMessage> landmarks = (List<DynamicMessage>) list.getField(landmarkField);
+            int offset = HandLandmark.handOffset(hand);
+            for (int i = 0; i < landmarks.size(); i++) {
+                DynamicMessage landmark = landmarks.get(i);
+                scratch[HandLandmark.x(offset, i)] = (Float) landmark.getField(x);
+                scratch[HandLandmark.y(offset, i)] = (Float) landmark.getField(y);
+                scratch[HandLandmark.z(offset, i)] = (Float) landmark.getField(z);
+            }
+            DynamicMessage rect = DynamicMessage.parseFrom(MediaPipeProtos.NORMALIZED_RECT, rectPayloads[hand]);
+            for (int i = 0; i < rectFields.length; i++) {
+                scratch[i] += (Float) rect.getField(rectFields[i]);
+            }
+        }
+        return scratch[0];
+    }
+
+    @Benchmark
+    public float wireDecoder() throws InvalidProtocolBufferException {
+        landmarkParser.reset();
+        rectParser.reset();
+        for (int hand = 0; hand < hands; hand++) {
+            landmarkParser.parseFrom(landmarkPayloads[hand]);
+            rectParser.parseFrom(rectPayloads[hand]);
+        }
+        return landmarkParser.landmarks()[0] + rectParser.rects()[0];
+    }
+}
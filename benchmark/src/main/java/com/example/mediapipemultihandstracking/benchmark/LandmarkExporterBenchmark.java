@@ -0,0 +1,154 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.stream.LandmarkExporter;
+import com.example.mediapipemultihandstracking.gesture.stream.LandmarkStreamDecoder;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency from exporting a frame of two moving hands until a receiver on the loopback interface
+ * has decoded it, over each transport. Sampled, so percentiles show as well as the mean.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarkExporterBenchmark {
+    private static final int FRAMES = 300;
+    // A datagram lost on its way is not waited for longer.
+    private static final long LOST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Param({"UDP", "TCP"})
+    public LandmarkExporter.Transport transport;
+
+    private HandFrame[] frames;
+    private HandTracker tracker;
+    private LandmarkExporter exporter;
+    private Closeable channel;
+    private Thread reader;
+    // Frames decoded or skipped by the receiver, only written by the reader thread.
+    private volatile long received;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = LandmarkStreamBenchmark.movingHands(FRAMES);
+        tracker = new HandTracker(LandmarkStreamBenchmark.TRACKS);
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(LandmarkStreamBenchmark.MAX_HANDS,
+                new LandmarkStreamDecoder.Listener() {
+                    @Override
+                    public void onFrame(HandFrame frame) {
+                    }
+
+                    @Override
+                    public void onEvent(GestureEvent event) {
+                    }
+                });
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        if (transport == LandmarkExporter.Transport.UDP) {
+            DatagramChannel datagrams = DatagramChannel.open();
+            datagrams.bind(loopback);
+            channel = datagrams;
+            exporter = exporter((InetSocketAddress) datagrams.getLocalAddress());
+            reader = new Thread(() -> {
+                ByteBuffer datagram = ByteBuffer.allocate(65_536);
+                try {
+                    while (true) {
+                        datagrams.receive(datagram);
+                        datagram.flip();
+                        decoder.decodeDatagram(datagram);
+                        datagram.clear();
+                        received = decoder.frameCount() + decoder.skippedCount();
+                    }
+                } catch (AsynchronousCloseException e) {
+                    // Torn down.
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } else {
+            SocketChannel accepted;
+            try (ServerSocketChannel server = ServerSocketChannel.open()) {
+                server.bind(loopback);
+                exporter = exporter((InetSocketAddress) server.getLocalAddress());
+                accepted = server.accept();
+            }
+            channel = accepted;
+            reader = new Thread(() -> {
+                ByteBuffer chunk = ByteBuffer.allocate(4096);
+                try {
+                    while (accepted.read(chunk) >= 0) {
+                        chunk.flip();
+                        decoder.feed(chunk);
+                        chunk.clear();
+                        received = decoder.frameCount() + decoder.skippedCount();
+                    }
+                } catch (AsynchronousCloseException e) {
+                    // Torn down.
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        reader.start();
+    }
+
+    private LandmarkExporter exporter(InetSocketAddress target) {
+        return new LandmarkExporter(transport, target, LandmarkStreamBenchmark.MAX_HANDS,
+                LandmarkStreamBenchmark.TRACKS, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        try {
+            exporter.close();
+        } finally {
+            channel.close();
+            reader.join();
+        }
+    }
+
+    @Benchmark
+    public long exportToDecoded() {
+        HandFrame frame = frames[next];
+        next = (next + 1) % FRAMES;
+        tracker.update(frame);
+        long before = received;
+        // The sender may briefly hold every buffer; wait for it rather than drop.
+        while (!exporter.export(frame, tracker)) {
+            Thread.yield();
+        }
+        long deadline = System.nanoTime() + LOST_NANOS;
+        while (received == before && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        return received;
+    }
+}
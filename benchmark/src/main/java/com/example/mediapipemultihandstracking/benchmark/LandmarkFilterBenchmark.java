@@ -0,0 +1,59 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.filter.KalmanLandmarkFilter;
+import com.example.mediapipemultihandstracking.gesture.filter.LandmarkFilter;
+import com.example.mediapipemultihandstracking.gesture.filter.OneEuroFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smoothing one hand per 30 fps frame, with and without predicting 50 ms ahead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarkFilterBenchmark {
+    private static final long FRAME_MICROS = 33_333;
+
+    @Param({"oneEuro", "kalman"})
+    public String filterName;
+
+    @Param({"0", "50000"})
+    public long leadMicros;
+
+    private final float[] pose = new float[HandLandmark.FLOATS_PER_HAND];
+    private final float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+    private LandmarkFilter filter;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        HandPoses.write(pose, 0, true, true, true, true, true);
+        filter = filterName.equals("kalman") ? new KalmanLandmarkFilter(1) : new OneEuroFilter(1);
+    }
+
+    @Benchmark
+    public float[] filter() {
+        System.arraycopy(pose, 0, landmarks, 0, landmarks.length);
+        timestamp += FRAME_MICROS;
+        filter.filter(0, landmarks, 0, timestamp, leadMicros);
+        return landmarks;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.stream.LandmarkStreamDecoder;
+import com.example.mediapipemultihandstracking.gesture.stream.LandmarkStreamEncoder;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one frame of two moving hands for the landmark stream, with a keyframe
+ * every 30 frames. Encoding includes tracking the frame's hands, which the encoder needs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarkStreamBenchmark {
+    static final int MAX_HANDS = 2;
+    static final int TRACKS = 4;
+    static final int KEYFRAME_INTERVAL = 30;
+    private static final int FRAMES = 300;
+
+    private HandFrame[] frames;
+    private HandTracker tracker;
+    private LandmarkStreamEncoder encoder;
+    private ByteBuffer out;
+    private ByteBuffer[] messages;
+    private LandmarkStreamDecoder decoder;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        frames = movingHands(FRAMES);
+        tracker = new HandTracker(TRACKS);
+        encoder = new LandmarkStreamEncoder(TRACKS, KEYFRAME_INTERVAL);
+        out = ByteBuffer.allocate(LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+
+        // Encoded up front, starting with a keyframe, so decoding can cycle through them.
+        HandTracker messageTracker = new HandTracker(TRACKS);
+        LandmarkStreamEncoder messageEncoder = new LandmarkStreamEncoder(TRACKS, KEYFRAME_INTERVAL);
+        messages = new ByteBuffer[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            messageTracker.update(frames[i]);
+            messages[i] = ByteBuffer.allocate(LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+            messageEncoder.encodeFrame(frames[i], messageTracker, messages[i]);
+            messages[i].flip();
+        }
+        decoder = new LandmarkStreamDecoder(MAX_HANDS, new LandmarkStreamDecoder.Listener() {
+            @Override
+            public void onFrame(HandFrame frame) {
+            }
+
+            @Override
+            public void onEvent(GestureEvent event) {
+            }
+        });
+    }
+
+    @Benchmark
+    public int encode() {
+        HandFrame frame = frames[next];
+        next = (next + 1) % FRAMES;
+        tracker.update(frame);
+        out.clear();
+        encoder.encodeFrame(frame, tracker, out);
+        return out.position();
+    }
+
+    @Benchmark
+    public long decode() {
+        ByteBuffer message = messages[next];
+        next = (next + 1) % FRAMES;
+        decoder.decodeDatagram(message.duplicate());
+        return decoder.frameCount();
+    }
+
+    /** Two hands sliding across the image with a little jitter. */
+    static HandFrame[] movingHands(int count) {
+        HandFrame[] frames = new HandFrame[count];
+        for (int i = 0; i < count; i++) {
+            HandFrame frame = new HandFrame(MAX_HANDS);
+            frame.setTimestamp(i * 33_333L);
+            float[] landmarks = frame.landmarks();
+            HandPoses.write(landmarks, HandLandmark.handOffset(0), true, true, true, true, true);
+            HandPoses.translate(landmarks, HandLandmark.handOffset(0), 0.004f * i - 0.3f, 0f);
+            HandPoses.write(landmarks, HandLandmark.handOffset(1), false, false, false, false, false);
+            HandPoses.translate(landmarks, HandLandmark.handOffset(1), 0.2f, 0.003f * i - 0.2f);
+            for (int f = 0; f < 2 * HandLandmark.FLOATS_PER_HAND; f++) {
+                landmarks[f] += 0.0005f * (float) Math.sin(i * 1.7 + f);
+            }
+            frame.handedness()[0] = 0.9f;
+            frame.handedness()[1] = i % 10 == 0 ? Float.NaN : 0.1f;
+            frame.setHandCount(2);
+            float[] rects = frame.rects();
+            rects[HandRect.X_CENTER] = 0.2f + 0.004f * i;
+            rects[HandRect.Y_CENTER] = 0.5f;
+            rects[HandRect.HEIGHT] = 0.3f;
+            rects[HandRect.WIDTH] = 0.3f;
+            int second = HandRect.rectOffset(1);
+            rects[second + HandRect.X_CENTER] = 0.7f;
+            rects[second + HandRect.Y_CENTER] = 0.3f + 0.003f * i;
+            rects[second + HandRect.HEIGHT] = 0.25f;
+            rects[second + HandRect.WIDTH] = 0.25f;
+            frame.setRectCount(2);
+            frames[i] = frame;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+import com.example.mediapipemultihandstracking.gesture.track.MotionAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame motion analysis, the old {@code handGestureMoveCalculator}: matching the rects to
+ * the hand tracks, then scrolling, zooming and sliding for every track, with hands held still
+ * and hands sweeping across the image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotionAnalyzerBenchmark {
+    private static final long FRAME_MICROS = 33_333;
+
+    @Param({"1", "2", "8"})
+    public int hands;
+
+    private HandFrame frame;
+    private HandTracker tracker;
+    private MotionAnalyzer analyzer;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        frame = new HandFrame(hands);
+        tracker = new HandTracker(2 * hands);
+        analyzer = new MotionAnalyzer(2 * hands, 16);
+        tracker.setListener(analyzer);
+        float[] landmarks = frame.landmarks();
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            HandPoses.write(landmarks, offset, true, true, true, true, true);
+            frame.handedness()[hand] = hand % 2;
+        }
+        frame.setHandCount(hands);
+        frame.setRectCount(hands);
+        place(0f);
+    }
+
+    // Puts every hand in its own column, shifted right by dx.
+    private void place(float dx) {
+        float[] rects = frame.rects();
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandRect.rectOffset(hand);
+            rects[offset + HandRect.X_CENTER] = (hand + 0.5f) / hands + dx;
+            rects[offset + HandRect.Y_CENTER] = 0.5f;
+            rects[offset + HandRect.WIDTH] = 0.4f / hands;
+            rects[offset + HandRect.HEIGHT] = 0.4f / hands;
+        }
+        frame.setTimestamp(++step * FRAME_MICROS);
+    }
+
+    @Benchmark
+    public Object still() {
+        place(0f);
+        tracker.update(frame);
+        analyzer.update(tracker, frame);
+        return analyzer.motion(0);
+    }
+
+    @Benchmark
+    public Object sweeping() {
+        // Back and forth by a tenth of a hand height every frame: a scroll on most frames.
+        place(0.01f / hands * (step % 20 < 10 ? step % 10 : 10 - step % 10));
+        tracker.update(frame);
+        analyzer.update(tracker, frame);
+        return analyzer.motion(0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.GestureEngine;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandGestures;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.MultiHandClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame gesture classification: the first hand only, as before, against every hand with
+ * handedness and the two-hand gesture, and the whole pipeline including the display label.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiHandClassifierBenchmark {
+    @Param({"1", "2", "8"})
+    public int hands;
+
+    private final GestureEngine engine = new GestureEngine();
+    private final MultiHandClassifier classifier = new MultiHandClassifier(engine);
+    private HandFrame frame;
+    private HandGestures gestures;
+    private GesturePipeline pipeline;
+
+    @Setup
+    public void setUp() {
+        frame = new HandFrame(hands);
+        gestures = new HandGestures(hands);
+        pipeline = new GesturePipeline(hands);
+        float[] landmarks = frame.landmarks();
+        for (int hand = 0; hand < hands; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            boolean open = hand % 2 == 0;
+            HandPoses.write(landmarks, offset, open, true, open, false, open);
+            HandPoses.translate(landmarks, offset, 0.1f * hand, 0f);
+            frame.handedness()[hand] = hand % 2;
+        }
+        frame.setHandCount(hands);
+    }
+
+    @Benchmark
+    public Object firstHand() {
+        return engine.classifyFirst(frame.landmarks(), frame.handCount());
+    }
+
+    @Benchmark
+    public Object everyHand() {
+        classifier.classify(frame, gestures);
+        return gestures.twoHandGesture();
+    }
+
+    @Benchmark
+    public String pipelineLabel() {
+        pipeline.process(frame);
+        return pipeline.gestureLabel();
+    }
+}
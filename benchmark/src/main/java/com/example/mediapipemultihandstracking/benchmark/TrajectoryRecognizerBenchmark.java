@@ -0,0 +1,107 @@
+package com.example.mediapipemultihandstracking.benchmark;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryRecognizer;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of trajectory recognition for one hand as the template library grows: a hand
+ * drawing circles, which match every so often, and a hand scribbling a path no template fits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrajectoryRecognizerBenchmark {
+    @Param({"10", "100", "1000"})
+    public int templates;
+
+    private final HandFrame frame = new HandFrame(1);
+    private final float[] openHand = HandPoses.pose(true, true, true, true, true);
+    private final HandTracker tracker = new HandTracker(2);
+    private TrajectoryRecognizer recognizer;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        List<TrajectoryTemplate> library = new ArrayList<>(TrajectoryTemplate.defaults());
+        while (library.size() > templates) {
+            library.remove(library.size() - 1);
+        }
+        while (library.size() < templates) {
+            TrajectoryTemplate.Point point = TrajectoryTemplate.Point.values()[library.size() % 2];
+            library.add(new TrajectoryTemplate("RANDOM", "Random", point, randomPath(random)));
+        }
+        recognizer = new TrajectoryRecognizer(2, library);
+        tracker.setListener(recognizer);
+        move(0.5f, 0.4f);
+        tracker.update(frame);
+    }
+
+    // A smooth closed curve, nothing like a single circle or line.
+    private static float[] randomPath(Random random) {
+        float[] path = new float[64];
+        double a = random.nextGaussian();
+        double b = random.nextGaussian();
+        double phase = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < 32; i++) {
+            double t = 2 * Math.PI * i / 31;
+            path[2 * i] = (float) (Math.sin(t + phase) + a * Math.sin(2 * t));
+            path[2 * i + 1] = (float) (Math.cos(3 * t) + b * Math.cos(2 * t + phase));
+        }
+        return path;
+    }
+
+    private void move(float x, float y) {
+        float[] landmarks = frame.landmarks();
+        System.arraycopy(openHand, 0, landmarks, 0, HandLandmark.FLOATS_PER_HAND);
+        HandPoses.translate(landmarks, 0, x - 0.5f, y - 0.8f);
+        float[] rects = frame.rects();
+        rects[HandRect.X_CENTER] = x;
+        rects[HandRect.Y_CENTER] = y - 0.2f;
+        rects[HandRect.WIDTH] = 0.4f;
+        rects[HandRect.HEIGHT] = 0.4f;
+        frame.setHandCount(1);
+        frame.setRectCount(1);
+    }
+
+    @Benchmark
+    public Object circling() {
+        double angle = 2 * Math.PI * (step++ % 24) / 23;
+        move(0.5f + 0.1f * (float) Math.cos(angle), 0.4f + 0.1f * (float) Math.sin(angle));
+        recognizer.update(tracker, frame);
+        return recognizer.recognized(0);
+    }
+
+    @Benchmark
+    public Object scribbling() {
+        double t = 0.07 * step++;
+        move(0.5f + 0.1f * (float) (Math.sin(t) * Math.cos(2.3 * t)), 0.4f + 0.1f * (float) Math.sin(1.7 * t));
+        recognizer.update(tracker, frame);
+        return recognizer.recognized(0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/** Plane geometry helpers shared by the gesture and motion calculators. */
+public final class Geometry {
+    private Geometry() {
+    }
+
+    public static double getEuclideanDistanceAB(double a_x, double a_y, double b_x, double b_y) {
+        double dx = a_x - b_x;
+        double dy = a_y - b_y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /** Signed angle at B between BA and BC, in radian. */
+    public static double getAngleABC(double a_x, double a_y, double b_x, double b_y, double c_x, double c_y) {
+        double ab_x = b_x - a_x;
+        double ab_y = b_y - a_y;
+        double cb_x = b_x - c_x;
+        double cb_y = b_y - c_y;
+
+        double dot = (ab_x * cb_x + ab_y * cb_y);   // dot product
+        double cross = (ab_x * cb_y - ab_y * cb_x); // cross product
+
+        return Math.atan2(cross, dot);
+    }
+
+    public static int radianToDegree(double radian) {
+        return (int) Math.floor(radian * 180. / Math.PI + 0.5);
+    }
+}
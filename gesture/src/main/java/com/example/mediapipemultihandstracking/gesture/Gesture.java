@@ -0,0 +1,75 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/**
+ * A static hand gesture recognized by {@link GestureEngine}.
+ *
+ * <p>The built-in gestures are the constants below; a {@link GestureRules} file may define
+ * more. Gestures are compared by identity: a rule naming a built-in gesture resolves to its
+ * constant.
+ */
+public final class Gesture {
+    public static final Gesture NO_HAND = new Gesture(0, "NO_HAND", "No hand deal");
+    public static final Gesture FIVE = new Gesture(1, "FIVE", "FIVE");
+    public static final Gesture FOUR = new Gesture(2, "FOUR", "FOUR");
+    public static final Gesture TREE = new Gesture(3, "TREE", "TREE");
+    public static final Gesture TWO = new Gesture(4, "TWO", "TWO");
+    public static final Gesture ONE = new Gesture(5, "ONE", "ONE");
+    public static final Gesture YEAH = new Gesture(6, "YEAH", "YEAH");
+    public static final Gesture ROCK = new Gesture(7, "ROCK", "ROCK");
+    public static final Gesture SPIDER_MAN = new Gesture(8, "SPIDER_MAN", "Spider-Man");
+    public static final Gesture FIST = new Gesture(9, "FIST", "fist");
+    public static final Gesture OK = new Gesture(10, "OK", "OK");
+    public static final Gesture UNKNOWN = new Gesture(11, "UNKNOWN", "___");
+
+    private static final Gesture[] BUILT_IN = {
+            NO_HAND, FIVE, FOUR, TREE, TWO, ONE, YEAH, ROCK, SPIDER_MAN, FIST, OK, UNKNOWN
+    };
+
+    private final int id;
+    private final String name;
+    private final String label;
+
+    Gesture(int id, String name, String label) {
+        this.id = id;
+        this.name = name;
+        this.label = label;
+    }
+
+    /** Returns the built-in gesture called {@code name}, or null. */
+    public static Gesture builtIn(String name) {
+        for (Gesture gesture : BUILT_IN) {
+            if (gesture.name.equals(name)) {
+                return gesture;
+            }
+        }
+        return null;
+    }
+
+    /** Number of built-in gestures; their ids are {@code 0} to {@code builtInCount() - 1}. */
+    public static int builtInCount() {
+        return BUILT_IN.length;
+    }
+
+    /**
+     * Small index of this gesture, usable to index arrays: built-in gestures first, then the
+     * gestures defined by a rules file in the order they first appear.
+     */
+    public int id() {
+        return id;
+    }
+
+    /** Name of this gesture in code and rules files. */
+    public String name() {
+        return name;
+    }
+
+    /** Text shown to the user for this gesture. */
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/**
+ * Recognizes the static gesture of one hand. {@link GestureRules} matches hand-written rules;
+ * {@link KnnGestureClassifier} is learned from recorded examples.
+ *
+ * <p>Implementations are called on every hand of every frame and must not allocate. They may keep
+ * scratch state, so use one instance per thread.
+ */
+public interface GestureClassifier {
+    /**
+     * Classifies the hand whose landmarks start at {@code offset}. {@code mask} is its
+     * {@link GestureEngine#fingerMask finger mask}, which the pipeline computes anyway; learned
+     * classifiers are free to ignore it.
+     */
+    Gesture classify(float[] landmarks, int offset, int mask);
+}
@@ -0,0 +1,104 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/**
+ * Classifies static hand gestures from landmarks stored in a primitive buffer (see
+ * {@link HandLandmark} for the layout).
+ *
+ * <p>The finger mask is computed from the landmarks and handed to a {@link GestureClassifier},
+ * by default the compiled {@link GestureRules}. The engine itself keeps no per-call state and
+ * never allocates, so one instance can be fed from the MediaPipe callback thread on every frame.
+ */
+public final class GestureEngine {
+    public static final int THUMB = 1;
+    public static final int FIRST_FINGER = 1 << 1;
+    public static final int SECOND_FINGER = 1 << 2;
+    public static final int THIRD_FINGER = 1 << 3;
+    public static final int FOURTH_FINGER = 1 << 4;
+
+    private final GestureClassifier classifier;
+
+    /** Creates an engine recognizing the gestures of {@code classifier}, e.g. a rules file. */
+    public GestureEngine(GestureClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    /** Creates an engine recognizing the built-in gestures, see {@link GestureRules#defaults()}. */
+    public GestureEngine() {
+        this(GestureRules.defaults());
+    }
+
+    /**
+     * Returns which fingers of the hand starting at {@code offset} are open, as a combination of
+     * {@link #THUMB}, {@link #FIRST_FINGER}, {@link #SECOND_FINGER}, {@link #THIRD_FINGER} and
+     * {@link #FOURTH_FINGER}.
+     */
+    public int fingerMask(float[] landmarks, int offset) {
+        int mask = 0;
+        float pseudoFixKeyPoint = landmarks[HandLandmark.x(offset, HandLandmark.THUMB_MCP)];
+        float middleFingerMcpX = landmarks[HandLandmark.x(offset, HandLandmark.MIDDLE_FINGER_MCP)];
+        float thumbIpX = landmarks[HandLandmark.x(offset, HandLandmark.THUMB_IP)];
+        float thumbTipX = landmarks[HandLandmark.x(offset, HandLandmark.THUMB_TIP)];
+        if (pseudoFixKeyPoint < middleFingerMcpX) {
+            if (thumbIpX < pseudoFixKeyPoint && thumbTipX < pseudoFixKeyPoint) {
+                mask |= THUMB;
+            }
+        }
+        if (pseudoFixKeyPoint > middleFingerMcpX) {
+            if (thumbIpX > pseudoFixKeyPoint && thumbTipX > pseudoFixKeyPoint) {
+                mask |= THUMB;
+            }
+        }
+        if (isFingerOpen(landmarks, offset, HandLandmark.INDEX_FINGER_PIP)) {
+            mask |= FIRST_FINGER;
+        }
+        if (isFingerOpen(landmarks, offset, HandLandmark.MIDDLE_FINGER_PIP)) {
+            mask |= SECOND_FINGER;
+        }
+        if (isFingerOpen(landmarks, offset, HandLandmark.RING_FINGER_PIP)) {
+            mask |= THIRD_FINGER;
+        }
+        if (isFingerOpen(landmarks, offset, HandLandmark.PINKY_PIP)) {
+            mask |= FOURTH_FINGER;
+        }
+        return mask;
+    }
+
+    /** Classifies the hand whose landmarks start at {@code offset}. */
+    public Gesture classify(float[] landmarks, int offset) {
+        return classify(landmarks, offset, fingerMask(landmarks, offset));
+    }
+
+    /** Classifies a hand whose {@link #fingerMask finger mask} is already known. */
+    public Gesture classify(float[] landmarks, int offset, int mask) {
+        return classifier.classify(landmarks, offset, mask);
+    }
+
+    /**
+     * Classifies the first of {@code handCount} hands stored back to back in {@code landmarks}, or
+     * returns {@link Gesture#NO_HAND} when there is none.
+     */
+    public Gesture classifyFirst(float[] landmarks, int handCount) {
+        if (handCount == 0) {
+            return Gesture.NO_HAND;
+        }
+        return classify(landmarks, 0);
+    }
+
+    // A finger is open when it is stretched upwards: the tip is above the DIP joint, which is
+    // above the PIP joint.
+    private static boolean isFingerOpen(float[] landmarks, int offset, int pip) {
+        float pseudoFixKeyPoint = landmarks[HandLandmark.y(offset, pip)];
+        float dipY = landmarks[HandLandmark.y(offset, pip + 1)];
+        float tipY = landmarks[HandLandmark.y(offset, pip + 2)];
+        return dipY < pseudoFixKeyPoint && tipY < dipY;
+    }
+
+    /** Distance between the thumb tip and the first finger tip in the image plane. */
+    public static double thumbToFirstFingerDistance(float[] landmarks, int offset) {
+        return Geometry.getEuclideanDistanceAB(
+                landmarks[HandLandmark.x(offset, HandLandmark.THUMB_TIP)],
+                landmarks[HandLandmark.y(offset, HandLandmark.THUMB_TIP)],
+                landmarks[HandLandmark.x(offset, HandLandmark.INDEX_FINGER_TIP)],
+                landmarks[HandLandmark.y(offset, HandLandmark.INDEX_FINGER_TIP)]);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.filter.LandmarkFilter;
+import com.example.mediapipemultihandstracking.gesture.filter.LandmarkSmoother;
+import com.example.mediapipemultihandstracking.gesture.filter.OneEuroFilter;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+import com.example.mediapipemultihandstracking.gesture.track.MotionAnalyzer;
+import com.example.mediapipemultihandstracking.gesture.track.MotionThresholds;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryRecognizer;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+/**
+ * Everything computed from one joined {@link HandFrame}: the gesture of every hand, debounced per
+ * hand track, the two-hand gesture, the hand tracks, their motion and the movements they trace.
+ * The landmarks of tracked hands are smoothed in place before anything else looks at them.
+ * Gestures are classified on every frame, except that in {@link #setIncremental incremental}
+ * mode tracked hands that have not moved keep their last gesture. Motion and trajectories may be
+ * analyzed on every Nth frame only, keeping their results in between, to lighten the load. Not
+ * thread-safe; feed it from one thread at a time, e.g. a
+ * {@link com.example.mediapipemultihandstracking.gesture.sync.FrameJoiner} listener, except for
+ * {@link #setAnalysisEveryNth} and {@link #setIncremental}.
+ */
+public final class GesturePipeline {
+    private static final int MOTION_HISTORY_LENGTH = 16;
+    // How long a recognized trajectory stays the motion label, in microseconds of frame time.
+    private static final long TRAJECTORY_LABEL_MICROS = 1_000_000;
+
+    private final MultiHandClassifier classifier;
+    private final HandGestures handGestures;
+    private final HandTracker tracker;
+    private final MotionAnalyzer motionAnalyzer;
+    private final GestureStabilizer stabilizer;
+    private final TrajectoryRecognizer trajectoryRecognizer;
+    private final LandmarkSmoother smoother;
+    private final IncrementalGate incrementalGate;
+    private volatile boolean incremental;
+    private Motion motion = Motion.NONE;
+    private TrajectoryTemplate trajectory;
+    private TrajectoryTemplate shownTrajectory;
+    private long shownTrajectoryUntil;
+    private String motionLabel = Motion.NONE.label();
+    private volatile int analysisEveryNth = 1;
+    private int framesUntilAnalysis;
+
+    // What gestureLabel was built from, to rebuild it only when the gestures change.
+    private final StringBuilder labelBuilder = new StringBuilder();
+    private final Gesture[] labelGestures;
+    private final Handedness[] labelHandedness;
+    private int labelCount = -1;
+    private TwoHandGesture labelTwoHandGesture = TwoHandGesture.NONE;
+    private String gestureLabel = Gesture.NO_HAND.label();
+
+    public GesturePipeline(int maxHands) {
+        this(maxHands, GestureRules.defaults());
+    }
+
+    /** A pipeline smoothing landmarks with a default {@link OneEuroFilter}. */
+    public GesturePipeline(int maxHands, GestureClassifier gestureClassifier) {
+        this(maxHands, gestureClassifier, OneEuroFilter::new);
+    }
+
+    /**
+     * @param landmarkFilter creates the filter for the hand tracks, or null to use the landmarks
+     *                       as decoded
+     */
+    public GesturePipeline(int maxHands, GestureClassifier gestureClassifier, LandmarkFilter.Factory landmarkFilter) {
+        this(maxHands, gestureClassifier, landmarkFilter, MotionThresholds.defaults());
+    }
+
+    /**
+     * @param landmarkFilter creates the filter for the hand tracks, or null to use the landmarks
+     *                       as decoded
+     * @param motionThresholds movement needed for the motions, e.g. to try other values offline
+     */
+    public GesturePipeline(int maxHands, GestureClassifier gestureClassifier, LandmarkFilter.Factory landmarkFilter,
+                           MotionThresholds motionThresholds) {
+        classifier = new MultiHandClassifier(new GestureEngine(gestureClassifier));
+        // Leave room for tracks that are briefly lost while new hands appear.
+        int tracks = 2 * maxHands;
+        handGestures = new HandGestures(maxHands);
+        labelGestures = new Gesture[maxHands];
+        labelHandedness = new Handedness[maxHands];
+        tracker = new HandTracker(tracks);
+        motionAnalyzer = new MotionAnalyzer(tracks, MOTION_HISTORY_LENGTH, motionThresholds);
+        stabilizer = new GestureStabilizer(tracks);
+        trajectoryRecognizer = new TrajectoryRecognizer(tracks, TrajectoryTemplate.defaults());
+        smoother = landmarkFilter == null ? null : new LandmarkSmoother(landmarkFilter.create(tracks));
+        incrementalGate = new IncrementalGate(tracks);
+        tracker.setListener(slot -> {
+            motionAnalyzer.onTrackRemoved(slot);
+            stabilizer.onTrackRemoved(slot);
+            trajectoryRecognizer.onTrackRemoved(slot);
+            incrementalGate.onTrackRemoved(slot);
+            if (smoother != null) {
+                smoother.onTrackRemoved(slot);
+            }
+        });
+    }
+
+    /** Processes {@code frame}, whose tracked hands' landmarks are replaced by their smoothed values. */
+    public void process(HandFrame frame) {
+        // Tracks come from the hand rects, so they are known before the landmarks are smoothed.
+        tracker.update(frame);
+        if (smoother != null) {
+            smoother.apply(tracker, frame);
+        }
+        classifier.classify(frame, handGestures, tracker, incremental ? incrementalGate : null);
+        // Hands without a track, i.e. without a rect this frame, keep their per-frame gesture.
+        for (int hand = 0; hand < handGestures.count(); hand++) {
+            int slot = tracker.slotOfHand(hand);
+            if (slot >= 0) {
+                handGestures.setStableGesture(hand,
+                        stabilizer.update(slot, handGestures.gesture(hand), frame.timestamp()));
+            }
+        }
+        classifier.updateTwoHandGesture(handGestures);
+        updateGestureLabel();
+        if (framesUntilAnalysis <= 0) {
+            framesUntilAnalysis = analysisEveryNth;
+            analyzeMovement(frame);
+        }
+        framesUntilAnalysis--;
+        motionLabel = shownTrajectory != null && frame.timestamp() < shownTrajectoryUntil
+                ? shownTrajectory.label() : motion.label();
+    }
+
+    private void analyzeMovement(HandFrame frame) {
+        motionAnalyzer.update(tracker, frame);
+        motion = Motion.NONE;
+        for (int rect = 0; rect < frame.rectCount() && motion == Motion.NONE; rect++) {
+            int slot = tracker.slotOfRect(rect);
+            if (slot >= 0) {
+                motion = motionAnalyzer.motion(slot);
+            }
+        }
+        trajectoryRecognizer.update(tracker, frame);
+        trajectory = null;
+        for (int hand = 0; hand < frame.handCount() && trajectory == null; hand++) {
+            int slot = tracker.slotOfHand(hand);
+            if (slot >= 0) {
+                trajectory = trajectoryRecognizer.recognized(slot);
+            }
+        }
+        if (trajectory != null) {
+            shownTrajectory = trajectory;
+            shownTrajectoryUntil = frame.timestamp() + TRAJECTORY_LABEL_MICROS;
+        }
+    }
+
+    /**
+     * Analyzes motion and trajectories on one frame in {@code n}, 1 by default. May be called from
+     * any thread; it takes effect from the next frame.
+     */
+    public void setAnalysisEveryNth(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        analysisEveryNth = n;
+    }
+
+    public int analysisEveryNth() {
+        return analysisEveryNth;
+    }
+
+    /**
+     * Reuses the gesture of tracked hands that have not moved since they were last classified,
+     * see {@link IncrementalGate}; off by default. May be called from any thread; it takes effect
+     * from the next frame.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /** Debounced gesture of the first hand of the last frame. */
+    public Gesture gesture() {
+        return handGestures.firstStable();
+    }
+
+    /** Gesture and handedness of every hand of the last frame. */
+    public HandGestures handGestures() {
+        return handGestures;
+    }
+
+    /**
+     * Text for the gestures of the last frame: the two-hand gesture if there is one, otherwise the
+     * debounced gesture of each hand prefixed by its handedness when known. The same instance is returned
+     * for as long as the gestures do not change.
+     */
+    public String gestureLabel() {
+        return gestureLabel;
+    }
+
+    /** First motion recognized among the hands of the last analyzed frame, in MediaPipe's order. */
+    public Motion motion() {
+        return motion;
+    }
+
+    /** First movement completed by a hand in the last analyzed frame, in MediaPipe's order, or null. */
+    public TrajectoryTemplate trajectory() {
+        return trajectory;
+    }
+
+    /**
+     * Text for the motion: the last recognized trajectory for a second after it completed,
+     * otherwise the {@link #motion()} of the last analyzed frame.
+     */
+    public String motionLabel() {
+        return motionLabel;
+    }
+
+    private void updateGestureLabel() {
+        int count = handGestures.count();
+        boolean changed = count != labelCount || handGestures.twoHandGesture() != labelTwoHandGesture;
+        for (int hand = 0; hand < count && !changed; hand++) {
+            changed = handGestures.stableGesture(hand) != labelGestures[hand]
+                    || handGestures.handedness(hand) != labelHandedness[hand];
+        }
+        if (!changed) {
+            return;
+        }
+        labelCount = count;
+        labelTwoHandGesture = handGestures.twoHandGesture();
+        labelBuilder.setLength(0);
+        for (int hand = 0; hand < count; hand++) {
+            labelGestures[hand] = handGestures.stableGesture(hand);
+            labelHandedness[hand] = handGestures.handedness(hand);
+            if (hand > 0) {
+                labelBuilder.append(" / ");
+            }
+            if (labelHandedness[hand] != Handedness.UNKNOWN) {
+                labelBuilder.append(labelHandedness[hand].label()).append(' ');
+            }
+            labelBuilder.append(labelGestures[hand].label());
+        }
+        if (labelTwoHandGesture != TwoHandGesture.NONE) {
+            gestureLabel = labelTwoHandGesture.label();
+        } else if (count == 0) {
+            gestureLabel = Gesture.NO_HAND.label();
+        } else {
+            gestureLabel = labelBuilder.toString();
+        }
+    }
+
+    public HandTracker tracker() {
+        return tracker;
+    }
+
+    public MotionAnalyzer motionAnalyzer() {
+        return motionAnalyzer;
+    }
+
+    public GestureStabilizer stabilizer() {
+        return stabilizer;
+    }
+
+    public TrajectoryRecognizer trajectoryRecognizer() {
+        return trajectoryRecognizer;
+    }
+
+    /** Gate of the incremental mode, with its hit rate and the time it saved. */
+    public IncrementalGate incrementalGate() {
+        return incrementalGate;
+    }
+
+    /** Smoother of the landmarks, or null if the pipeline uses them as decoded. */
+    public LandmarkSmoother smoother() {
+        return smoother;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static gesture definitions compiled into a lookup table indexed by
+ * {@link GestureEngine#fingerMask finger mask}.
+ *
+ * <p>A rules file has one gesture per line, in four {@code |}-separated columns:
+ *
+ * <pre>
+ * # name | fingers | conditions                                | label
+ * FIVE   | 11111   |                                           |
+ * OK     | -0111   | distance(thumb_tip, index_finger_tip) &lt; 0.1 |
+ * THUMB  | 10000   |                                           | Thumbs up
+ * </pre>
+ *
+ * <p>{@code fingers} gives the thumb, first, second, third and fourth finger, each {@code 1}
+ * (open), {@code 0} (closed) or {@code -} (either). {@code conditions} are optional
+ * {@code distance(a, b) < value} or {@code > value} tests between two landmarks, named as the
+ * {@link HandLandmark} constants in lower case and joined by {@code and}. {@code label} is
+ * optional and only allowed for gestures that are not built in. Lines are tried in order and
+ * the first one that matches wins; empty lines and lines starting with {@code #} are ignored.
+ *
+ * <p>Compilation resolves, for each of the 32 finger masks, the matching lines in order. When
+ * the first of them has no condition the mask maps straight to its gesture, so most hands are
+ * classified by a single array read; otherwise the conditions of the matching lines are
+ * evaluated in order until one holds or an unconditional line is reached.
+ */
+public final class GestureRules implements GestureClassifier {
+    public static final int MASK_COUNT = 1 << 5;
+
+    private static final String[] LANDMARK_NAMES = {
+            "wrist",
+            "thumb_cmc", "thumb_mcp", "thumb_ip", "thumb_tip",
+            "index_finger_mcp", "index_finger_pip", "index_finger_dip", "index_finger_tip",
+            "middle_finger_mcp", "middle_finger_pip", "middle_finger_dip", "middle_finger_tip",
+            "ring_finger_mcp", "ring_finger_pip", "ring_finger_dip", "ring_finger_tip",
+            "pinky_mcp", "pinky_pip", "pinky_dip", "pinky_tip"
+    };
+    private static final Pattern CONDITION = Pattern.compile(
+            "distance\\(\\s*(\\w+)\\s*,\\s*(\\w+)\\s*\\)\\s*([<>])\\s*([0-9]*\\.?[0-9]+)");
+    static final Pattern NAME = Pattern.compile("[A-Z][A-Z0-9_]*");
+
+    // Gesture of each finger mask whose first matching line has no condition, otherwise null.
+    private final Gesture[] direct = new Gesture[MASK_COUNT];
+    // For the other masks: the conditional lines to try in order, then the fallback gesture.
+    private final Rule[][] conditional = new Rule[MASK_COUNT][];
+    private final Gesture[] fallback = new Gesture[MASK_COUNT];
+    private final List<Gesture> gestures;
+
+    private GestureRules(List<Rule> rules, List<Gesture> gestures) {
+        this.gestures = Collections.unmodifiableList(gestures);
+        for (int mask = 0; mask < MASK_COUNT; mask++) {
+            List<Rule> candidates = new ArrayList<>();
+            Gesture otherwise = Gesture.UNKNOWN;
+            for (Rule rule : rules) {
+                if (!rule.matches(mask)) {
+                    continue;
+                }
+                if (rule.conditionCount() == 0) {
+                    otherwise = rule.gesture;
+                    break;
+                }
+                candidates.add(rule);
+            }
+            if (candidates.isEmpty()) {
+                direct[mask] = otherwise;
+            } else {
+                conditional[mask] = candidates.toArray(new Rule[0]);
+                fallback[mask] = otherwise;
+            }
+        }
+    }
+
+    /** Rules reproducing the gestures the app shipped with, as in its {@code gestures.txt} asset. */
+    public static GestureRules defaults() {
+        Builder builder = new Builder();
+        builder.add(Gesture.FIVE, "11111");
+        builder.add(Gesture.FOUR, "01111");
+        builder.add(Gesture.TREE, "11100");
+        builder.add(Gesture.TWO, "11000");
+        builder.add(Gesture.ONE, "01000");
+        builder.add(Gesture.YEAH, "01100");
+        builder.add(Gesture.ROCK, "01001");
+        builder.add(Gesture.SPIDER_MAN, "11001");
+        builder.add(Gesture.FIST, "00000");
+        builder.add(Gesture.OK, "-0111")
+                .lessThan(HandLandmark.THUMB_TIP, HandLandmark.INDEX_FINGER_TIP, 0.1);
+        return builder.build();
+    }
+
+    /**
+     * Parses and compiles a rules file.
+     *
+     * @throws IllegalArgumentException if a line is malformed; the message names the line
+     */
+    public static GestureRules parse(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        Builder builder = new Builder();
+        Map<String, Gesture> defined = new LinkedHashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                parseLine(line, builder, defined);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void parseLine(String line, Builder builder, Map<String, Gesture> defined) {
+        String[] columns = line.split("\\|", -1);
+        if (columns.length < 2 || columns.length > 4) {
+            throw new IllegalArgumentException("expected name | fingers [| conditions [| label]]");
+        }
+        String name = columns[0].trim();
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("bad gesture name '" + name + "'");
+        }
+        String label = columns.length > 3 ? columns[3].trim() : "";
+        Gesture gesture = Gesture.builtIn(name);
+        if (gesture != null) {
+            if (!label.isEmpty() && !label.equals(gesture.label())) {
+                throw new IllegalArgumentException("label of built-in gesture " + name + " is fixed");
+            }
+        } else {
+            gesture = defined.get(name);
+            if (gesture == null) {
+                gesture = new Gesture(Gesture.builtInCount() + defined.size(), name,
+                        label.isEmpty() ? name : label);
+                defined.put(name, gesture);
+            } else if (!label.isEmpty() && !label.equals(gesture.label())) {
+                throw new IllegalArgumentException("gesture " + name + " already has label '"
+                        + gesture.label() + "'");
+            }
+        }
+        Rule rule = builder.add(gesture, columns[1].trim());
+        String conditions = columns.length > 2 ? columns[2].trim() : "";
+        if (conditions.isEmpty()) {
+            return;
+        }
+        for (String condition : conditions.split("\\s+and\\s+")) {
+            Matcher matcher = CONDITION.matcher(condition.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("bad condition '" + condition.trim() + "'");
+            }
+            int a = landmark(matcher.group(1));
+            int b = landmark(matcher.group(2));
+            double value = Double.parseDouble(matcher.group(4));
+            if (matcher.group(3).equals("<")) {
+                rule.lessThan(a, b, value);
+            } else {
+                rule.greaterThan(a, b, value);
+            }
+        }
+    }
+
+    private static int landmark(String name) {
+        for (int i = 0; i < LANDMARK_NAMES.length; i++) {
+            if (LANDMARK_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown landmark '" + name + "'");
+    }
+
+    /** Classifies a hand whose finger mask is already known. Never allocates. */
+    @Override
+    public Gesture classify(float[] landmarks, int offset, int mask) {
+        Gesture gesture = direct[mask];
+        if (gesture != null) {
+            return gesture;
+        }
+        Rule[] rules = conditional[mask];
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].conditionsHold(landmarks, offset)) {
+                return rules[i].gesture;
+            }
+        }
+        return fallback[mask];
+    }
+
+    /** Whether {@code mask} is classified without evaluating any condition. */
+    public boolean isDirect(int mask) {
+        return direct[mask] != null;
+    }
+
+    /** Gestures defined by the rules file that are not built in, in order of definition. */
+    public List<Gesture> definedGestures() {
+        return gestures;
+    }
+
+    private static final class Builder {
+        private final List<Rule> rules = new ArrayList<>();
+        private final List<Gesture> gestures = new ArrayList<>();
+
+        Rule add(Gesture gesture, String fingers) {
+            Rule rule = new Rule(gesture, fingers);
+            rules.add(rule);
+            if (gesture.id() >= Gesture.builtInCount() && !gestures.contains(gesture)) {
+                gestures.add(gesture);
+            }
+            return rule;
+        }
+
+        GestureRules build() {
+            return new GestureRules(rules, gestures);
+        }
+    }
+
+    private static final class Rule {
+        private static final int[] FINGER_BITS = {
+                GestureEngine.THUMB, GestureEngine.FIRST_FINGER, GestureEngine.SECOND_FINGER,
+                GestureEngine.THIRD_FINGER, GestureEngine.FOURTH_FINGER
+        };
+
+        final Gesture gesture;
+        // Bits of the fingers the rule cares about, and their required state.
+        private final int care;
+        private final int open;
+        private int[] from = new int[0];
+        private int[] to = new int[0];
+        private double[] limit = new double[0];
+        private boolean[] below = new boolean[0];
+
+        Rule(Gesture gesture, String fingers) {
+            if (fingers.length() != FINGER_BITS.length) {
+                throw new IllegalArgumentException("fingers '" + fingers
+                        + "' must give thumb, first, second, third and fourth finger");
+            }
+            int care = 0;
+            int open = 0;
+            for (int i = 0; i < FINGER_BITS.length; i++) {
+                switch (fingers.charAt(i)) {
+                    case '1':
+                        open |= FINGER_BITS[i];
+                        care |= FINGER_BITS[i];
+                        break;
+                    case '0':
+                        care |= FINGER_BITS[i];
+                        break;
+                    case '-':
+                        break;
+                    default:
+                        throw new IllegalArgumentException("bad finger state '" + fingers.charAt(i)
+                                + "' in '" + fingers + "'");
+                }
+            }
+            this.gesture = gesture;
+            this.care = care;
+            this.open = open;
+        }
+
+        Rule lessThan(int a, int b, double value) {
+            return addCondition(a, b, value, true);
+        }
+
+        Rule greaterThan(int a, int b, double value) {
+            return addCondition(a, b, value, false);
+        }
+
+        private Rule addCondition(int a, int b, double value, boolean isBelow) {
+            int n = from.length;
+            from = Arrays.copyOf(from, n + 1);
+            to = Arrays.copyOf(to, n + 1);
+            limit = Arrays.copyOf(limit, n + 1);
+            below = Arrays.copyOf(below, n + 1);
+            from[n] = a;
+            to[n] = b;
+            limit[n] = value;
+            below[n] = isBelow;
+            return this;
+        }
+
+        int conditionCount() {
+            return from.length;
+        }
+
+        boolean matches(int mask) {
+            return (mask & care) == open;
+        }
+
+        boolean conditionsHold(float[] landmarks, int offset) {
+            for (int i = 0; i < from.length; i++) {
+                double distance = Geometry.getEuclideanDistanceAB(
+                        landmarks[HandLandmark.x(offset, from[i])],
+                        landmarks[HandLandmark.y(offset, from[i])],
+                        landmarks[HandLandmark.x(offset, to[i])],
+                        landmarks[HandLandmark.y(offset, to[i])]);
+                if (below[i] ? !(distance < limit[i]) : !(distance > limit[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+/**
+ * Debounces the per-frame gestures of every track of a {@link HandTracker}, so a fingertip
+ * jittering across a threshold does not make the shown gesture flicker.
+ *
+ * <p>A new gesture is emitted once it has been seen on consecutive frames for {@code holdFrames}
+ * frames or {@code holdMillis} milliseconds, whichever comes first (enter hysteresis). The
+ * emitted gesture has a confidence that starts at 1, halves every {@code halfLifeMillis} of
+ * frames that disagree with it and recovers on frames that agree. It is only replaced while
+ * its confidence is below {@code exitConfidence} (exit hysteresis), and falls back to
+ * {@link Gesture#UNKNOWN} when the confidence drops below {@code dropConfidence} without any
+ * gesture holding long enough to replace it.
+ *
+ * <p>Time comes from the frame timestamps, in microseconds as in MediaPipe packets, so the
+ * stabilizer behaves the same in tests and on replayed recordings. State is a few fixed arrays
+ * indexed by track slot; register the stabilizer as the tracker's {@link HandTracker.Listener}
+ * so a reused slot starts from scratch. Not thread-safe.
+ */
+public final class GestureStabilizer implements HandTracker.Listener {
+    private static final int DEFAULT_HOLD_FRAMES = 3;
+    private static final long DEFAULT_HOLD_MILLIS = 100;
+    private static final long DEFAULT_HALF_LIFE_MILLIS = 150;
+    private static final float DEFAULT_EXIT_CONFIDENCE = 0.5f;
+    private static final float DEFAULT_DROP_CONFIDENCE = 0.1f;
+    // Share of the missing confidence an agreeing frame gives back.
+    private static final float RECOVERY = 0.5f;
+
+    private final int holdFrames;
+    private final long holdMicros;
+    private final double halfLifeMicros;
+    private final float exitConfidence;
+    private final float dropConfidence;
+
+    private final Gesture[] stable;
+    private final float[] confidence;
+    private final long[] lastTimestamp;
+    private final Gesture[] candidate;
+    private final long[] candidateSince;
+    private final int[] candidateFrames;
+
+    public GestureStabilizer(int tracks, int holdFrames, long holdMillis, long halfLifeMillis,
+                             float exitConfidence, float dropConfidence) {
+        if (holdFrames < 1 || holdMillis < 0 || halfLifeMillis <= 0
+                || dropConfidence > exitConfidence || exitConfidence > 1f) {
+            throw new IllegalArgumentException("bad stabilizer parameters");
+        }
+        this.holdFrames = holdFrames;
+        this.holdMicros = holdMillis * 1000;
+        this.halfLifeMicros = halfLifeMillis * 1000.0;
+        this.exitConfidence = exitConfidence;
+        this.dropConfidence = dropConfidence;
+        stable = new Gesture[tracks];
+        confidence = new float[tracks];
+        lastTimestamp = new long[tracks];
+        candidate = new Gesture[tracks];
+        candidateSince = new long[tracks];
+        candidateFrames = new int[tracks];
+        for (int slot = 0; slot < tracks; slot++) {
+            onTrackRemoved(slot);
+        }
+    }
+
+    /** A stabilizer holding gestures for 3 frames or 100 ms, with a 150 ms confidence half-life. */
+    public GestureStabilizer(int tracks) {
+        this(tracks, DEFAULT_HOLD_FRAMES, DEFAULT_HOLD_MILLIS, DEFAULT_HALF_LIFE_MILLIS,
+                DEFAULT_EXIT_CONFIDENCE, DEFAULT_DROP_CONFIDENCE);
+    }
+
+    /**
+     * Feeds the gesture classified for track {@code slot} in the frame at {@code timestampMicros}
+     * and returns the stable gesture of the track, {@link Gesture#UNKNOWN} until one has held.
+     */
+    public Gesture update(int slot, Gesture gesture, long timestampMicros) {
+        long elapsed = lastTimestamp[slot] == Long.MIN_VALUE ? 0 : timestampMicros - lastTimestamp[slot];
+        lastTimestamp[slot] = timestampMicros;
+        if (gesture == stable[slot]) {
+            // UNKNOWN stands for no stable gesture and never gains confidence.
+            if (gesture != Gesture.UNKNOWN) {
+                confidence[slot] += (1f - confidence[slot]) * RECOVERY;
+            }
+            candidate[slot] = null;
+            return stable[slot];
+        }
+        if (elapsed > 0) {
+            confidence[slot] *= (float) Math.pow(0.5, elapsed / halfLifeMicros);
+        }
+        if (gesture == candidate[slot]) {
+            candidateFrames[slot]++;
+        } else {
+            candidate[slot] = gesture;
+            candidateSince[slot] = timestampMicros;
+            candidateFrames[slot] = 1;
+        }
+        boolean held = candidateFrames[slot] >= holdFrames
+                || timestampMicros - candidateSince[slot] >= holdMicros;
+        if (held && confidence[slot] < exitConfidence) {
+            stable[slot] = gesture;
+            confidence[slot] = gesture == Gesture.UNKNOWN ? 0f : 1f;
+            candidate[slot] = null;
+        } else if (confidence[slot] < dropConfidence) {
+            stable[slot] = Gesture.UNKNOWN;
+            confidence[slot] = 0f;
+        }
+        return stable[slot];
+    }
+
+    /** Stable gesture of track {@code slot}. */
+    public Gesture gesture(int slot) {
+        return stable[slot];
+    }
+
+    /** Confidence of the stable gesture of track {@code slot}, between 0 and 1. */
+    public float confidence(int slot) {
+        return confidence[slot];
+    }
+
+    @Override
+    public void onTrackRemoved(int slot) {
+        stable[slot] = Gesture.UNKNOWN;
+        confidence[slot] = 0f;
+        lastTimestamp[slot] = Long.MIN_VALUE;
+        candidate[slot] = null;
+        candidateSince[slot] = 0;
+        candidateFrames[slot] = 0;
+    }
+
+    /** Forgets every track. */
+    public void reset() {
+        for (int slot = 0; slot < stable.length; slot++) {
+            onTrackRemoved(slot);
+        }
+    }
+}
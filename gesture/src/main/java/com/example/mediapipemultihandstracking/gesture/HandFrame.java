@@ -0,0 +1,83 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import java.util.Arrays;
+
+/**
+ * Landmarks and rects of every hand seen in one camera frame, in the primitive layouts of
+ * {@link HandLandmark} and {@link HandRect}. Frames are meant to be reused: producers overwrite the
+ * arrays in place and consumers must copy anything they keep past the call.
+ */
+public final class HandFrame {
+    private final int maxHands;
+    private final float[] landmarks;
+    private final float[] rects;
+    private final float[] handedness;
+    private long timestamp;
+    private int handCount;
+    private int rectCount;
+
+    public HandFrame(int maxHands) {
+        this.maxHands = maxHands;
+        this.landmarks = new float[maxHands * HandLandmark.FLOATS_PER_HAND];
+        this.rects = new float[maxHands * HandRect.FLOATS_PER_RECT];
+        this.handedness = new float[maxHands];
+        Arrays.fill(handedness, Float.NaN);
+    }
+
+    public int maxHands() {
+        return maxHands;
+    }
+
+    /** Landmarks of {@link #handCount()} hands, hand {@code i} at {@link HandLandmark#handOffset(int)}. */
+    public float[] landmarks() {
+        return landmarks;
+    }
+
+    /** Rects of {@link #rectCount()} hands, rect {@code i} at {@link HandRect#rectOffset(int)}. */
+    public float[] rects() {
+        return rects;
+    }
+
+    /**
+     * Per landmark hand, the probability that it is a right hand according to the handedness
+     * model, or NaN when unknown. See {@link Handedness#of(float)}.
+     */
+    public float[] handedness() {
+        return handedness;
+    }
+
+    /** MediaPipe packet timestamp, in microseconds. */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int handCount() {
+        return handCount;
+    }
+
+    public void setHandCount(int handCount) {
+        this.handCount = Math.min(handCount, maxHands);
+    }
+
+    public int rectCount() {
+        return rectCount;
+    }
+
+    public void setRectCount(int rectCount) {
+        this.rectCount = Math.min(rectCount, maxHands);
+    }
+
+    /** Makes this frame a copy of {@code other}, which must not hold more hands than fit here. */
+    public void copyFrom(HandFrame other) {
+        timestamp = other.timestamp;
+        setHandCount(other.handCount);
+        setRectCount(other.rectCount);
+        System.arraycopy(other.landmarks, 0, landmarks, 0, handCount * HandLandmark.FLOATS_PER_HAND);
+        System.arraycopy(other.rects, 0, rects, 0, rectCount * HandRect.FLOATS_PER_RECT);
+        System.arraycopy(other.handedness, 0, handedness, 0, handCount);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import java.util.Arrays;
+
+/**
+ * Result of {@link MultiHandClassifier}: the gesture and handedness of every hand of a frame, in
+ * the frame's landmark order, and the gesture made by both hands together. Reused across frames.
+ *
+ * <p>{@link #stableGesture} is the gesture after {@link GestureStabilizer} when a
+ * {@link GesturePipeline} filled this, and the per-frame gesture otherwise.
+ */
+public final class HandGestures {
+    private final Gesture[] gestures;
+    private final Gesture[] stableGestures;
+    private final Handedness[] handedness;
+    private final int[] fingerMasks;
+    private int count;
+    private TwoHandGesture twoHandGesture = TwoHandGesture.NONE;
+
+    public HandGestures(int maxHands) {
+        gestures = new Gesture[maxHands];
+        stableGestures = new Gesture[maxHands];
+        handedness = new Handedness[maxHands];
+        fingerMasks = new int[maxHands];
+        Arrays.fill(gestures, Gesture.NO_HAND);
+        Arrays.fill(stableGestures, Gesture.NO_HAND);
+        Arrays.fill(handedness, Handedness.UNKNOWN);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public Gesture gesture(int hand) {
+        return gestures[hand];
+    }
+
+    /** Debounced gesture of {@code hand}. */
+    public Gesture stableGesture(int hand) {
+        return stableGestures[hand];
+    }
+
+    public Handedness handedness(int hand) {
+        return handedness[hand];
+    }
+
+    /** Open fingers of {@code hand}, see {@link GestureEngine#fingerMask}. */
+    public int fingerMask(int hand) {
+        return fingerMasks[hand];
+    }
+
+    public TwoHandGesture twoHandGesture() {
+        return twoHandGesture;
+    }
+
+    /** Gesture of the first hand, or {@link Gesture#NO_HAND}. */
+    public Gesture first() {
+        return count == 0 ? Gesture.NO_HAND : gestures[0];
+    }
+
+    /** Debounced gesture of the first hand, or {@link Gesture#NO_HAND}. */
+    public Gesture firstStable() {
+        return count == 0 ? Gesture.NO_HAND : stableGestures[0];
+    }
+
+    void setCount(int count) {
+        this.count = count;
+    }
+
+    void set(int hand, Gesture gesture, Handedness handedness, int fingerMask) {
+        gestures[hand] = gesture;
+        stableGestures[hand] = gesture;
+        this.handedness[hand] = handedness;
+        fingerMasks[hand] = fingerMask;
+    }
+
+    void setStableGesture(int hand, Gesture gesture) {
+        stableGestures[hand] = gesture;
+    }
+
+    void setTwoHandGesture(TwoHandGesture twoHandGesture) {
+        this.twoHandGesture = twoHandGesture;
+    }
+}
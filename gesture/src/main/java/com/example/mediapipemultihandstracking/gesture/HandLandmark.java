@@ -0,0 +1,60 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/**
+ * Indices of the 21 hand landmarks produced by the MediaPipe hand landmark model, and the layout
+ * of the primitive buffers the gesture code works on.
+ *
+ * <p>A hand is stored as {@link #FLOATS_PER_HAND} consecutive floats: x, y and z of landmark 0,
+ * then of landmark 1, and so on. Several hands are stored back to back in one flat buffer, hand
+ * {@code i} starting at {@code i * FLOATS_PER_HAND}.
+ */
+public final class HandLandmark {
+    public static final int WRIST = 0;
+    public static final int THUMB_CMC = 1;
+    public static final int THUMB_MCP = 2;
+    public static final int THUMB_IP = 3;
+    public static final int THUMB_TIP = 4;
+    public static final int INDEX_FINGER_MCP = 5;
+    public static final int INDEX_FINGER_PIP = 6;
+    public static final int INDEX_FINGER_DIP = 7;
+    public static final int INDEX_FINGER_TIP = 8;
+    public static final int MIDDLE_FINGER_MCP = 9;
+    public static final int MIDDLE_FINGER_PIP = 10;
+    public static final int MIDDLE_FINGER_DIP = 11;
+    public static final int MIDDLE_FINGER_TIP = 12;
+    public static final int RING_FINGER_MCP = 13;
+    public static final int RING_FINGER_PIP = 14;
+    public static final int RING_FINGER_DIP = 15;
+    public static final int RING_FINGER_TIP = 16;
+    public static final int PINKY_MCP = 17;
+    public static final int PINKY_PIP = 18;
+    public static final int PINKY_DIP = 19;
+    public static final int PINKY_TIP = 20;
+
+    public static final int COUNT = 21;
+    public static final int FLOATS_PER_LANDMARK = 3;
+    public static final int FLOATS_PER_HAND = COUNT * FLOATS_PER_LANDMARK;
+
+    private HandLandmark() {
+    }
+
+    /** Offset of hand {@code hand} in a flat multi-hand buffer. */
+    public static int handOffset(int hand) {
+        return hand * FLOATS_PER_HAND;
+    }
+
+    /** Offset of the x coordinate of {@code landmark} in a hand starting at {@code handOffset}. */
+    public static int x(int handOffset, int landmark) {
+        return handOffset + landmark * FLOATS_PER_LANDMARK;
+    }
+
+    /** Offset of the y coordinate of {@code landmark} in a hand starting at {@code handOffset}. */
+    public static int y(int handOffset, int landmark) {
+        return handOffset + landmark * FLOATS_PER_LANDMARK + 1;
+    }
+
+    /** Offset of the z coordinate of {@code landmark} in a hand starting at {@code handOffset}. */
+    public static int z(int handOffset, int landmark) {
+        return handOffset + landmark * FLOATS_PER_LANDMARK + 2;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/**
+ * Layout of a hand rectangle ({@code NormalizedRect}) in a primitive buffer. Fields follow the
+ * proto field order; several rects are stored back to back, rect {@code i} starting at
+ * {@code i * FLOATS_PER_RECT}.
+ */
+public final class HandRect {
+    public static final int X_CENTER = 0;
+    public static final int Y_CENTER = 1;
+    public static final int HEIGHT = 2;
+    public static final int WIDTH = 3;
+    /** Rotation in radian, 0 when the proto does not set it. */
+    public static final int ROTATION = 4;
+
+    public static final int FLOATS_PER_RECT = 5;
+
+    private HandRect() {
+    }
+
+    /** Offset of rect {@code rect} in a flat multi-rect buffer. */
+    public static int rectOffset(int rect) {
+        return rect * FLOATS_PER_RECT;
+    }
+}
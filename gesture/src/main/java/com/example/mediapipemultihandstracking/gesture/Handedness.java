@@ -0,0 +1,29 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/** Which hand a set of landmarks belongs to, with the labels of {@code handedness.txt}. */
+public enum Handedness {
+    LEFT("Left"),
+    RIGHT("Right"),
+    UNKNOWN("");
+
+    /** Index of the "Right" label in {@code handedness.txt}. */
+    public static final int RIGHT_LABEL_INDEX = 1;
+
+    private final String label;
+
+    Handedness(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /** Maps the probability of a right hand, as stored in {@link HandFrame#handedness()}. */
+    public static Handedness of(float rightHandScore) {
+        if (Float.isNaN(rightHandScore)) {
+            return UNKNOWN;
+        }
+        return rightHandScore >= 0.5f ? RIGHT : LEFT;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+/**
+ * Lets {@link MultiHandClassifier} skip classifying a tracked hand that has not moved since it
+ * was last classified, and reuse that result.
+ *
+ * <p>When a hand is classified, the gate stores its signature: every landmark coordinate
+ * quantized on a grid whose step is {@code landmarkStep} times the height of the hand's rect.
+ * It also stores the rect and the result. The hand counts as moved, and is classified again,
+ * once any coordinate lands more than one step away from its signature, its rect center moves by
+ * more than {@code rectTolerance} times its height or its height changes by that share, or after
+ * {@code maxReuse} frames of reuse. The comparison is with the last classified frame, not the
+ * previous one, so slow drift adds up and is caught.
+ *
+ * <p>The gate counts hits and misses, and times one call in {@value #TIMING_SAMPLE_EVERY} of the
+ * check and of the classification to estimate the CPU time it saves. State is a few fixed
+ * arrays indexed by track slot; register the gate as the tracker's {@link HandTracker.Listener}
+ * so a reused slot starts from scratch. Not thread-safe, but the counters may be read from any
+ * thread.
+ */
+public final class IncrementalGate implements HandTracker.Listener {
+    private static final float DEFAULT_LANDMARK_STEP = 0.02f;
+    private static final float DEFAULT_RECT_TOLERANCE = 0.05f;
+    private static final int DEFAULT_MAX_REUSE = 30;
+    private static final int TIMING_SAMPLE_EVERY = 16;
+    private static final int COORDINATES = HandLandmark.FLOATS_PER_HAND;
+    // Keeps the cells of coordinates a little outside the image positive, so a cast rounds them
+    // down like the others; much cheaper than Math.round.
+    private static final float CELL_OFFSET = 1 << 12;
+
+    private final float landmarkStep;
+    private final float rectTolerance;
+    private final int maxReuse;
+
+    // Per slot; a scale of 0 means no signature.
+    private final int[] signatures;
+    private final float[] scales;
+    private final float[] rectX;
+    private final float[] rectY;
+    private final float[] rectHeight;
+    private final Gesture[] gestures;
+    private final int[] fingerMasks;
+    private final int[] reuses;
+
+    private volatile long hits;
+    private volatile long misses;
+    private int calls;
+    private volatile long checkNanos;
+    private volatile long checkSamples;
+    private volatile long classifyNanos;
+    private volatile long classifySamples;
+
+    /**
+     * @param landmarkStep grid step of the signature, as a share of the rect height
+     * @param rectTolerance movement of the rect center, and change of its height, tolerated as a
+     *                      share of its height
+     * @param maxReuse frames a result may be reused before the hand is classified again anyway
+     */
+    public IncrementalGate(int tracks, float landmarkStep, float rectTolerance, int maxReuse) {
+        if (landmarkStep <= 0 || rectTolerance < 0 || maxReuse < 0) {
+            throw new IllegalArgumentException("bad incremental gate parameters");
+        }
+        this.landmarkStep = landmarkStep;
+        this.rectTolerance = rectTolerance;
+        this.maxReuse = maxReuse;
+        signatures = new int[tracks * COORDINATES];
+        scales = new float[tracks];
+        rectX = new float[tracks];
+        rectY = new float[tracks];
+        rectHeight = new float[tracks];
+        gestures = new Gesture[tracks];
+        fingerMasks = new int[tracks];
+        reuses = new int[tracks];
+    }
+
+    /** A gate with a grid step of 2% of the hand height, 5% rect tolerance and 30 frames of reuse. */
+    public IncrementalGate(int tracks) {
+        this(tracks, DEFAULT_LANDMARK_STEP, DEFAULT_RECT_TOLERANCE, DEFAULT_MAX_REUSE);
+    }
+
+    /**
+     * Classifies {@code hand} of {@code frame}, tracked in {@code slot} and matched to
+     * {@code rect}, unless it has not moved since its track was last classified.
+     *
+     * @return the gesture; its finger mask is then {@link #fingerMask(int) fingerMask(slot)}
+     */
+    public Gesture classify(GestureEngine engine, HandFrame frame, int hand, int slot, int rect) {
+        float[] landmarks = frame.landmarks();
+        int offset = HandLandmark.handOffset(hand);
+        int rectOffset = HandRect.rectOffset(rect);
+        boolean timed = ++calls % TIMING_SAMPLE_EVERY == 0;
+
+        long start = timed ? System.nanoTime() : 0;
+        boolean still = isStill(landmarks, offset, frame.rects(), rectOffset, slot);
+        if (timed) {
+            checkNanos += System.nanoTime() - start;
+            checkSamples++;
+        }
+        if (still) {
+            reuses[slot]++;
+            hits++;
+            return gestures[slot];
+        }
+
+        start = timed ? System.nanoTime() : 0;
+        int mask = engine.fingerMask(landmarks, offset);
+        Gesture gesture = engine.classify(landmarks, offset, mask);
+        if (timed) {
+            classifyNanos += System.nanoTime() - start;
+            classifySamples++;
+        }
+        remember(landmarks, offset, frame.rects(), rectOffset, slot, gesture, mask);
+        misses++;
+        return gesture;
+    }
+
+    private boolean isStill(float[] landmarks, int offset, float[] rects, int rectOffset, int slot) {
+        float scale = scales[slot];
+        if (scale == 0 || reuses[slot] >= maxReuse) {
+            return false;
+        }
+        float height = rectHeight[slot];
+        float tolerance = rectTolerance * height;
+        if (Math.abs(rects[rectOffset + HandRect.X_CENTER] - rectX[slot]) > tolerance
+                || Math.abs(rects[rectOffset + HandRect.Y_CENTER] - rectY[slot]) > tolerance
+                || Math.abs(rects[rectOffset + HandRect.HEIGHT] - height) > tolerance) {
+            return false;
+        }
+        int base = slot * COORDINATES;
+        for (int i = 0; i < COORDINATES; i++) {
+            int cell = (int) (landmarks[offset + i] * scale + CELL_OFFSET);
+            int delta = cell - signatures[base + i];
+            if (delta > 1 || delta < -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remember(float[] landmarks, int offset, float[] rects, int rectOffset, int slot,
+                          Gesture gesture, int mask) {
+        float height = rects[rectOffset + HandRect.HEIGHT];
+        gestures[slot] = gesture;
+        fingerMasks[slot] = mask;
+        reuses[slot] = 0;
+        if (!(height > 0)) {
+            scales[slot] = 0;
+            return;
+        }
+        float scale = 1 / (landmarkStep * height);
+        scales[slot] = scale;
+        rectX[slot] = rects[rectOffset + HandRect.X_CENTER];
+        rectY[slot] = rects[rectOffset + HandRect.Y_CENTER];
+        rectHeight[slot] = height;
+        int base = slot * COORDINATES;
+        for (int i = 0; i < COORDINATES; i++) {
+            signatures[base + i] = (int) (landmarks[offset + i] * scale + CELL_OFFSET);
+        }
+    }
+
+    /** Finger mask of the last result of the track in {@code slot}. */
+    public int fingerMask(int slot) {
+        return fingerMasks[slot];
+    }
+
+    @Override
+    public void onTrackRemoved(int slot) {
+        scales[slot] = 0;
+        gestures[slot] = null;
+        reuses[slot] = 0;
+    }
+
+    /** Hands whose last result was reused. */
+    public long hitCount() {
+        return hits;
+    }
+
+    /** Hands classified in full. */
+    public long missCount() {
+        return misses;
+    }
+
+    /** Share of the hands whose last result was reused, 0 before any. */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Estimated CPU time saved so far: the classifications skipped minus the checks made, from
+     * the sampled timings. Negative if the gate costs more than it saves.
+     */
+    public long savedNanos() {
+        long checks = checkSamples;
+        long classifications = classifySamples;
+        if (checks == 0 || classifications == 0) {
+            return 0;
+        }
+        double check = (double) checkNanos / checks;
+        double classify = (double) classifyNanos / classifications;
+        return Math.round(hits * classify - (hits + misses) * check);
+    }
+}
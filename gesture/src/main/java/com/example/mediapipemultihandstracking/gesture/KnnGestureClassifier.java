@@ -0,0 +1,495 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.feature.HandFeatureExtractor;
+import com.example.mediapipemultihandstracking.gesture.feature.HandFeatures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link GestureClassifier} learned from recorded hands: the {@code k} nearest examples vote.
+ *
+ * <p>Hands are compared on a subset of their {@link HandFeatures}. Each dimension is standardized
+ * with the mean and standard deviation of the training set and quantized to a signed byte, so the
+ * whole index is one byte array of {@code samples * dimensions} and a distance is a sum of small
+ * integer squares. The scan stops adding up a sample as soon as it is farther than the current
+ * k-th nearest. The class with most votes among the k nearest wins, ties going to the class of
+ * the nearest sample among the tied classes; a hand farther than the reject distance from every
+ * sample is {@link Gesture#UNKNOWN}.
+ *
+ * <p>Features are measured with y scaled by the frame height over its width, as MediaPipe
+ * normalizes x and y by different sides: examples with the {@code yScale} of the frames they were
+ * recorded in, hands with the {@link #setYScale yScale} of the frames being classified, by default
+ * the one the model was trained at.
+ *
+ * <p>Models are built with a {@link Builder}, typically by the training tool from labeled
+ * recordings, and stored with {@link #write}:
+ *
+ * <pre>
+ * int magic "GKNN", int version, int k, float rejectDeviations (0: never reject), float yScale
+ * int dimensions, then per dimension: int feature index, float mean, float steps per unit
+ * int classes, then per class: UTF name, UTF label
+ * int samples, then per sample: short class, byte[dimensions]
+ * </pre>
+ *
+ * <p>Class names that are built-in gestures resolve to their constants; the others become new
+ * gestures. Classifying never allocates; not thread-safe.
+ */
+public final class KnnGestureClassifier implements GestureClassifier {
+    private static final int[] DEFAULT_FEATURES = defaultFeatures();
+
+    static final int MAGIC = 0x474B4E4E; // "GKNN"
+    static final int VERSION = 2;
+    // Quantization steps per standard deviation; a byte covers about four deviations either way.
+    static final float STEPS_PER_DEVIATION = 32f;
+
+    private final int k;
+    private final float rejectDeviations;
+    private final int rejectDistance;
+    private final float trainedYScale;
+    private final int[] features;
+    private final float[] mean;
+    private final float[] scale;
+    private final Gesture[] gestures;
+    private final byte[] samples;
+    private final short[] sampleClass;
+
+    // Replaced, never changed, when the frame size changes, so a hand is measured with one yScale.
+    private volatile HandFeatureExtractor extractor;
+    private final float[] handFeatures = new float[HandFeatures.SIZE];
+    private final int[] query;
+    private final int[] nearestDistance;
+    private final int[] nearestClass;
+    private final int[] votes;
+
+    private KnnGestureClassifier(int k, float rejectDeviations, float yScale, int[] features, float[] mean,
+                                 float[] scale, Gesture[] gestures, byte[] samples, short[] sampleClass) {
+        this.k = k;
+        this.trainedYScale = yScale;
+        extractor = new HandFeatureExtractor(yScale);
+        this.rejectDeviations = rejectDeviations;
+        float reject = rejectDeviations * STEPS_PER_DEVIATION;
+        this.rejectDistance = rejectDeviations > 0 ? (int) Math.min(Integer.MAX_VALUE, reject * reject)
+                : Integer.MAX_VALUE;
+        this.features = features;
+        this.mean = mean;
+        this.scale = scale;
+        this.gestures = gestures;
+        this.samples = samples;
+        this.sampleClass = sampleClass;
+        query = new int[features.length];
+        nearestDistance = new int[k];
+        nearestClass = new int[k];
+        votes = new int[gestures.length];
+    }
+
+    /**
+     * The features a {@link Builder} uses unless told otherwise: joint angles, palm normal,
+     * fingertip to palm distances and the distances between fingertips.
+     */
+    public static int[] defaultFeatures() {
+        int[] features = new int[HandFeatures.PAIRWISE + HandFeatures.FINGERS * (HandFeatures.FINGERS - 1) / 2];
+        int n = 0;
+        for (int i = HandFeatures.JOINT_ANGLES; i < HandFeatures.PAIRWISE; i++) {
+            features[n++] = i;
+        }
+        for (int a = 0; a < HandFeatures.FINGERS; a++) {
+            for (int b = a + 1; b < HandFeatures.FINGERS; b++) {
+                features[n++] = HandFeatures.pair(4 + 4 * a, 4 + 4 * b);
+            }
+        }
+        return features;
+    }
+
+    @Override
+    public Gesture classify(float[] landmarks, int offset, int mask) {
+        if (sampleClass.length == 0) {
+            return Gesture.UNKNOWN;
+        }
+        int dimensions = features.length;
+        extractor.extract(landmarks, offset, handFeatures, 0);
+        for (int j = 0; j < dimensions; j++) {
+            query[j] = quantize(j, handFeatures[features[j]]);
+        }
+
+        int found = 0;
+        samples:
+        for (int sample = 0, base = 0; sample < sampleClass.length; sample++, base += dimensions) {
+            int limit = found < k ? Integer.MAX_VALUE : nearestDistance[k - 1];
+            int distance = 0;
+            for (int j = 0; j < dimensions; j++) {
+                int difference = query[j] - samples[base + j];
+                distance += difference * difference;
+                if (distance >= limit) {
+                    continue samples;
+                }
+            }
+            int position = found < k ? found++ : k - 1;
+            while (position > 0 && nearestDistance[position - 1] > distance) {
+                nearestDistance[position] = nearestDistance[position - 1];
+                nearestClass[position] = nearestClass[position - 1];
+                position--;
+            }
+            nearestDistance[position] = distance;
+            nearestClass[position] = sampleClass[sample];
+        }
+        if (nearestDistance[0] > rejectDistance) {
+            return Gesture.UNKNOWN;
+        }
+
+        for (int i = 0; i < found; i++) {
+            votes[nearestClass[i]] = 0;
+        }
+        for (int i = 0; i < found; i++) {
+            votes[nearestClass[i]]++;
+        }
+        // Neighbours are sorted nearest first, so the first class with the most votes holds the
+        // nearest sample among the tied classes.
+        int winner = nearestClass[0];
+        for (int i = 1; i < found; i++) {
+            if (votes[nearestClass[i]] > votes[winner]) {
+                winner = nearestClass[i];
+            }
+        }
+        return gestures[winner];
+    }
+
+    private int quantize(int dimension, float value) {
+        return quantize(value, mean[dimension], scale[dimension]);
+    }
+
+    static int quantize(float value, float mean, float scale) {
+        int steps = Math.round((value - mean) * scale);
+        return steps > 127 ? 127 : steps < -127 ? -127 : steps;
+    }
+
+    /** Gestures the model can return besides {@link Gesture#UNKNOWN}, in class order. */
+    public List<Gesture> gestures() {
+        return Collections.unmodifiableList(Arrays.asList(gestures));
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int sampleCount() {
+        return sampleClass.length;
+    }
+
+    public int dimensions() {
+        return features.length;
+    }
+
+    /** Height over width of the frames the model was trained at, see {@link Builder#setYScale}. */
+    public float trainedYScale() {
+        return trainedYScale;
+    }
+
+    /**
+     * Measures hands from now on as landmarks of frames whose height over width is
+     * {@code yScale}. May be called from any thread; allocates only when the value changes.
+     */
+    public void setYScale(float yScale) {
+        if (!(yScale > 0)) {
+            throw new IllegalArgumentException("yScale must be positive: " + yScale);
+        }
+        if (extractor.yScale() != yScale) {
+            extractor = new HandFeatureExtractor(yScale);
+        }
+    }
+
+    public float yScale() {
+        return extractor.yScale();
+    }
+
+    /** Writes the model in the format described above. */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(k);
+        data.writeFloat(rejectDeviations);
+        data.writeFloat(trainedYScale);
+        data.writeInt(features.length);
+        for (int j = 0; j < features.length; j++) {
+            data.writeInt(features[j]);
+            data.writeFloat(mean[j]);
+            data.writeFloat(scale[j]);
+        }
+        data.writeInt(gestures.length);
+        for (Gesture gesture : gestures) {
+            data.writeUTF(gesture.name());
+            data.writeUTF(gesture.label());
+        }
+        data.writeInt(sampleClass.length);
+        for (int sample = 0; sample < sampleClass.length; sample++) {
+            data.writeShort(sampleClass[sample]);
+            data.write(samples, sample * features.length, features.length);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a model written by {@link #write}.
+     *
+     * @throws IOException if the stream fails or does not hold a valid model
+     */
+    public static KnnGestureClassifier read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a gesture model");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported gesture model version " + version);
+        }
+        int k = data.readInt();
+        float rejectDeviations = data.readFloat();
+        float yScale = data.readFloat();
+        int dimensions = data.readInt();
+        if (k < 1 || !(yScale > 0) || dimensions < 1 || dimensions > HandFeatures.SIZE) {
+            throw new IOException("corrupt gesture model header");
+        }
+        int[] features = new int[dimensions];
+        float[] mean = new float[dimensions];
+        float[] scale = new float[dimensions];
+        for (int j = 0; j < dimensions; j++) {
+            features[j] = data.readInt();
+            if (features[j] < 0 || features[j] >= HandFeatures.SIZE) {
+                throw new IOException("bad feature index " + features[j]);
+            }
+            mean[j] = data.readFloat();
+            scale[j] = data.readFloat();
+        }
+        int classes = data.readInt();
+        if (classes < 1 || classes > Short.MAX_VALUE) {
+            throw new IOException("bad class count " + classes);
+        }
+        String[] names = new String[classes];
+        String[] labels = new String[classes];
+        for (int c = 0; c < classes; c++) {
+            names[c] = data.readUTF();
+            labels[c] = data.readUTF();
+        }
+        int sampleCount = data.readInt();
+        if (sampleCount < 0) {
+            throw new IOException("bad sample count " + sampleCount);
+        }
+        byte[] samples = new byte[sampleCount * dimensions];
+        short[] sampleClass = new short[sampleCount];
+        for (int sample = 0; sample < sampleCount; sample++) {
+            sampleClass[sample] = data.readShort();
+            if (sampleClass[sample] < 0 || sampleClass[sample] >= classes) {
+                throw new IOException("bad class " + sampleClass[sample] + " of sample " + sample);
+            }
+            data.readFully(samples, sample * dimensions, dimensions);
+        }
+        return new KnnGestureClassifier(k, rejectDeviations, yScale, features, mean, scale,
+                resolve(names, labels), samples, sampleClass);
+    }
+
+    private static Gesture[] resolve(String[] names, String[] labels) {
+        Gesture[] gestures = new Gesture[names.length];
+        int defined = 0;
+        for (int c = 0; c < names.length; c++) {
+            Gesture gesture = Gesture.builtIn(names[c]);
+            gestures[c] = gesture != null ? gesture
+                    : new Gesture(Gesture.builtInCount() + defined++, names[c], labels[c]);
+        }
+        return gestures;
+    }
+
+    /** Collects labeled examples and builds a model from them. */
+    public static final class Builder {
+        private static final int DEFAULT_K = 5;
+
+        private final int[] features;
+        private HandFeatureExtractor extractor = new HandFeatureExtractor();
+        private final float[] handFeatures = new float[HandFeatures.SIZE];
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, String> labels = new HashMap<>();
+        private final List<float[]> rows = new ArrayList<>();
+        private final List<Integer> rowClasses = new ArrayList<>();
+        private int k = DEFAULT_K;
+        private float rejectDeviations;
+        private float minSpacing;
+        private float yScale = 1f;
+
+        /** A builder comparing hands on the given {@link HandFeatures} indices. */
+        public Builder(int[] features) {
+            for (int feature : features) {
+                if (feature < 0 || feature >= HandFeatures.SIZE) {
+                    throw new IllegalArgumentException("bad feature index " + feature);
+                }
+            }
+            this.features = features.clone();
+        }
+
+        public Builder() {
+            this(DEFAULT_FEATURES);
+        }
+
+        public Builder setK(int k) {
+            if (k < 1) {
+                throw new IllegalArgumentException("k must be positive");
+            }
+            this.k = k;
+            return this;
+        }
+
+        /**
+         * Classifies hands farther than {@code deviations} standard deviations from every example
+         * as {@link Gesture#UNKNOWN}; 0, the default, never rejects.
+         */
+        public Builder setRejectDeviations(float deviations) {
+            this.rejectDeviations = deviations;
+            return this;
+        }
+
+        /**
+         * Keeps an example only if no kept example of the same gesture lies within
+         * {@code deviations} standard deviations. Consecutive camera frames are nearly identical,
+         * so a small spacing shrinks the index, and the scan, several times over at little cost
+         * in accuracy; 0, the default, keeps every example.
+         */
+        public Builder setMinSpacing(float deviations) {
+            this.minSpacing = deviations;
+            return this;
+        }
+
+        /**
+         * Height over width of the frames the model will classify unless told otherwise, and of the
+         * examples {@link #add(String, float[], int)} adds; 1, the default, for square frames.
+         */
+        public Builder setYScale(float yScale) {
+            if (!(yScale > 0)) {
+                throw new IllegalArgumentException("yScale must be positive: " + yScale);
+            }
+            this.yScale = yScale;
+            return this;
+        }
+
+        /** Text shown for the gesture called {@code name}, if it is not built in. */
+        public Builder setLabel(String name, String label) {
+            labels.put(name, label);
+            return this;
+        }
+
+        /** Adds the hand whose landmarks start at {@code offset} as an example of {@code name}. */
+        public Builder add(String name, float[] landmarks, int offset) {
+            return add(name, landmarks, offset, yScale);
+        }
+
+        /**
+         * Adds the hand whose landmarks start at {@code offset}, in a frame whose height over
+         * width is {@code frameYScale}, as an example of {@code name}.
+         */
+        public Builder add(String name, float[] landmarks, int offset, float frameYScale) {
+            if (Gesture.builtIn(name) == null && !GestureRules.NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("bad gesture name '" + name + "'");
+            }
+            int gestureClass = names.indexOf(name);
+            if (gestureClass < 0) {
+                gestureClass = names.size();
+                names.add(name);
+            }
+            if (extractor.yScale() != frameYScale) {
+                extractor = new HandFeatureExtractor(frameYScale);
+            }
+            extractor.extract(landmarks, offset, handFeatures, 0);
+            float[] row = new float[features.length];
+            for (int j = 0; j < features.length; j++) {
+                row[j] = handFeatures[features[j]];
+            }
+            rows.add(row);
+            rowClasses.add(gestureClass);
+            return this;
+        }
+
+        public int sampleCount() {
+            return rows.size();
+        }
+
+        public KnnGestureClassifier build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("no examples");
+            }
+            int dimensions = features.length;
+            float[] mean = new float[dimensions];
+            float[] scale = new float[dimensions];
+            for (int j = 0; j < dimensions; j++) {
+                double sum = 0;
+                for (float[] row : rows) {
+                    sum += row[j];
+                }
+                double average = sum / rows.size();
+                double squares = 0;
+                for (float[] row : rows) {
+                    squares += (row[j] - average) * (row[j] - average);
+                }
+                double deviation = Math.sqrt(squares / rows.size());
+                mean[j] = (float) average;
+                // A constant dimension tells the classes apart nowhere; ignore it.
+                scale[j] = deviation > 0 ? (float) (STEPS_PER_DEVIATION / deviation) : 0f;
+            }
+            String[] classNames = names.toArray(new String[0]);
+            String[] classLabels = new String[classNames.length];
+            for (int c = 0; c < classNames.length; c++) {
+                String label = labels.get(classNames[c]);
+                classLabels[c] = label != null ? label : classNames[c];
+            }
+            byte[] quantized = new byte[rows.size() * dimensions];
+            short[] quantizedClass = new short[rows.size()];
+            float spacing = minSpacing * STEPS_PER_DEVIATION;
+            int minDistance = minSpacing > 0 ? (int) Math.min(Integer.MAX_VALUE, spacing * spacing) : 0;
+            int kept = 0;
+            for (int sample = 0; sample < rows.size(); sample++) {
+                float[] row = rows.get(sample);
+                int base = kept * dimensions;
+                for (int j = 0; j < dimensions; j++) {
+                    quantized[base + j] = (byte) quantize(row[j], mean[j], scale[j]);
+                }
+                int gestureClass = rowClasses.get(sample);
+                if (minDistance == 0 || !hasNeighbour(quantized, quantizedClass, kept, dimensions,
+                        gestureClass, minDistance)) {
+                    quantizedClass[kept++] = (short) gestureClass;
+                }
+            }
+            return new KnnGestureClassifier(k, rejectDeviations, yScale, features.clone(), mean, scale,
+                    resolve(classNames, classLabels), Arrays.copyOf(quantized, kept * dimensions),
+                    Arrays.copyOf(quantizedClass, kept));
+        }
+
+        // Whether one of the first `kept` samples has class `gestureClass` and lies within
+        // `minDistance` of the sample stored right after them.
+        private static boolean hasNeighbour(byte[] samples, short[] sampleClass, int kept, int dimensions,
+                                            int gestureClass, int minDistance) {
+            int candidate = kept * dimensions;
+            for (int sample = 0; sample < kept; sample++) {
+                if (sampleClass[sample] != gestureClass) {
+                    continue;
+                }
+                int distance = 0;
+                for (int j = 0; j < dimensions; j++) {
+                    int difference = samples[candidate + j] - samples[sample * dimensions + j];
+                    distance += difference * difference;
+                }
+                if (distance <= minDistance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/** Hand movements recognized from the palm rect and the hand angle across frames. */
+public enum Motion {
+    NONE(""),
+    SCROLL_RIGHT("Scrolling right"),
+    SCROLL_UP("Scrolling up"),
+    SCROLL_LEFT("Scrolling left"),
+    SCROLL_DOWN("Scrolling down"),
+    ZOOM_OUT("Zoom out"),
+    ZOOM_IN("Zoom in"),
+    SLIDE_LEFT("Slide left"),
+    SLIDE_RIGHT("Slide right");
+
+    private final String label;
+
+    Motion(String label) {
+        this.label = label;
+    }
+
+    /** Text shown to the user for this motion. */
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+/**
+ * Classifies every hand of a {@link HandFrame} and, in the same pass over the landmark buffer,
+ * the gesture made by a left and a right hand together.
+ *
+ * <p>The two-hand pair is the first left and the first right hand according to the handedness
+ * model, or the first two hands when handedness is unknown. Pinch zoom compares the distance
+ * between the two pinches with the distance when the pinch started or last zoomed, so it keeps
+ * state between frames: use one instance per stream of frames.
+ *
+ * <p>Given a {@link HandTracker} updated with the frame and an {@link IncrementalGate}, tracked
+ * hands that have not moved reuse their last result instead of being classified again. The
+ * two-hand gesture is always evaluated, as pinch zoom follows small movements.
+ *
+ * <p>Both hands showing FIVE or a fist is decided from their {@link HandGestures#stableGesture
+ * debounced gestures}; once those are set, {@link #updateTwoHandGesture} decides it again.
+ */
+public final class MultiHandClassifier {
+    // Thumb tip to first finger tip distance below which a hand pinches.
+    private static final double PINCH_DISTANCE = 0.05;
+    // Change of the distance between the two pinches that counts as one zoom step.
+    private static final double PINCH_ZOOM_STEP = 0.05;
+
+    private final GestureEngine engine;
+    private double pinchAnchor = Double.NaN;
+    // Hands paired in the last frame, -1 if none, and whether they were pinching.
+    private int pairFirst = -1;
+    private int pairSecond = -1;
+    private boolean pinching;
+
+    public MultiHandClassifier(GestureEngine engine) {
+        this.engine = engine;
+    }
+
+    public MultiHandClassifier() {
+        this(new GestureEngine());
+    }
+
+    public void classify(HandFrame frame, HandGestures out) {
+        classify(frame, out, null, null);
+    }
+
+    /**
+     * Classifies {@code frame} like {@link #classify(HandFrame, HandGestures)}, reusing the
+     * results of tracked hands that {@code gate} finds still.
+     *
+     * @param tracker already updated with {@code frame}, or null to classify every hand
+     * @param gate or null to classify every hand
+     */
+    public void classify(HandFrame frame, HandGestures out, HandTracker tracker, IncrementalGate gate) {
+        float[] landmarks = frame.landmarks();
+        float[] handednessScores = frame.handedness();
+        int handCount = frame.handCount();
+        int left = -1;
+        int right = -1;
+        for (int hand = 0; hand < handCount; hand++) {
+            int slot = tracker == null || gate == null ? -1 : tracker.slotOfHand(hand);
+            int rect = slot < 0 ? -1 : tracker.rectIndex(slot);
+            Handedness handedness = Handedness.of(handednessScores[hand]);
+            if (rect >= 0) {
+                Gesture gesture = gate.classify(engine, frame, hand, slot, rect);
+                out.set(hand, gesture, handedness, gate.fingerMask(slot));
+            } else {
+                int offset = HandLandmark.handOffset(hand);
+                int mask = engine.fingerMask(landmarks, offset);
+                out.set(hand, engine.classify(landmarks, offset, mask), handedness, mask);
+            }
+            if (handedness == Handedness.LEFT && left < 0) {
+                left = hand;
+            } else if (handedness == Handedness.RIGHT && right < 0) {
+                right = hand;
+            }
+        }
+        out.setCount(handCount);
+        if (left >= 0 && right >= 0) {
+            out.setTwoHandGesture(twoHandGesture(landmarks, out, left, right));
+        } else if (handCount >= 2) {
+            // Not a clear left/right pair: pair up the first two hands.
+            out.setTwoHandGesture(twoHandGesture(landmarks, out, 0, 1));
+        } else {
+            pinchAnchor = Double.NaN;
+            pairFirst = -1;
+            pairSecond = -1;
+            pinching = false;
+            out.setTwoHandGesture(TwoHandGesture.NONE);
+        }
+    }
+
+    /**
+     * Decides again whether the hands paired by the last {@link #classify} show FIVE or a fist
+     * together, from the debounced gestures set in {@code out} since.
+     */
+    public void updateTwoHandGesture(HandGestures out) {
+        if (pairFirst >= 0 && !pinching) {
+            out.setTwoHandGesture(bothHands(out, pairFirst, pairSecond));
+        }
+    }
+
+    private TwoHandGesture twoHandGesture(float[] landmarks, HandGestures hands, int first, int second) {
+        pairFirst = first;
+        pairSecond = second;
+        int firstOffset = HandLandmark.handOffset(first);
+        int secondOffset = HandLandmark.handOffset(second);
+        if (GestureEngine.thumbToFirstFingerDistance(landmarks, firstOffset) < PINCH_DISTANCE
+                && GestureEngine.thumbToFirstFingerDistance(landmarks, secondOffset) < PINCH_DISTANCE) {
+            pinching = true;
+            double span = Geometry.getEuclideanDistanceAB(
+                    pinchX(landmarks, firstOffset), pinchY(landmarks, firstOffset),
+                    pinchX(landmarks, secondOffset), pinchY(landmarks, secondOffset));
+            if (Double.isNaN(pinchAnchor)) {
+                pinchAnchor = span;
+            } else if (span > pinchAnchor + PINCH_ZOOM_STEP) {
+                pinchAnchor = span;
+                return TwoHandGesture.PINCH_ZOOM_IN;
+            } else if (span < pinchAnchor - PINCH_ZOOM_STEP) {
+                pinchAnchor = span;
+                return TwoHandGesture.PINCH_ZOOM_OUT;
+            }
+            return TwoHandGesture.NONE;
+        }
+        pinchAnchor = Double.NaN;
+        pinching = false;
+        return bothHands(hands, first, second);
+    }
+
+    private static TwoHandGesture bothHands(HandGestures hands, int first, int second) {
+        Gesture a = hands.stableGesture(first);
+        Gesture b = hands.stableGesture(second);
+        if (a == Gesture.FIVE && b == Gesture.FIVE) {
+            return TwoHandGesture.BOTH_FIVE;
+        } else if (a == Gesture.FIST && b == Gesture.FIST) {
+            return TwoHandGesture.BOTH_FIST;
+        }
+        return TwoHandGesture.NONE;
+    }
+
+    private static float pinchX(float[] landmarks, int offset) {
+        return (landmarks[HandLandmark.x(offset, HandLandmark.THUMB_TIP)]
+                + landmarks[HandLandmark.x(offset, HandLandmark.INDEX_FINGER_TIP)]) / 2;
+    }
+
+    private static float pinchY(float[] landmarks, int offset) {
+        return (landmarks[HandLandmark.y(offset, HandLandmark.THUMB_TIP)]
+                + landmarks[HandLandmark.y(offset, HandLandmark.INDEX_FINGER_TIP)]) / 2;
+    }
+}
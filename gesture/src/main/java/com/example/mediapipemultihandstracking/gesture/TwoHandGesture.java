@@ -0,0 +1,22 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/** Gestures made with two hands at once, recognized by {@link MultiHandClassifier}. */
+public enum TwoHandGesture {
+    NONE(""),
+    BOTH_FIVE("Both FIVE"),
+    BOTH_FIST("Both fist"),
+    /** Both hands pinch (thumb tip on index tip) and the pinches move apart. */
+    PINCH_ZOOM_IN("Pinch zoom in"),
+    /** Both hands pinch and the pinches move together. */
+    PINCH_ZOOM_OUT("Pinch zoom out");
+
+    private final String label;
+
+    TwoHandGesture(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
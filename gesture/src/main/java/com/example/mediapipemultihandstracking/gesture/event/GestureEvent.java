@@ -0,0 +1,150 @@
+package com.example.mediapipemultihandstracking.gesture.event;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.HandGestures;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import java.util.Arrays;
+
+/**
+ * A change published on a {@link GestureEventBus}: the gestures of the hands changed, or their
+ * motion did. Events are preallocated and reused; a subscriber's event is only valid until it
+ * polls the next one, so copy what must outlive it.
+ */
+public final class GestureEvent {
+    public enum Type {
+        /** The debounced gestures, handedness or two-hand gesture changed. */
+        GESTURE,
+        /** The motion or the recognized trajectory changed. */
+        MOTION
+    }
+
+    private final Gesture[] gestures;
+    private final Handedness[] handedness;
+    private long sequence;
+    private long timestamp;
+    private Type type = Type.GESTURE;
+    private String label = "";
+    private int handCount;
+    private TwoHandGesture twoHandGesture = TwoHandGesture.NONE;
+    private Motion motion = Motion.NONE;
+    private TrajectoryTemplate trajectory;
+
+    public GestureEvent(int maxHands) {
+        gestures = new Gesture[maxHands];
+        handedness = new Handedness[maxHands];
+        Arrays.fill(gestures, Gesture.NO_HAND);
+        Arrays.fill(handedness, Handedness.UNKNOWN);
+    }
+
+    /** Number of the event on its bus, from 1; a gap means the subscriber missed events. */
+    public long sequence() {
+        return sequence;
+    }
+
+    /** Camera timestamp of the frame the change was seen in, in microseconds. */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    /** Text for the change, as shown on screen: the gesture label or the motion label. */
+    public String label() {
+        return label;
+    }
+
+    /** Hands of a {@link Type#GESTURE} event. */
+    public int handCount() {
+        return handCount;
+    }
+
+    /** Debounced gesture of {@code hand} in a {@link Type#GESTURE} event. */
+    public Gesture gesture(int hand) {
+        return gestures[hand];
+    }
+
+    public Handedness handedness(int hand) {
+        return handedness[hand];
+    }
+
+    public TwoHandGesture twoHandGesture() {
+        return twoHandGesture;
+    }
+
+    /** Motion of a {@link Type#MOTION} event. */
+    public Motion motion() {
+        return motion;
+    }
+
+    /** Trajectory shown by a {@link Type#MOTION} event, or null. */
+    public TrajectoryTemplate trajectory() {
+        return trajectory;
+    }
+
+    /** Makes this a {@link Type#GESTURE} event for {@code hands}. */
+    public void setGestures(long timestamp, String label, HandGestures hands) {
+        clear(Type.GESTURE, timestamp, label);
+        handCount = Math.min(hands.count(), gestures.length);
+        for (int hand = 0; hand < handCount; hand++) {
+            gestures[hand] = hands.stableGesture(hand);
+            handedness[hand] = hands.handedness(hand);
+        }
+        twoHandGesture = hands.twoHandGesture();
+    }
+
+    /** Makes this a {@link Type#GESTURE} event from the gestures of {@code handCount} hands. */
+    public void setGestures(long timestamp, String label, int handCount, Gesture[] gestures,
+                            Handedness[] handedness, TwoHandGesture twoHandGesture) {
+        clear(Type.GESTURE, timestamp, label);
+        this.handCount = Math.min(handCount, this.gestures.length);
+        System.arraycopy(gestures, 0, this.gestures, 0, this.handCount);
+        System.arraycopy(handedness, 0, this.handedness, 0, this.handCount);
+        this.twoHandGesture = twoHandGesture;
+    }
+
+    /** Makes this a {@link Type#MOTION} event. */
+    public void setMotion(long timestamp, String label, Motion motion, TrajectoryTemplate trajectory) {
+        clear(Type.MOTION, timestamp, label);
+        this.motion = motion;
+        this.trajectory = trajectory;
+    }
+
+    private void clear(Type type, long timestamp, String label) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.label = label;
+        handCount = 0;
+        twoHandGesture = TwoHandGesture.NONE;
+        motion = Motion.NONE;
+        trajectory = null;
+    }
+
+    /** Numbers this event; the bus numbers what it publishes, a stream receiver keeps the sender's. */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void copyFrom(GestureEvent other) {
+        sequence = other.sequence;
+        timestamp = other.timestamp;
+        type = other.type;
+        label = other.label;
+        handCount = Math.min(other.handCount, gestures.length);
+        System.arraycopy(other.gestures, 0, gestures, 0, handCount);
+        System.arraycopy(other.handedness, 0, handedness, 0, handCount);
+        twoHandGesture = other.twoHandGesture;
+        motion = other.motion;
+        trajectory = other.trajectory;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " at " + timestamp + ": " + label;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.mediapipemultihandstracking.gesture.event;
+
+import com.example.mediapipemultihandstracking.gesture.metrics.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stream of {@link GestureEvent}s for any number of independent subscribers, e.g. the screen,
+ * an input injector and analytics.
+ *
+ * <p>Every {@link Subscription} owns a ring of preallocated events and reads it at its own pace,
+ * keeping its own sequence. {@link #publish} copies the event into every ring and never waits:
+ * what happens when a subscriber falls behind is the subscriber's {@link Policy}, so a slow
+ * consumer can never stall the thread publishing, typically MediaPipe's callback thread. Ring
+ * slots are owned through a CAS on their state, as in the frame joiner's rings. A policy that
+ * overwrites also keeps a spare slot, for the new event when the one to overwrite is being read.
+ *
+ * <p>Publish from one thread at a time: fill {@link #event()}, then call {@link #publish()}.
+ * Publishing never allocates. Subscriptions may be added, polled and cancelled from any thread,
+ * each one polled from one thread at a time.
+ */
+public final class GestureEventBus {
+    /** What a subscription does with a new event once its ring is full. */
+    public enum Policy {
+        /**
+         * Keeps only the newest event: a ring of one that is always overwritten, or while its event
+         * is being read, the spare that is.
+         */
+        LATEST_ONLY,
+        /** Drops the new event, keeping the events already queued. */
+        BOUNDED_QUEUE,
+        /** Overwrites the oldest queued event. */
+        DROP_OLDEST
+    }
+
+    /** Receives events on a subscription's executor; the event is only valid during the call. */
+    public interface Handler {
+        void onEvent(GestureEvent event);
+    }
+
+    private static final Subscription[] NONE = new Subscription[0];
+
+    private final int maxHands;
+    private final GestureEvent next;
+    private volatile Subscription[] subscriptions = NONE;
+    private volatile long published;
+
+    public GestureEventBus(int maxHands) {
+        this.maxHands = maxHands;
+        this.next = new GestureEvent(maxHands);
+    }
+
+    /**
+     * A subscription to poll from the consumer's own thread.
+     *
+     * @param capacity events queued before the policy applies, a power of two; ignored for
+     *                 {@link Policy#LATEST_ONLY}
+     */
+    public Subscription subscribe(Policy policy, int capacity) {
+        return add(new Subscription(this, policy, capacity, null, null));
+    }
+
+    /**
+     * A subscription that hands its events to {@code handler} on {@code executor}. At most one
+     * task is pending on the executor; it delivers every event queued by the time it runs.
+     */
+    public Subscription subscribe(Policy policy, int capacity, Executor executor, Handler handler) {
+        return add(new Subscription(this, policy, capacity, executor, handler));
+    }
+
+    private synchronized Subscription add(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        return subscription;
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /** The event to fill before {@link #publish()}; only for the publishing thread. */
+    public GestureEvent event() {
+        return next;
+    }
+
+    /** Numbers {@link #event()} and hands it to every subscription. */
+    public void publish() {
+        long sequence = published + 1;
+        next.setSequence(sequence);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(next);
+        }
+        published = sequence;
+    }
+
+    /** Events published so far, the sequence of the last one. */
+    public long publishedCount() {
+        return published;
+    }
+
+    public int subscriberCount() {
+        return subscriptions.length;
+    }
+
+    /** One subscriber's view of the stream. */
+    public static final class Subscription {
+        private static final int FREE = 0;
+        private static final int WRITING = 1;
+        private static final int READY = 2;
+        private static final int READING = 3;
+
+        private final GestureEventBus bus;
+        private final Policy policy;
+        private final int mask;
+        private final GestureEvent[] slots;
+        // Ring position of the event in each slot, to tell an overwritten slot from the one expected.
+        private final long[] positions;
+        private final AtomicIntegerArray states;
+        // Holds the newest event instead of the slot it belongs in while the consumer reads that
+        // slot; null for a bounded queue, which drops the new event then.
+        private final GestureEvent spare;
+        private final AtomicInteger spareState = new AtomicInteger();
+        private volatile long sparePosition;
+        private final Executor executor;
+        private final Handler handler;
+        private final GestureEvent delivered;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drain = this::drain;
+
+        // Ring positions written by the publisher and read by the consumer.
+        private volatile long written;
+        private long read;
+        private volatile long lastSequence;
+        private volatile long deliveredCount;
+        private volatile long droppedCount;
+        // Spare events the consumer skipped past, counted on its side.
+        private volatile long skippedCount;
+        private volatile long scheduledAt;
+        private volatile LatencyHistogram delayHistogram;
+
+        Subscription(GestureEventBus bus, Policy policy, int capacity, Executor executor, Handler handler) {
+            if (policy == Policy.LATEST_ONLY) {
+                capacity = 1;
+            }
+            if (Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+            }
+            this.bus = bus;
+            this.policy = policy;
+            this.mask = capacity - 1;
+            this.slots = new GestureEvent[capacity];
+            for (int slot = 0; slot < capacity; slot++) {
+                slots[slot] = new GestureEvent(bus.maxHands);
+            }
+            this.positions = new long[capacity];
+            this.states = new AtomicIntegerArray(capacity);
+            this.spare = policy == Policy.BOUNDED_QUEUE ? null : new GestureEvent(bus.maxHands);
+            this.executor = executor;
+            this.handler = handler;
+            this.delivered = handler == null ? null : new GestureEvent(bus.maxHands);
+        }
+
+        public Policy policy() {
+            return policy;
+        }
+
+        /** Records, for every delivery task run, the time from handing it to the executor until it ran. */
+        public void setDelayHistogram(LatencyHistogram delayHistogram) {
+            this.delayHistogram = delayHistogram;
+        }
+
+        // Publisher side.
+        void offer(GestureEvent event) {
+            long position = written;
+            int slot = (int) (position & mask);
+            while (!states.compareAndSet(slot, FREE, WRITING)) {
+                // Full.
+                if (spare == null) {
+                    droppedCount++;
+                    return;
+                }
+                if (states.compareAndSet(slot, READY, WRITING)) {
+                    droppedCount++;
+                    break;
+                }
+                // The consumer is reading the oldest event: keep the new one in the spare. Should
+                // the consumer have moved on to the spare meanwhile, the slot is free again.
+                if (offerSpare(event, position)) {
+                    written = position + 1;
+                    schedule();
+                    return;
+                }
+            }
+            slots[slot].copyFrom(event);
+            positions[slot] = position;
+            states.set(slot, READY);
+            written = position + 1;
+            schedule();
+        }
+
+        private boolean offerSpare(GestureEvent event, long position) {
+            int state = spareState.get();
+            if (state == READING || !spareState.compareAndSet(state, WRITING)) {
+                return false;
+            }
+            if (state == READY) {
+                droppedCount++;
+            }
+            spare.copyFrom(event);
+            sparePosition = position;
+            spareState.set(READY);
+            return true;
+        }
+
+        private void schedule() {
+            if (executor != null && scheduled.compareAndSet(false, true)) {
+                scheduledAt = System.nanoTime();
+                executor.execute(drain);
+            }
+        }
+
+        /**
+         * Copies the oldest queued event into {@code into}, from one consumer thread at a time.
+         *
+         * @return false if there is none
+         */
+        public boolean poll(GestureEvent into) {
+            while (true) {
+                long end = written;
+                if (read == end) {
+                    return false;
+                }
+                if (end - read > mask + 1) {
+                    // Overwritten while this subscriber was behind.
+                    read = end - (mask + 1);
+                }
+                if (spare != null) {
+                    skipSpare();
+                }
+                int slot = (int) (read & mask);
+                if (states.compareAndSet(slot, READY, READING)) {
+                    long position = positions[slot];
+                    if (position == read) {
+                        into.copyFrom(slots[slot]);
+                        states.set(slot, FREE);
+                        return delivered(into);
+                    }
+                    states.set(slot, READY);
+                    if (position > read) {
+                        // Overwritten; the next position written shows from where to read.
+                        continue;
+                    }
+                } else if (states.get(slot) == WRITING) {
+                    // The publisher is overwriting it, as above.
+                    continue;
+                }
+                // The slot still holds an event read before: this one went to the spare.
+                if (spare != null && pollSpare(into)) {
+                    return delivered(into);
+                }
+                // Since overwritten there by a newer one, counted as dropped by the publisher.
+                read++;
+            }
+        }
+
+        private boolean pollSpare(GestureEvent into) {
+            if (spareState.get() != READY || sparePosition != read || !spareState.compareAndSet(READY, READING)) {
+                return false;
+            }
+            boolean expected = sparePosition == read;
+            if (expected) {
+                into.copyFrom(spare);
+            }
+            spareState.set(expected ? FREE : READY);
+            return expected;
+        }
+
+        // Frees the spare once reading has moved past its event.
+        private void skipSpare() {
+            if (spareState.get() == READY && sparePosition < read && spareState.compareAndSet(READY, READING)) {
+                boolean skipped = sparePosition < read;
+                if (skipped) {
+                    skippedCount++;
+                }
+                spareState.set(skipped ? FREE : READY);
+            }
+        }
+
+        private boolean delivered(GestureEvent event) {
+            read++;
+            lastSequence = event.sequence();
+            deliveredCount++;
+            return true;
+        }
+
+        private void drain() {
+            LatencyHistogram histogram = delayHistogram;
+            if (histogram != null) {
+                histogram.record(System.nanoTime() - scheduledAt);
+            }
+            // Clear the flag before polling, so an event published from now on schedules another
+            // drain rather than being stranded.
+            scheduled.set(false);
+            while (poll(delivered)) {
+                handler.onEvent(delivered);
+            }
+        }
+
+        /** Stops receiving events; those still queued can be polled. */
+        public void cancel() {
+            bus.remove(this);
+        }
+
+        /** Sequence of the last event polled, 0 before any. */
+        public long lastSequence() {
+            return lastSequence;
+        }
+
+        /** Events polled. */
+        public long deliveredCount() {
+            return deliveredCount;
+        }
+
+        /** Events lost to the policy: new ones refused, or queued ones overwritten. */
+        public long droppedCount() {
+            return droppedCount + skippedCount;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.mediapipemultihandstracking.gesture.event;
+
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+
+/**
+ * Publishes on a {@link GestureEventBus} what changed in a {@link GesturePipeline} since the
+ * previous frame: a {@link GestureEvent.Type#GESTURE} event when its gesture label changes and a
+ * {@link GestureEvent.Type#MOTION} event when its motion label does. Call it on the thread that
+ * feeds the pipeline, after every frame.
+ */
+public final class GestureEventSource {
+    private final GestureEventBus bus;
+    private String gestureLabel;
+    private String motionLabel;
+
+    public GestureEventSource(GestureEventBus bus) {
+        this.bus = bus;
+    }
+
+    /** Publishes the changes of the frame {@code pipeline} just processed. */
+    public void publish(GesturePipeline pipeline, long timestamp) {
+        // The pipeline keeps its labels for as long as they do not change, so this rarely
+        // compares characters.
+        String currentGesture = pipeline.gestureLabel();
+        if (!currentGesture.equals(gestureLabel)) {
+            gestureLabel = currentGesture;
+            bus.event().setGestures(timestamp, currentGesture, pipeline.handGestures());
+            bus.publish();
+        }
+        String currentMotion = pipeline.motionLabel();
+        if (!currentMotion.equals(motionLabel)) {
+            motionLabel = currentMotion;
+            bus.event().setMotion(timestamp, currentMotion, pipeline.motion(), pipeline.trajectory());
+            bus.publish();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.mediapipemultihandstracking.gesture.feature;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+/**
+ * Computes the {@link HandFeatures} of a hand from its 21 3D landmarks in one pass.
+ *
+ * <p>MediaPipe normalizes x by the image width, y by the image height and z roughly like x, so
+ * y is first multiplied by {@code yScale}, the image height over its width, to measure all three
+ * axes in the same unit; angles and normalized distances are then independent of the hand's
+ * position, rotation and size. Keeps a few scratch arrays and never allocates; not thread-safe.
+ */
+public final class HandFeatureExtractor {
+    private static final int[] FINGER_BASES = {
+            HandLandmark.THUMB_CMC, HandLandmark.INDEX_FINGER_MCP, HandLandmark.MIDDLE_FINGER_MCP,
+            HandLandmark.RING_FINGER_MCP, HandLandmark.PINKY_MCP
+    };
+    private static final int[] PALM = {
+            HandLandmark.WRIST, HandLandmark.INDEX_FINGER_MCP, HandLandmark.MIDDLE_FINGER_MCP,
+            HandLandmark.RING_FINGER_MCP, HandLandmark.PINKY_MCP
+    };
+
+    private final float yScale;
+    private final float[] x = new float[HandLandmark.COUNT];
+    private final float[] y = new float[HandLandmark.COUNT];
+    private final float[] z = new float[HandLandmark.COUNT];
+
+    public HandFeatureExtractor(float yScale) {
+        this.yScale = yScale;
+    }
+
+    /** An extractor for square images, or landmarks already in isotropic units. */
+    public HandFeatureExtractor() {
+        this(1f);
+    }
+
+    public float yScale() {
+        return yScale;
+    }
+
+    /**
+     * Writes the features of the hand whose landmarks start at {@code offset} to
+     * {@code features[featureOffset]} to {@code features[featureOffset + HandFeatures.SIZE - 1]}.
+     */
+    public void extract(float[] landmarks, int offset, float[] features, int featureOffset) {
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            x[i] = landmarks[HandLandmark.x(offset, i)];
+            y[i] = landmarks[HandLandmark.y(offset, i)] * yScale;
+            z[i] = landmarks[HandLandmark.z(offset, i)];
+        }
+
+        for (int finger = 0; finger < HandFeatures.FINGERS; finger++) {
+            int base = FINGER_BASES[finger];
+            // Joint j bends between the bone ending at base + j and the bone starting there.
+            int previous = HandLandmark.WRIST;
+            for (int joint = 0; joint < HandFeatures.JOINTS_PER_FINGER; joint++) {
+                int at = base + joint;
+                features[featureOffset + HandFeatures.jointAngle(finger, joint)] =
+                        flexion(previous, at, at + 1);
+                previous = at;
+            }
+        }
+
+        int wrist = HandLandmark.WRIST;
+        float ax = x[HandLandmark.INDEX_FINGER_MCP] - x[wrist];
+        float ay = y[HandLandmark.INDEX_FINGER_MCP] - y[wrist];
+        float az = z[HandLandmark.INDEX_FINGER_MCP] - z[wrist];
+        float bx = x[HandLandmark.PINKY_MCP] - x[wrist];
+        float by = y[HandLandmark.PINKY_MCP] - y[wrist];
+        float bz = z[HandLandmark.PINKY_MCP] - z[wrist];
+        float nx = ay * bz - az * by;
+        float ny = az * bx - ax * bz;
+        float nz = ax * by - ay * bx;
+        float normalLength = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        float inverseNormal = normalLength > 0 ? 1f / normalLength : 0f;
+        features[featureOffset + HandFeatures.PALM_NORMAL] = nx * inverseNormal;
+        features[featureOffset + HandFeatures.PALM_NORMAL + 1] = ny * inverseNormal;
+        features[featureOffset + HandFeatures.PALM_NORMAL + 2] = nz * inverseNormal;
+
+        float palmSize = distance(wrist, HandLandmark.MIDDLE_FINGER_MCP);
+        float inverseSize = palmSize > 0 ? 1f / palmSize : 0f;
+        features[featureOffset + HandFeatures.PALM_SIZE] = palmSize;
+
+        float cx = 0;
+        float cy = 0;
+        float cz = 0;
+        for (int landmark : PALM) {
+            cx += x[landmark];
+            cy += y[landmark];
+            cz += z[landmark];
+        }
+        cx /= PALM.length;
+        cy /= PALM.length;
+        cz /= PALM.length;
+        for (int finger = 0; finger < HandFeatures.FINGERS; finger++) {
+            int tip = FINGER_BASES[finger] + 3;
+            float dx = x[tip] - cx;
+            float dy = y[tip] - cy;
+            float dz = z[tip] - cz;
+            features[featureOffset + HandFeatures.TIP_TO_PALM + finger] =
+                    (float) Math.sqrt(dx * dx + dy * dy + dz * dz) * inverseSize;
+        }
+
+        int pair = featureOffset + HandFeatures.PAIRWISE;
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            for (int j = i + 1; j < HandLandmark.COUNT; j++) {
+                features[pair++] = distance(i, j) * inverseSize;
+            }
+        }
+    }
+
+    private float distance(int a, int b) {
+        float dx = x[b] - x[a];
+        float dy = y[b] - y[a];
+        float dz = z[b] - z[a];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // Angle between the bones a->b and b->c: 0 when they are aligned. atan2 of the cross and dot
+    // products stays accurate near 0 and pi, where acos of the cosine loses most of its digits.
+    private float flexion(int a, int b, int c) {
+        float ux = x[b] - x[a];
+        float uy = y[b] - y[a];
+        float uz = z[b] - z[a];
+        float vx = x[c] - x[b];
+        float vy = y[c] - y[b];
+        float vz = z[c] - z[b];
+        float cx = uy * vz - uz * vy;
+        float cy = uz * vx - ux * vz;
+        float cz = ux * vy - uy * vx;
+        float sin = (float) Math.sqrt(cx * cx + cy * cy + cz * cz);
+        return (float) Math.atan2(sin, ux * vx + uy * vy + uz * vz);
+    }
+}
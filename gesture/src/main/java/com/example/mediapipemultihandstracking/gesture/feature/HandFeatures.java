@@ -0,0 +1,47 @@
+package com.example.mediapipemultihandstracking.gesture.feature;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+/**
+ * Layout of the feature vector {@link HandFeatureExtractor} computes for one hand:
+ * {@link #SIZE} consecutive floats, all invariant to where the hand is in the image and, except
+ * the palm normal, to how it is rotated.
+ *
+ * <ul>
+ *   <li>{@link #JOINT_ANGLES}: 15 flexion angles in radians, 0 for a straight joint, three per
+ *       finger from the palm outwards (thumb CMC, MCP, IP; other fingers MCP, PIP, DIP).
+ *   <li>{@link #PALM_NORMAL}: unit normal of the palm plane spanned by the wrist and the index
+ *       and pinky MCPs, in camera coordinates.
+ *   <li>{@link #TIP_TO_PALM}: distance of each fingertip, thumb first, to the palm center.
+ *   <li>{@link #PAIRWISE}: distance between every two landmarks, see {@link #pair}.
+ *   <li>{@link #PALM_SIZE}: wrist to middle finger MCP distance, in x units. The distances above
+ *       are divided by it.
+ * </ul>
+ */
+public final class HandFeatures {
+    public static final int FINGERS = 5;
+    public static final int JOINTS_PER_FINGER = 3;
+    public static final int PAIR_COUNT = HandLandmark.COUNT * (HandLandmark.COUNT - 1) / 2;
+
+    public static final int JOINT_ANGLES = 0;
+    public static final int PALM_NORMAL = JOINT_ANGLES + FINGERS * JOINTS_PER_FINGER;
+    public static final int TIP_TO_PALM = PALM_NORMAL + 3;
+    public static final int PAIRWISE = TIP_TO_PALM + FINGERS;
+    public static final int PALM_SIZE = PAIRWISE + PAIR_COUNT;
+    public static final int SIZE = PALM_SIZE + 1;
+
+    private HandFeatures() {
+    }
+
+    /** Index of the flexion angle of {@code joint} (0 nearest the palm) of {@code finger} (0 = thumb). */
+    public static int jointAngle(int finger, int joint) {
+        return JOINT_ANGLES + finger * JOINTS_PER_FINGER + joint;
+    }
+
+    /** Index of the distance between landmarks {@code a} and {@code b}, which must differ. */
+    public static int pair(int a, int b) {
+        int i = Math.min(a, b);
+        int j = Math.max(a, b);
+        return PAIRWISE + i * (2 * HandLandmark.COUNT - i - 1) / 2 + (j - i - 1);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mediapipemultihandstracking.gesture.filter;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+/**
+ * Smooths the landmarks of every hand track over time, in place, and can predict them a little
+ * ahead to make up for the latency of the pipeline.
+ *
+ * <p>Every coordinate of every landmark is filtered on its own, with state kept in primitive
+ * arrays indexed by track slot. Implementations never allocate after construction and are not
+ * thread-safe.
+ */
+public interface LandmarkFilter {
+    /** Creates a filter for {@code tracks} track slots, e.g. {@code OneEuroFilter::new}. */
+    interface Factory {
+        LandmarkFilter create(int tracks);
+    }
+
+    /**
+     * Replaces the {@link HandLandmark#FLOATS_PER_HAND} values of the hand at {@code offset},
+     * which belongs to track {@code slot}, by their filtered estimate at {@code timestampMicros},
+     * extrapolated {@code leadMicros} ahead along the estimated velocity.
+     */
+    void filter(int slot, float[] landmarks, int offset, long timestampMicros, long leadMicros);
+
+    /** Forgets the state of track {@code slot}; its next hand is taken as is. */
+    void reset(int slot);
+}
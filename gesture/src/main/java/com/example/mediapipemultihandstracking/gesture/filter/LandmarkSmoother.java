@@ -0,0 +1,51 @@
+package com.example.mediapipemultihandstracking.gesture.filter;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+/**
+ * Runs a {@link LandmarkFilter} over every tracked hand of a frame, between decoding and gesture
+ * evaluation. Hands without a track are left as they are. Register the smoother as the
+ * tracker's {@link HandTracker.Listener} so a reused slot starts from scratch.
+ *
+ * <p>The lead, by default 0, moves every hand ahead along its estimated velocity, e.g. by the
+ * measured processing latency so the gestures shown match where the hand is now rather than
+ * where it was. It is capped at {@link #MAX_LEAD_MICROS}, past which the velocity estimate
+ * overshoots every stop and turn. It may be changed from any thread.
+ */
+public final class LandmarkSmoother implements HandTracker.Listener {
+    public static final long MAX_LEAD_MICROS = 40_000;
+
+    private final LandmarkFilter filter;
+    private volatile long leadMicros;
+
+    public LandmarkSmoother(LandmarkFilter filter) {
+        this.filter = filter;
+    }
+
+    public void setLeadMicros(long leadMicros) {
+        this.leadMicros = Math.max(0, Math.min(MAX_LEAD_MICROS, leadMicros));
+    }
+
+    public long leadMicros() {
+        return leadMicros;
+    }
+
+    /** Filters, in place, the landmarks of every hand of {@code frame} that has a track. */
+    public void apply(HandTracker tracker, HandFrame frame) {
+        float[] landmarks = frame.landmarks();
+        long lead = leadMicros;
+        for (int hand = 0; hand < frame.handCount(); hand++) {
+            int slot = tracker.slotOfHand(hand);
+            if (slot >= 0) {
+                filter.filter(slot, landmarks, HandLandmark.handOffset(hand), frame.timestamp(), lead);
+            }
+        }
+    }
+
+    @Override
+    public void onTrackRemoved(int slot) {
+        filter.reset(slot);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.mediapipemultihandstracking.gesture.load;
+
+import java.util.List;
+
+/**
+ * Picks the heaviest {@link LoadTier} the device keeps up with, from how often frames arrive and
+ * how late they are when their gestures are known.
+ *
+ * <p>{@link #onFrame} is called for every processed frame with its delay, from its camera
+ * timestamp until it has been classified. The camera timestamp need not be on the governor's
+ * clock, so the delay may hold any constant offset: the governor takes as the frame's latency
+ * how much longer its delay was than the shortest one seen, i.e. the time it spent queued behind
+ * other frames. It keeps moving averages of that latency and of the time between frames. The
+ * device is overloaded while the average latency is above the overload latency or frames come in
+ * at under two thirds of the target rate, e.g. because MediaPipe drops camera frames it cannot
+ * take. It has room to spare while the latency is below the much lower underload latency and
+ * frames come in at the target rate.
+ *
+ * <p>Hysteresis keeps the tier from oscillating. The governor moves one tier lighter after being
+ * overloaded for {@link #DOWNGRADE_AFTER_NANOS}, but one tier heavier only after having room to
+ * spare for {@link #UPGRADE_AFTER_NANOS}, and after any change, or a {@link #reset}, it ignores
+ * frames for {@link #SETTLE_NANOS} while the new tier warms up. An upgrade undone within
+ * {@link #PROBATION_NANOS} doubles the wait before the next upgrade, up to 16 times; an upgrade
+ * that holds resets it.
+ *
+ * <p>Feed it from one thread at a time; {@link #tier} may be read from any thread.
+ */
+public final class LoadGovernor {
+    /** Monotonic time source, {@code System::nanoTime} outside tests. */
+    public interface Clock {
+        long nanoTime();
+    }
+
+    /** Told about every tier change, on the thread calling {@link #onFrame}. */
+    public interface Listener {
+        void onTierChanged(LoadTier previous, LoadTier current);
+    }
+
+    public static final long DOWNGRADE_AFTER_NANOS = 1_000_000_000L;
+    public static final long UPGRADE_AFTER_NANOS = 5_000_000_000L;
+    public static final long SETTLE_NANOS = 2_000_000_000L;
+    public static final long PROBATION_NANOS = 10_000_000_000L;
+    private static final int MAX_UPGRADE_BACKOFF = 4;
+    // Longer gaps between frames, e.g. while the activity was paused, are not frame intervals.
+    private static final long MAX_INTERVAL_NANOS = 1_000_000_000L;
+    // Weight of a new sample in the moving averages, and samples needed before they count.
+    private static final double SMOOTHING = 1.0 / 8;
+    private static final int MIN_SAMPLES = 8;
+    private static final double SLOW_INTERVAL = 1.5;
+    private static final double TARGET_INTERVAL = 1.2;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 33_333_333;
+    private static final long DEFAULT_OVERLOAD_LATENCY_NANOS = 60_000_000;
+    private static final long DEFAULT_UNDERLOAD_LATENCY_NANOS = 20_000_000;
+
+    private final LoadTier[] tiers;
+    private final Clock clock;
+    private final long frameIntervalNanos;
+    private final long overloadLatencyNanos;
+    private final long underloadLatencyNanos;
+    private volatile int tierIndex;
+    private volatile Listener listener;
+    private volatile long changes;
+
+    private long lastFrameAt = NONE;
+    // Shortest delay seen, the offset between the camera's clock and ours plus the fastest path.
+    private long minDelay = Long.MAX_VALUE;
+    private boolean settleFromNextFrame = true;
+    private long settleUntil;
+    private double averageInterval;
+    private int intervalSamples;
+    private double averageLatency;
+    private int latencySamples;
+    private long overloadedSince = NONE;
+    private long spareSince = NONE;
+    private long upgradedAt = NONE;
+    private int upgradeBackoff;
+
+    /**
+     * @param tiers from the heaviest to the lightest
+     * @param frameIntervalNanos time between frames at the camera's target rate
+     * @param overloadLatencyNanos average latency, beyond the shortest delay, above which the
+     *                             device is overloaded
+     * @param underloadLatencyNanos average latency below which the device has room to spare
+     */
+    public LoadGovernor(List<LoadTier> tiers, int startTier, Clock clock, long frameIntervalNanos,
+                        long overloadLatencyNanos, long underloadLatencyNanos) {
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("no tiers");
+        }
+        if (startTier < 0 || startTier >= tiers.size()) {
+            throw new IllegalArgumentException("no tier " + startTier + " among " + tiers.size());
+        }
+        if (underloadLatencyNanos >= overloadLatencyNanos) {
+            throw new IllegalArgumentException("underload latency must be below the overload latency");
+        }
+        this.tiers = tiers.toArray(new LoadTier[0]);
+        this.tierIndex = startTier;
+        this.clock = clock;
+        this.frameIntervalNanos = frameIntervalNanos;
+        this.overloadLatencyNanos = overloadLatencyNanos;
+        this.underloadLatencyNanos = underloadLatencyNanos;
+    }
+
+    /** A governor for a 30 fps camera, overloaded above 60 ms of latency and spare below 20 ms. */
+    public LoadGovernor(List<LoadTier> tiers, int startTier) {
+        this(tiers, startTier, System::nanoTime, DEFAULT_FRAME_INTERVAL_NANOS,
+                DEFAULT_OVERLOAD_LATENCY_NANOS, DEFAULT_UNDERLOAD_LATENCY_NANOS);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Accounts for a processed frame.
+     *
+     * @param delayNanos time from the frame's camera timestamp until it was processed, give or
+     *                   take a constant offset between the camera's clock and the governor's
+     * @return the tier to run at from now on
+     */
+    public LoadTier onFrame(long delayNanos) {
+        long now = clock.nanoTime();
+        minDelay = Math.min(minDelay, delayNanos);
+        long latencyNanos = delayNanos - minDelay;
+        long previousFrameAt = lastFrameAt;
+        lastFrameAt = now;
+        if (settleFromNextFrame) {
+            settleFromNextFrame = false;
+            settleUntil = now + SETTLE_NANOS;
+        }
+        if (upgradedAt != NONE && now - upgradedAt >= PROBATION_NANOS) {
+            upgradedAt = NONE;
+            upgradeBackoff = 0;
+        }
+        if (now - settleUntil < 0) {
+            return tier();
+        }
+        if (previousFrameAt != NONE && now - previousFrameAt <= MAX_INTERVAL_NANOS) {
+            averageInterval = average(averageInterval, intervalSamples++, now - previousFrameAt);
+        }
+        averageLatency = average(averageLatency, latencySamples++, latencyNanos);
+        if (intervalSamples < MIN_SAMPLES || latencySamples < MIN_SAMPLES) {
+            return tier();
+        }
+
+        boolean overloaded = averageLatency > overloadLatencyNanos
+                || averageInterval > SLOW_INTERVAL * frameIntervalNanos;
+        boolean spare = averageLatency < underloadLatencyNanos
+                && averageInterval < TARGET_INTERVAL * frameIntervalNanos;
+        int index = tierIndex;
+        if (overloaded && index < tiers.length - 1) {
+            spareSince = NONE;
+            if (overloadedSince == NONE) {
+                overloadedSince = now;
+            } else if (now - overloadedSince >= DOWNGRADE_AFTER_NANOS) {
+                if (upgradedAt != NONE) {
+                    upgradedAt = NONE;
+                    upgradeBackoff = Math.min(upgradeBackoff + 1, MAX_UPGRADE_BACKOFF);
+                }
+                change(index + 1, now);
+            }
+        } else if (spare && index > 0) {
+            overloadedSince = NONE;
+            if (spareSince == NONE) {
+                spareSince = now;
+            } else if (now - spareSince >= UPGRADE_AFTER_NANOS << upgradeBackoff) {
+                upgradedAt = now;
+                change(index - 1, now);
+            }
+        } else {
+            overloadedSince = NONE;
+            spareSince = NONE;
+        }
+        return tier();
+    }
+
+    /**
+     * Forgets the measurements, e.g. when the camera restarts, and settles again from the next
+     * frame. The tier, the upgrade backoff and the shortest delay are kept: camera timestamps
+     * stay on their clock, and MediaPipe only ever moves them later across restarts, which the
+     * shortest delay follows.
+     */
+    public void reset() {
+        lastFrameAt = NONE;
+        settleFromNextFrame = true;
+        clearMeasurements();
+    }
+
+    private void change(int index, long now) {
+        LoadTier previous = tiers[tierIndex];
+        tierIndex = index;
+        changes++;
+        settleUntil = now + SETTLE_NANOS;
+        clearMeasurements();
+        Listener current = listener;
+        if (current != null) {
+            current.onTierChanged(previous, tiers[index]);
+        }
+    }
+
+    private void clearMeasurements() {
+        intervalSamples = 0;
+        latencySamples = 0;
+        overloadedSince = NONE;
+        spareSince = NONE;
+    }
+
+    private static double average(double average, int samples, long value) {
+        return samples == 0 ? value : average + SMOOTHING * (value - average);
+    }
+
+    public LoadTier tier() {
+        return tiers[tierIndex];
+    }
+
+    /** Index of {@link #tier()}, 0 being the heaviest. */
+    public int tierIndex() {
+        return tierIndex;
+    }
+
+    /** Tier changes so far. */
+    public long changeCount() {
+        return changes;
+    }
+
+    /** Times the wait before the next upgrade has been doubled. */
+    public int upgradeBackoff() {
+        return upgradeBackoff;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mediapipemultihandstracking.gesture.load;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How much work the app asks of the device: the camera resolution, the number of hands MediaPipe
+ * looks for, and how often the hand motion and trajectories are analyzed.
+ */
+public final class LoadTier {
+    private final int width;
+    private final int height;
+    private final int maxHands;
+    private final int analysisEveryNth;
+
+    /**
+     * @param width target camera width in pixels; the camera picks the closest size it supports
+     * @param analysisEveryNth run motion and trajectory analysis on one frame in this many
+     */
+    public LoadTier(int width, int height, int maxHands, int analysisEveryNth) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("resolution must be positive: " + width + "x" + height);
+        }
+        if (maxHands < 1) {
+            throw new IllegalArgumentException("maxHands must be positive: " + maxHands);
+        }
+        if (analysisEveryNth < 1) {
+            throw new IllegalArgumentException("analysisEveryNth must be positive: " + analysisEveryNth);
+        }
+        this.width = width;
+        this.height = height;
+        this.maxHands = maxHands;
+        this.analysisEveryNth = analysisEveryNth;
+    }
+
+    /**
+     * Tiers from the heaviest to the lightest, for a device detecting up to two hands. The first
+     * one, 1280x720 as MediaPipe's {@code CameraXPreviewHelper} targets when asked for no size,
+     * with two hands analyzed every frame, is what the app did before it adapted.
+     */
+    public static List<LoadTier> defaults() {
+        return Collections.unmodifiableList(Arrays.asList(
+                new LoadTier(1280, 720, 2, 1),
+                new LoadTier(640, 480, 2, 1),
+                new LoadTier(640, 480, 2, 2),
+                new LoadTier(640, 480, 1, 2),
+                new LoadTier(320, 240, 1, 3)));
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int maxHands() {
+        return maxHands;
+    }
+
+    public int analysisEveryNth() {
+        return analysisEveryNth;
+    }
+
+    /** Whether switching between this tier and {@code other} needs the camera and graph restarted. */
+    public boolean needsRestart(LoadTier other) {
+        return width != other.width || height != other.height || maxHands != other.maxHands;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + ", " + maxHands + (maxHands == 1 ? " hand" : " hands")
+                + ", analysis every " + (analysisEveryNth == 1 ? "frame" : analysisEveryNth + " frames");
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the files a {@link GestureEventLog} writes and {@link GestureUsage} reads.
+ *
+ * <pre>
+ * file    := 'G' 'E' 'L' VERSION, flags u8, 3 zero bytes, block*
+ *            flags: CONTINUES when the file carries on the session of the previous file
+ * block   := length u32, crc u32, payload         one group commit; crc is the CRC-32 of payload
+ * payload := record*
+ * record  := DEFINE name                          gives name the next code of the file, from 1
+ *          | GESTURES|hands&lt;&lt;2 dt hand^hands twoHandCode
+ *          | MOTION dt motionCode trajectoryCode
+ * hand    := varint code&lt;&lt;2 | handedness ordinal
+ * name    := length varint, UTF-8 bytes
+ * dt      := zigzag varint, microseconds since the previous event of the file, or since 0
+ * code    := varint code of a gesture, two-hand gesture, motion or trajectory name; 0 for none
+ * </pre>
+ *
+ * <p>Record types take the low 2 bits of their first byte. Varints are little-endian base 128,
+ * u32 big-endian. Codes and times start over in every
+ * file, so each file reads on its own and old ones can be compacted away. A block cut short or
+ * failing its CRC ends its file: that is where the process died mid-write.
+ */
+final class EventLogFormat {
+    static final int VERSION = 1;
+    static final int MAGIC = 'G' << 24 | 'E' << 16 | 'L' << 8 | VERSION;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int CONTINUES = 1;
+    static final int BLOCK_HEADER_BYTES = 8;
+
+    static final int DEFINE = 0;
+    static final int GESTURES = 1;
+    static final int MOTION = 2;
+    static final int RECORD_MASK = 3;
+    static final int MAX_HANDS = 0xFF >> 2;
+
+    static final int NONE = 0;
+
+    static final String FILE_PREFIX = "events-";
+    static final String FILE_SUFFIX = ".gel";
+    // Usage of the files compacted away, see GestureUsage.
+    static final String SUMMARY = "summary.gus";
+
+    private EventLogFormat() {
+    }
+
+    static String fileName(int number) {
+        return String.format("%s%08d%s", FILE_PREFIX, number, FILE_SUFFIX);
+    }
+
+    /** Number of a log file named by {@link #fileName}, or -1 for any other file. */
+    static int fileNumber(String name) {
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint longer than 10 bytes");
+    }
+
+    static void putZigzag(ByteBuffer out, long value) {
+        putVarint(out, value << 1 ^ value >> 63);
+    }
+
+    static long getZigzag(ByteBuffer in) {
+        long value = getVarint(in);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    static void putName(ByteBuffer out, byte[] utf8) {
+        putVarint(out, utf8.length);
+        if (utf8.length > out.remaining()) {
+            throw new BufferOverflowException();
+        }
+        out.put(utf8);
+    }
+
+    static int getNameLength(ByteBuffer in) {
+        long length = getVarint(in);
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return (int) length;
+    }
+}
@@ -0,0 +1,455 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link GestureEvent}s for usage analytics, read back by
+ * {@link GestureUsage}, in the {@link EventLogFormat event log format}.
+ *
+ * <p>{@link #append} encodes the event into a pre-allocated block: a few bytes, as timestamps are
+ * stored as the change since the previous event and gesture names once per file, as codes after
+ * that. A background thread writes the blocks: once full or a commit interval after their first
+ * event, all blocks waiting are written and synced together, one group commit. When no block is
+ * free, events are dropped and counted rather than blocking. Appending allocates nothing once
+ * every name has been seen.
+ *
+ * <p>Every log opened on a directory starts a new file and a new session. Files are rotated once
+ * larger than the file size given; once the files of the directory take more than the log size
+ * given, the oldest are compacted into the usage summary they add up to and deleted, so the
+ * directory stays bounded without losing counts.
+ */
+public final class GestureEventLog implements Closeable {
+    private static final int DEFAULT_BLOCKS = 4;
+    private static final int DEFAULT_BLOCK_BYTES = 16 * 1024;
+    private static final long DEFAULT_COMMIT_MILLIS = 1000;
+    private static final Block END_OF_LOG = new Block(0);
+
+    private static final class Block {
+        final ByteBuffer buffer;
+        int file;
+        boolean continues;
+        int events;
+        long firstEventNanos;
+
+        Block(int bytes) {
+            buffer = ByteBuffer.allocateDirect(bytes);
+        }
+    }
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final long maxLogBytes;
+    private final long commitNanos;
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> fullBlocks;
+    private final Thread writer;
+
+    // Only touched under the log's lock.
+    private final Map<String, byte[]> nameBytes = new HashMap<>();
+    private String[] dictionary = new String[32];
+    private int dictionarySize;
+    private Block block;
+    private int file;
+    private boolean continues;
+    private long fileBytes;
+    private long lastTimestamp;
+    private boolean closed;
+    private long appended;
+    private long dropped;
+    private volatile IOException writeFailure;
+    // Only written by the writer thread.
+    private volatile long commits;
+    private volatile long compactedFiles;
+
+    /**
+     * @param maxFileBytes size from which a file is rotated
+     * @param maxLogBytes size of the files in {@code directory} from which the oldest are compacted
+     * @param blocks blocks that can wait for the writer before events are dropped
+     * @param blockBytes size of a block, the most one commit writes to a file
+     * @param commitMillis longest an event waits in a block that is not full
+     */
+    public GestureEventLog(File directory, long maxFileBytes, long maxLogBytes, int blocks, int blockBytes,
+                           long commitMillis) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxLogBytes = maxLogBytes;
+        commitNanos = TimeUnit.MILLISECONDS.toNanos(commitMillis);
+        List<Integer> existing = logFiles(directory);
+        // After the files left, and after those compacted away in case none is left.
+        file = Math.max(existing.isEmpty() ? 0 : existing.get(existing.size() - 1),
+                GestureUsage.lastCompactedFile(directory)) + 1;
+        fileBytes = EventLogFormat.FILE_HEADER_BYTES;
+        freeBlocks = new ArrayBlockingQueue<>(blocks);
+        fullBlocks = new ArrayBlockingQueue<>(blocks + 1);
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks.add(new Block(blockBytes));
+        }
+        writer = new Thread(() -> writeBlocks(blocks), "GestureEventLog");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public GestureEventLog(File directory, long maxFileBytes, long maxLogBytes) throws IOException {
+        this(directory, maxFileBytes, maxLogBytes, DEFAULT_BLOCKS, DEFAULT_BLOCK_BYTES, DEFAULT_COMMIT_MILLIS);
+    }
+
+    /** Numbers of the log files in {@code directory}, oldest first. */
+    static List<Integer> logFiles(File directory) {
+        List<Integer> numbers = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                int number = EventLogFormat.fileNumber(name);
+                if (number >= 0) {
+                    numbers.add(number);
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    /**
+     * Appends {@code event}, or drops it when the writer is behind, failed or the log is closed.
+     * Can be a {@link com.example.mediapipemultihandstracking.gesture.event.GestureEventBus.Handler}.
+     *
+     * @return whether the event was appended
+     */
+    public synchronized boolean append(GestureEvent event) {
+        if (closed || writeFailure != null) {
+            dropped++;
+            return false;
+        }
+        if (block == null && !nextBlock()) {
+            dropped++;
+            return false;
+        }
+        if (!encode(event)) {
+            // The block is full: commit it and start the next one.
+            boolean empty = block.events == 0;
+            seal();
+            if (empty || !nextBlock() || !encode(event)) {
+                dropped++;
+                return false;
+            }
+        }
+        appended++;
+        if (System.nanoTime() - block.firstEventNanos >= commitNanos) {
+            seal();
+        }
+        return true;
+    }
+
+    public synchronized long appendedCount() {
+        return appended;
+    }
+
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    /** Group commits so far: writes of all the blocks waiting, each followed by one sync. */
+    public long commitCount() {
+        return commits;
+    }
+
+    /** Files compacted into the summary and deleted so far. */
+    public long compactedFileCount() {
+        return compactedFiles;
+    }
+
+    private boolean nextBlock() {
+        block = freeBlocks.poll();
+        if (block == null) {
+            return false;
+        }
+        block.file = file;
+        block.continues = continues;
+        block.events = 0;
+        block.buffer.clear();
+        block.buffer.position(EventLogFormat.BLOCK_HEADER_BYTES);
+        return true;
+    }
+
+    // Encodes `event` into the block, or leaves the block and the file's state as they were if it
+    // does not fit.
+    private boolean encode(GestureEvent event) {
+        ByteBuffer out = block.buffer;
+        int position = out.position();
+        int definedBefore = dictionarySize;
+        try {
+            // Names first, so their definitions precede the record using them.
+            int hands = event.type() == GestureEvent.Type.GESTURE
+                    ? Math.min(event.handCount(), EventLogFormat.MAX_HANDS) : 0;
+            for (int hand = 0; hand < hands; hand++) {
+                define(out, event.gesture(hand).name());
+            }
+            String twoHand = event.twoHandGesture() == TwoHandGesture.NONE ? null : event.twoHandGesture().name();
+            String motion = event.motion() == Motion.NONE ? null : event.motion().name();
+            String trajectory = event.trajectory() == null ? null : event.trajectory().name();
+            if (event.type() == GestureEvent.Type.GESTURE) {
+                define(out, twoHand);
+                out.put((byte) (EventLogFormat.GESTURES | hands << 2));
+                EventLogFormat.putZigzag(out, event.timestamp() - lastTimestamp);
+                for (int hand = 0; hand < hands; hand++) {
+                    EventLogFormat.putVarint(out, code(event.gesture(hand).name()) << 2 | event.handedness(hand).ordinal());
+                }
+                EventLogFormat.putVarint(out, code(twoHand));
+            } else {
+                define(out, motion);
+                define(out, trajectory);
+                out.put((byte) EventLogFormat.MOTION);
+                EventLogFormat.putZigzag(out, event.timestamp() - lastTimestamp);
+                EventLogFormat.putVarint(out, code(motion));
+                EventLogFormat.putVarint(out, code(trajectory));
+            }
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            Arrays.fill(dictionary, definedBefore, dictionarySize, null);
+            dictionarySize = definedBefore;
+            return false;
+        }
+        lastTimestamp = event.timestamp();
+        if (block.events++ == 0) {
+            block.firstEventNanos = System.nanoTime();
+        }
+        return true;
+    }
+
+    // Writes a definition for `name` unless the file has one.
+    private void define(ByteBuffer out, String name) {
+        if (name == null || code(name) != EventLogFormat.NONE) {
+            return;
+        }
+        out.put((byte) EventLogFormat.DEFINE);
+        EventLogFormat.putName(out, nameBytes.computeIfAbsent(name, key -> key.getBytes(StandardCharsets.UTF_8)));
+        if (dictionarySize == dictionary.length) {
+            dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+        }
+        dictionary[dictionarySize++] = name;
+    }
+
+    // Code of `name` in the current file, NONE if undefined. Names come from the same few
+    // constants, so comparing references mostly suffices.
+    private int code(String name) {
+        if (name == null) {
+            return EventLogFormat.NONE;
+        }
+        for (int i = 0; i < dictionarySize; i++) {
+            if (dictionary[i] == name || dictionary[i].equals(name)) {
+                return i + 1;
+            }
+        }
+        return EventLogFormat.NONE;
+    }
+
+    // Hands the block to the writer, and moves on to a new file if this one is large enough.
+    private void seal() {
+        if (block.events > 0) {
+            fileBytes += block.buffer.position();
+            fullBlocks.add(block);
+        } else {
+            freeBlocks.add(block);
+        }
+        block = null;
+        if (fileBytes >= maxFileBytes) {
+            file++;
+            continues = true;
+            fileBytes = EventLogFormat.FILE_HEADER_BYTES;
+            Arrays.fill(dictionary, 0, dictionarySize, null);
+            dictionarySize = 0;
+            lastTimestamp = 0;
+        }
+    }
+
+    // Commits a block that has waited long enough while no event came to fill it.
+    private synchronized void sealIfIdle() {
+        if (block != null && block.events > 0 && System.nanoTime() - block.firstEventNanos >= commitNanos) {
+            seal();
+        }
+    }
+
+    private void writeBlocks(int blocks) {
+        List<Block> batch = new ArrayList<>(blocks + 1);
+        ByteBuffer[] gather = new ByteBuffer[blocks];
+        CRC32 crc = new CRC32();
+        FileChannel channel = null;
+        int openFile = -1;
+        boolean ended = false;
+        while (!ended) {
+            Block first;
+            try {
+                first = fullBlocks.poll(commitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                sealIfIdle();
+                continue;
+            }
+            batch.add(first);
+            fullBlocks.drainTo(batch);
+            for (int start = 0; start < batch.size(); ) {
+                Block next = batch.get(start);
+                if (next == END_OF_LOG) {
+                    ended = true;
+                    start++;
+                    continue;
+                }
+                // The run of blocks going to the same file.
+                int end = start;
+                int count = 0;
+                while (end < batch.size() && batch.get(end) != END_OF_LOG && batch.get(end).file == next.file) {
+                    gather[count++] = finish(batch.get(end++).buffer, crc);
+                }
+                if (writeFailure == null) {
+                    try {
+                        if (next.file != openFile) {
+                            closeAndCompact(channel, next.file);
+                            channel = open(next);
+                            openFile = next.file;
+                        }
+                        writeFully(channel, gather, count);
+                        // One sync for every block of the run: the group commit.
+                        channel.force(false);
+                        commits++;
+                    } catch (IOException e) {
+                        writeFailure = e;
+                    }
+                }
+                start = end;
+            }
+            for (Block done : batch) {
+                if (done != END_OF_LOG) {
+                    freeBlocks.add(done);
+                }
+            }
+            Arrays.fill(gather, null);
+            batch.clear();
+        }
+        if (writeFailure == null) {
+            try {
+                closeAndCompact(channel, Integer.MAX_VALUE);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+        } else if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already failed.
+            }
+        }
+    }
+
+    // Fills in the block header of a sealed block and returns it ready to write.
+    private static ByteBuffer finish(ByteBuffer block, CRC32 crc) {
+        block.flip();
+        block.position(EventLogFormat.BLOCK_HEADER_BYTES);
+        crc.reset();
+        crc.update(block);
+        block.putInt(0, block.limit() - EventLogFormat.BLOCK_HEADER_BYTES);
+        block.putInt(4, (int) crc.getValue());
+        block.position(0);
+        return block;
+    }
+
+    private FileChannel open(Block first) throws IOException {
+        FileChannel channel = FileChannel.open(new File(directory, EventLogFormat.fileName(first.file)).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(EventLogFormat.FILE_HEADER_BYTES);
+        header.putInt(EventLogFormat.MAGIC);
+        header.put((byte) (first.continues ? EventLogFormat.CONTINUES : 0));
+        header.position(0);
+        try {
+            writeFully(channel, new ByteBuffer[] {header}, 1);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer[] buffers, int count) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += buffers[i].remaining();
+        }
+        for (long written = 0; written < bytes; ) {
+            written += channel.write(buffers, 0, count);
+        }
+    }
+
+    // Closes the file written so far, then compacts the oldest files before `nextFile` while the
+    // directory holds more than it should.
+    private void closeAndCompact(FileChannel channel, int nextFile) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.close();
+        List<Integer> files = logFiles(directory);
+        long total = 0;
+        for (int number : files) {
+            total += new File(directory, EventLogFormat.fileName(number)).length();
+        }
+        List<Integer> compacted = new ArrayList<>();
+        for (int i = 0; i < files.size() && files.get(i) < nextFile && total > maxLogBytes; i++) {
+            compacted.add(files.get(i));
+            total -= new File(directory, EventLogFormat.fileName(files.get(i))).length();
+        }
+        if (!compacted.isEmpty()) {
+            GestureUsage.compact(directory, compacted);
+            compactedFiles += compacted.size();
+        }
+    }
+
+    /**
+     * Commits the pending events and closes the log.
+     *
+     * @throws IOException if writing or compacting failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (block != null) {
+                seal();
+            }
+            fullBlocks.add(END_OF_LOG);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+}
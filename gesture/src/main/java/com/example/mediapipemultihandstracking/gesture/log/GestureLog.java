@@ -0,0 +1,136 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+/**
+ * Debug logging for the per-frame gesture code that costs nothing when it does not log.
+ *
+ * <p>Messages are only built once a {@link Channel} has decided to log: the caller passes the
+ * object to describe and a {@link Writer}, typically a method reference, which appends to a
+ * {@link StringBuilder} the channel reuses. A channel may log every call, one call in N, or at
+ * most once per interval. When the log is {@link #setEnabled disabled}, or a call is sampled
+ * out, nothing is built and nothing is allocated. To drop the calls from release builds
+ * altogether, guard them with a compile-time constant such as {@code BuildConfig.DEBUG}.
+ *
+ * <p>A channel reuses its builder, so use each channel from one thread at a time.
+ */
+public final class GestureLog {
+    /** Where messages end up, e.g. {@code android.util.Log}. */
+    public interface Sink {
+        /** {@code message} is only valid during the call. */
+        void write(String tag, CharSequence message);
+    }
+
+    /** Appends the message describing {@code subject} to {@code out}. */
+    public interface Writer<T> {
+        void write(StringBuilder out, T subject);
+    }
+
+    /** Monotonic time source, {@code System::nanoTime} outside tests. */
+    public interface Clock {
+        long nanoTime();
+    }
+
+    private final Sink sink;
+    private final Clock clock;
+    private volatile boolean enabled = true;
+
+    public GestureLog(Sink sink, Clock clock) {
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    public GestureLog(Sink sink) {
+        this(sink, System::nanoTime);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** A channel logging every call. */
+    public Channel channel(String tag) {
+        return new Channel(tag, 1, 0);
+    }
+
+    /** A channel logging the first call and then one call in {@code n}. */
+    public Channel everyNth(String tag, int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        return new Channel(tag, n, 0);
+    }
+
+    /** A channel logging at most one call every {@code millis} milliseconds. */
+    public Channel atMostEvery(String tag, long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("millis must be positive: " + millis);
+        }
+        return new Channel(tag, 1, millis * 1_000_000);
+    }
+
+    /** Log calls sharing a tag and a sampling rule. */
+    public final class Channel {
+        private final String tag;
+        private final int every;
+        private final long intervalNanos;
+        private final StringBuilder builder = new StringBuilder();
+        private long calls;
+        private long lastLogged;
+        private boolean loggedOnce;
+        private long suppressed;
+
+        private Channel(String tag, int every, long intervalNanos) {
+            this.tag = tag;
+            this.every = every;
+            this.intervalNanos = intervalNanos;
+        }
+
+        /**
+         * Whether the current call should log. Counts as a call for sampling, so use it instead of,
+         * not before, {@link #log}.
+         */
+        public boolean isLoggable() {
+            if (!enabled) {
+                return false;
+            }
+            if (every > 1 && calls++ % every != 0) {
+                suppressed++;
+                return false;
+            }
+            if (intervalNanos > 0) {
+                long now = clock.nanoTime();
+                if (loggedOnce && now - lastLogged < intervalNanos) {
+                    suppressed++;
+                    return false;
+                }
+                lastLogged = now;
+                loggedOnce = true;
+            }
+            return true;
+        }
+
+        /** Logs a constant message. */
+        public void log(String message) {
+            if (isLoggable()) {
+                sink.write(tag, message);
+            }
+        }
+
+        /** Logs the message {@code writer} builds for {@code subject}, if this call is sampled. */
+        public <T> void log(T subject, Writer<? super T> writer) {
+            if (isLoggable()) {
+                builder.setLength(0);
+                writer.write(builder, subject);
+                sink.write(tag, builder);
+            }
+        }
+
+        /** Calls sampled out while the log was enabled. */
+        public long suppressedCount() {
+            return suppressed;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * How often each gesture, two-hand gesture, motion and trajectory was made and how long it was
+ * held, added up from a {@link GestureEventLog} directory.
+ *
+ * <p>{@link #read} streams the files block by block, so a log of millions of events takes no more
+ * memory than one block and a counter per name. A gesture counts once each time a hand starts
+ * showing it, and is held from then until the hand changes gesture, leaves, or the session ends
+ * with its last event; motions likewise, from one motion event to the next. Hands are told apart
+ * by their place in the frame, as in the events.
+ */
+public final class GestureUsage {
+    public enum Kind {
+        GESTURE,
+        TWO_HAND_GESTURE,
+        MOTION,
+        /** Trajectories are counted but not held. */
+        TRAJECTORY
+    }
+
+    private static final int SUMMARY_MAGIC = 'G' << 24 | 'U' << 16 | 'S' << 8 | EventLogFormat.VERSION;
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+    private static final int UNRESOLVED = -2;
+    private static final int NOTHING = -1;
+
+    // Counters, one entry per kind and name.
+    private final List<Map<String, Integer>> entryIndex = new ArrayList<>();
+    private Kind[] kinds = new Kind[16];
+    private String[] names = new String[16];
+    private long[] counts = new long[16];
+    private long[] dwellMicros = new long[16];
+    private int entries;
+    private long events;
+    private long skippedBlocks;
+    // Last log file read, through compaction included.
+    private int lastFile;
+
+    // What the hands held at the last event of the session.
+    private boolean inSession;
+    private long lastTimestamp;
+    private int[] handEntries = new int[0];
+    private int twoHandEntry = NOTHING;
+    private long gesturesSince;
+    private int motionEntry = NOTHING;
+    private long motionSince;
+
+    // Per file read: the entry of each code, resolved on first use, per kind.
+    private String[] codeNames = new String[32];
+    private int[][] codeEntries = new int[Kind.values().length][32];
+    private int codes;
+    private ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(EventLogFormat.BLOCK_HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final byte[] nameBuffer = new byte[256];
+
+    GestureUsage() {
+        for (int i = 0; i < Kind.values().length; i++) {
+            entryIndex.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Adds up the usage logged in {@code directory}: the summary of the files compacted away,
+     * then every file left, oldest first.
+     */
+    public static GestureUsage read(File directory) throws IOException {
+        GestureUsage usage = readSummary(directory);
+        for (int number : GestureEventLog.logFiles(directory)) {
+            if (number > usage.lastFile) {
+                usage.readLog(new File(directory, EventLogFormat.fileName(number)));
+                usage.lastFile = number;
+            }
+        }
+        usage.endSession();
+        return usage;
+    }
+
+    /** Names of the {@code kind} seen, in order of appearance. */
+    public List<String> names(Kind kind) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            if (kinds[i] == kind) {
+                result.add(names[i]);
+            }
+        }
+        return result;
+    }
+
+    /** Times {@code name} was started, 0 if never. */
+    public long count(Kind kind, String name) {
+        Integer entry = entryIndex.get(kind.ordinal()).get(name);
+        return entry == null ? 0 : counts[entry];
+    }
+
+    /** Total time {@code name} was held, in the microseconds of the event timestamps. */
+    public long dwellMicros(Kind kind, String name) {
+        Integer entry = entryIndex.get(kind.ordinal()).get(name);
+        return entry == null ? 0 : dwellMicros[entry];
+    }
+
+    /** Events read, those of compacted files included. */
+    public long eventCount() {
+        return events;
+    }
+
+    /** Blocks cut short or corrupted, each ending the file it was in. */
+    public long skippedBlockCount() {
+        return skippedBlocks;
+    }
+
+    // Folds the log files `numbers`, the oldest of `directory`, into its summary, then deletes them.
+    static void compact(File directory, List<Integer> numbers) throws IOException {
+        GestureUsage usage = readSummary(directory);
+        for (int number : numbers) {
+            if (number > usage.lastFile) {
+                usage.readLog(new File(directory, EventLogFormat.fileName(number)));
+                usage.lastFile = number;
+            }
+        }
+        // Replaced in one step, and files up to lastFile are skipped when read, so a crash
+        // anywhere in between neither loses nor double counts events.
+        File summary = new File(directory, EventLogFormat.SUMMARY);
+        File next = new File(directory, EventLogFormat.SUMMARY + ".tmp");
+        usage.writeSummary(next);
+        Files.move(next.toPath(), summary.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        for (int number : numbers) {
+            File file = new File(directory, EventLogFormat.fileName(number));
+            if (!file.delete() && file.exists()) {
+                throw new IOException("cannot delete " + file);
+            }
+        }
+    }
+
+    // Number of the last log file folded into the summary of `directory`, 0 if none.
+    static int lastCompactedFile(File directory) throws IOException {
+        return readSummary(directory).lastFile;
+    }
+
+    private static GestureUsage readSummary(File directory) throws IOException {
+        GestureUsage usage = new GestureUsage();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(new File(directory, EventLogFormat.SUMMARY))))) {
+            if (in.readInt() != SUMMARY_MAGIC) {
+                throw new IOException("not a gesture usage summary");
+            }
+            usage.lastFile = in.readInt();
+            usage.events = in.readLong();
+            usage.skippedBlocks = in.readLong();
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                int entry = usage.entry(Kind.values()[in.readUnsignedByte()], in.readUTF());
+                usage.counts[entry] = in.readLong();
+                usage.dwellMicros[entry] = in.readLong();
+            }
+            usage.inSession = in.readBoolean();
+            usage.lastTimestamp = in.readLong();
+            usage.handEntries = new int[in.readInt()];
+            for (int hand = 0; hand < usage.handEntries.length; hand++) {
+                usage.handEntries[hand] = in.readInt();
+            }
+            usage.twoHandEntry = in.readInt();
+            usage.gesturesSince = in.readLong();
+            usage.motionEntry = in.readInt();
+            usage.motionSince = in.readLong();
+        } catch (FileNotFoundException e) {
+            // Nothing compacted yet.
+        }
+        return usage;
+    }
+
+    private void writeSummary(File file) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(SUMMARY_MAGIC);
+            out.writeInt(lastFile);
+            out.writeLong(events);
+            out.writeLong(skippedBlocks);
+            out.writeInt(entries);
+            for (int i = 0; i < entries; i++) {
+                out.writeByte(kinds[i].ordinal());
+                out.writeUTF(names[i]);
+                out.writeLong(counts[i]);
+                out.writeLong(dwellMicros[i]);
+            }
+            out.writeBoolean(inSession);
+            out.writeLong(lastTimestamp);
+            out.writeInt(handEntries.length);
+            for (int entry : handEntries) {
+                out.writeInt(entry);
+            }
+            out.writeInt(twoHandEntry);
+            out.writeLong(gesturesSince);
+            out.writeInt(motionEntry);
+            out.writeLong(motionSince);
+            out.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    // Adds the events of one log file, carrying on the session before it if the file says so.
+    void readLog(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer header = ByteBuffer.allocate(EventLogFormat.FILE_HEADER_BYTES);
+            if (!readFully(channel, header) || header.getInt(0) != EventLogFormat.MAGIC) {
+                throw new IOException(file + " is not a gesture event log");
+            }
+            if ((header.get(4) & EventLogFormat.CONTINUES) == 0) {
+                endSession();
+            }
+            codes = 0;
+            long timestamp = 0;
+            while (true) {
+                blockHeader.clear();
+                if (!readFully(channel, blockHeader)) {
+                    // The end, or a header cut short.
+                    skippedBlocks += blockHeader.position() > 0 ? 1 : 0;
+                    return;
+                }
+                int length = blockHeader.getInt(0);
+                if (length < 0 || length > MAX_BLOCK_BYTES) {
+                    skippedBlocks++;
+                    return;
+                }
+                if (block.capacity() < length) {
+                    block = ByteBuffer.allocate(length);
+                }
+                block.clear().limit(length);
+                if (!readFully(channel, block)) {
+                    skippedBlocks++;
+                    return;
+                }
+                block.flip();
+                crc.reset();
+                crc.update(block.array(), 0, length);
+                if ((int) crc.getValue() != blockHeader.getInt(4)) {
+                    skippedBlocks++;
+                    return;
+                }
+                try {
+                    timestamp = readRecords(block, timestamp);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                    skippedBlocks++;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Adds the records of one block, times counted from `timestamp`; returns the last time.
+    private long readRecords(ByteBuffer in, long timestamp) {
+        while (in.hasRemaining()) {
+            int first = in.get() & 0xFF;
+            int record = first & EventLogFormat.RECORD_MASK;
+            if (first == EventLogFormat.DEFINE) {
+                define(in);
+                continue;
+            }
+            if (record != EventLogFormat.GESTURES && first != EventLogFormat.MOTION) {
+                throw new IllegalArgumentException("unknown record " + first);
+            }
+            timestamp += EventLogFormat.getZigzag(in);
+            if (record == EventLogFormat.GESTURES) {
+                int hands = first >> 2;
+                startGestures(timestamp, hands);
+                for (int hand = 0; hand < hands; hand++) {
+                    // The handedness in the low 2 bits is not needed to add usage up.
+                    int entry = codeEntry(Kind.GESTURE, (int) (EventLogFormat.getVarint(in) >>> 2));
+                    handGesture(hand, entry);
+                }
+                twoHandGesture(codeEntry(Kind.TWO_HAND_GESTURE, (int) EventLogFormat.getVarint(in)));
+            } else {
+                motion(timestamp, codeEntry(Kind.MOTION, (int) EventLogFormat.getVarint(in)));
+                int trajectory = codeEntry(Kind.TRAJECTORY, (int) EventLogFormat.getVarint(in));
+                if (trajectory != NOTHING) {
+                    counts[trajectory]++;
+                }
+            }
+            inSession = true;
+            lastTimestamp = timestamp;
+            events++;
+        }
+        return timestamp;
+    }
+
+    private void define(ByteBuffer in) {
+        int length = EventLogFormat.getNameLength(in);
+        byte[] bytes = length <= nameBuffer.length ? nameBuffer : new byte[length];
+        in.get(bytes, 0, length);
+        if (codes == codeNames.length) {
+            codeNames = Arrays.copyOf(codeNames, codes * 2);
+            for (int kind = 0; kind < codeEntries.length; kind++) {
+                codeEntries[kind] = Arrays.copyOf(codeEntries[kind], codes * 2);
+            }
+        }
+        codeNames[codes] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        for (int[] entries : codeEntries) {
+            entries[codes] = UNRESOLVED;
+        }
+        codes++;
+    }
+
+    // Entry of the name of `code` as a `kind`, NOTHING for code NONE.
+    private int codeEntry(Kind kind, int code) {
+        if (code == EventLogFormat.NONE) {
+            return NOTHING;
+        }
+        if (code > codes) {
+            throw new IllegalArgumentException("undefined code " + code);
+        }
+        int[] entries = codeEntries[kind.ordinal()];
+        if (entries[code - 1] == UNRESOLVED) {
+            entries[code - 1] = entry(kind, codeNames[code - 1]);
+        }
+        return entries[code - 1];
+    }
+
+    private int entry(Kind kind, String name) {
+        Map<String, Integer> index = entryIndex.get(kind.ordinal());
+        Integer entry = index.get(name);
+        if (entry != null) {
+            return entry;
+        }
+        if (entries == names.length) {
+            kinds = Arrays.copyOf(kinds, entries * 2);
+            names = Arrays.copyOf(names, entries * 2);
+            counts = Arrays.copyOf(counts, entries * 2);
+            dwellMicros = Arrays.copyOf(dwellMicros, entries * 2);
+        }
+        kinds[entries] = kind;
+        names[entries] = name;
+        index.put(name, entries);
+        return entries++;
+    }
+
+    // Credits what the hands held up to `timestamp`, before the gestures of that event.
+    private void startGestures(long timestamp, int hands) {
+        holdGestures(timestamp);
+        if (handEntries.length < hands) {
+            int held = handEntries.length;
+            handEntries = Arrays.copyOf(handEntries, hands);
+            Arrays.fill(handEntries, held, hands, NOTHING);
+        }
+        for (int hand = hands; hand < handEntries.length; hand++) {
+            handEntries[hand] = NOTHING;
+        }
+        gesturesSince = timestamp;
+    }
+
+    private void handGesture(int hand, int entry) {
+        if (entry != NOTHING && entry != handEntries[hand]) {
+            counts[entry]++;
+        }
+        handEntries[hand] = entry;
+    }
+
+    private void twoHandGesture(int entry) {
+        if (entry != NOTHING && entry != twoHandEntry) {
+            counts[entry]++;
+        }
+        twoHandEntry = entry;
+    }
+
+    private void motion(long timestamp, int entry) {
+        holdMotion(timestamp);
+        if (entry != NOTHING && entry != motionEntry) {
+            counts[entry]++;
+        }
+        motionEntry = entry;
+        motionSince = timestamp;
+    }
+
+    private void holdGestures(long timestamp) {
+        if (!inSession) {
+            return;
+        }
+        long held = timestamp - gesturesSince;
+        for (int entry : handEntries) {
+            if (entry != NOTHING) {
+                dwellMicros[entry] += held;
+            }
+        }
+        if (twoHandEntry != NOTHING) {
+            dwellMicros[twoHandEntry] += held;
+        }
+    }
+
+    private void holdMotion(long timestamp) {
+        if (inSession && motionEntry != NOTHING) {
+            dwellMicros[motionEntry] += timestamp - motionSince;
+        }
+    }
+
+    // Ends what was held at the last event of the session.
+    private void endSession() {
+        holdGestures(lastTimestamp);
+        holdMotion(lastTimestamp);
+        Arrays.fill(handEntries, NOTHING);
+        twoHandEntry = NOTHING;
+        motionEntry = NOTHING;
+        gesturesSince = lastTimestamp;
+        motionSince = lastTimestamp;
+        inSession = false;
+    }
+}
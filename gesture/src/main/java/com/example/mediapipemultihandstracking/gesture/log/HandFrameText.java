@@ -0,0 +1,33 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+/** {@link GestureLog.Writer}s describing a {@link HandFrame}. */
+public final class HandFrameText {
+    private HandFrameText() {
+    }
+
+    /** Timestamp and every landmark of every hand, one landmark per line. */
+    public static void landmarks(StringBuilder out, HandFrame frame) {
+        out.append("[TS:").append(frame.timestamp()).append("] ");
+        int handCount = frame.handCount();
+        if (handCount == 0) {
+            out.append("No hand landmarks");
+            return;
+        }
+        float[] landmarks = frame.landmarks();
+        out.append("Number of hands detected: ").append(handCount).append('\n');
+        for (int hand = 0; hand < handCount; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            out.append("\t#Hand landmarks for hand[").append(hand).append("]: ")
+                    .append(HandLandmark.COUNT).append('\n');
+            for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+                out.append("\t\tLandmark [").append(landmark).append("]: (")
+                        .append(landmarks[HandLandmark.x(offset, landmark)]).append(", ")
+                        .append(landmarks[HandLandmark.y(offset, landmark)]).append(", ")
+                        .append(landmarks[HandLandmark.z(offset, landmark)]).append(")\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.gesture.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency of every stage a camera frame goes through on its way to the gesture labels, and the
+ * counters of the components that drop or merge frames.
+ *
+ * <p>Recording goes through {@link #record}, which is allocation-free and safe from any thread.
+ * Counters are read from their components only when a dump is built; register them while
+ * setting up, before frames flow. Dumps are plain text for logcat or JSON for a file.
+ */
+public final class PipelineMetrics {
+    /** Stages of a frame, each with its own histogram. */
+    public enum Stage {
+        /**
+         * Packet callback arrival minus the packet timestamp. The timestamp is on the camera's
+         * clock, which need not be {@link System#nanoTime()}'s, so only the spread is meaningful.
+         */
+        ARRIVAL("arrival", false),
+        /** Decoding one packet's protos into float buffers. */
+        DECODE("decode", true),
+        /** Gestures, tracking and motion of one joined frame. */
+        CLASSIFY("classify", true),
+        /** Posting a label to the UI thread until the post runs. */
+        UI_DISPATCH("ui_dispatch", true);
+
+        private final String key;
+        private final boolean processing;
+
+        Stage(String key, boolean processing) {
+            this.key = key;
+            this.processing = processing;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /** Whether the stage is work of this process, timed on {@link System#nanoTime()} alone. */
+        public boolean isProcessing() {
+            return processing;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String[] QUANTILE_KEYS = {"p50", "p90", "p99"};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final List<String> counterNames = new ArrayList<>();
+    private final List<LongSupplier> counters = new ArrayList<>();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Sum of the median latencies of the {@link Stage#isProcessing processing} stages, the
+     * typical time from decoding a frame to its label on screen; e.g. the lead of a
+     * {@code LandmarkSmoother}.
+     */
+    public long medianProcessingNanos() {
+        long total = 0;
+        for (Stage stage : Stage.values()) {
+            if (stage.isProcessing()) {
+                total += histogram(stage).percentile(0.5);
+            }
+        }
+        return total;
+    }
+
+    /** Adds a counter read when dumping, e.g. {@code joiner::droppedCount}. */
+    public void addCounter(String name, LongSupplier value) {
+        counterNames.add(name);
+        counters.add(value);
+    }
+
+    /** Appends one line per stage, latencies in microseconds, then one line of counters. */
+    public void dumpText(StringBuilder out) {
+        out.append(String.format(Locale.US, "%-12s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean_us", "p50_us", "p90_us", "p99_us", "max_us"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histogram(stage);
+            out.append(String.format(Locale.US, "%-12s %8d %9.1f", stage.key(), histogram.count(),
+                    histogram.mean() / 1000));
+            for (double quantile : QUANTILES) {
+                out.append(String.format(Locale.US, " %9.1f", histogram.percentile(quantile) / 1000.0));
+            }
+            out.append(String.format(Locale.US, " %9.1f%n", histogram.max() / 1000.0));
+        }
+        out.append("counters:");
+        for (int i = 0; i < counters.size(); i++) {
+            out.append(' ').append(counterNames.get(i)).append('=').append(counters.get(i).getAsLong());
+        }
+        out.append('\n');
+    }
+
+    /** Appends a JSON object with the stages, latencies in nanoseconds, and the counters. */
+    public void dumpJson(StringBuilder out) {
+        out.append("{\"stages\":{");
+        Stage[] stages = Stage.values();
+        for (int s = 0; s < stages.length; s++) {
+            LatencyHistogram histogram = histogram(stages[s]);
+            if (s > 0) {
+                out.append(',');
+            }
+            out.append('"').append(stages[s].key()).append("\":{\"count\":").append(histogram.count())
+                    .append(",\"mean_ns\":").append(Math.round(histogram.mean()));
+            for (int q = 0; q < QUANTILES.length; q++) {
+                out.append(",\"").append(QUANTILE_KEYS[q]).append("_ns\":")
+                        .append(histogram.percentile(QUANTILES[q]));
+            }
+            out.append(",\"max_ns\":").append(histogram.max()).append('}');
+        }
+        out.append("},\"counters\":{");
+        for (int i = 0; i < counters.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(counterNames.get(i)).append("\":").append(counters.get(i).getAsLong());
+        }
+        out.append("}}");
+    }
+
+    /** Forgets every recorded latency; counters belong to their components and are kept. */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.google.protobuf.AbstractParser;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+
+/**
+ * {@link com.google.protobuf.Parser} for the {@code handedness} stream: decodes each
+ * {@code ClassificationList} into the probability that the hand is a right hand, one float per
+ * hand in a caller-owned buffer (see {@link com.example.mediapipemultihandstracking.gesture.HandFrame#handedness()}).
+ */
+public final class HandednessListParser extends AbstractParser<MessageLite> {
+    private final float[] scores;
+    private int handCount;
+
+    public HandednessListParser(float[] scores) {
+        this.scores = scores;
+    }
+
+    /** Starts a new packet: the next message is stored for hand 0. */
+    public void reset() {
+        handCount = 0;
+    }
+
+    /** Number of hands decoded since the last {@link #reset()}. */
+    public int handCount() {
+        return handCount;
+    }
+
+    public float[] scores() {
+        return scores;
+    }
+
+    @Override
+    public MessageLite parsePartialFrom(CodedInputStream input, ExtensionRegistryLite extensionRegistry)
+            throws InvalidProtocolBufferException {
+        try {
+            if (handCount < scores.length) {
+                scores[handCount++] = LandmarkWireDecoder.readHandedness(input, Handedness.RIGHT_LABEL_INDEX);
+            } else {
+                input.skipMessage();
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+        return null;
+    }
+}
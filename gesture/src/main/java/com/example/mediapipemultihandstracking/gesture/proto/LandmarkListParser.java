@@ -0,0 +1,61 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.google.protobuf.AbstractParser;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+
+/**
+ * {@link com.google.protobuf.Parser} that decodes each {@code NormalizedLandmarkList} it is handed
+ * into a caller-owned landmark buffer instead of building a message.
+ *
+ * <p>Pass it to {@code PacketGetter.getProtoVector(packet, parser)} after {@link #reset()}; the
+ * returned list only holds nulls, and the landmarks of hand {@code i} end up at
+ * {@link HandLandmark#handOffset(int) handOffset(i)}. Hands beyond the buffer capacity are skipped.
+ */
+public final class LandmarkListParser extends AbstractParser<MessageLite> {
+    private final float[] landmarks;
+    private final int capacity;
+    private int handCount;
+
+    public LandmarkListParser(float[] landmarks) {
+        this.landmarks = landmarks;
+        this.capacity = landmarks.length / HandLandmark.FLOATS_PER_HAND;
+    }
+
+    /** Starts a new packet: the next message is stored as hand 0. */
+    public void reset() {
+        handCount = 0;
+    }
+
+    /** Number of hands decoded since the last {@link #reset()}. */
+    public int handCount() {
+        return handCount;
+    }
+
+    public float[] landmarks() {
+        return landmarks;
+    }
+
+    @Override
+    public MessageLite parsePartialFrom(CodedInputStream input, ExtensionRegistryLite extensionRegistry)
+            throws InvalidProtocolBufferException {
+        try {
+            if (handCount < capacity) {
+                LandmarkWireDecoder.readLandmarkList(input, landmarks, HandLandmark.handOffset(handCount));
+                handCount++;
+            } else {
+                input.skipMessage();
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads serialized MediaPipe landmark and rect protos straight into float buffers, without
+ * building message objects.
+ *
+ * <p>Field numbers follow {@code mediapipe/framework/formats/landmark.proto} and
+ * {@code rect.proto}. Unknown fields are skipped, and missing fields read as 0 as they would through
+ * the generated getters.
+ */
+public final class LandmarkWireDecoder {
+    // NormalizedLandmarkList
+    private static final int LANDMARK_LIST_LANDMARK = 1;
+    // NormalizedLandmark
+    private static final int LANDMARK_X = 1;
+    private static final int LANDMARK_Y = 2;
+    private static final int LANDMARK_Z = 3;
+    // NormalizedRect
+    private static final int RECT_X_CENTER = 1;
+    private static final int RECT_Y_CENTER = 2;
+    private static final int RECT_HEIGHT = 3;
+    private static final int RECT_WIDTH = 4;
+    private static final int RECT_ROTATION = 5;
+    // ClassificationList
+    private static final int CLASSIFICATION_LIST_CLASSIFICATION = 1;
+    // Classification
+    private static final int CLASSIFICATION_INDEX = 1;
+    private static final int CLASSIFICATION_SCORE = 2;
+
+    // Tag of a length-delimited NormalizedLandmarkList.landmark entry (field number << 3 | wire type).
+    private static final int LANDMARK_TAG =
+            LANDMARK_LIST_LANDMARK << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CLASSIFICATION_TAG =
+            CLASSIFICATION_LIST_CLASSIFICATION << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CLASSIFICATION_INDEX_TAG = CLASSIFICATION_INDEX << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int CLASSIFICATION_SCORE_TAG = CLASSIFICATION_SCORE << 3 | WireFormat.WIRETYPE_FIXED32;
+
+    private LandmarkWireDecoder() {
+    }
+
+    /**
+     * Reads a {@code NormalizedLandmarkList} into {@code out} starting at {@code offset}. At most
+     * {@link HandLandmark#COUNT} landmarks are stored, and slots of absent landmarks are zeroed.
+     *
+     * @return number of landmarks in the message
+     */
+    public static int readLandmarkList(CodedInputStream input, float[] out, int offset) throws IOException {
+        Arrays.fill(out, offset, offset + HandLandmark.FLOATS_PER_HAND, 0f);
+        int count = 0;
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                return count;
+            }
+            if (tag == LANDMARK_TAG) {
+                int limit = input.pushLimit(input.readRawVarint32());
+                if (count < HandLandmark.COUNT) {
+                    readLandmark(input, out, HandLandmark.x(offset, count));
+                } else {
+                    input.skipMessage();
+                }
+                input.popLimit(limit);
+                count++;
+            } else if (!input.skipField(tag)) {
+                return count;
+            }
+        }
+    }
+
+    /** Reads a {@code NormalizedRect} into {@code out} at {@code offset} (see {@link HandRect}). */
+    public static void readRect(CodedInputStream input, float[] out, int offset) throws IOException {
+        Arrays.fill(out, offset, offset + HandRect.FLOATS_PER_RECT, 0f);
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                return;
+            }
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_FIXED32) {
+                if (!input.skipField(tag)) {
+                    return;
+                }
+                continue;
+            }
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case RECT_X_CENTER:
+                    out[offset + HandRect.X_CENTER] = input.readFloat();
+                    break;
+                case RECT_Y_CENTER:
+                    out[offset + HandRect.Y_CENTER] = input.readFloat();
+                    break;
+                case RECT_HEIGHT:
+                    out[offset + HandRect.HEIGHT] = input.readFloat();
+                    break;
+                case RECT_WIDTH:
+                    out[offset + HandRect.WIDTH] = input.readFloat();
+                    break;
+                case RECT_ROTATION:
+                    out[offset + HandRect.ROTATION] = input.readFloat();
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code ClassificationList} produced by the handedness model and returns the
+     * probability that the hand is a right hand (label {@code rightLabelIndex}), taken from the
+     * top-scoring classification; NaN when the list is empty.
+     */
+    public static float readHandedness(CodedInputStream input, int rightLabelIndex) throws IOException {
+        int bestIndex = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                break;
+            }
+            if (tag == CLASSIFICATION_TAG) {
+                int limit = input.pushLimit(input.readRawVarint32());
+                int index = 0;
+                float score = 0f;
+                for (int field = input.readTag(); field != 0; field = input.readTag()) {
+                    if (field == CLASSIFICATION_INDEX_TAG) {
+                        index = input.readInt32();
+                    } else if (field == CLASSIFICATION_SCORE_TAG) {
+                        score = input.readFloat();
+                    } else if (!input.skipField(field)) {
+                        break;
+                    }
+                }
+                input.popLimit(limit);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = index;
+                }
+            } else if (!input.skipField(tag)) {
+                break;
+            }
+        }
+        if (bestIndex < 0) {
+            return Float.NaN;
+        }
+        return bestIndex == rightLabelIndex ? bestScore : 1f - bestScore;
+    }
+
+    private static void readLandmark(CodedInputStream input, float[] out, int at) throws IOException {
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                return;
+            }
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_FIXED32) {
+                if (!input.skipField(tag)) {
+                    return;
+                }
+                continue;
+            }
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case LANDMARK_X:
+                    out[at] = input.readFloat();
+                    break;
+                case LANDMARK_Y:
+                    out[at + 1] = input.readFloat();
+                    break;
+                case LANDMARK_Z:
+                    out[at + 2] = input.readFloat();
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+        }
+    }
+}
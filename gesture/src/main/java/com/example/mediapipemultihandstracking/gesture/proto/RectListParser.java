@@ -0,0 +1,58 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.google.protobuf.AbstractParser;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+
+/**
+ * {@link com.google.protobuf.Parser} that decodes each {@code NormalizedRect} it is handed into a
+ * caller-owned rect buffer, the counterpart of {@link LandmarkListParser} for the
+ * {@code hand_rects_from_landmarks} stream.
+ */
+public final class RectListParser extends AbstractParser<MessageLite> {
+    private final float[] rects;
+    private final int capacity;
+    private int rectCount;
+
+    public RectListParser(float[] rects) {
+        this.rects = rects;
+        this.capacity = rects.length / HandRect.FLOATS_PER_RECT;
+    }
+
+    /** Starts a new packet: the next message is stored as rect 0. */
+    public void reset() {
+        rectCount = 0;
+    }
+
+    /** Number of rects decoded since the last {@link #reset()}. */
+    public int rectCount() {
+        return rectCount;
+    }
+
+    public float[] rects() {
+        return rects;
+    }
+
+    @Override
+    public MessageLite parsePartialFrom(CodedInputStream input, ExtensionRegistryLite extensionRegistry)
+            throws InvalidProtocolBufferException {
+        try {
+            if (rectCount < capacity) {
+                LandmarkWireDecoder.readRect(input, rects, HandRect.rectOffset(rectCount));
+                rectCount++;
+            } else {
+                input.skipMessage();
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.mediapipemultihandstracking.gesture.record;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Appends {@link HandFrame}s to a file in the {@link HandFrameRecording} format.
+ *
+ * <p>{@link #record} copies the frame into a pre-allocated batch buffer and returns; full batches
+ * are written by a background thread, so the camera callback never waits for the disk. When the
+ * writer falls so far behind that no batch buffer is free, frames are dropped and counted rather
+ * than blocking. Recording neither allocates nor blocks; {@link #close} flushes what is left.
+ */
+public final class HandFrameRecorder implements Closeable {
+    private static final int DEFAULT_FRAMES_PER_BATCH = 32;
+    private static final int DEFAULT_BATCHES = 4;
+    private static final ByteBuffer END_OF_RECORDING = ByteBuffer.allocate(0);
+
+    private final int maxHands;
+    private final int recordSize;
+    private final FileOutputStream output;
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> freeBatches;
+    private final BlockingQueue<ByteBuffer> fullBatches;
+    private final Thread writer;
+
+    // Only touched under the recorder's lock.
+    private ByteBuffer batch;
+    private boolean closed;
+    private long recorded;
+    private long dropped;
+    private volatile IOException writeFailure;
+
+    /**
+     * @param yScale height over width of the frames recorded, see {@link HandFrameRecording#yScale()}
+     */
+    public HandFrameRecorder(File file, int maxHands, float yScale, int framesPerBatch, int batches)
+            throws IOException {
+        this.maxHands = maxHands;
+        this.recordSize = HandFrameRecording.recordSize(maxHands);
+        output = new FileOutputStream(file);
+        channel = output.getChannel();
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HandFrameRecording.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            HandFrameRecording.writeHeader(header, maxHands, yScale);
+            header.flip();
+            writeFully(header);
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+        freeBatches = new ArrayBlockingQueue<>(batches);
+        fullBatches = new ArrayBlockingQueue<>(batches + 1);
+        for (int i = 0; i < batches; i++) {
+            freeBatches.add(ByteBuffer.allocateDirect(framesPerBatch * recordSize).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        writer = new Thread(this::writeBatches, "HandFrameRecorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public HandFrameRecorder(File file, int maxHands, int framesPerBatch, int batches) throws IOException {
+        this(file, maxHands, 1f, framesPerBatch, batches);
+    }
+
+    public HandFrameRecorder(File file, int maxHands, float yScale) throws IOException {
+        this(file, maxHands, yScale, DEFAULT_FRAMES_PER_BATCH, DEFAULT_BATCHES);
+    }
+
+    /** A recorder of square frames, or of landmarks already in isotropic units. */
+    public HandFrameRecorder(File file, int maxHands) throws IOException {
+        this(file, maxHands, 1f);
+    }
+
+    /**
+     * Appends {@code frame}, or drops it when the writer is behind, failed or the recorder is
+     * closed.
+     *
+     * @return whether the frame was recorded
+     */
+    public synchronized boolean record(HandFrame frame) {
+        if (closed || writeFailure != null) {
+            dropped++;
+            return false;
+        }
+        if (batch == null) {
+            batch = freeBatches.poll();
+            if (batch == null) {
+                dropped++;
+                return false;
+            }
+        }
+        batch.putLong(frame.timestamp());
+        batch.putInt(frame.handCount());
+        batch.putInt(frame.rectCount());
+        putFloats(frame.landmarks(), Math.min(frame.handCount(), maxHands) * HandLandmark.FLOATS_PER_HAND,
+                maxHands * HandLandmark.FLOATS_PER_HAND);
+        putFloats(frame.rects(), Math.min(frame.rectCount(), maxHands) * HandRect.FLOATS_PER_RECT,
+                maxHands * HandRect.FLOATS_PER_RECT);
+        putFloats(frame.handedness(), Math.min(frame.handCount(), maxHands), maxHands);
+        recorded++;
+        if (batch.remaining() < recordSize) {
+            fullBatches.add(batch);
+            batch = null;
+        }
+        return true;
+    }
+
+    // Writes the first `used` floats of `source`, then zeros up to `size`.
+    private void putFloats(float[] source, int used, int size) {
+        for (int i = 0; i < used; i++) {
+            batch.putFloat(source[i]);
+        }
+        for (int i = used; i < size; i++) {
+            batch.putFloat(0f);
+        }
+    }
+
+    public synchronized long recordedCount() {
+        return recorded;
+    }
+
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    private void writeBatches() {
+        while (true) {
+            ByteBuffer full;
+            try {
+                full = fullBatches.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (full == END_OF_RECORDING) {
+                return;
+            }
+            full.flip();
+            if (writeFailure == null) {
+                try {
+                    writeFully(full);
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+            }
+            full.clear();
+            freeBatches.add(full);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes the pending frames and closes the file.
+     *
+     * @throws IOException if writing any batch failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (batch != null && batch.position() > 0) {
+                fullBatches.add(batch);
+            }
+            batch = null;
+            fullBatches.add(END_OF_RECORDING);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            output.close();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+}
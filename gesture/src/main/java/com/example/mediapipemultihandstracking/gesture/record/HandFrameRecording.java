@@ -0,0 +1,164 @@
+package com.example.mediapipemultihandstracking.gesture.record;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.sync.FrameJoiner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file of {@link HandFrame}s written by {@link HandFrameRecorder}, memory-mapped for replay.
+ *
+ * <p>The file is a {@value #HEADER_SIZE}-byte header followed by fixed-size records, all
+ * little-endian:
+ *
+ * <pre>
+ * header: int magic "HFR1", int version, int maxHands, int recordSize, float yScale, 12 bytes reserved
+ * record: long timestamp, int handCount, int rectCount,
+ *         float landmarks[maxHands * 63], float rects[maxHands * 5], float handedness[maxHands]
+ * </pre>
+ *
+ * <p>{@code yScale} is the frame height over its width, see {@link #yScale()}. Unused hands are
+ * zero. Records are located by index alone, and a record cut short by a crash is ignored. Reading
+ * copies straight from the mapped pages into the arrays of a reused frame, without any
+ * intermediate buffer or allocation. Not thread-safe.
+ */
+public final class HandFrameRecording implements Closeable {
+    static final int MAGIC = 0x31524648; // "HFR1" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer bytes;
+    private final FloatBuffer floats;
+    private final int maxHands;
+    private final int recordSize;
+    private final int frameCount;
+    private final float yScale;
+    private final HandFrame replayFrame;
+
+    private HandFrameRecording(RandomAccessFile file, MappedByteBuffer bytes) throws IOException {
+        this.file = file;
+        this.bytes = bytes;
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.limit() < HEADER_SIZE || bytes.getInt(0) != MAGIC) {
+            throw new IOException("not a hand frame recording");
+        }
+        if (bytes.getInt(4) != VERSION) {
+            throw new IOException("unsupported recording version " + bytes.getInt(4));
+        }
+        maxHands = bytes.getInt(8);
+        recordSize = bytes.getInt(12);
+        yScale = bytes.getFloat(16);
+        if (maxHands <= 0 || recordSize != recordSize(maxHands) || !(yScale > 0)) {
+            throw new IOException("corrupt recording header");
+        }
+        frameCount = (bytes.limit() - HEADER_SIZE) / recordSize;
+        floats = bytes.asFloatBuffer();
+        replayFrame = new HandFrame(maxHands);
+    }
+
+    /** Maps {@code file} read-only. */
+    public static HandFrameRecording open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("recording too large to map: " + channel.size() + " bytes");
+            }
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HandFrameRecording(randomAccessFile, bytes);
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /** Size in bytes of one record of a recording of up to {@code maxHands} hands. */
+    static int recordSize(int maxHands) {
+        return RECORD_HEADER_SIZE + Float.BYTES * floatsPerRecord(maxHands);
+    }
+
+    static int floatsPerRecord(int maxHands) {
+        return maxHands * (HandLandmark.FLOATS_PER_HAND + HandRect.FLOATS_PER_RECT + 1);
+    }
+
+    /** Writes the header of a recording of up to {@code maxHands} hands of frames of {@code yScale}. */
+    static void writeHeader(ByteBuffer out, int maxHands, float yScale) {
+        out.putInt(MAGIC).putInt(VERSION).putInt(maxHands).putInt(recordSize(maxHands)).putFloat(yScale);
+        for (int i = 20; i < HEADER_SIZE; i++) {
+            out.put((byte) 0);
+        }
+    }
+
+    public int maxHands() {
+        return maxHands;
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Height over width of the recorded frames, which MediaPipe normalizes landmarks by, i.e. the
+     * {@code yScale} of a {@code HandFeatureExtractor} for them.
+     */
+    public float yScale() {
+        return yScale;
+    }
+
+    public long timestamp(int index) {
+        return bytes.getLong(recordOffset(index));
+    }
+
+    /** Reads frame {@code index} into {@code frame}, which must hold at least {@link #maxHands}. */
+    public void read(int index, HandFrame frame) {
+        if (frame.maxHands() < maxHands) {
+            throw new IllegalArgumentException("frame holds " + frame.maxHands() + " hands, recording "
+                    + maxHands);
+        }
+        int offset = recordOffset(index);
+        frame.setTimestamp(bytes.getLong(offset));
+        frame.setHandCount(bytes.getInt(offset + 8));
+        frame.setRectCount(bytes.getInt(offset + 12));
+        floats.position((offset + RECORD_HEADER_SIZE) / Float.BYTES);
+        floats.get(frame.landmarks(), 0, maxHands * HandLandmark.FLOATS_PER_HAND);
+        floats.get(frame.rects(), 0, maxHands * HandRect.FLOATS_PER_RECT);
+        floats.get(frame.handedness(), 0, maxHands);
+    }
+
+    /**
+     * Feeds every frame, in recording order, to {@code listener} the way {@link FrameJoiner}
+     * feeds live frames, and returns the number of frames.
+     */
+    public int replay(FrameJoiner.Listener listener) {
+        for (int index = 0; index < frameCount; index++) {
+            read(index, replayFrame);
+            listener.onFrame(replayFrame);
+        }
+        return frameCount;
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("frame " + index + " of " + frameCount);
+        }
+        return HEADER_SIZE + index * recordSize;
+    }
+
+    /** Closes the file; the mapping itself is released once unreachable. */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventBus;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams hand frames and gesture events to another machine in the {@link StreamFormat stream
+ * format}, over UDP or TCP, for a {@link LandmarkStreamDecoder} on the other end.
+ *
+ * <p>{@link #export} encodes the frame, and the events waiting on its subscription, into one of a
+ * few pre-allocated buffers and returns; a background thread sends the buffers, as many as are
+ * waiting in one write or in as few datagrams as hold them. When the sender falls so far behind
+ * that no buffer is free, the frame is dropped and counted, and the next one is a keyframe.
+ * Exporting neither allocates nor blocks, and the channel is opened by the sender thread, so
+ * exporting from a UI or camera thread never waits for the network.
+ *
+ * <p>A TCP connection that fails is not retried; frames are dropped from then on and
+ * {@link #close} reports the failure. Over UDP, datagrams the receiver refuses are dropped.
+ */
+public final class LandmarkExporter implements Closeable {
+    public enum Transport {
+        UDP,
+        TCP
+    }
+
+    private static final int DEFAULT_BUFFERS = 8;
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+    // Room for the events sent along with a frame.
+    private static final int EVENT_BYTES = 1024;
+    // Datagrams are filled up to a size that crosses a typical network without fragmenting.
+    private static final int DATAGRAM_BYTES = 1400;
+    // How long closing waits for the queued frames to go out before giving up on them.
+    private static final long CLOSE_TIMEOUT_MS = 1000;
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final Transport transport;
+    private final InetSocketAddress target;
+    private final LandmarkStreamEncoder encoder;
+    private final GestureEventBus.Subscription events;
+    private final GestureEvent event;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> fullBuffers;
+    private final Thread sender;
+
+    // Only touched under the exporter's lock.
+    private boolean closed;
+    private long exported;
+    private long dropped;
+    private long droppedEvents;
+    private volatile IOException sendFailure;
+    // Only written by the sender thread.
+    private volatile long sentBytes;
+    private volatile long sends;
+
+    /**
+     * @param target where to send to, possibly unresolved; the sender thread resolves it
+     * @param tracks capacity of the {@link HandTracker} passed to {@link #export}
+     * @param events subscription whose events are sent along with the frames, or null
+     * @param buffers frames that can wait for the sender before frames are dropped
+     * @param keyframeInterval frames from one keyframe to the next
+     */
+    public LandmarkExporter(Transport transport, InetSocketAddress target, int maxHands, int tracks,
+                            GestureEventBus.Subscription events, int buffers, int keyframeInterval) {
+        this.transport = transport;
+        this.target = target;
+        this.events = events;
+        encoder = new LandmarkStreamEncoder(tracks, keyframeInterval);
+        event = new GestureEvent(maxHands);
+        int bufferBytes = LandmarkStreamEncoder.maxFrameBytes(maxHands) + EVENT_BYTES;
+        freeBuffers = new ArrayBlockingQueue<>(buffers);
+        fullBuffers = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferBytes));
+        }
+        sender = new Thread(() -> send(buffers, bufferBytes), "LandmarkExporter");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    public LandmarkExporter(Transport transport, InetSocketAddress target, int maxHands, int tracks,
+                            GestureEventBus.Subscription events) {
+        this(transport, target, maxHands, tracks, events, DEFAULT_BUFFERS, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Queues {@code frame} and the events waiting on the subscription for sending, or drops them
+     * when the sender is behind, failed or the exporter is closed; events of a dropped frame stay
+     * on the subscription. An event too large for the room left with the frame is dropped and
+     * counted in {@link #droppedEventCount}.
+     *
+     * @param tracker the tracker that last updated with {@code frame}, or null
+     * @return whether the frame was queued
+     */
+    public synchronized boolean export(HandFrame frame, HandTracker tracker) {
+        if (closed || sendFailure != null) {
+            dropped++;
+            return false;
+        }
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            dropped++;
+            encoder.requestKeyframe();
+            return false;
+        }
+        if (!encoder.encodeFrame(frame, tracker, buffer)) {
+            throw new IllegalArgumentException("frame of " + frame.handCount() + " hands is larger than "
+                    + buffer.capacity() + " bytes");
+        }
+        while (events != null && buffer.remaining() >= EVENT_BYTES && events.poll(event)) {
+            if (!encoder.encodeEvent(event, buffer)) {
+                droppedEvents++;
+            }
+        }
+        fullBuffers.add(buffer);
+        exported++;
+        return true;
+    }
+
+    public synchronized long exportedCount() {
+        return exported;
+    }
+
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    /** Events taken off the subscription but too large to send along with their frame. */
+    public synchronized long droppedEventCount() {
+        return droppedEvents;
+    }
+
+    /** Bytes handed to the channel so far. */
+    public long sentBytes() {
+        return sentBytes;
+    }
+
+    /** Writes or datagrams so far; fewer than the exported frames when the sender batches. */
+    public long sendCount() {
+        return sends;
+    }
+
+    private void send(int buffers, int bufferBytes) {
+        List<ByteBuffer> batch = new ArrayList<>(buffers + 1);
+        ByteBuffer[] gather = new ByteBuffer[buffers];
+        // A message larger than a datagram gets one of its own.
+        ByteBuffer datagram = ByteBuffer.allocateDirect(Math.max(DATAGRAM_BYTES, bufferBytes));
+        GatheringByteChannel channel = null;
+        try {
+            channel = open();
+        } catch (IOException e) {
+            sendFailure = e;
+        }
+        boolean ended = false;
+        while (!ended) {
+            try {
+                batch.add(fullBuffers.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            fullBuffers.drainTo(batch);
+            int count = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                ByteBuffer buffer = batch.get(i);
+                if (buffer == END_OF_STREAM) {
+                    ended = true;
+                } else {
+                    buffer.flip();
+                    gather[count++] = buffer;
+                }
+            }
+            if (sendFailure == null && count > 0) {
+                try {
+                    if (transport == Transport.TCP) {
+                        writeFully(channel, gather, count);
+                    } else {
+                        writeDatagrams(channel, gather, count, datagram);
+                    }
+                } catch (IOException e) {
+                    sendFailure = e;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                gather[i].clear();
+                freeBuffers.add(gather[i]);
+                gather[i] = null;
+            }
+            batch.clear();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (sendFailure == null) {
+                    sendFailure = e;
+                }
+            }
+        }
+    }
+
+    private GatheringByteChannel open() throws IOException {
+        InetSocketAddress target = this.target.isUnresolved()
+                ? new InetSocketAddress(this.target.getHostString(), this.target.getPort()) : this.target;
+        if (target.isUnresolved()) {
+            throw new IOException("cannot resolve " + target.getHostString());
+        }
+        if (transport == Transport.TCP) {
+            SocketChannel channel = SocketChannel.open(target);
+            // Frames are small and late ones worthless: send each batch at once.
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return channel;
+        }
+        DatagramChannel channel = DatagramChannel.open();
+        channel.connect(target);
+        return channel;
+    }
+
+    private void writeFully(GatheringByteChannel channel, ByteBuffer[] buffers, int count) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += buffers[i].remaining();
+        }
+        for (long written = 0; written < bytes; ) {
+            written += channel.write(buffers, 0, count);
+        }
+        sentBytes += bytes;
+        sends++;
+    }
+
+    // Packs whole buffers into datagrams, each buffer holding whole messages.
+    private void writeDatagrams(GatheringByteChannel channel, ByteBuffer[] buffers, int count,
+                                ByteBuffer datagram) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (datagram.position() > 0 && datagram.position() + buffers[i].remaining() > DATAGRAM_BYTES) {
+                sendDatagram(channel, datagram);
+            }
+            datagram.put(buffers[i]);
+        }
+        sendDatagram(channel, datagram);
+    }
+
+    private void sendDatagram(GatheringByteChannel channel, ByteBuffer datagram) throws IOException {
+        datagram.flip();
+        int bytes = datagram.remaining();
+        try {
+            channel.write(datagram);
+            sentBytes += bytes;
+            sends++;
+        } catch (PortUnreachableException e) {
+            // Nobody listens yet; a later keyframe lets the receiver in.
+        }
+        datagram.clear();
+    }
+
+    /**
+     * Sends the queued frames and closes the channel, abandoning them if that takes longer than
+     * a second, as when still connecting.
+     *
+     * @throws IOException if connecting or sending failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            fullBuffers.add(END_OF_STREAM);
+        }
+        try {
+            sender.join(CLOSE_TIMEOUT_MS);
+            if (sender.isAlive()) {
+                // Interrupting a channel operation closes the channel.
+                sender.interrupt();
+                sender.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (sendFailure != null) {
+            throw sendFailure;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.ABSOLUTE;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.DELTA;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.EVENT;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.FRAME;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.KEYFRAME;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.LENGTH_BYTES;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.NO_TRACK;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.UNKNOWN_HANDEDNESS;
+
+/**
+ * Reads what a {@link LandmarkStreamEncoder} wrote back into a {@link HandFrame} and
+ * {@link GestureEvent}s, handing each to a {@link Listener}.
+ *
+ * <p>After a missing frame, as on a lossy UDP link, frames are skipped up to the next keyframe,
+ * since their changes apply to a frame this decoder never saw. Malformed messages are skipped the
+ * same way. Gestures are resolved by name among the built-in ones, {@link Gesture#UNKNOWN}
+ * otherwise; the event label still carries the sender's text. Not thread-safe.
+ */
+public final class LandmarkStreamDecoder {
+    /** Receives what was decoded; the frame and event are reused for the next message. */
+    public interface Listener {
+        void onFrame(HandFrame frame);
+
+        void onEvent(GestureEvent event);
+    }
+
+    private static final int TRACKS = NO_TRACK;
+
+    private final Listener listener;
+    private final HandFrame frame;
+    private final GestureEvent event;
+    private final int[] handTracks;
+    private final int[] landmarks = new int[TRACKS * HandLandmark.FLOATS_PER_HAND];
+    private final int[] rects = new int[TRACKS * HandRect.FLOATS_PER_RECT];
+    private final boolean[] hasLandmarks = new boolean[TRACKS];
+    private final boolean[] hasRect = new boolean[TRACKS];
+    private final int[] changes = new int[HandLandmark.FLOATS_PER_HAND];
+    private final Gesture[] gestures;
+    private final Handedness[] handedness;
+    private final List<TrajectoryTemplate> trajectories = TrajectoryTemplate.defaults();
+    // Bytes of a stream not yet making up a whole message.
+    private final ByteBuffer pending = ByteBuffer.allocate(LENGTH_BYTES + StreamFormat.MAX_MESSAGE);
+    private byte[] text = new byte[64];
+    private boolean synced;
+    private long lastSequence = -1;
+    private long lastTimestamp;
+    private long frames;
+    private long events;
+    private long skipped;
+
+    public LandmarkStreamDecoder(int maxHands, Listener listener) {
+        this.listener = listener;
+        frame = new HandFrame(maxHands);
+        event = new GestureEvent(maxHands);
+        handTracks = new int[maxHands];
+        gestures = new Gesture[maxHands];
+        handedness = new Handedness[maxHands];
+    }
+
+    /**
+     * Decodes the whole messages of a stream chunk, as read from TCP, keeping a trailing partial
+     * message for the next chunk.
+     */
+    public void feed(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            int take = Math.min(bytes.remaining(), pending.remaining());
+            int limit = bytes.limit();
+            bytes.limit(bytes.position() + take);
+            pending.put(bytes);
+            bytes.limit(limit);
+            pending.flip();
+            decodeMessages(pending);
+            pending.compact();
+        }
+    }
+
+    /** Decodes the messages of one datagram, as received from UDP. */
+    public void decodeDatagram(ByteBuffer datagram) {
+        decodeMessages(datagram);
+        if (datagram.hasRemaining()) {
+            skip();
+            datagram.position(datagram.limit());
+        }
+    }
+
+    // Decodes whole messages from `in`, leaving a partial one.
+    private void decodeMessages(ByteBuffer in) {
+        while (in.remaining() >= LENGTH_BYTES) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (in.remaining() < LENGTH_BYTES + length) {
+                return;
+            }
+            int end = in.position() + LENGTH_BYTES + length;
+            int limit = in.limit();
+            in.position(in.position() + LENGTH_BYTES);
+            in.limit(end);
+            try {
+                decodeMessage(in);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                skip();
+            }
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    private void decodeMessage(ByteBuffer in) {
+        int kind = in.get();
+        if (kind == FRAME) {
+            decodeFrame(in);
+        } else if (kind == EVENT) {
+            decodeEvent(in);
+        } else {
+            throw new IllegalArgumentException("unknown message kind " + kind);
+        }
+    }
+
+    private void decodeFrame(ByteBuffer in) {
+        boolean keyframe = (in.get() & KEYFRAME) != 0;
+        long sequence = StreamFormat.getVarint(in);
+        if (!keyframe && (!synced || sequence != lastSequence + 1)) {
+            // A frame went missing: the changes apply to a frame never seen.
+            if (sequence > lastSequence) {
+                skip();
+            }
+            return;
+        }
+        synced = false;
+        long timestamp = keyframe ? StreamFormat.getVarint(in) : lastTimestamp + StreamFormat.getZigzag(in);
+        int handCount = in.get() & 0xFF;
+        int rectCount = in.get() & 0xFF;
+        if (handCount > frame.maxHands() || rectCount > frame.maxHands()) {
+            throw new IllegalArgumentException("more hands than " + frame.maxHands());
+        }
+        float[] scores = frame.handedness();
+        for (int hand = 0; hand < handCount; hand++) {
+            int track = in.get() & 0xFF;
+            int score = in.get() & 0xFF;
+            scores[hand] = score == UNKNOWN_HANDEDNESS ? Float.NaN : score / (float) (UNKNOWN_HANDEDNESS - 1);
+            handTracks[hand] = track == NO_TRACK ? -1 : track;
+            getValues(in, frame.landmarks(), HandLandmark.handOffset(hand), HandLandmark.FLOATS_PER_HAND,
+                    landmarks, hasLandmarks, track);
+        }
+        for (int rect = 0; rect < rectCount; rect++) {
+            int track = in.get() & 0xFF;
+            getValues(in, frame.rects(), HandRect.rectOffset(rect), HandRect.FLOATS_PER_RECT,
+                    rects, hasRect, track);
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("frame longer than its hands");
+        }
+        frame.setTimestamp(timestamp);
+        frame.setHandCount(handCount);
+        frame.setRectCount(rectCount);
+        synced = true;
+        lastSequence = sequence;
+        lastTimestamp = timestamp;
+        frames++;
+        listener.onFrame(frame);
+    }
+
+    private void getValues(ByteBuffer in, float[] values, int offset, int count,
+                           int[] reference, boolean[] hasReference, int track) {
+        int coding = in.get();
+        boolean tracked = track != NO_TRACK;
+        if (coding == DELTA && !(tracked && hasReference[track]) || coding != DELTA && coding != ABSOLUTE) {
+            throw new IllegalArgumentException("bad coding " + coding + " for track " + track);
+        }
+        int referenceOffset = tracked ? track * count : 0;
+        if (coding == DELTA && count == HandLandmark.FLOATS_PER_HAND) {
+            StreamFormat.getLandmarkChanges(in, changes);
+        }
+        for (int i = 0; i < count; i++) {
+            int value;
+            if (coding == ABSOLUTE) {
+                value = (int) StreamFormat.getZigzag(in);
+            } else if (count == HandLandmark.FLOATS_PER_HAND) {
+                value = reference[referenceOffset + i] + changes[i];
+            } else {
+                value = reference[referenceOffset + i] + (int) StreamFormat.getZigzag(in);
+            }
+            if (tracked) {
+                reference[referenceOffset + i] = value;
+            }
+            values[offset + i] = StreamFormat.dequantize(value);
+        }
+        if (tracked) {
+            hasReference[track] = true;
+        }
+    }
+
+    private void decodeEvent(ByteBuffer in) {
+        long sequence = StreamFormat.getVarint(in);
+        long timestamp = StreamFormat.getVarint(in);
+        int type = in.get();
+        String label = getString(in);
+        if (type == GestureEvent.Type.GESTURE.ordinal()) {
+            int handCount = in.get() & 0xFF;
+            if (handCount > gestures.length) {
+                throw new IllegalArgumentException("more hands than " + gestures.length);
+            }
+            for (int hand = 0; hand < handCount; hand++) {
+                Gesture gesture = Gesture.builtIn(getString(in));
+                gestures[hand] = gesture == null ? Gesture.UNKNOWN : gesture;
+                handedness[hand] = Handedness.values()[in.get()];
+            }
+            TwoHandGesture twoHandGesture = TwoHandGesture.values()[in.get()];
+            event.setGestures(timestamp, label, handCount, gestures, handedness, twoHandGesture);
+        } else if (type == GestureEvent.Type.MOTION.ordinal()) {
+            Motion motion = Motion.values()[in.get()];
+            event.setMotion(timestamp, label, motion, trajectory(getString(in)));
+        } else {
+            throw new IllegalArgumentException("unknown event type " + type);
+        }
+        event.setSequence(sequence);
+        events++;
+        listener.onEvent(event);
+    }
+
+    private TrajectoryTemplate trajectory(String name) {
+        for (TrajectoryTemplate trajectory : trajectories) {
+            if (trajectory.name().equals(name)) {
+                return trajectory;
+            }
+        }
+        return null;
+    }
+
+    private String getString(ByteBuffer in) {
+        int length = (int) StreamFormat.getVarint(in);
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (text.length < length) {
+            text = new byte[length];
+        }
+        in.get(text, 0, length);
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void skip() {
+        synced = false;
+        skipped++;
+    }
+
+    /** Track of {@code hand} in the frame last decoded, or -1 if it was not tracked. */
+    public int handTrack(int hand) {
+        return handTracks[hand];
+    }
+
+    public long frameCount() {
+        return frames;
+    }
+
+    public long eventCount() {
+        return events;
+    }
+
+    /** Frames and messages skipped, missing frames after a loss included. */
+    public long skippedCount() {
+        return skipped;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import java.nio.ByteBuffer;
+
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.ABSOLUTE;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.DELTA;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.EVENT;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.FRAME;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.KEYFRAME;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.LENGTH_BYTES;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.NO_TRACK;
+import static com.example.mediapipemultihandstracking.gesture.stream.StreamFormat.UNKNOWN_HANDEDNESS;
+
+/**
+ * Writes hand frames and gesture events as messages of the {@link StreamFormat stream format},
+ * coding each tracked hand as the change from its previous frame, with a keyframe every
+ * {@code keyframeInterval} frames. Encoding does not allocate.
+ *
+ * <p>The delta references are the frames this encoder wrote, so a frame dropped before encoding
+ * costs nothing; one lost after encoding needs a keyframe on the receiving side, see
+ * {@link #requestKeyframe}.
+ */
+public final class LandmarkStreamEncoder {
+    private static final int MAX_VARINT = 10;
+    private static final int FRAME_HEADER = LENGTH_BYTES + 2 + 2 * MAX_VARINT + 2;
+    // Quantized coordinates are small; 5 bytes hold any int.
+    private static final int MAX_COORDINATE = 5;
+    private static final int HAND_BYTES = 3 + HandLandmark.FLOATS_PER_HAND * MAX_COORDINATE;
+    private static final int RECT_BYTES = 2 + HandRect.FLOATS_PER_RECT * MAX_COORDINATE;
+
+    private final int tracks;
+    private final int keyframeInterval;
+    // Quantized values each track last carried.
+    private final int[] landmarks;
+    private final int[] rects;
+    private final boolean[] hasLandmarks;
+    private final boolean[] hasRect;
+    private final int[] changes = new int[HandLandmark.FLOATS_PER_HAND];
+    private long sequence;
+    private long lastTimestamp;
+    private int framesSinceKeyframe;
+    private boolean keyframeRequested = true;
+
+    /**
+     * @param tracks capacity of the {@link HandTracker} whose slots the frames are coded against,
+     *               at most 255
+     * @param keyframeInterval frames from one keyframe to the next
+     */
+    public LandmarkStreamEncoder(int tracks, int keyframeInterval) {
+        if (tracks < 0 || tracks > NO_TRACK) {
+            throw new IllegalArgumentException("tracks must be 0 to " + NO_TRACK + ": " + tracks);
+        }
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframeInterval must be positive: " + keyframeInterval);
+        }
+        this.tracks = tracks;
+        this.keyframeInterval = keyframeInterval;
+        landmarks = new int[tracks * HandLandmark.FLOATS_PER_HAND];
+        rects = new int[tracks * HandRect.FLOATS_PER_RECT];
+        hasLandmarks = new boolean[tracks];
+        hasRect = new boolean[tracks];
+    }
+
+    /** Most bytes a frame of {@code hands} hands and rects takes, length included. */
+    public static int maxFrameBytes(int hands) {
+        return FRAME_HEADER + hands * (HAND_BYTES + RECT_BYTES);
+    }
+
+    /** Most bytes {@code event} takes, length included. */
+    public static int maxEventBytes(GestureEvent event) {
+        int bytes = LENGTH_BYTES + 2 + 2 * MAX_VARINT + StreamFormat.maxStringBytes(event.label()) + 3;
+        for (int hand = 0; hand < event.handCount(); hand++) {
+            bytes += StreamFormat.maxStringBytes(event.gesture(hand).name()) + 1;
+        }
+        TrajectoryTemplate trajectory = event.trajectory();
+        return bytes + (trajectory == null ? 1 : StreamFormat.maxStringBytes(trajectory.name()));
+    }
+
+    /** Makes the next frame a keyframe, as after frames were lost on their way. */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /** Frames written so far; the sequence number of the next one. */
+    public long frameCount() {
+        return sequence;
+    }
+
+    /**
+     * Appends {@code frame} to {@code out} if it fits.
+     *
+     * @param tracker the tracker that last updated with {@code frame}, or null to code every hand
+     *                absolute
+     * @return false, writing nothing, if {@code out} has less than {@link #maxFrameBytes} left
+     */
+    public boolean encodeFrame(HandFrame frame, HandTracker tracker, ByteBuffer out) {
+        int handCount = frame.handCount();
+        int rectCount = frame.rectCount();
+        int maxBytes = maxFrameBytes(Math.max(handCount, rectCount));
+        if (maxBytes > LENGTH_BYTES + StreamFormat.MAX_MESSAGE) {
+            throw new IllegalArgumentException("too many hands for one message: " + handCount);
+        }
+        if (out.remaining() < maxBytes) {
+            return false;
+        }
+        boolean keyframe = keyframeRequested || framesSinceKeyframe >= keyframeInterval;
+        int start = out.position();
+        out.position(start + LENGTH_BYTES);
+        out.put((byte) FRAME);
+        out.put((byte) (keyframe ? KEYFRAME : 0));
+        StreamFormat.putVarint(out, sequence);
+        if (keyframe) {
+            StreamFormat.putVarint(out, frame.timestamp());
+        } else {
+            StreamFormat.putZigzag(out, frame.timestamp() - lastTimestamp);
+        }
+        out.put((byte) handCount);
+        out.put((byte) rectCount);
+        float[] handedness = frame.handedness();
+        for (int hand = 0; hand < handCount; hand++) {
+            int track = track(tracker == null ? -1 : tracker.slotOfHand(hand));
+            out.put((byte) track);
+            float score = handedness[hand];
+            out.put((byte) (Float.isNaN(score) ? UNKNOWN_HANDEDNESS
+                    : Math.round(Math.max(0f, Math.min(1f, score)) * (UNKNOWN_HANDEDNESS - 1))));
+            putValues(out, frame.landmarks(), HandLandmark.handOffset(hand), HandLandmark.FLOATS_PER_HAND,
+                    landmarks, hasLandmarks, track, keyframe);
+        }
+        for (int rect = 0; rect < rectCount; rect++) {
+            int track = track(tracker == null ? -1 : tracker.slotOfRect(rect));
+            out.put((byte) track);
+            putValues(out, frame.rects(), HandRect.rectOffset(rect), HandRect.FLOATS_PER_RECT,
+                    rects, hasRect, track, keyframe);
+        }
+        out.putShort(start, (short) (out.position() - start - LENGTH_BYTES));
+
+        sequence++;
+        lastTimestamp = frame.timestamp();
+        if (keyframe) {
+            keyframeRequested = false;
+            framesSinceKeyframe = 0;
+        }
+        framesSinceKeyframe++;
+        return true;
+    }
+
+    private int track(int slot) {
+        return slot >= 0 && slot < tracks ? slot : NO_TRACK;
+    }
+
+    // Writes the coding byte and `count` values, absolute or as the change from the track's
+    // reference, and makes them the new reference.
+    private void putValues(ByteBuffer out, float[] values, int offset, int count,
+                           int[] reference, boolean[] hasReference, int track, boolean keyframe) {
+        boolean tracked = track != NO_TRACK;
+        boolean delta = tracked && !keyframe && hasReference[track];
+        out.put((byte) (delta ? DELTA : ABSOLUTE));
+        int referenceOffset = tracked ? track * count : 0;
+        for (int i = 0; i < count; i++) {
+            int value = StreamFormat.quantize(values[offset + i]);
+            if (delta) {
+                changes[i] = value - reference[referenceOffset + i];
+            } else {
+                StreamFormat.putZigzag(out, value);
+            }
+            if (tracked) {
+                reference[referenceOffset + i] = value;
+            }
+        }
+        if (delta && count == HandLandmark.FLOATS_PER_HAND) {
+            StreamFormat.putLandmarkChanges(out, changes);
+        } else if (delta) {
+            for (int i = 0; i < count; i++) {
+                StreamFormat.putZigzag(out, changes[i]);
+            }
+        }
+        if (tracked) {
+            hasReference[track] = true;
+        }
+    }
+
+    /**
+     * Appends {@code event} to {@code out} if it fits.
+     *
+     * @return false, writing nothing, if {@code out} has less than {@link #maxEventBytes} left
+     */
+    public boolean encodeEvent(GestureEvent event, ByteBuffer out) {
+        int maxBytes = maxEventBytes(event);
+        if (maxBytes > LENGTH_BYTES + StreamFormat.MAX_MESSAGE) {
+            throw new IllegalArgumentException("event too long for one message: " + event);
+        }
+        if (out.remaining() < maxBytes) {
+            return false;
+        }
+        int start = out.position();
+        out.position(start + LENGTH_BYTES);
+        out.put((byte) EVENT);
+        StreamFormat.putVarint(out, event.sequence());
+        StreamFormat.putVarint(out, event.timestamp());
+        out.put((byte) event.type().ordinal());
+        StreamFormat.putString(out, event.label());
+        if (event.type() == GestureEvent.Type.GESTURE) {
+            out.put((byte) event.handCount());
+            for (int hand = 0; hand < event.handCount(); hand++) {
+                StreamFormat.putString(out, event.gesture(hand).name());
+                out.put((byte) event.handedness(hand).ordinal());
+            }
+            out.put((byte) event.twoHandGesture().ordinal());
+        } else {
+            out.put((byte) event.motion().ordinal());
+            TrajectoryTemplate trajectory = event.trajectory();
+            StreamFormat.putString(out, trajectory == null ? "" : trajectory.name());
+        }
+        out.putShort(start, (short) (out.position() - start - LENGTH_BYTES));
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format shared by {@link LandmarkStreamEncoder} and {@link LandmarkStreamDecoder}.
+ *
+ * <p>A stream is a sequence of messages, each a big-endian {@code u16} length followed by that
+ * many bytes. A TCP stream is the messages back to back; a UDP datagram holds one or more whole
+ * messages. The first byte of a message is its kind.
+ *
+ * <pre>
+ * frame:  kind=1, flags (bit 0: keyframe), varint sequence,
+ *         varint timestamp on a keyframe, else zigzag varint change since the previous frame,
+ *         u8 hand count, u8 rect count,
+ *         per hand: u8 track, u8 right-hand score (0 to 254, 255 for unknown), u8 coding,
+ *                   absolute: 63 zigzag varint landmark coordinates
+ *                   delta: 3 zigzag varint wrist changes, u8 bits, 60 residuals of that many bits
+ *         per rect: u8 track, u8 coding, 5 zigzag varint rect values or changes
+ * event:  kind=2, varint sequence, varint timestamp, u8 type, string label,
+ *         gesture: u8 hand count, per hand: string gesture name, u8 handedness; u8 two-hand gesture
+ *         motion:  u8 motion, string trajectory name, empty for none
+ * string: varint byte count, UTF-8 bytes
+ * </pre>
+ *
+ * <p>Coordinates are quantized to {@value #SCALE} steps per unit. A hand or rect coded
+ * {@link #ABSOLUTE} carries the quantized values; one coded {@link #DELTA} carries the change
+ * from the values its track last carried. The landmarks of a hand mostly move together, so their
+ * changes are the wrist's, then for every other coordinate its change less the wrist's along the
+ * same axis, zigzag coded and packed little-endian in as few bits as the largest needs: a hand
+ * held still or moved without turning costs a few bits per coordinate. The
+ * track is the {@link com.example.mediapipemultihandstracking.gesture.track.HandTracker} slot,
+ * {@link #NO_TRACK} for hands that are not tracked, which are always absolute. A keyframe codes
+ * everything absolute, so a receiver that missed a frame picks the stream up again there.
+ */
+final class StreamFormat {
+    static final int FRAME = 1;
+    static final int EVENT = 2;
+
+    static final int KEYFRAME = 1;
+
+    static final int ABSOLUTE = 0;
+    static final int DELTA = 1;
+
+    static final int NO_TRACK = 0xFF;
+    static final int UNKNOWN_HANDEDNESS = 0xFF;
+
+    /** Quantization steps per unit of a normalized coordinate, a quarter pixel at 1024 pixels. */
+    static final float SCALE = 4096f;
+
+    // A residual of int changes, zigzag coded, fits 34 bits; more is malformed.
+    static final int MAX_RESIDUAL_BITS = 34;
+
+    static final int LENGTH_BYTES = 2;
+    static final int MAX_MESSAGE = 0xFFFF;
+
+    private StreamFormat() {
+    }
+
+    static int quantize(float value) {
+        return (int) Math.floor(value * SCALE + 0.5f);
+    }
+
+    static float dequantize(int value) {
+        return value / SCALE;
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putZigzag(ByteBuffer out, long value) {
+        putVarint(out, zigzag(value));
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    static long getZigzag(ByteBuffer in) {
+        long value = getVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Writes the changes of a hand's landmark coordinates, see the class comment. */
+    static void putLandmarkChanges(ByteBuffer out, int[] changes) {
+        long largest = 0;
+        for (int i = HandLandmark.FLOATS_PER_LANDMARK; i < HandLandmark.FLOATS_PER_HAND; i++) {
+            largest |= zigzag(residual(changes, i));
+        }
+        for (int axis = 0; axis < HandLandmark.FLOATS_PER_LANDMARK; axis++) {
+            putZigzag(out, changes[axis]);
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(largest);
+        out.put((byte) bits);
+        long pending = 0;
+        int pendingBits = 0;
+        for (int i = HandLandmark.FLOATS_PER_LANDMARK; i < HandLandmark.FLOATS_PER_HAND; i++) {
+            pending |= zigzag(residual(changes, i)) << pendingBits;
+            pendingBits += bits;
+            while (pendingBits >= 8) {
+                out.put((byte) pending);
+                pending >>>= 8;
+                pendingBits -= 8;
+            }
+        }
+        if (pendingBits > 0) {
+            out.put((byte) pending);
+        }
+    }
+
+    /** Reads what {@link #putLandmarkChanges} wrote. */
+    static void getLandmarkChanges(ByteBuffer in, int[] changes) {
+        for (int axis = 0; axis < HandLandmark.FLOATS_PER_LANDMARK; axis++) {
+            changes[axis] = (int) getZigzag(in);
+        }
+        int bits = in.get() & 0xFF;
+        if (bits > MAX_RESIDUAL_BITS) {
+            throw new IllegalArgumentException("residuals of " + bits + " bits");
+        }
+        long mask = (1L << bits) - 1;
+        long pending = 0;
+        int pendingBits = 0;
+        for (int i = HandLandmark.FLOATS_PER_LANDMARK; i < HandLandmark.FLOATS_PER_HAND; i++) {
+            while (pendingBits < bits) {
+                pending |= (long) (in.get() & 0xFF) << pendingBits;
+                pendingBits += 8;
+            }
+            long zigzag = pending & mask;
+            pending >>>= bits;
+            pendingBits -= bits;
+            changes[i] = (int) ((zigzag >>> 1) ^ -(zigzag & 1)) + changes[i % HandLandmark.FLOATS_PER_LANDMARK];
+        }
+    }
+
+    // Change of coordinate i less the wrist's along the same axis.
+    private static long residual(int[] changes, int i) {
+        return (long) changes[i] - changes[i % HandLandmark.FLOATS_PER_LANDMARK];
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** Writes {@code text} as a string without allocating. */
+    static void putString(ByteBuffer out, String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.codePointAt(i);
+            bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            i += Character.charCount(c) - 1;
+        }
+        putVarint(out, bytes);
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.codePointAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (c < 0x10000) {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else {
+                out.put((byte) (0xF0 | c >> 18));
+                out.put((byte) (0x80 | c >> 12 & 0x3F));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+            i += Character.charCount(c) - 1;
+        }
+    }
+
+    /** Upper bound of the bytes {@link #putString} writes for {@code text}. */
+    static int maxStringBytes(String text) {
+        return 5 + 3 * text.length();
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.mediapipemultihandstracking.gesture.sync;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pairs the {@code hand_landmarks} and {@code hand_rects_from_landmarks} packets, and optionally
+ * the {@code handedness} packets, that belong to the same camera frame, keyed on
+ * {@code Packet.getTimestamp()}.
+ *
+ * <p>Both MediaPipe callback threads {@link #offerLandmarks offer} their decoded buffers and then
+ * call {@link #drain}. Offers never block: each stream keeps a small ring of pending records, and
+ * when a ring is full the oldest unread record is overwritten. Only one thread drains at a time;
+ * the others return at once and the draining thread picks up their records. Matched frames are
+ * handed to the listener in increasing timestamp order, and anything older than the last emitted
+ * frame is dropped as stale.
+ *
+ * <p>Rects can be made optional for rect streams that skip frames, such as
+ * {@code hand_rects_from_palm_detections}, which the graph only emits while it looks for more
+ * hands. A landmark record whose rects are missing is then emitted with the rects of the last
+ * frame once a later record of either stream shows they are not coming.
+ */
+public final class FrameJoiner {
+    /** Receives joined frames. The frame is reused after the call returns. */
+    public interface Listener {
+        void onFrame(HandFrame frame);
+    }
+
+    private static final int LANDMARKS = 0;
+    private static final int RECTS = 1;
+    private static final int HANDEDNESS = 2;
+
+    // Indexed by LANDMARKS, RECTS and, when joined, HANDEDNESS.
+    private final StampedRing[] streams;
+    private final boolean optionalRects;
+    private final HandFrame output;
+    private final int[] candidateSlots;
+    private final int[] bestSlots;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicInteger offers = new AtomicInteger();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // Only touched by the draining thread; published through the draining flag.
+    private long lastEmitted = Long.MIN_VALUE;
+
+    /**
+     * @param maxHands hands stored per record
+     * @param depth frames buffered per stream, a power of two
+     */
+    public FrameJoiner(int maxHands, int depth) {
+        this(maxHands, depth, false);
+    }
+
+    /**
+     * @param withHandedness whether frames also wait for {@link #offerHandedness}; otherwise their
+     *     handedness is unknown
+     */
+    public FrameJoiner(int maxHands, int depth, boolean withHandedness) {
+        this(maxHands, depth, withHandedness, false);
+    }
+
+    /**
+     * @param optionalRects whether frames whose rects never arrive reuse the last rects instead of
+     *     being dropped; with a different number of hands they have none
+     */
+    public FrameJoiner(int maxHands, int depth, boolean withHandedness, boolean optionalRects) {
+        this.optionalRects = optionalRects;
+        streams = new StampedRing[withHandedness ? 3 : 2];
+        streams[LANDMARKS] = new StampedRing(depth, maxHands * HandLandmark.FLOATS_PER_HAND);
+        streams[RECTS] = new StampedRing(depth, maxHands * HandRect.FLOATS_PER_RECT);
+        if (withHandedness) {
+            streams[HANDEDNESS] = new StampedRing(depth, maxHands);
+        }
+        output = new HandFrame(maxHands);
+        candidateSlots = new int[streams.length];
+        bestSlots = new int[streams.length];
+    }
+
+    public void offerLandmarks(long timestamp, float[] source, int handCount) {
+        offer(LANDMARKS, timestamp, source, handCount, HandLandmark.FLOATS_PER_HAND);
+    }
+
+    public void offerRects(long timestamp, float[] source, int rectCount) {
+        offer(RECTS, timestamp, source, rectCount, HandRect.FLOATS_PER_RECT);
+    }
+
+    /** Offers the right-hand probability of every hand, see {@link HandFrame#handedness()}. */
+    public void offerHandedness(long timestamp, float[] source, int handCount) {
+        if (streams.length <= HANDEDNESS) {
+            throw new IllegalStateException("joiner was created without handedness");
+        }
+        offer(HANDEDNESS, timestamp, source, handCount, 1);
+    }
+
+    /**
+     * Emits every frame whose packets have all arrived, unless another thread is already draining.
+     *
+     * @return number of frames emitted by this call
+     */
+    public int drain(Listener listener) {
+        int emitted = 0;
+        while (draining.compareAndSet(false, true)) {
+            int seen;
+            try {
+                do {
+                    seen = offers.get();
+                    while (emitNext(listener)) {
+                        emitted++;
+                    }
+                } while (offers.get() != seen);
+            } finally {
+                draining.set(false);
+            }
+            // An offer that raced with releasing the flag would otherwise wait for the next one.
+            if (offers.get() == seen) {
+                break;
+            }
+        }
+        return emitted;
+    }
+
+    /** Frames handed to a listener so far. */
+    public long joinedCount() {
+        return joined.get();
+    }
+
+    /** Records lost so far: overwritten, rejected while their slot was busy, or left unmatched. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    private void offer(int stream, long timestamp, float[] source, int count, int recordFloats) {
+        dropped.addAndGet(streams[stream].write(timestamp, source, count, recordFloats));
+        offers.incrementAndGet();
+    }
+
+    private boolean emitNext(Listener listener) {
+        for (StampedRing stream : streams) {
+            discardStale(stream);
+        }
+        StampedRing landmarks = streams[LANDMARKS];
+        while (true) {
+            long best = Long.MAX_VALUE;
+            for (int slot = 0; slot < landmarks.capacity(); slot++) {
+                if (!landmarks.isReady(slot)) {
+                    continue;
+                }
+                long timestamp = landmarks.peekTimestamp(slot);
+                // A record published since discardStale ran may already be stale; the next call
+                // drops it.
+                if (timestamp > lastEmitted && timestamp < best && findInOtherStreams(timestamp)) {
+                    best = timestamp;
+                    candidateSlots[LANDMARKS] = slot;
+                    System.arraycopy(candidateSlots, 0, bestSlots, 0, bestSlots.length);
+                }
+            }
+            if (best == Long.MAX_VALUE) {
+                return false;
+            }
+            // A missing optional record has slot -1 and is not claimed.
+            int claimed = 0;
+            while (claimed < streams.length
+                    && (bestSlots[claimed] < 0 || streams[claimed].claim(bestSlots[claimed]))) {
+                claimed++;
+            }
+            boolean matches = claimed == streams.length;
+            for (int stream = 0; stream < claimed && matches; stream++) {
+                matches = bestSlots[stream] < 0 || streams[stream].timestamp(bestSlots[stream]) == best;
+            }
+            if (!matches) {
+                // Taken or overwritten between the scan and the claim; rescan.
+                for (int stream = 0; stream < claimed; stream++) {
+                    if (bestSlots[stream] >= 0) {
+                        streams[stream].release(bestSlots[stream], false);
+                    }
+                }
+                continue;
+            }
+            output.setTimestamp(best);
+            output.setHandCount(streams[LANDMARKS].copyTo(bestSlots[LANDMARKS], output.landmarks()));
+            if (bestSlots[RECTS] >= 0) {
+                output.setRectCount(streams[RECTS].copyTo(bestSlots[RECTS], output.rects()));
+            } else if (output.rectCount() != output.handCount()) {
+                // The last frame's rects fit only as many hands; otherwise which is which is unknown.
+                output.setRectCount(0);
+            }
+            if (streams.length > HANDEDNESS) {
+                streams[HANDEDNESS].copyTo(bestSlots[HANDEDNESS], output.handedness());
+            }
+            for (int stream = 0; stream < streams.length; stream++) {
+                if (bestSlots[stream] >= 0) {
+                    streams[stream].release(bestSlots[stream], true);
+                }
+            }
+            lastEmitted = best;
+            joined.incrementAndGet();
+            listener.onFrame(output);
+            return true;
+        }
+    }
+
+    // Looks for ready records stamped {@code timestamp} in every stream but the landmarks, and
+    // leaves their slots in candidateSlots, -1 for optional rects that are not coming.
+    private boolean findInOtherStreams(long timestamp) {
+        for (int stream = RECTS; stream < streams.length; stream++) {
+            StampedRing ring = streams[stream];
+            candidateSlots[stream] = -1;
+            for (int slot = 0; slot < ring.capacity(); slot++) {
+                if (ring.isReady(slot) && ring.peekTimestamp(slot) == timestamp) {
+                    candidateSlots[stream] = slot;
+                    break;
+                }
+            }
+            if (candidateSlots[stream] < 0
+                    && !(stream == RECTS && optionalRects && (hasLater(streams[LANDMARKS], timestamp)
+                    || hasLater(streams[RECTS], timestamp)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the stream has moved past `timestamp`: each stream's packets arrive in order.
+    private static boolean hasLater(StampedRing ring, long timestamp) {
+        for (int slot = 0; slot < ring.capacity(); slot++) {
+            if (ring.isReady(slot) && ring.peekTimestamp(slot) > timestamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discardStale(StampedRing ring) {
+        for (int slot = 0; slot < ring.capacity(); slot++) {
+            if (ring.isReady(slot) && ring.peekTimestamp(slot) <= lastEmitted && ring.claim(slot)) {
+                if (ring.timestamp(slot) <= lastEmitted) {
+                    ring.release(slot, true);
+                    dropped.incrementAndGet();
+                } else {
+                    ring.release(slot, false);
+                }
+            }
+        }
+    }
+}
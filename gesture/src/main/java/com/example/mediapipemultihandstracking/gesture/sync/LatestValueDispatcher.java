@@ -0,0 +1,112 @@
+package com.example.mediapipemultihandstracking.gesture.sync;
+
+import com.example.mediapipemultihandstracking.gesture.metrics.LatencyHistogram;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands the latest of a stream of values to a listener on another thread, typically the UI
+ * thread, without ever queueing more than one task on it.
+ *
+ * <p>{@link #offer} stores the value in a one-slot mailbox and, unless a delivery is already
+ * pending, hands the executor a single pre-allocated task. That task delivers whatever value is
+ * in the mailbox when it runs, so values offered while the consumer is busy replace each other
+ * instead of piling up; they are counted as {@link #coalescedCount coalesced}. A value equal to
+ * the last one offered is skipped without touching the executor; with several producers a
+ * repeat may occasionally slip through and be delivered again. Offers never block and never
+ * allocate.
+ *
+ * <p>Every offer that is not skipped is eventually either delivered or coalesced, and the last
+ * value offered is always delivered.
+ */
+public final class LatestValueDispatcher<T> {
+    /** Receives values on the executor's thread. */
+    public interface Listener<T> {
+        void onValue(T value);
+    }
+
+    private final Executor executor;
+    private final Listener<T> listener;
+    private final AtomicReference<T> mailbox = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable deliver = this::deliver;
+    private volatile T lastOffered;
+    private volatile long scheduledAt;
+    private volatile LatencyHistogram delayHistogram;
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dispatches = new AtomicLong();
+
+    public LatestValueDispatcher(Executor executor, Listener<T> listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /** Records, for every task run, the time from handing it to the executor until it ran. */
+    public void setDelayHistogram(LatencyHistogram delayHistogram) {
+        this.delayHistogram = delayHistogram;
+    }
+
+    /**
+     * Offers a non-null value from any thread.
+     *
+     * @return false if the value equals the last one offered and was skipped
+     */
+    public boolean offer(T value) {
+        T last = lastOffered;
+        if (value == last || value.equals(last)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        lastOffered = value;
+        if (mailbox.getAndSet(value) != null) {
+            coalesced.incrementAndGet();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            dispatches.incrementAndGet();
+            scheduledAt = System.nanoTime();
+            executor.execute(deliver);
+        }
+        return true;
+    }
+
+    private void deliver() {
+        LatencyHistogram histogram = delayHistogram;
+        if (histogram != null) {
+            histogram.record(System.nanoTime() - scheduledAt);
+        }
+        // Clear the flag before emptying the mailbox, so a value offered from now on schedules
+        // another delivery rather than being stranded.
+        scheduled.set(false);
+        T value = mailbox.getAndSet(null);
+        if (value != null) {
+            delivered.incrementAndGet();
+            listener.onValue(value);
+        }
+    }
+
+    /** Offers skipped because they repeated the previous value. */
+    public long skippedCount() {
+        return skipped.get();
+    }
+
+    /** Values replaced in the mailbox by a newer one before they could be delivered. */
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Values handed to the listener. */
+    public long deliveredCount() {
+        return delivered.get();
+    }
+
+    /** Tasks handed to the executor. */
+    public long dispatchCount() {
+        return dispatches.get();
+    }
+}
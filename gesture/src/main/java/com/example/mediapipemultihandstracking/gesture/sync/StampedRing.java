@@ -0,0 +1,92 @@
+package com.example.mediapipemultihandstracking.gesture.sync;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of slots holding timestamped float records of one stream. Every slot is owned through
+ * a CAS on its state, so writers and the reader never wait for each other: a writer that finds its
+ * slot busy drops its record, and a writer that finds an unread record overwrites it.
+ */
+final class StampedRing {
+    static final int FREE = 0;
+    static final int WRITING = 1;
+    static final int READY = 2;
+    static final int READING = 3;
+
+    private final int mask;
+    private final int stride;
+    private final AtomicIntegerArray states;
+    private final AtomicLong cursor = new AtomicLong();
+    private final long[] timestamps;
+    private final int[] counts;
+    private final float[] data;
+
+    StampedRing(int capacity, int stride) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.stride = stride;
+        this.states = new AtomicIntegerArray(capacity);
+        this.timestamps = new long[capacity];
+        this.counts = new int[capacity];
+        this.data = new float[capacity * stride];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Stores {@code count} records of {@code recordFloats} floats each.
+     *
+     * @return 0 if nothing was lost, 1 if the record or an unread older one was dropped
+     */
+    int write(long timestamp, float[] source, int count, int recordFloats) {
+        int slot = (int) (cursor.getAndIncrement() & mask);
+        int dropped = 0;
+        if (!states.compareAndSet(slot, FREE, WRITING)) {
+            if (!states.compareAndSet(slot, READY, WRITING)) {
+                // The reader or another writer owns the slot: drop the new record.
+                return 1;
+            }
+            dropped = 1;
+        }
+        int floats = Math.min(count * recordFloats, stride);
+        System.arraycopy(source, 0, data, slot * stride, floats);
+        timestamps[slot] = timestamp;
+        counts[slot] = floats / recordFloats;
+        states.set(slot, READY);
+        return dropped;
+    }
+
+    boolean isReady(int slot) {
+        return states.get(slot) == READY;
+    }
+
+    /** Timestamp of a slot that {@link #isReady(int) looked ready}; only a hint until claimed. */
+    long peekTimestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    boolean claim(int slot) {
+        return states.compareAndSet(slot, READY, READING);
+    }
+
+    /** Timestamp of a claimed slot. */
+    long timestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    /** Copies a claimed slot into {@code target} and returns its record count. */
+    int copyTo(int slot, float[] target) {
+        int count = counts[slot];
+        System.arraycopy(data, slot * stride, target, 0, Math.min(stride, target.length));
+        return count;
+    }
+
+    void release(int slot, boolean consumed) {
+        states.set(slot, consumed ? FREE : READY);
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import java.util.Arrays;
+
+/**
+ * Gives every detected hand an ID that stays the same from frame to frame.
+ *
+ * <p>Each frame the hand rects are associated with the tracks of the previous frame: pairs whose
+ * centers are within {@code gate} of each other are scored by overlap (IoU) and matched greedily,
+ * best score first. Candidates are found through a uniform grid with cells no smaller than the
+ * gate, so a rect is only compared with the tracks in its 3x3 neighbourhood and the per-hand cost
+ * does not grow with the number of hands. Unmatched rects start new tracks; tracks that stay
+ * unmatched for more than {@code maxMissedFrames} frames are dropped. Landmark hands are then
+ * attached to the track whose rect center is closest to their bounding-box center.
+ *
+ * <p>Tracks live in fixed slots, so per-track state elsewhere can be kept in arrays indexed by
+ * slot. All storage is allocated up front.
+ */
+public final class HandTracker {
+    /** Receives the slot of every track that was dropped, before the slot is reused. */
+    public interface Listener {
+        void onTrackRemoved(int slot);
+    }
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final float gate;
+    private final int maxMissedFrames;
+    private final int gridSize;
+
+    // Per slot.
+    private final boolean[] active;
+    private final int[] ids;
+    private final float[] centerX;
+    private final float[] centerY;
+    private final float[] width;
+    private final float[] height;
+    private final int[] missed;
+    private final int[] rectIndex;
+    private final int[] handIndex;
+    private final int[] nextInCell;
+
+    // Per rect / per landmark hand of the current frame.
+    private final int[] slotOfRect;
+    private final int[] slotOfHand;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private final int[] cellHead;
+    private final long[] candidates;
+    private int nextId;
+    private int trackCount;
+    private int lastCandidateChecks;
+    private Listener listener;
+
+    /**
+     * @param capacity maximum number of simultaneous tracks and of hands per frame
+     * @param gate largest center displacement between frames, in normalized image units
+     * @param maxMissedFrames frames a track survives without a matching rect
+     */
+    public HandTracker(int capacity, float gate, int maxMissedFrames) {
+        this.capacity = capacity;
+        this.gate = gate;
+        this.maxMissedFrames = maxMissedFrames;
+        // Cells no smaller than the gate, so a match is always in the cell or a neighbouring one.
+        this.gridSize = Math.max(1, (int) Math.floor(1f / gate));
+        active = new boolean[capacity];
+        ids = new int[capacity];
+        centerX = new float[capacity];
+        centerY = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        missed = new int[capacity];
+        rectIndex = new int[capacity];
+        handIndex = new int[capacity];
+        nextInCell = new int[capacity];
+        slotOfRect = new int[capacity];
+        slotOfHand = new int[capacity];
+        freeSlots = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            // Hand out low slots first.
+            freeSlots[slot] = capacity - 1 - slot;
+        }
+        freeCount = capacity;
+        cellHead = new int[gridSize * gridSize];
+        // Bounded by all track/rect pairs; in practice a few per rect.
+        candidates = new long[capacity * capacity];
+    }
+
+    public HandTracker(int capacity) {
+        this(capacity, 0.2f, 5);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Associates the rects and landmark hands of {@code frame} with tracks. */
+    public void update(HandFrame frame) {
+        int rectCount = Math.min(frame.rectCount(), capacity);
+        float[] rects = frame.rects();
+        buildGrid();
+        Arrays.fill(slotOfRect, NONE);
+        for (int slot = 0; slot < capacity; slot++) {
+            rectIndex[slot] = NONE;
+            handIndex[slot] = NONE;
+        }
+
+        int candidateCount = collectCandidates(rects, rectCount);
+        Arrays.sort(candidates, 0, candidateCount);
+        // Best scores sort last.
+        for (int i = candidateCount - 1; i >= 0; i--) {
+            long candidate = candidates[i];
+            int rect = (int) (candidate >>> 16) & 0xFFFF;
+            int slot = (int) candidate & 0xFFFF;
+            if (slotOfRect[rect] == NONE && rectIndex[slot] == NONE) {
+                slotOfRect[rect] = slot;
+                rectIndex[slot] = rect;
+            }
+        }
+
+        for (int slot = 0; slot < capacity; slot++) {
+            if (!active[slot]) {
+                continue;
+            }
+            if (rectIndex[slot] == NONE) {
+                if (++missed[slot] > maxMissedFrames) {
+                    remove(slot);
+                }
+            } else {
+                missed[slot] = 0;
+                place(slot, rects, HandRect.rectOffset(rectIndex[slot]));
+            }
+        }
+        for (int rect = 0; rect < rectCount; rect++) {
+            if (slotOfRect[rect] == NONE) {
+                int slot = freeSlot();
+                if (slot == NONE) {
+                    break;
+                }
+                active[slot] = true;
+                ids[slot] = nextId++;
+                missed[slot] = 0;
+                trackCount++;
+                slotOfRect[rect] = slot;
+                rectIndex[slot] = rect;
+                place(slot, rects, HandRect.rectOffset(rect));
+            }
+        }
+        buildGrid();
+        attachHands(frame);
+    }
+
+    /** Number of live tracks, including those briefly missing. */
+    public int trackCount() {
+        return trackCount;
+    }
+
+    public boolean isActive(int slot) {
+        return active[slot];
+    }
+
+    /** Stable ID of the track in {@code slot}. */
+    public int trackId(int slot) {
+        return ids[slot];
+    }
+
+    /** Index of the rect matched to {@code slot} in the last frame, or -1. */
+    public int rectIndex(int slot) {
+        return rectIndex[slot];
+    }
+
+    /** Index of the landmark hand attached to {@code slot} in the last frame, or -1. */
+    public int handIndex(int slot) {
+        return handIndex[slot];
+    }
+
+    /** Slot tracking rect {@code rect} of the last frame, or -1. */
+    public int slotOfRect(int rect) {
+        return slotOfRect[rect];
+    }
+
+    /** Slot tracking landmark hand {@code hand} of the last frame, or -1. */
+    public int slotOfHand(int hand) {
+        return slotOfHand[hand];
+    }
+
+    /** Track/rect pairs scored in the last update, a measure of association work. */
+    public int lastCandidateChecks() {
+        return lastCandidateChecks;
+    }
+
+    /** Drops every track. */
+    public void reset() {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (active[slot]) {
+                remove(slot);
+            }
+        }
+    }
+
+    private int collectCandidates(float[] rects, int rectCount) {
+        int count = 0;
+        int checks = 0;
+        for (int rect = 0; rect < rectCount; rect++) {
+            int offset = HandRect.rectOffset(rect);
+            float x = rects[offset + HandRect.X_CENTER];
+            float y = rects[offset + HandRect.Y_CENTER];
+            int cellX = cell(x);
+            int cellY = cell(y);
+            for (int gy = Math.max(0, cellY - 1); gy <= Math.min(gridSize - 1, cellY + 1); gy++) {
+                for (int gx = Math.max(0, cellX - 1); gx <= Math.min(gridSize - 1, cellX + 1); gx++) {
+                    for (int slot = cellHead[gy * gridSize + gx]; slot != NONE; slot = nextInCell[slot]) {
+                        checks++;
+                        float dx = x - centerX[slot];
+                        float dy = y - centerY[slot];
+                        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                        if (distance > gate || count == candidates.length) {
+                            continue;
+                        }
+                        float score = iou(rects, offset, slot) + 0.001f * (1f - distance / gate);
+                        // Non-negative float bits sort like the floats themselves.
+                        candidates[count++] = (long) Float.floatToIntBits(score) << 32 | (long) rect << 16 | slot;
+                    }
+                }
+            }
+        }
+        lastCandidateChecks = checks;
+        return count;
+    }
+
+    private void attachHands(HandFrame frame) {
+        int handCount = Math.min(frame.handCount(), capacity);
+        float[] landmarks = frame.landmarks();
+        for (int hand = 0; hand < handCount; hand++) {
+            slotOfHand[hand] = NONE;
+            int offset = HandLandmark.handOffset(hand);
+            float minX = Float.MAX_VALUE;
+            float minY = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+            for (int i = 0; i < HandLandmark.COUNT; i++) {
+                float x = landmarks[HandLandmark.x(offset, i)];
+                float y = landmarks[HandLandmark.y(offset, i)];
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+            float x = (minX + maxX) / 2;
+            float y = (minY + maxY) / 2;
+            float best = Float.MAX_VALUE;
+            int bestSlot = NONE;
+            int cellX = cell(x);
+            int cellY = cell(y);
+            for (int gy = Math.max(0, cellY - 1); gy <= Math.min(gridSize - 1, cellY + 1); gy++) {
+                for (int gx = Math.max(0, cellX - 1); gx <= Math.min(gridSize - 1, cellX + 1); gx++) {
+                    for (int slot = cellHead[gy * gridSize + gx]; slot != NONE; slot = nextInCell[slot]) {
+                        if (rectIndex[slot] == NONE || handIndex[slot] != NONE) {
+                            continue;
+                        }
+                        float dx = x - centerX[slot];
+                        float dy = y - centerY[slot];
+                        float distance = dx * dx + dy * dy;
+                        if (distance < best) {
+                            best = distance;
+                            bestSlot = slot;
+                        }
+                    }
+                }
+            }
+            if (bestSlot != NONE && best <= gate * gate) {
+                handIndex[bestSlot] = hand;
+                slotOfHand[hand] = bestSlot;
+            }
+        }
+    }
+
+    private void buildGrid() {
+        Arrays.fill(cellHead, NONE);
+        for (int slot = 0; slot < capacity; slot++) {
+            if (active[slot]) {
+                int cell = cell(centerY[slot]) * gridSize + cell(centerX[slot]);
+                nextInCell[slot] = cellHead[cell];
+                cellHead[cell] = slot;
+            }
+        }
+    }
+
+    private float iou(float[] rects, int offset, int slot) {
+        float w = rects[offset + HandRect.WIDTH];
+        float h = rects[offset + HandRect.HEIGHT];
+        float x = rects[offset + HandRect.X_CENTER];
+        float y = rects[offset + HandRect.Y_CENTER];
+        float overlapX = Math.min(x + w / 2, centerX[slot] + width[slot] / 2)
+                - Math.max(x - w / 2, centerX[slot] - width[slot] / 2);
+        float overlapY = Math.min(y + h / 2, centerY[slot] + height[slot] / 2)
+                - Math.max(y - h / 2, centerY[slot] - height[slot] / 2);
+        if (overlapX <= 0 || overlapY <= 0) {
+            return 0f;
+        }
+        float intersection = overlapX * overlapY;
+        return intersection / (w * h + width[slot] * height[slot] - intersection);
+    }
+
+    private void place(int slot, float[] rects, int offset) {
+        centerX[slot] = rects[offset + HandRect.X_CENTER];
+        centerY[slot] = rects[offset + HandRect.Y_CENTER];
+        width[slot] = rects[offset + HandRect.WIDTH];
+        height[slot] = rects[offset + HandRect.HEIGHT];
+    }
+
+    private void remove(int slot) {
+        active[slot] = false;
+        rectIndex[slot] = NONE;
+        handIndex[slot] = NONE;
+        trackCount--;
+        freeSlots[freeCount++] = slot;
+        if (listener != null) {
+            listener.onTrackRemoved(slot);
+        }
+    }
+
+    private int freeSlot() {
+        return freeCount == 0 ? NONE : freeSlots[--freeCount];
+    }
+
+    private int cell(float coordinate) {
+        int cell = (int) (coordinate * gridSize);
+        return cell < 0 ? 0 : cell >= gridSize ? gridSize - 1 : cell;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+
+import static com.example.mediapipemultihandstracking.gesture.Geometry.getAngleABC;
+import static com.example.mediapipemultihandstracking.gesture.Geometry.getEuclideanDistanceAB;
+import static com.example.mediapipemultihandstracking.gesture.Geometry.radianToDegree;
+
+/**
+ * Recognizes scrolling, zooming and sliding for every track of a {@link HandTracker}.
+ *
+ * <p>Each track keeps its own {@link MotionHistory} of analyzed frames, so hands never see each
+ * other's movement, whatever order MediaPipe reports them in. Register the analyzer as the
+ * tracker's {@link HandTracker.Listener} so a reused slot starts from scratch.
+ *
+ * <p>Scrolling and zooming need the last {@link #STEPS} steps between analyzed frames to move
+ * past the threshold the same way, so a single jittery frame is not a motion. The hand angle is
+ * compared with the latest sample at least {@link #SLIDE_SAMPLE_MICROS} older, so a slide is the
+ * same turn whatever the frame rate and however many frames the caller skips.
+ */
+public final class MotionAnalyzer implements HandTracker.Listener {
+    /** Minimum time between the hand angles compared for a slide, two frames at 30 fps. */
+    public static final long SLIDE_SAMPLE_MICROS = 50_000;
+    /** Consecutive steps that have to agree for a scroll or zoom. */
+    public static final int STEPS = 2;
+
+    private final Motion[] motions;
+    private final MotionHistory history;
+    private final MotionThresholds thresholds;
+
+    public MotionAnalyzer(int tracks, int historyLength) {
+        this(tracks, historyLength, MotionThresholds.defaults());
+    }
+
+    /** @param historyLength analyzed frames kept per track, more than {@link #STEPS} */
+    public MotionAnalyzer(int tracks, int historyLength, MotionThresholds thresholds) {
+        if (historyLength <= STEPS) {
+            throw new IllegalArgumentException("history too short: " + historyLength);
+        }
+        this.thresholds = thresholds;
+        motions = new Motion[tracks];
+        history = new MotionHistory(tracks, historyLength);
+        for (int slot = 0; slot < tracks; slot++) {
+            onTrackRemoved(slot);
+        }
+    }
+
+    /** Updates every track matched to a rect of {@code frame}; other tracks report no motion. */
+    public void update(HandTracker tracker, HandFrame frame) {
+        float[] rects = frame.rects();
+        float[] landmarks = frame.landmarks();
+        for (int slot = 0; slot < motions.length; slot++) {
+            int rect = tracker.isActive(slot) ? tracker.rectIndex(slot) : -1;
+            if (rect < 0) {
+                motions[slot] = Motion.NONE;
+                continue;
+            }
+            int offset = HandRect.rectOffset(rect);
+            int hand = tracker.handIndex(slot);
+            float angle = hand < 0 ? Float.NaN : handAngle(landmarks, HandLandmark.handOffset(hand));
+            history.add(slot, frame.timestamp(), rects[offset + HandRect.X_CENTER],
+                    rects[offset + HandRect.Y_CENTER], rects[offset + HandRect.HEIGHT], angle);
+            motions[slot] = analyze(slot);
+        }
+    }
+
+    /** Motion of the track in {@code slot} in the last frame. */
+    public Motion motion(int slot) {
+        return motions[slot];
+    }
+
+    public MotionHistory history() {
+        return history;
+    }
+
+    public MotionThresholds thresholds() {
+        return thresholds;
+    }
+
+    @Override
+    public void onTrackRemoved(int slot) {
+        motions[slot] = Motion.NONE;
+        history.clear(slot);
+    }
+
+    private Motion analyze(int slot) {
+        if (history.size(slot) > STEPS) {
+            Motion scroll = scroll(slot, 0);
+            for (int step = 1; step < STEPS && scroll != Motion.NONE; step++) {
+                scroll = scroll(slot, step) == scroll ? scroll : Motion.NONE;
+            }
+            if (scroll != Motion.NONE) {
+                return scroll;
+            }
+            Motion zoom = zoom(slot, 0);
+            for (int step = 1; step < STEPS && zoom != Motion.NONE; step++) {
+                zoom = zoom(slot, step) == zoom ? zoom : Motion.NONE;
+            }
+            if (zoom != Motion.NONE) {
+                return zoom;
+            }
+        }
+        return slide(slot);
+    }
+
+    // Scroll of the step from sample `ago + 1` to sample `ago`, if any.
+    private Motion scroll(int slot, int ago) {
+        float centerX = history.centerX(slot, ago);
+        float centerY = history.centerY(slot, ago);
+        float previousX = history.centerX(slot, ago + 1);
+        float previousY = history.centerY(slot, ago + 1);
+        double mouvementDistance = getEuclideanDistanceAB(centerX, centerY, previousX, previousY);
+        // the height is normed [0.0, 1.0] to the camera window height.
+        // so the mouvement (when the hand is near the camera) should be equivalent to the mouvement when the hand is far.
+        double mouvementDistanceThreshold = thresholds.scrollFactor() * history.height(slot, ago);
+        if (mouvementDistance <= mouvementDistanceThreshold) {
+            return Motion.NONE;
+        }
+        double direction = radianToDegree(getAngleABC(centerX, centerY, previousX, previousY,
+                previousX + 0.1, previousY));
+        if (direction >= -45 && direction < 45) {
+            return Motion.SCROLL_RIGHT;
+        } else if (direction >= 45 && direction < 135) {
+            return Motion.SCROLL_UP;
+        } else if (direction >= 135 || direction < -135) {
+            return Motion.SCROLL_LEFT;
+        } else {
+            return Motion.SCROLL_DOWN;
+        }
+    }
+
+    // Zoom of the step from sample `ago + 1` to sample `ago`, if any.
+    private Motion zoom(int slot, int ago) {
+        float height = history.height(slot, ago);
+        float previousHeight = history.height(slot, ago + 1);
+        double heightDifferenceThreshold = height * thresholds.zoomFactor();
+        if (height < previousHeight - heightDifferenceThreshold) {
+            return Motion.ZOOM_OUT;
+        } else if (height > previousHeight + heightDifferenceThreshold) {
+            return Motion.ZOOM_IN;
+        }
+        return Motion.NONE;
+    }
+
+    // Compares the angle with the latest one at least a sample interval older, for a better result.
+    private Motion slide(int slot) {
+        float angle = history.angle(slot, 0);
+        if (Float.isNaN(angle)) {
+            return Motion.NONE;
+        }
+        long timestamp = history.timestamp(slot, 0);
+        for (int ago = 1; ago < history.size(slot); ago++) {
+            if (timestamp - history.timestamp(slot, ago) < SLIDE_SAMPLE_MICROS) {
+                continue;
+            }
+            float previousAngle = history.angle(slot, ago);
+            if (previousAngle >= 80 && previousAngle <= 100) {
+                if (angle > previousAngle + thresholds.slideDegrees()) {
+                    return Motion.SLIDE_LEFT;
+                } else if (angle < previousAngle - thresholds.slideDegrees()) {
+                    return Motion.SLIDE_RIGHT;
+                }
+            }
+            break;
+        }
+        return Motion.NONE;
+    }
+
+    // Angle between the hand (wrist to middle finger MCP) and the x-axis, in degree.
+    private static int handAngle(float[] landmarks, int offset) {
+        float wristX = landmarks[HandLandmark.x(offset, HandLandmark.WRIST)];
+        float wristY = landmarks[HandLandmark.y(offset, HandLandmark.WRIST)];
+        return radianToDegree(getAngleABC(
+                landmarks[HandLandmark.x(offset, HandLandmark.MIDDLE_FINGER_MCP)],
+                landmarks[HandLandmark.y(offset, HandLandmark.MIDDLE_FINGER_MCP)],
+                wristX, wristY, wristX + 0.1, wristY));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+/**
+ * Last few rect samples and hand angles of every track, kept in one fixed-size ring per track
+ * slot; {@link MotionAnalyzer} decides motions from them. Sample 0 is the most recent.
+ */
+public final class MotionHistory {
+    private final int length;
+    private final long[] timestamps;
+    private final float[] centerX;
+    private final float[] centerY;
+    private final float[] height;
+    // Hand angle in degrees, NaN when no landmarks were attached to the track.
+    private final float[] angle;
+    private final int[] head;
+    private final int[] size;
+
+    public MotionHistory(int tracks, int length) {
+        this.length = length;
+        timestamps = new long[tracks * length];
+        centerX = new float[tracks * length];
+        centerY = new float[tracks * length];
+        height = new float[tracks * length];
+        angle = new float[tracks * length];
+        head = new int[tracks];
+        size = new int[tracks];
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void clear(int slot) {
+        head[slot] = 0;
+        size[slot] = 0;
+    }
+
+    public void add(int slot, long timestamp, float x, float y, float h, float angleDegrees) {
+        int next = head[slot] + 1 == length ? 0 : head[slot] + 1;
+        int at = slot * length + next;
+        timestamps[at] = timestamp;
+        centerX[at] = x;
+        centerY[at] = y;
+        height[at] = h;
+        angle[at] = angleDegrees;
+        head[slot] = next;
+        if (size[slot] < length) {
+            size[slot]++;
+        }
+    }
+
+    /** Number of samples held for {@code slot}, at most {@link #length()}. */
+    public int size(int slot) {
+        return size[slot];
+    }
+
+    public long timestamp(int slot, int ago) {
+        return timestamps[index(slot, ago)];
+    }
+
+    public float centerX(int slot, int ago) {
+        return centerX[index(slot, ago)];
+    }
+
+    public float centerY(int slot, int ago) {
+        return centerY[index(slot, ago)];
+    }
+
+    public float height(int slot, int ago) {
+        return height[index(slot, ago)];
+    }
+
+    public float angle(int slot, int ago) {
+        return angle[index(slot, ago)];
+    }
+
+    private int index(int slot, int ago) {
+        if (ago >= size[slot]) {
+            throw new IndexOutOfBoundsException("sample " + ago + " of " + size[slot]);
+        }
+        int at = head[slot] - ago;
+        return slot * length + (at < 0 ? at + length : at);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+/**
+ * How far a hand has to move between analyzed frames for {@link MotionAnalyzer} to report a
+ * motion. Distances are shares of the palm rect height, so a hand near the camera has to move
+ * as much, relative to its size, as one far away.
+ */
+public final class MotionThresholds {
+    private static final MotionThresholds DEFAULTS = new MotionThresholds(0.02f, 0.03f, 12f);
+
+    private final float scrollFactor;
+    private final float zoomFactor;
+    private final float slideDegrees;
+
+    /**
+     * @param scrollFactor movement of the rect center, as a share of its height, that scrolls
+     * @param zoomFactor change of the rect height, as a share of it, that zooms
+     * @param slideDegrees turn of an upright hand, in degrees, that slides
+     */
+    public MotionThresholds(float scrollFactor, float zoomFactor, float slideDegrees) {
+        if (!(scrollFactor > 0) || !(zoomFactor > 0) || !(slideDegrees > 0)) {
+            throw new IllegalArgumentException("thresholds must be positive: " + scrollFactor + ", "
+                    + zoomFactor + ", " + slideDegrees);
+        }
+        this.scrollFactor = scrollFactor;
+        this.zoomFactor = zoomFactor;
+        this.slideDegrees = slideDegrees;
+    }
+
+    /** Scrolling past 2% of the hand height, zooming past 3%, sliding past 12 degrees. */
+    public static MotionThresholds defaults() {
+        return DEFAULTS;
+    }
+
+    public float scrollFactor() {
+        return scrollFactor;
+    }
+
+    public float zoomFactor() {
+        return zoomFactor;
+    }
+
+    public float slideDegrees() {
+        return slideDegrees;
+    }
+
+    @Override
+    public String toString() {
+        return "scroll " + scrollFactor + ", zoom " + zoomFactor + ", slide " + slideDegrees + " deg";
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+import java.util.List;
+
+/**
+ * Recognizes movements such as swipes, circles and waves for every track of a
+ * {@link HandTracker}, by matching the path of the wrist and the first fingertip over the last
+ * frames against {@link TrajectoryTemplate}s with dynamic time warping (DTW).
+ *
+ * <p>Every track keeps the last {@code window} positions of both points in a fixed ring. Each
+ * frame the window slides by one sample; once it is full, each point's path is centered and
+ * scaled to unit RMS radius, so only its shape counts, and compared with the templates of that
+ * point, which were resampled to the window and normalized the same way when the recognizer was
+ * built. A path whose RMS radius is below {@code minExtent} palm sizes is treated as a hand
+ * holding still and not compared at all, so jitter never looks like a movement.
+ *
+ * <p>The cost of a match is the sum of squared point distances along the best warping path
+ * within a Sakoe-Chiba band of {@code band} samples, and must stay below {@code maxDistance} per
+ * sample. The best match so far bounds the search, so most templates are discarded by a cascade
+ * of cheap lower bounds before any DTW: first the end points (LB_Kim), then the distance to each
+ * template's band envelope (LB_Keogh), both abandoned as soon as they exceed the bound. DTW itself
+ * stops as soon as a whole row exceeds it. A recognized movement is reported for one frame and
+ * the track's window starts over, so one movement is reported once.
+ *
+ * <p>All storage is allocated up front; not thread-safe. Register the recognizer as the tracker's
+ * {@link HandTracker.Listener} so a reused slot starts from scratch.
+ */
+public final class TrajectoryRecognizer implements HandTracker.Listener {
+    private static final int DEFAULT_WINDOW = 24;
+    private static final int DEFAULT_BAND = 4;
+    private static final float DEFAULT_MAX_DISTANCE = 0.15f;
+    private static final float DEFAULT_MIN_EXTENT = 0.4f;
+    private static final TrajectoryTemplate.Point[] POINT_VALUES = TrajectoryTemplate.Point.values();
+    private static final int POINTS = POINT_VALUES.length;
+    private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+    private final int window;
+    private final int band;
+    private final float maxCost;
+    private final float minExtent;
+
+    // Templates, resampled and normalized, with their band envelopes; template t at t * window.
+    private final TrajectoryTemplate[] templates;
+    private final int[] templatePoint;
+    private final float[] templateX;
+    private final float[] templateY;
+    private final float[] lowerX;
+    private final float[] upperX;
+    private final float[] lowerY;
+    private final float[] upperY;
+
+    // Per slot: ring of the last window positions of every point, at (slot * window + i) * POINTS + point.
+    private final float[] ringX;
+    private final float[] ringY;
+    private final int[] head;
+    private final int[] size;
+    private final TrajectoryTemplate[] recognized;
+
+    // Scratch: the normalized window of every point, and two DTW rows.
+    private final float[] queryX;
+    private final float[] queryY;
+    private final boolean[] moving = new boolean[POINTS];
+    private float[] previousRow;
+    private float[] currentRow;
+
+    private int lastLowerBoundPruned;
+    private int lastDtwCount;
+
+    public TrajectoryRecognizer(int tracks, List<TrajectoryTemplate> templates, int window, int band,
+                                float maxDistance, float minExtent) {
+        if (window < 2 || band < 0) {
+            throw new IllegalArgumentException("bad window " + window + " or band " + band);
+        }
+        this.window = window;
+        this.band = band;
+        this.maxCost = maxDistance * window;
+        this.minExtent = minExtent;
+        int count = templates.size();
+        this.templates = templates.toArray(new TrajectoryTemplate[0]);
+        templatePoint = new int[count];
+        templateX = new float[count * window];
+        templateY = new float[count * window];
+        lowerX = new float[count * window];
+        upperX = new float[count * window];
+        lowerY = new float[count * window];
+        upperY = new float[count * window];
+        for (int t = 0; t < count; t++) {
+            compile(t);
+        }
+        ringX = new float[tracks * window * POINTS];
+        ringY = new float[tracks * window * POINTS];
+        head = new int[tracks];
+        size = new int[tracks];
+        recognized = new TrajectoryTemplate[tracks];
+        queryX = new float[POINTS * window];
+        queryY = new float[POINTS * window];
+        previousRow = new float[window];
+        currentRow = new float[window];
+    }
+
+    /**
+     * A recognizer over a 24-frame window with a 4-frame band, accepting matches below 0.15 per
+     * sample of paths spanning at least 0.4 palm sizes.
+     */
+    public TrajectoryRecognizer(int tracks, List<TrajectoryTemplate> templates) {
+        this(tracks, templates, DEFAULT_WINDOW, DEFAULT_BAND, DEFAULT_MAX_DISTANCE, DEFAULT_MIN_EXTENT);
+    }
+
+    private void compile(int t) {
+        TrajectoryTemplate template = templates[t];
+        templatePoint[t] = template.point().ordinal();
+        int base = t * window;
+        for (int i = 0; i < window; i++) {
+            float position = i / (window - 1f);
+            templateX[base + i] = template.x(position);
+            templateY[base + i] = template.y(position);
+        }
+        normalize(templateX, templateY, base);
+        for (int i = 0; i < window; i++) {
+            float lowX = INFINITY;
+            float highX = -INFINITY;
+            float lowY = INFINITY;
+            float highY = -INFINITY;
+            for (int j = Math.max(0, i - band); j <= Math.min(window - 1, i + band); j++) {
+                lowX = Math.min(lowX, templateX[base + j]);
+                highX = Math.max(highX, templateX[base + j]);
+                lowY = Math.min(lowY, templateY[base + j]);
+                highY = Math.max(highY, templateY[base + j]);
+            }
+            lowerX[base + i] = lowX;
+            upperX[base + i] = highX;
+            lowerY[base + i] = lowY;
+            upperY[base + i] = highY;
+        }
+    }
+
+    // Centers the window-long path at base and scales it to unit RMS radius; returns that radius
+    // before scaling.
+    private float normalize(float[] x, float[] y, int base) {
+        float meanX = 0;
+        float meanY = 0;
+        for (int i = base; i < base + window; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= window;
+        meanY /= window;
+        float squares = 0;
+        for (int i = base; i < base + window; i++) {
+            x[i] -= meanX;
+            y[i] -= meanY;
+            squares += x[i] * x[i] + y[i] * y[i];
+        }
+        float radius = (float) Math.sqrt(squares / window);
+        float inverse = radius > 0 ? 1f / radius : 0f;
+        for (int i = base; i < base + window; i++) {
+            x[i] *= inverse;
+            y[i] *= inverse;
+        }
+        return radius;
+    }
+
+    /** Adds the hand of every track matched to a landmark hand of {@code frame} and matches its window. */
+    public void update(HandTracker tracker, HandFrame frame) {
+        float[] landmarks = frame.landmarks();
+        lastLowerBoundPruned = 0;
+        lastDtwCount = 0;
+        for (int slot = 0; slot < recognized.length; slot++) {
+            recognized[slot] = null;
+            int hand = tracker.isActive(slot) ? tracker.handIndex(slot) : -1;
+            if (hand < 0) {
+                continue;
+            }
+            int offset = HandLandmark.handOffset(hand);
+            add(slot, landmarks, offset);
+            if (size[slot] == window) {
+                match(slot, palmSize(landmarks, offset));
+            }
+        }
+    }
+
+    private void add(int slot, float[] landmarks, int offset) {
+        int next = head[slot] + 1 == window ? 0 : head[slot] + 1;
+        int at = (slot * window + next) * POINTS;
+        for (TrajectoryTemplate.Point point : POINT_VALUES) {
+            ringX[at + point.ordinal()] = landmarks[HandLandmark.x(offset, point.landmark())];
+            ringY[at + point.ordinal()] = landmarks[HandLandmark.y(offset, point.landmark())];
+        }
+        head[slot] = next;
+        if (size[slot] < window) {
+            size[slot]++;
+        }
+    }
+
+    private void match(int slot, float palmSize) {
+        // Unroll the ring, oldest first, into one normalized path per point.
+        for (int point = 0; point < POINTS; point++) {
+            int base = point * window;
+            int at = head[slot] + 1 == window ? 0 : head[slot] + 1;
+            for (int i = 0; i < window; i++) {
+                queryX[base + i] = ringX[(slot * window + at) * POINTS + point];
+                queryY[base + i] = ringY[(slot * window + at) * POINTS + point];
+                at = at + 1 == window ? 0 : at + 1;
+            }
+            moving[point] = normalize(queryX, queryY, base) >= minExtent * palmSize;
+        }
+
+        float best = maxCost;
+        int bestTemplate = -1;
+        int last = window - 1;
+        for (int t = 0; t < templates.length; t++) {
+            int point = templatePoint[t];
+            if (!moving[point]) {
+                continue;
+            }
+            int query = point * window;
+            int base = t * window;
+            // LB_Kim: every warping path matches the first and the last samples.
+            float bound = squaredDistance(queryX[query], queryY[query], templateX[base], templateY[base])
+                    + squaredDistance(queryX[query + last], queryY[query + last],
+                    templateX[base + last], templateY[base + last]);
+            if (bound >= best || lbKeogh(query, base, best) >= best) {
+                lastLowerBoundPruned++;
+                continue;
+            }
+            lastDtwCount++;
+            float cost = dtw(query, base, best);
+            if (cost < best) {
+                best = cost;
+                bestTemplate = t;
+            }
+        }
+        if (bestTemplate >= 0) {
+            recognized[slot] = templates[bestTemplate];
+            // Start over so the same movement is not reported again on the next frames.
+            size[slot] = 0;
+        }
+    }
+
+    // Squared distance of each query sample to the band envelope of the template, which no
+    // sample it can be warped to lies outside of.
+    private float lbKeogh(int query, int base, float best) {
+        float bound = 0;
+        for (int i = 0; i < window; i++) {
+            float x = queryX[query + i];
+            float y = queryY[query + i];
+            float dx = x > upperX[base + i] ? x - upperX[base + i] : x < lowerX[base + i] ? lowerX[base + i] - x : 0;
+            float dy = y > upperY[base + i] ? y - upperY[base + i] : y < lowerY[base + i] ? lowerY[base + i] - y : 0;
+            bound += dx * dx + dy * dy;
+            if (bound >= best) {
+                return bound;
+            }
+        }
+        return bound;
+    }
+
+    // Banded DTW between the query path and template, or infinity once it cannot beat `best`.
+    private float dtw(int query, int base, float best) {
+        float[] previous = previousRow;
+        float[] current = currentRow;
+        for (int j = 0; j < window; j++) {
+            previous[j] = INFINITY;
+        }
+        for (int i = 0; i < window; i++) {
+            int from = Math.max(0, i - band);
+            int to = Math.min(window - 1, i + band);
+            // Cells just outside the band hold stale values from earlier rows.
+            if (from > 0) {
+                current[from - 1] = INFINITY;
+            }
+            if (i > 0 && to > Math.min(window - 1, i - 1 + band)) {
+                previous[to] = INFINITY;
+            }
+            float x = queryX[query + i];
+            float y = queryY[query + i];
+            float rowMin = INFINITY;
+            for (int j = from; j <= to; j++) {
+                float cost = squaredDistance(x, y, templateX[base + j], templateY[base + j]);
+                float before;
+                if (i == 0 && j == 0) {
+                    before = 0;
+                } else {
+                    before = previous[j];
+                    if (j > 0) {
+                        before = Math.min(before, Math.min(previous[j - 1], current[j - 1]));
+                    }
+                }
+                float total = cost + before;
+                current[j] = total;
+                if (total < rowMin) {
+                    rowMin = total;
+                }
+            }
+            if (rowMin >= best) {
+                return INFINITY;
+            }
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[window - 1];
+    }
+
+    private static float squaredDistance(float ax, float ay, float bx, float by) {
+        float dx = ax - bx;
+        float dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    // Wrist to middle finger MCP, the hand's own length unit.
+    private static float palmSize(float[] landmarks, int offset) {
+        float dx = landmarks[HandLandmark.x(offset, HandLandmark.MIDDLE_FINGER_MCP)]
+                - landmarks[HandLandmark.x(offset, HandLandmark.WRIST)];
+        float dy = landmarks[HandLandmark.y(offset, HandLandmark.MIDDLE_FINGER_MCP)]
+                - landmarks[HandLandmark.y(offset, HandLandmark.WRIST)];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /** Movement the track in {@code slot} completed in the last frame, or null. */
+    public TrajectoryTemplate recognized(int slot) {
+        return recognized[slot];
+    }
+
+    /** Templates discarded by a lower bound in the last frame, over all tracks. */
+    public int lastLowerBoundPruned() {
+        return lastLowerBoundPruned;
+    }
+
+    /** Templates compared by DTW in the last frame, over all tracks. */
+    public int lastDtwCount() {
+        return lastDtwCount;
+    }
+
+    @Override
+    public void onTrackRemoved(int slot) {
+        head[slot] = 0;
+        size[slot] = 0;
+        recognized[slot] = null;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A movement a {@link TrajectoryRecognizer} looks for: the path of one point of the hand, as
+ * evenly timed image positions. Only the shape counts; the path is resampled to the recognizer's
+ * window and normalized for position and size, so a template may use any units and length.
+ * Several templates may share a name, e.g. a circle started at different angles.
+ */
+public final class TrajectoryTemplate {
+    /** Point of the hand whose path is matched. */
+    public enum Point {
+        WRIST(HandLandmark.WRIST),
+        INDEX_FINGER_TIP(HandLandmark.INDEX_FINGER_TIP);
+
+        private final int landmark;
+
+        Point(int landmark) {
+            this.landmark = landmark;
+        }
+
+        public int landmark() {
+            return landmark;
+        }
+    }
+
+    private static final int DEFAULT_POINTS = 32;
+
+    private final String name;
+    private final String label;
+    private final Point point;
+    private final float[] path;
+
+    /**
+     * @param path x and y of every sample, interleaved, oldest first; at least two samples
+     */
+    public TrajectoryTemplate(String name, String label, Point point, float[] path) {
+        if (path.length < 4 || path.length % 2 != 0) {
+            throw new IllegalArgumentException("a path needs at least two x, y samples");
+        }
+        this.name = name;
+        this.label = label;
+        this.point = point;
+        this.path = path.clone();
+    }
+
+    /**
+     * Swipes of the whole hand in the four directions (image y grows downwards), circles drawn
+     * with the first finger in either direction from four starting angles, and a wave of the
+     * first finger starting to either side.
+     */
+    public static List<TrajectoryTemplate> defaults() {
+        List<TrajectoryTemplate> templates = new ArrayList<>();
+        templates.add(line("SWIPE_LEFT", "Swipe left", -1, 0));
+        templates.add(line("SWIPE_RIGHT", "Swipe right", 1, 0));
+        templates.add(line("SWIPE_UP", "Swipe up", 0, -1));
+        templates.add(line("SWIPE_DOWN", "Swipe down", 0, 1));
+        for (int quarter = 0; quarter < 4; quarter++) {
+            double start = quarter * Math.PI / 2;
+            templates.add(circle("CIRCLE_CLOCKWISE", "Circle clockwise", start, 1));
+            templates.add(circle("CIRCLE_COUNTERCLOCKWISE", "Circle counterclockwise", start, -1));
+        }
+        templates.add(wave(1));
+        templates.add(wave(-1));
+        return Collections.unmodifiableList(templates);
+    }
+
+    private static TrajectoryTemplate line(String name, String label, float dx, float dy) {
+        float[] path = new float[2 * DEFAULT_POINTS];
+        for (int i = 0; i < DEFAULT_POINTS; i++) {
+            float t = i / (DEFAULT_POINTS - 1f);
+            path[2 * i] = dx * t;
+            path[2 * i + 1] = dy * t;
+        }
+        return new TrajectoryTemplate(name, label, Point.WRIST, path);
+    }
+
+    // One turn; with y growing downwards a growing angle turns clockwise on screen.
+    private static TrajectoryTemplate circle(String name, String label, double start, int direction) {
+        float[] path = new float[2 * DEFAULT_POINTS];
+        for (int i = 0; i < DEFAULT_POINTS; i++) {
+            double angle = start + direction * 2 * Math.PI * i / (DEFAULT_POINTS - 1);
+            path[2 * i] = (float) Math.cos(angle);
+            path[2 * i + 1] = (float) Math.sin(angle);
+        }
+        return new TrajectoryTemplate(name, label, Point.INDEX_FINGER_TIP, path);
+    }
+
+    // Two swings side to side.
+    private static TrajectoryTemplate wave(int direction) {
+        float[] path = new float[2 * DEFAULT_POINTS];
+        for (int i = 0; i < DEFAULT_POINTS; i++) {
+            path[2 * i] = (float) (direction * Math.sin(4 * Math.PI * i / (DEFAULT_POINTS - 1)));
+        }
+        return new TrajectoryTemplate("WAVE", "Wave", Point.INDEX_FINGER_TIP, path);
+    }
+
+    /** Name of the movement in code. */
+    public String name() {
+        return name;
+    }
+
+    /** Text shown to the user for this movement. */
+    public String label() {
+        return label;
+    }
+
+    public Point point() {
+        return point;
+    }
+
+    /** Number of samples of the path. */
+    public int length() {
+        return path.length / 2;
+    }
+
+    /** Position of the path at {@code t}, from 0 (first sample) to 1 (last), interpolated. */
+    float x(float t) {
+        return sample(t, 0);
+    }
+
+    float y(float t) {
+        return sample(t, 1);
+    }
+
+    private float sample(float t, int axis) {
+        float position = t * (length() - 1);
+        int i = Math.min((int) position, length() - 2);
+        float fraction = position - i;
+        return path[2 * i + axis] * (1 - fraction) + path[2 * i + 2 + axis] * fraction;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import java.lang.management.ManagementFactory;
+
+/** Measures the bytes the current thread allocates while running a piece of code. */
+public final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /** Runs {@code body} to warm it up, then returns the bytes allocated by a second run. */
+    public static long measure(Runnable body) {
+        body.run();
+        long threadId = Thread.currentThread().getId();
+        long baselineStart = THREADS.getThreadAllocatedBytes(threadId);
+        long baselineEnd = THREADS.getThreadAllocatedBytes(threadId);
+        long start = THREADS.getThreadAllocatedBytes(threadId);
+        body.run();
+        long end = THREADS.getThreadAllocatedBytes(threadId);
+        return Math.max(0, (end - start) - (baselineEnd - baselineStart));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GestureEngineTest {
+    private final GestureEngine engine = new GestureEngine();
+
+    @Test
+    public void classify_staticGestures() {
+        assertEquals(Gesture.FIVE, classify(HandPoses.pose(true, true, true, true, true)));
+        assertEquals(Gesture.FOUR, classify(HandPoses.pose(false, true, true, true, true)));
+        assertEquals(Gesture.TREE, classify(HandPoses.pose(true, true, true, false, false)));
+        assertEquals(Gesture.TWO, classify(HandPoses.pose(true, true, false, false, false)));
+        assertEquals(Gesture.ONE, classify(HandPoses.pose(false, true, false, false, false)));
+        assertEquals(Gesture.YEAH, classify(HandPoses.pose(false, true, true, false, false)));
+        assertEquals(Gesture.ROCK, classify(HandPoses.pose(false, true, false, false, true)));
+        assertEquals(Gesture.SPIDER_MAN, classify(HandPoses.pose(true, true, false, false, true)));
+        assertEquals(Gesture.FIST, classify(HandPoses.pose(false, false, false, false, false)));
+        assertEquals(Gesture.OK, classify(HandPoses.ok()));
+        assertEquals(Gesture.UNKNOWN, classify(HandPoses.pose(false, false, true, true, true)));
+    }
+
+    @Test
+    public void fingerMask_mirroredThumb() {
+        float[] landmarks = HandPoses.pose(true, false, false, false, false);
+        for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+            int x = HandLandmark.x(0, landmark);
+            landmarks[x] = 1f - landmarks[x];
+        }
+        assertEquals(GestureEngine.THUMB, engine.fingerMask(landmarks, 0));
+    }
+
+    @Test
+    public void classifyFirst_usesFirstHandOfFlatBuffer() {
+        float[] buffer = new float[2 * HandLandmark.FLOATS_PER_HAND];
+        HandPoses.write(buffer, 0, false, true, false, false, false);
+        HandPoses.write(buffer, HandLandmark.handOffset(1), true, true, true, true, true);
+
+        assertEquals(Gesture.ONE, engine.classifyFirst(buffer, 2));
+        assertEquals(Gesture.FIVE, engine.classify(buffer, HandLandmark.handOffset(1)));
+        assertEquals(Gesture.NO_HAND, engine.classifyFirst(buffer, 0));
+    }
+
+    @Test
+    public void classify_doesNotAllocate() {
+        float[] buffer = new float[2 * HandLandmark.FLOATS_PER_HAND];
+        HandPoses.write(buffer, 0, true, true, true, true, true);
+        HandPoses.write(buffer, HandLandmark.handOffset(1), false, true, false, false, true);
+        int iterations = 100_000;
+        int[] sink = new int[1];
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                sink[0] += engine.classify(buffer, HandLandmark.handOffset(i & 1)).id();
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private Gesture classify(float[] landmarks) {
+        return engine.classify(landmarks, 0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GestureRulesTest {
+    private static final File ASSET = new File("../app/src/main/assets/gestures.txt");
+
+    private final GestureEngine engine = new GestureEngine();
+
+    @Test
+    public void defaultsMatchTheOriginalChainForEveryMask() {
+        GestureRules rules = GestureRules.defaults();
+        float[] okHand = HandPoses.ok();
+        float[] apartHand = HandPoses.pose(false, false, true, true, true);
+        for (int mask = 0; mask < GestureRules.MASK_COUNT; mask++) {
+            assertSame("mask " + mask, legacyClassify(mask, true), rules.classify(okHand, 0, mask));
+            assertSame("mask " + mask, legacyClassify(mask, false), rules.classify(apartHand, 0, mask));
+        }
+    }
+
+    @Test
+    public void assetCompilesToTheDefaults() throws IOException {
+        GestureRules asset;
+        try (Reader reader = new InputStreamReader(new FileInputStream(ASSET), StandardCharsets.UTF_8)) {
+            asset = GestureRules.parse(reader);
+        }
+        GestureRules defaults = GestureRules.defaults();
+        float[] okHand = HandPoses.ok();
+        float[] apartHand = HandPoses.pose(false, false, true, true, true);
+        for (int mask = 0; mask < GestureRules.MASK_COUNT; mask++) {
+            assertSame(defaults.classify(okHand, 0, mask), asset.classify(okHand, 0, mask));
+            assertSame(defaults.classify(apartHand, 0, mask), asset.classify(apartHand, 0, mask));
+            assertEquals(defaults.isDirect(mask), asset.isDirect(mask));
+        }
+        assertTrue(asset.definedGestures().isEmpty());
+    }
+
+    @Test
+    public void onlyMasksWithConditionalRulesEvaluateConditions() {
+        GestureRules rules = GestureRules.defaults();
+        int okFingers = GestureEngine.SECOND_FINGER | GestureEngine.THIRD_FINGER | GestureEngine.FOURTH_FINGER;
+        for (int mask = 0; mask < GestureRules.MASK_COUNT; mask++) {
+            boolean ok = (mask & ~GestureEngine.THUMB) == okFingers;
+            assertEquals("mask " + mask, !ok, rules.isDirect(mask));
+        }
+    }
+
+    @Test
+    public void newGesturesWithLabelsAndConditions() throws IOException {
+        GestureRules rules = GestureRules.parse(new StringReader(""
+                + "# thumbs up first, so it shadows nothing below\n"
+                + "THUMBS_UP | 10000 |  | Thumbs up\n"
+                + "\n"
+                + "PINCH | -1--- | distance(thumb_tip, index_finger_tip) < 0.05"
+                + " and distance(wrist, index_finger_tip) > 0.2 |\n"
+                + "FIVE  | 11111\n"));
+        GestureEngine engine = new GestureEngine(rules);
+
+        Gesture thumbsUp = classify(engine, HandPoses.pose(true, false, false, false, false));
+        assertEquals("THUMBS_UP", thumbsUp.name());
+        assertEquals("Thumbs up", thumbsUp.label());
+        assertEquals(Gesture.builtInCount(), thumbsUp.id());
+
+        float[] pinch = HandPoses.pose(true, true, false, false, false);
+        HandPoses.set(pinch, 0, HandLandmark.THUMB_TIP, 0.47f, 0.42f);
+        HandPoses.set(pinch, 0, HandLandmark.THUMB_IP, 0.35f, 0.65f);
+        Gesture pinchGesture = classify(engine, pinch);
+        assertEquals("PINCH", pinchGesture.name());
+        assertEquals("PINCH", pinchGesture.label());
+        assertEquals(2, rules.definedGestures().size());
+
+        assertSame(Gesture.FIVE, classify(engine, HandPoses.pose(true, true, true, true, true)));
+        assertSame(Gesture.UNKNOWN, classify(engine, HandPoses.pose(false, false, false, false, false)));
+    }
+
+    @Test
+    public void malformedLinesNameTheLine() throws IOException {
+        assertRejected("FIVE | 1111\n", "line 1: fingers '1111'");
+        assertRejected("# comment\nFIVE | 11111\nOK | -0111 | distance(thumb, index_finger_tip) < 0.1\n",
+                "line 3: unknown landmark 'thumb'");
+        assertRejected("OK | -0111 | thumb_tip < 0.1\n", "line 1: bad condition");
+        assertRejected("FIVE | 11111 | | High five\n", "line 1: label of built-in gesture FIVE is fixed");
+        assertRejected("five | 11111\n", "line 1: bad gesture name");
+        assertRejected("FIVE | 11x11\n", "line 1: bad finger state 'x'");
+    }
+
+    @Test
+    public void classify_doesNotAllocateOnConditionalMasks() {
+        float[] okHand = HandPoses.ok();
+        int mask = engine.fingerMask(okHand, 0);
+        assertFalse(GestureRules.defaults().isDirect(mask));
+        int iterations = 100_000;
+        int[] sink = new int[1];
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                sink[0] += engine.classify(okHand, 0).id();
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private static Gesture classify(GestureEngine engine, float[] landmarks) {
+        return engine.classify(landmarks, 0);
+    }
+
+    private static void assertRejected(String rules, String message) throws IOException {
+        try {
+            GestureRules.parse(new StringReader(rules));
+            fail("accepted " + rules);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    // The if/else chain GestureEngine used before the rules table.
+    private static Gesture legacyClassify(int mask, boolean thumbIsNearFirstFinger) {
+        boolean thumbIsOpen = (mask & GestureEngine.THUMB) != 0;
+        boolean firstFingerIsOpen = (mask & GestureEngine.FIRST_FINGER) != 0;
+        boolean secondFingerIsOpen = (mask & GestureEngine.SECOND_FINGER) != 0;
+        boolean thirdFingerIsOpen = (mask & GestureEngine.THIRD_FINGER) != 0;
+        boolean fourthFingerIsOpen = (mask & GestureEngine.FOURTH_FINGER) != 0;
+
+        if (thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen) {
+            return Gesture.FIVE;
+        } else if (!thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen) {
+            return Gesture.FOUR;
+        } else if (thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
+            return Gesture.TREE;
+        } else if (thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
+            return Gesture.TWO;
+        } else if (!thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
+            return Gesture.ONE;
+        } else if (!thumbIsOpen && firstFingerIsOpen && secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
+            return Gesture.YEAH;
+        } else if (!thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && fourthFingerIsOpen) {
+            return Gesture.ROCK;
+        } else if (thumbIsOpen && firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && fourthFingerIsOpen) {
+            return Gesture.SPIDER_MAN;
+        } else if (!thumbIsOpen && !firstFingerIsOpen && !secondFingerIsOpen && !thirdFingerIsOpen && !fourthFingerIsOpen) {
+            return Gesture.FIST;
+        } else if (!firstFingerIsOpen && secondFingerIsOpen && thirdFingerIsOpen && fourthFingerIsOpen
+                && thumbIsNearFirstFinger) {
+            return Gesture.OK;
+        }
+        return Gesture.UNKNOWN;
+    }
+}
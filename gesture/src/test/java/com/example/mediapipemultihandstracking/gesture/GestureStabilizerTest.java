@@ -0,0 +1,146 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GestureStabilizerTest {
+    // 30 fps, in microseconds like MediaPipe timestamps.
+    private static final long FRAME = 33_333;
+
+    private final GestureStabilizer stabilizer = new GestureStabilizer(2);
+    private long now;
+
+    @Test
+    public void emitsAGestureOnceItHeldForHoldFrames() {
+        assertSame(Gesture.UNKNOWN, next(0, Gesture.FIVE));
+        assertSame(Gesture.UNKNOWN, next(0, Gesture.FIVE));
+        assertSame(Gesture.FIVE, next(0, Gesture.FIVE));
+        assertEquals(1f, stabilizer.confidence(0), 0f);
+    }
+
+    @Test
+    public void emitsAGestureOnceItHeldForHoldTime() {
+        GestureStabilizer slow = new GestureStabilizer(1, 100, 100, 150, 0.5f, 0.1f);
+        long frame = 40_000;
+        assertSame(Gesture.UNKNOWN, slow.update(0, Gesture.OK, 0));
+        assertSame(Gesture.UNKNOWN, slow.update(0, Gesture.OK, frame));
+        assertSame(Gesture.UNKNOWN, slow.update(0, Gesture.OK, 2 * frame));
+        assertSame(Gesture.OK, slow.update(0, Gesture.OK, 3 * frame));
+    }
+
+    @Test
+    public void jitterDoesNotChangeTheStableGesture() {
+        hold(0, Gesture.FIVE, 10);
+        Gesture[] jitter = {Gesture.FOUR, Gesture.FIVE, Gesture.UNKNOWN, Gesture.FIVE, Gesture.FOUR,
+                Gesture.FOUR, Gesture.FIVE, Gesture.UNKNOWN, Gesture.FIVE};
+        for (int i = 0; i < 10 * jitter.length; i++) {
+            assertSame(Gesture.FIVE, next(0, jitter[i % jitter.length]));
+        }
+    }
+
+    @Test
+    public void exitHysteresisDelaysAChangeUntilConfidenceDecayed() {
+        hold(0, Gesture.FIVE, 10);
+        // FOUR holds after 3 frames, but FIVE only lets go once its confidence fell below 1/2,
+        // i.e. after one 150 ms half-life of disagreeing frames.
+        int frames = 0;
+        while (next(0, Gesture.FOUR) == Gesture.FIVE) {
+            frames++;
+        }
+        assertSame(Gesture.FOUR, stabilizer.gesture(0));
+        assertEquals(4, frames);
+        assertTrue(frames * FRAME <= 150_000);
+    }
+
+    @Test
+    public void confidenceDecaysToUnknownWithoutAConsistentGesture() {
+        hold(0, Gesture.FIVE, 10);
+        Gesture[] noise = {Gesture.FOUR, Gesture.UNKNOWN, Gesture.ONE};
+        int frames = 0;
+        while (next(0, noise[frames % noise.length]) == Gesture.FIVE) {
+            frames++;
+        }
+        assertSame(Gesture.UNKNOWN, stabilizer.gesture(0));
+        // 0.5^(t / 150 ms) < 0.1 after about 500 ms.
+        assertEquals(500_000, frames * FRAME, 2 * FRAME);
+
+        // Nothing to let go of any more: the next gesture only has to hold.
+        hold(0, Gesture.ONE, 3);
+        assertSame(Gesture.ONE, stabilizer.gesture(0));
+    }
+
+    @Test
+    public void tracksAreIndependentAndResetWhenRemoved() {
+        hold(0, Gesture.FIVE, 5);
+        hold(1, Gesture.FIST, 5);
+        assertSame(Gesture.FIVE, stabilizer.gesture(0));
+        assertSame(Gesture.FIST, stabilizer.gesture(1));
+
+        stabilizer.onTrackRemoved(0);
+
+        assertSame(Gesture.UNKNOWN, stabilizer.gesture(0));
+        assertSame(Gesture.UNKNOWN, next(0, Gesture.FIVE));
+        assertSame(Gesture.FIST, stabilizer.gesture(1));
+    }
+
+    @Test
+    public void pipelineShowsTheStableGestureOfTrackedHands() {
+        GesturePipeline pipeline = new GesturePipeline(1);
+        HandFrame frame = new HandFrame(1);
+        HandPoses.write(frame.landmarks(), 0, true, true, true, true, true);
+        frame.setHandCount(1);
+        setRect(frame);
+        for (int i = 0; i < 5; i++) {
+            frame.setTimestamp(i * FRAME);
+            pipeline.process(frame);
+        }
+        assertSame(Gesture.FIVE, pipeline.gesture());
+        String label = pipeline.gestureLabel();
+
+        // The thumb briefly looks closed: FOUR for one frame.
+        HandPoses.write(frame.landmarks(), 0, false, true, true, true, true);
+        frame.setTimestamp(5 * FRAME);
+        pipeline.process(frame);
+
+        assertSame(Gesture.FOUR, pipeline.handGestures().gesture(0));
+        assertSame(Gesture.FIVE, pipeline.gesture());
+        assertSame(label, pipeline.gestureLabel());
+    }
+
+    @Test
+    public void update_doesNotAllocate() {
+        Gesture[] inputs = {Gesture.FIVE, Gesture.FOUR, Gesture.UNKNOWN, Gesture.FIVE, Gesture.FIST};
+        int iterations = 100_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                next(i & 1, inputs[i % inputs.length]);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private void hold(int slot, Gesture gesture, int frames) {
+        for (int i = 0; i < frames; i++) {
+            next(slot, gesture);
+        }
+    }
+
+    private Gesture next(int slot, Gesture gesture) {
+        now += FRAME;
+        return stabilizer.update(slot, gesture, now);
+    }
+
+    private static void setRect(HandFrame frame) {
+        float[] rects = frame.rects();
+        rects[HandRect.X_CENTER] = 0.5f;
+        rects[HandRect.Y_CENTER] = 0.5f;
+        rects[HandRect.HEIGHT] = 0.4f;
+        rects[HandRect.WIDTH] = 0.4f;
+        frame.setRectCount(1);
+    }
+}
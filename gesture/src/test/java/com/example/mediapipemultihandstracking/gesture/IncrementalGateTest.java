@@ -0,0 +1,243 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecorder;
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecording;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalGateTest {
+    private static final int MAX_HANDS = 2;
+    private static final long FRAME_MICROS = 33_333;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final HandTracker tracker = new HandTracker(4);
+    private final IncrementalGate gate = new IncrementalGate(4);
+    private final MultiHandClassifier classifier = new MultiHandClassifier();
+    private final HandGestures gestures = new HandGestures(MAX_HANDS);
+    private final HandFrame frame = new HandFrame(MAX_HANDS);
+    private long timestamp;
+
+    public IncrementalGateTest() {
+        tracker.setListener(gate);
+    }
+
+    @Test
+    public void aStillHandReusesItsResult() {
+        step(HandPoses.pose(true, true, true, true, true), 0f, 0f);
+        step(HandPoses.pose(true, true, true, true, true), 0.002f, 0f);
+
+        assertEquals(1, gate.missCount());
+        assertEquals(1, gate.hitCount());
+        assertSame(Gesture.FIVE, gestures.gesture(0));
+        assertEquals(GestureEngine.THUMB | GestureEngine.FIRST_FINGER | GestureEngine.SECOND_FINGER
+                | GestureEngine.THIRD_FINGER | GestureEngine.FOURTH_FINGER, gestures.fingerMask(0));
+    }
+
+    @Test
+    public void aFingerMovingIsClassifiedAgain() {
+        step(HandPoses.pose(true, true, true, true, true), 0f, 0f);
+        step(HandPoses.pose(false, true, false, false, false), 0f, 0f);
+
+        assertEquals(2, gate.missCount());
+        assertSame(Gesture.ONE, gestures.gesture(0));
+    }
+
+    @Test
+    public void slowDriftAddsUpUntilTheHandIsClassifiedAgain() {
+        float[] hand = HandPoses.pose(true, true, true, true, true);
+        step(hand, 0f, 0f);
+        // A step of the grid is 2% of the 0.4 rect height; each frame drifts a tenth of it.
+        for (int i = 1; i <= 30 && gate.missCount() == 1; i++) {
+            step(hand, 0.0008f * i, 0f);
+        }
+
+        assertEquals(2, gate.missCount());
+        // At least a whole step, at most two.
+        assertTrue(gate.hitCount() >= 9 && gate.hitCount() < 20);
+    }
+
+    @Test
+    public void aRectMovingIsClassifiedAgain() {
+        float[] hand = HandPoses.pose(true, true, true, true, true);
+        step(hand, 0f, 0f);
+        frame.rects()[HandRect.HEIGHT] = 0.45f;
+        tracker.update(frame);
+        classifier.classify(frame, gestures, tracker, gate);
+
+        assertEquals(2, gate.missCount());
+    }
+
+    @Test
+    public void resultsAreReusedForAtMostMaxReuseFrames() {
+        float[] hand = HandPoses.pose(true, true, true, true, true);
+        for (int i = 0; i < 32; i++) {
+            step(hand, 0f, 0f);
+        }
+
+        assertEquals(2, gate.missCount());
+        assertEquals(30, gate.hitCount());
+    }
+
+    @Test
+    public void handsWithoutATrackAreAlwaysClassified() {
+        System.arraycopy(HandPoses.pose(true, true, true, true, true), 0, frame.landmarks(), 0,
+                HandLandmark.FLOATS_PER_HAND);
+        frame.setHandCount(1);
+        frame.setRectCount(0);
+        for (int i = 0; i < 3; i++) {
+            tracker.update(frame);
+            classifier.classify(frame, gestures, tracker, gate);
+        }
+
+        assertEquals(0, gate.hitCount() + gate.missCount());
+        assertSame(Gesture.FIVE, gestures.gesture(0));
+    }
+
+    @Test
+    public void replayGivesTheSameGesturesAsTheFullPath() throws IOException {
+        File file = folder.newFile();
+        try (HandFrameRecorder recorder = new HandFrameRecorder(file, MAX_HANDS, 64, 64)) {
+            for (HandFrame recorded : noisyPoseSequence(1800)) {
+                assertTrue(recorder.record(recorded));
+            }
+        }
+        GesturePipeline full = new GesturePipeline(MAX_HANDS);
+        GesturePipeline incremental = new GesturePipeline(MAX_HANDS);
+        incremental.setIncremental(true);
+        List<String> fullLabels = replay(file, full);
+        List<String> incrementalLabels = replay(file, incremental);
+
+        int differing = 0;
+        for (int i = 0; i < fullLabels.size(); i++) {
+            if (!fullLabels.get(i).equals(incrementalLabels.get(i))) {
+                differing++;
+            }
+        }
+        IncrementalGate used = incremental.incrementalGate();
+
+        assertEquals(collapse(fullLabels), collapse(incrementalLabels));
+        assertTrue("differing " + differing, differing <= fullLabels.size() / 100);
+        assertTrue("hit rate " + used.hitRate(), used.hitRate() > 0.5);
+        assertEquals(0, full.incrementalGate().hitCount() + full.incrementalGate().missCount());
+    }
+
+    @Test
+    public void classify_doesNotAllocate() {
+        float[] hand = HandPoses.pose(true, true, true, true, true);
+        int iterations = 10_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                step(hand, (i & 1) * 0.03f, 0f);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    // Puts one hand with the given landmarks, moved by (dx, dy), and its rect into the frame and
+    // classifies it.
+    private void step(float[] hand, float dx, float dy) {
+        float[] landmarks = frame.landmarks();
+        System.arraycopy(hand, 0, landmarks, 0, HandLandmark.FLOATS_PER_HAND);
+        HandPoses.translate(landmarks, 0, dx, dy);
+        setRect(frame.rects(), 0, 0.5f + dx, 0.6f + dy);
+        frame.setHandCount(1);
+        frame.setRectCount(1);
+        frame.setTimestamp(timestamp += FRAME_MICROS);
+        tracker.update(frame);
+        classifier.classify(frame, gestures, tracker, gate);
+    }
+
+    private static void setRect(float[] rects, int rect, float x, float y) {
+        int offset = HandRect.rectOffset(rect);
+        rects[offset + HandRect.X_CENTER] = x;
+        rects[offset + HandRect.Y_CENTER] = y;
+        rects[offset + HandRect.WIDTH] = 0.4f;
+        rects[offset + HandRect.HEIGHT] = 0.4f;
+    }
+
+    private static List<String> replay(File file, GesturePipeline pipeline) throws IOException {
+        List<String> labels = new ArrayList<>();
+        try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+            recording.replay(frame -> {
+                pipeline.process(frame);
+                labels.add(pipeline.gestureLabel());
+            });
+        }
+        return labels;
+    }
+
+    private static List<String> collapse(List<String> labels) {
+        List<String> collapsed = new ArrayList<>();
+        for (String label : labels) {
+            if (collapsed.isEmpty() || !collapsed.get(collapsed.size() - 1).equals(label)) {
+                collapsed.add(label);
+            }
+        }
+        return collapsed;
+    }
+
+    // Two hands, each holding a pose for one to two seconds, then changing to the next over six
+    // frames, while swaying slowly, with MediaPipe-like jitter on every coordinate.
+    private static List<HandFrame> noisyPoseSequence(int frames) {
+        float[][] poses = {
+                HandPoses.pose(true, true, true, true, true),
+                HandPoses.pose(false, false, false, false, false),
+                HandPoses.pose(false, true, false, false, false),
+                HandPoses.pose(false, true, true, false, false),
+                HandPoses.pose(false, true, true, true, true),
+        };
+        Random random = new Random(17);
+        List<HandFrame> result = new ArrayList<>();
+        int[] pose = {0, 2};
+        int[] previousPose = {0, 2};
+        int[] holdUntil = {45, 60};
+        int[] changedAt = {-100, -100};
+        for (int i = 0; i < frames; i++) {
+            HandFrame frame = new HandFrame(MAX_HANDS);
+            frame.setTimestamp(i * FRAME_MICROS);
+            for (int hand = 0; hand < MAX_HANDS; hand++) {
+                if (i == holdUntil[hand]) {
+                    previousPose[hand] = pose[hand];
+                    pose[hand] = (pose[hand] + 1 + random.nextInt(poses.length - 1)) % poses.length;
+                    changedAt[hand] = i;
+                    holdUntil[hand] = i + 30 + random.nextInt(30);
+                }
+                float blend = Math.min(1f, (i - changedAt[hand]) / 6f);
+                int offset = HandLandmark.handOffset(hand);
+                float dx = (hand == 0 ? -0.25f : 0.25f) + 0.03f * (float) Math.sin(i / 40.0 + hand);
+                float dy = 0.02f * (float) Math.cos(i / 55.0);
+                for (int f = 0; f < HandLandmark.FLOATS_PER_HAND; f++) {
+                    float from = poses[previousPose[hand]][f];
+                    float to = poses[pose[hand]][f];
+                    frame.landmarks()[offset + f] = from + blend * (to - from)
+                            + 0.004f * (float) random.nextGaussian();
+                }
+                HandPoses.translate(frame.landmarks(), offset, dx, dy);
+                setRect(frame.rects(), hand, 0.5f + dx + 0.002f * (float) random.nextGaussian(),
+                        0.6f + dy + 0.002f * (float) random.nextGaussian());
+                frame.handedness()[hand] = hand == 0 ? 0.1f : 0.9f;
+            }
+            frame.setHandCount(MAX_HANDS);
+            frame.setRectCount(MAX_HANDS);
+            result.add(frame);
+        }
+        return result;
+    }
+}
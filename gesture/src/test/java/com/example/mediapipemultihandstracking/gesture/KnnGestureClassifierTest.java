@@ -0,0 +1,230 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class KnnGestureClassifierTest {
+    private final Random random = new Random(11);
+
+    @Test
+    public void recognizesNoisyExamplesOfEachGesture() {
+        KnnGestureClassifier model = train(new KnnGestureClassifier.Builder());
+
+        for (int i = 0; i < 50; i++) {
+            assertSame(Gesture.FIVE, classify(model, jitter(HandPoses.pose(true, true, true, true, true))));
+            assertSame(Gesture.FIST, classify(model, jitter(HandPoses.pose(false, false, false, false, false))));
+            assertSame(Gesture.YEAH, classify(model, jitter(HandPoses.pose(false, true, true, false, false))));
+            assertEquals("THUMB_UP", classify(model, jitter(HandPoses.pose(true, false, false, false, false))).name());
+        }
+    }
+
+    @Test
+    public void ignoresWhereTheHandIsAndHowBig() {
+        KnnGestureClassifier model = train(new KnnGestureClassifier.Builder());
+        float[] hand = HandPoses.pose(false, true, true, false, false);
+        for (int i = 0; i < hand.length; i++) {
+            hand[i] *= 0.5f;
+        }
+        HandPoses.translate(hand, 0, 0.3f, -0.1f);
+
+        assertSame(Gesture.YEAH, classify(model, hand));
+    }
+
+    @Test
+    public void customGesturesGetTheirLabelAndTheNextFreeId() {
+        KnnGestureClassifier model = train(new KnnGestureClassifier.Builder());
+
+        Gesture thumbUp = model.gestures().get(3);
+        assertEquals("THUMB_UP", thumbUp.name());
+        assertEquals("Thumbs up", thumbUp.label());
+        assertEquals(Gesture.builtInCount(), thumbUp.id());
+        assertSame(Gesture.FIVE, model.gestures().get(0));
+    }
+
+    @Test
+    public void roundTripsThroughTheModelFile() throws IOException {
+        KnnGestureClassifier model = train(new KnnGestureClassifier.Builder().setK(3).setRejectDeviations(4));
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        model.write(file);
+
+        KnnGestureClassifier read = KnnGestureClassifier.read(new ByteArrayInputStream(file.toByteArray()));
+
+        assertEquals(model.k(), read.k());
+        assertEquals(model.sampleCount(), read.sampleCount());
+        assertEquals(model.dimensions(), read.dimensions());
+        assertEquals(model.gestures().get(3).label(), read.gestures().get(3).label());
+        for (int i = 0; i < 100; i++) {
+            float[] hand = jitter(HandPoses.pose(random.nextBoolean(), random.nextBoolean(),
+                    random.nextBoolean(), random.nextBoolean(), random.nextBoolean()));
+            assertEquals(classify(model, hand).name(), classify(read, hand).name());
+        }
+    }
+
+    @Test
+    public void rejectsHandsUnlikeAnyExample() {
+        float[] strange = HandPoses.pose(true, false, true, false, true);
+
+        assertNotSame(Gesture.UNKNOWN, classify(train(new KnnGestureClassifier.Builder()), strange));
+        assertSame(Gesture.UNKNOWN,
+                classify(train(new KnnGestureClassifier.Builder().setRejectDeviations(2)), strange));
+    }
+
+    @Test
+    public void majorityWinsAndTiesGoToTheNearerClass() {
+        float[] four = HandPoses.pose(false, true, true, true, true);
+        float[] nearFive = HandPoses.pose(true, true, true, true, true);
+        HandPoses.set(nearFive, 0, HandLandmark.THUMB_TIP, 0.33f, 0.62f);
+
+        assertSame(Gesture.FIVE, classify(twoFoursAndAFive(1), nearFive));
+        assertSame(Gesture.FIVE, classify(twoFoursAndAFive(2), nearFive));
+        assertSame(Gesture.FOUR, classify(twoFoursAndAFive(3), nearFive));
+        assertSame(Gesture.FOUR, classify(twoFoursAndAFive(1), four));
+    }
+
+    private static KnnGestureClassifier twoFoursAndAFive(int k) {
+        float[] five = HandPoses.pose(true, true, true, true, true);
+        float[] four = HandPoses.pose(false, true, true, true, true);
+        float[] otherFour = HandPoses.pose(false, true, true, true, true);
+        HandPoses.set(otherFour, 0, HandLandmark.THUMB_TIP, 0.46f, 0.71f);
+        return new KnnGestureClassifier.Builder().setK(k)
+                .add("FIVE", five, 0)
+                .add("FOUR", four, 0)
+                .add("FOUR", otherFour, 0)
+                .build();
+    }
+
+    @Test
+    public void aTieGoesToTheNearestSampleEvenWhenTheOtherClassReachedItFirst() {
+        // Nearest first: FIVE, FOUR, FOUR, FIVE. FOUR is the first to reach two votes.
+        KnnGestureClassifier model = new KnnGestureClassifier.Builder().setK(4)
+                .add("FIVE", thumbMovedBy(0.01f), 0)
+                .add("FOUR", thumbMovedBy(0.02f), 0)
+                .add("FOUR", thumbMovedBy(0.03f), 0)
+                .add("FIVE", thumbMovedBy(0.04f), 0)
+                .build();
+
+        assertSame(Gesture.FIVE, classify(model, thumbMovedBy(0f)));
+    }
+
+    // An open hand whose thumb tip is `dx` further out.
+    private static float[] thumbMovedBy(float dx) {
+        float[] hand = HandPoses.pose(true, true, true, true, true);
+        HandPoses.set(hand, 0, HandLandmark.THUMB_TIP, 0.3f - dx, 0.6f);
+        return hand;
+    }
+
+    @Test
+    public void measuresHandsWithTheFrameAspectRatio() throws IOException {
+        // Examples from square frames and from frames half as high as wide, where a hand's
+        // normalized y spans twice as much.
+        KnnGestureClassifier.Builder builder = new KnnGestureClassifier.Builder().setYScale(0.5f);
+        for (int i = 0; i < 10; i++) {
+            builder.add("FIVE", jitter(HandPoses.pose(true, true, true, true, true)), 0, 1f);
+            builder.add("FIST", stretched(jitter(HandPoses.pose(false, false, false, false, false)), 0.5f), 0);
+        }
+        KnnGestureClassifier model = builder.build();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        model.write(file);
+        KnnGestureClassifier read = KnnGestureClassifier.read(new ByteArrayInputStream(file.toByteArray()));
+
+        assertEquals(0.5f, read.trainedYScale(), 0f);
+        assertEquals(0.5f, read.yScale(), 0f);
+        float[] five = HandPoses.pose(true, true, true, true, true);
+        float[] fist = HandPoses.pose(false, false, false, false, false);
+        assertSame(Gesture.FIVE, classify(read, stretched(five.clone(), 0.5f)));
+        assertSame(Gesture.FIST, classify(read, stretched(fist.clone(), 0.5f)));
+        read.setYScale(1f);
+        assertSame(Gesture.FIVE, classify(read, five));
+        assertSame(Gesture.FIST, classify(read, fist));
+    }
+
+    // The hand as seen in a frame `yScale` times as high as wide.
+    private static float[] stretched(float[] hand, float yScale) {
+        for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+            hand[HandLandmark.y(0, landmark)] /= yScale;
+        }
+        return hand;
+    }
+
+    @Test
+    public void minSpacingThinsNearDuplicates() {
+        KnnGestureClassifier.Builder builder = new KnnGestureClassifier.Builder().setK(1).setMinSpacing(0.5f);
+        for (int i = 0; i < 20; i++) {
+            builder.add("FIVE", HandPoses.pose(true, true, true, true, true), 0);
+            builder.add("FIST", HandPoses.pose(false, false, false, false, false), 0);
+        }
+
+        KnnGestureClassifier model = builder.build();
+
+        assertEquals(2, model.sampleCount());
+        assertSame(Gesture.FIST, classify(model, jitter(HandPoses.pose(false, false, false, false, false))));
+        assertSame(Gesture.FIVE, classify(model, jitter(HandPoses.pose(true, true, true, true, true))));
+    }
+
+    @Test
+    public void plugsIntoTheEngine() {
+        GestureEngine engine = new GestureEngine(train(new KnnGestureClassifier.Builder()));
+
+        assertSame(Gesture.FIST, engine.classify(HandPoses.pose(false, false, false, false, false), 0));
+    }
+
+    @Test
+    public void rejectsMalformedInput() throws IOException {
+        try {
+            new KnnGestureClassifier.Builder().add("thumb up", HandPoses.ok(), 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            KnnGestureClassifier.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+            fail();
+        } catch (IOException expected) {
+            assertEquals("not a gesture model", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void classifyingDoesNotAllocate() {
+        KnnGestureClassifier model = train(new KnnGestureClassifier.Builder());
+        float[] hand = jitter(HandPoses.pose(false, true, true, false, false));
+
+        long bytes = Allocations.measure(() -> {
+            for (int i = 0; i < 1000; i++) {
+                model.classify(hand, 0, 0);
+            }
+        });
+
+        assertEquals(0, bytes);
+    }
+
+    private KnnGestureClassifier train(KnnGestureClassifier.Builder builder) {
+        builder.setLabel("THUMB_UP", "Thumbs up");
+        for (int i = 0; i < 20; i++) {
+            builder.add("FIVE", jitter(HandPoses.pose(true, true, true, true, true)), 0);
+            builder.add("FIST", jitter(HandPoses.pose(false, false, false, false, false)), 0);
+            builder.add("YEAH", jitter(HandPoses.pose(false, true, true, false, false)), 0);
+            builder.add("THUMB_UP", jitter(HandPoses.pose(true, false, false, false, false)), 0);
+        }
+        return builder.build();
+    }
+
+    private static Gesture classify(KnnGestureClassifier model, float[] hand) {
+        return model.classify(hand, 0, 0);
+    }
+
+    private float[] jitter(float[] hand) {
+        for (int i = 0; i < hand.length; i++) {
+            hand[i] += (random.nextFloat() - 0.5f) * 0.006f;
+        }
+        return hand;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MultiHandClassifierTest {
+    private final MultiHandClassifier classifier = new MultiHandClassifier();
+    private final HandGestures gestures = new HandGestures(8);
+    private final HandFrame frame = new HandFrame(8);
+
+    @Test
+    public void classifiesEveryHandWithItsHandedness() {
+        setHand(0, Gesture.FIVE, -0.3f, 0.9f);
+        setHand(1, Gesture.ONE, 0.3f, 0.2f);
+        frame.setHandCount(2);
+
+        classifier.classify(frame, gestures);
+
+        assertEquals(2, gestures.count());
+        assertEquals(Gesture.FIVE, gestures.gesture(0));
+        assertEquals(Handedness.RIGHT, gestures.handedness(0));
+        assertEquals(Gesture.ONE, gestures.gesture(1));
+        assertEquals(Handedness.LEFT, gestures.handedness(1));
+        assertEquals(TwoHandGesture.NONE, gestures.twoHandGesture());
+    }
+
+    @Test
+    public void bothHandsFive() {
+        setHand(0, Gesture.FIVE, -0.3f, Float.NaN);
+        setHand(1, Gesture.FIVE, 0.3f, Float.NaN);
+        frame.setHandCount(2);
+
+        classifier.classify(frame, gestures);
+
+        assertEquals(Handedness.UNKNOWN, gestures.handedness(0));
+        assertEquals(TwoHandGesture.BOTH_FIVE, gestures.twoHandGesture());
+    }
+
+    @Test
+    public void pairsTheLeftAndRightHandAmongSeveral() {
+        setHand(0, Gesture.FIVE, -0.3f, 0.9f);
+        setHand(1, Gesture.FIVE, 0f, 0.8f);
+        setHand(2, Gesture.FIST, 0.3f, 0.1f);
+        frame.setHandCount(3);
+
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.NONE, gestures.twoHandGesture());
+
+        setHand(2, Gesture.FIVE, 0.3f, 0.1f);
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.BOTH_FIVE, gestures.twoHandGesture());
+    }
+
+    @Test
+    public void pinchZoomAcrossHands() {
+        frame.setHandCount(2);
+        setPinches(0.3f);
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.NONE, gestures.twoHandGesture());
+
+        setPinches(0.33f);
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.NONE, gestures.twoHandGesture());
+
+        setPinches(0.4f);
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.PINCH_ZOOM_IN, gestures.twoHandGesture());
+
+        setPinches(0.3f);
+        classifier.classify(frame, gestures);
+        assertEquals(TwoHandGesture.PINCH_ZOOM_OUT, gestures.twoHandGesture());
+    }
+
+    @Test
+    public void classify_eightHandsDoesNotAllocate() {
+        for (int hand = 0; hand < 8; hand++) {
+            setHand(hand, hand % 2 == 0 ? Gesture.FIVE : Gesture.FIST, 0f, hand % 2);
+        }
+        frame.setHandCount(8);
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                classifier.classify(frame, gestures);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < 20_000);
+    }
+
+    @Test
+    public void pipelineLabelIsRebuiltOnlyOnChange() {
+        GesturePipeline pipeline = new GesturePipeline(2);
+        setHand(0, Gesture.FIVE, -0.3f, 0.9f);
+        setHand(1, Gesture.ONE, 0.3f, 0.2f);
+        frame.setHandCount(2);
+        HandFrame twoHands = new HandFrame(2);
+        twoHands.copyFrom(frame);
+
+        pipeline.process(twoHands);
+        String label = pipeline.gestureLabel();
+        pipeline.process(twoHands);
+
+        assertEquals("Right FIVE / Left ONE", label);
+        assertSame(label, pipeline.gestureLabel());
+    }
+
+    @Test
+    public void pipelineTwoHandGestureFollowsTheDebouncedGestures() {
+        GesturePipeline pipeline = new GesturePipeline(2);
+        HandFrame twoHands = new HandFrame(2);
+        setHand(0, Gesture.FIVE, -0.3f, 0.9f);
+        setHand(1, Gesture.FIVE, 0.3f, 0.2f);
+        frame.setHandCount(2);
+        for (int frameIndex = 0; frameIndex < 10; frameIndex++) {
+            processTracked(pipeline, twoHands, frameIndex);
+        }
+        assertEquals(TwoHandGesture.BOTH_FIVE, pipeline.handGestures().twoHandGesture());
+
+        // One frame of a fist is jitter, not the end of BOTH_FIVE.
+        setHand(1, Gesture.FIST, 0.3f, 0.2f);
+        processTracked(pipeline, twoHands, 10);
+
+        assertEquals(Gesture.FIST, pipeline.handGestures().gesture(1));
+        assertEquals(Gesture.FIVE, pipeline.handGestures().stableGesture(1));
+        assertEquals(TwoHandGesture.BOTH_FIVE, pipeline.handGestures().twoHandGesture());
+        assertEquals(TwoHandGesture.BOTH_FIVE.label(), pipeline.gestureLabel());
+    }
+
+    // Processes the hands of `frame` with a rect on each, so the pipeline tracks and debounces them.
+    private void processTracked(GesturePipeline pipeline, HandFrame twoHands, int frameIndex) {
+        twoHands.copyFrom(frame);
+        float[] rects = twoHands.rects();
+        for (int rect = 0; rect < 2; rect++) {
+            int offset = HandRect.rectOffset(rect);
+            rects[offset + HandRect.X_CENTER] = rect == 0 ? 0.2f : 0.8f;
+            rects[offset + HandRect.Y_CENTER] = 0.6f;
+            rects[offset + HandRect.HEIGHT] = 0.3f;
+            rects[offset + HandRect.WIDTH] = 0.3f;
+        }
+        twoHands.setRectCount(2);
+        twoHands.setTimestamp(frameIndex * 33_333L);
+        pipeline.process(twoHands);
+    }
+
+    private void setHand(int hand, Gesture gesture, float dx, float rightHandScore) {
+        int offset = HandLandmark.handOffset(hand);
+        float[] landmarks = frame.landmarks();
+        if (gesture == Gesture.FIVE) {
+            HandPoses.write(landmarks, offset, true, true, true, true, true);
+        } else if (gesture == Gesture.ONE) {
+            HandPoses.write(landmarks, offset, false, true, false, false, false);
+        } else {
+            HandPoses.write(landmarks, offset, false, false, false, false, false);
+        }
+        HandPoses.translate(landmarks, offset, dx, 0f);
+        frame.handedness()[hand] = rightHandScore;
+    }
+
+    // Two pinching hands whose pinch points are `span` apart.
+    private void setPinches(float span) {
+        float[] landmarks = frame.landmarks();
+        for (int hand = 0; hand < 2; hand++) {
+            int offset = HandLandmark.handOffset(hand);
+            HandPoses.write(landmarks, offset, true, true, false, false, false);
+            HandPoses.set(landmarks, offset, HandLandmark.THUMB_TIP, 0.45f, 0.41f);
+            HandPoses.translate(landmarks, offset, (hand == 0 ? -span : span) / 2, 0f);
+            frame.handedness()[hand] = hand;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.mediapipemultihandstracking.gesture.event;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GestureEventBusTest {
+    private static final int MAX_HANDS = 2;
+    private static final Motion[] MOTIONS = Motion.values();
+
+    private final GestureEventBus bus = new GestureEventBus(MAX_HANDS);
+    private final GestureEvent event = new GestureEvent(MAX_HANDS);
+
+    @Test
+    public void boundedQueueKeepsTheOldestAndDropsNewEvents() {
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 4);
+        publish(1, 6);
+
+        assertEquals(2, subscription.droppedCount());
+        assertEquals(1, pollAll(subscription).get(0).longValue());
+        assertEquals(4, subscription.lastSequence());
+        assertFalse(subscription.poll(event));
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestEvents() {
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.DROP_OLDEST, 4);
+        publish(1, 6);
+
+        List<Long> sequences = pollAll(subscription);
+        assertEquals(4, sequences.size());
+        assertEquals(3, sequences.get(0).longValue());
+        assertEquals(6, subscription.lastSequence());
+        assertEquals(2, subscription.droppedCount());
+    }
+
+    @Test
+    public void latestOnlyKeepsTheLastEvent() {
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.LATEST_ONLY, 0);
+        publish(1, 5);
+
+        assertTrue(subscription.poll(event));
+        assertEquals(5, event.sequence());
+        assertSame(MOTIONS[5 % MOTIONS.length], event.motion());
+        assertFalse(subscription.poll(event));
+        assertEquals(4, subscription.droppedCount());
+    }
+
+    @Test
+    public void subscribersReadAtTheirOwnPace() {
+        GestureEventBus.Subscription fast = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 8);
+        GestureEventBus.Subscription slow = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 8);
+        publish(1, 3);
+        pollAll(fast);
+        publish(4, 5);
+
+        assertEquals(2, pollAll(fast).size());
+        assertEquals(5, pollAll(slow).size());
+        assertEquals(5, fast.lastSequence());
+        assertEquals(5, slow.lastSequence());
+    }
+
+    @Test
+    public void cancelledSubscriptionsStopReceiving() {
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 8);
+        publish(1, 1);
+        subscription.cancel();
+        publish(2, 2);
+
+        assertEquals(0, bus.subscriberCount());
+        assertEquals(1, pollAll(subscription).size());
+    }
+
+    @Test
+    public void handlersGetEveryQueuedEventFromOnePendingTask() {
+        Queue<Runnable> posted = new ArrayDeque<>();
+        List<String> labels = new ArrayList<>();
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.DROP_OLDEST, 8,
+                posted::add, received -> labels.add(received.label()));
+        LatencyHistogram delays = new LatencyHistogram();
+        subscription.setDelayHistogram(delays);
+        publish(1, 3);
+
+        assertEquals(1, posted.size());
+        posted.poll().run();
+        publish(4, 4);
+        posted.poll().run();
+
+        assertEquals(4, labels.size());
+        assertEquals(MOTIONS[4 % MOTIONS.length].label(), labels.get(3));
+        assertEquals(2, delays.count());
+        assertTrue(posted.isEmpty());
+    }
+
+    @Test
+    public void sourcePublishesOnlyChanges() {
+        GesturePipeline pipeline = new GesturePipeline(MAX_HANDS);
+        GestureEventSource source = new GestureEventSource(bus);
+        GestureEventBus.Subscription subscription = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 16);
+        HandFrame frame = new HandFrame(MAX_HANDS);
+        System.arraycopy(HandPoses.pose(true, true, true, true, true), 0, frame.landmarks(), 0,
+                HandLandmark.FLOATS_PER_HAND);
+        frame.setHandCount(1);
+        for (int i = 0; i < 10; i++) {
+            frame.setTimestamp(i * 33_333L);
+            pipeline.process(frame);
+            source.publish(pipeline, frame.timestamp());
+        }
+
+        assertTrue(subscription.poll(event));
+        assertEquals(GestureEvent.Type.GESTURE, event.type());
+        assertEquals(pipeline.gestureLabel(), event.label());
+        assertEquals(1, event.handCount());
+        assertSame(Gesture.FIVE, event.gesture(0));
+        assertTrue(subscription.poll(event));
+        assertEquals(GestureEvent.Type.MOTION, event.type());
+        assertSame(Motion.NONE, event.motion());
+        assertFalse(subscription.poll(event));
+        assertEquals(2, bus.publishedCount());
+    }
+
+    @Test
+    public void latestOnlyKeepsAnEventPublishedWhileTheLastOneIsRead() throws Exception {
+        // Events of many hands, so the poller spends its time copying them.
+        int hands = 1 << 20;
+        GestureEventBus largeBus = new GestureEventBus(hands);
+        GestureEventBus.Subscription subscription = largeBus.subscribe(GestureEventBus.Policy.LATEST_ONLY, 0);
+        Gesture[] gestures = new Gesture[hands];
+        Arrays.fill(gestures, Gesture.FIVE);
+        Handedness[] handedness = new Handedness[hands];
+        AtomicBoolean done = new AtomicBoolean();
+        Thread poller = new Thread(() -> {
+            GestureEvent polled = new GestureEvent(hands);
+            while (!done.get()) {
+                if (!subscription.poll(polled)) {
+                    Thread.yield();
+                }
+            }
+        });
+        poller.start();
+        long published = 0;
+        try {
+            long end = System.nanoTime() + 2_000_000_000L;
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < 16; i++) {
+                    largeBus.event().setGestures(++published, "five", hands, gestures, handedness, null);
+                    largeBus.publish();
+                }
+                // The last event of the burst shows up even if the poller was busy with another.
+                long deadline = System.nanoTime() + 1_000_000_000L;
+                while (subscription.lastSequence() != published && System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+                assertEquals(published, subscription.lastSequence());
+            }
+        } finally {
+            done.set(true);
+            poller.join();
+        }
+        assertEquals(published, subscription.deliveredCount() + subscription.droppedCount());
+    }
+
+    @Test
+    public void stressedSubscribersSeeOrderedConsistentEventsWithoutStallingThePublisher() throws Exception {
+        int events = 500_000;
+        GestureEventBus.Policy[] policies = {
+                GestureEventBus.Policy.BOUNDED_QUEUE,
+                GestureEventBus.Policy.DROP_OLDEST,
+                GestureEventBus.Policy.LATEST_ONLY,
+                GestureEventBus.Policy.BOUNDED_QUEUE,
+        };
+        // The last subscriber stalls for a millisecond on every event.
+        int slow = policies.length - 1;
+        GestureEventBus.Subscription[] subscriptions = new GestureEventBus.Subscription[policies.length];
+        Consumer[] consumers = new Consumer[policies.length];
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < policies.length; i++) {
+            subscriptions[i] = bus.subscribe(policies[i], 64);
+            consumers[i] = new Consumer(subscriptions[i], i == slow, start, done);
+            consumers[i].start();
+        }
+
+        start.countDown();
+        long begin = System.nanoTime();
+        // In bursts, like frames, giving the consumers a chance even on a single core.
+        for (int first = 1; first <= events; first += 32) {
+            publish(first, Math.min(first + 31, events));
+            Thread.yield();
+        }
+        long publishNanos = System.nanoTime() - begin;
+        done.set(true);
+        for (Consumer consumer : consumers) {
+            consumer.join(10_000);
+        }
+
+        for (int i = 0; i < policies.length; i++) {
+            Consumer consumer = consumers[i];
+            GestureEventBus.Subscription subscription = subscriptions[i];
+            assertTrue(consumer.failure, consumer.failure == null);
+            assertEquals(events, subscription.deliveredCount() + subscription.droppedCount());
+            assertEquals(subscription.deliveredCount(), consumer.received);
+        }
+        // Fast subscribers keep up with most of the bursts, so their order was checked for real.
+        assertTrue(subscriptions[0].deliveredCount() > events / 10);
+        // Whatever the policy, the newest event reaches the subscribers that may drop old ones.
+        assertEquals(events, subscriptions[1].lastSequence());
+        assertEquals(events, subscriptions[2].lastSequence());
+        // A bounded queue keeps its oldest events, so the slow subscriber only saw the first few.
+        assertTrue(subscriptions[slow].deliveredCount() < 1000);
+        // Publishing to a stalled subscriber costs no more than to a fast one, nowhere near 1 ms.
+        assertTrue("publishing took " + publishNanos / 1_000_000 + " ms", publishNanos < 5_000_000_000L);
+    }
+
+    @Test
+    public void publish_doesNotAllocate() {
+        bus.subscribe(GestureEventBus.Policy.DROP_OLDEST, 16);
+        bus.subscribe(GestureEventBus.Policy.LATEST_ONLY, 0);
+        GestureEventBus.Subscription polled = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 16);
+        int iterations = 10_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                publish(i, i);
+                polled.poll(event);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    // Publishes motion events first to last, each derived from its sequence so a torn read shows.
+    private void publish(long first, long last) {
+        for (long sequence = first; sequence <= last; sequence++) {
+            Motion motion = MOTIONS[(int) (sequence % MOTIONS.length)];
+            bus.event().setMotion(sequence * 10, motion.label(), motion, null);
+            bus.publish();
+        }
+    }
+
+    private List<Long> pollAll(GestureEventBus.Subscription subscription) {
+        List<Long> sequences = new ArrayList<>();
+        while (subscription.poll(event)) {
+            sequences.add(event.sequence());
+        }
+        return sequences;
+    }
+
+    private static final class Consumer extends Thread {
+        private final GestureEventBus.Subscription subscription;
+        private final boolean slow;
+        private final CountDownLatch start;
+        private final AtomicBoolean done;
+        private final GestureEvent event = new GestureEvent(MAX_HANDS);
+        private long received;
+        private volatile String failure;
+
+        Consumer(GestureEventBus.Subscription subscription, boolean slow, CountDownLatch start, AtomicBoolean done) {
+            this.subscription = subscription;
+            this.slow = slow;
+            this.start = start;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                long last = 0;
+                // Drain once more after the publisher is done, to see its last events.
+                boolean finished = false;
+                while (!finished) {
+                    finished = done.get();
+                    while (subscription.poll(event)) {
+                        received++;
+                        check(last);
+                        last = event.sequence();
+                        if (slow && !finished) {
+                            Thread.sleep(1);
+                        }
+                    }
+                    Thread.yield();
+                }
+            } catch (InterruptedException e) {
+                failure = "interrupted";
+            }
+        }
+
+        private void check(long last) {
+            long sequence = event.sequence();
+            Motion motion = MOTIONS[(int) (sequence % MOTIONS.length)];
+            if (failure == null && sequence <= last) {
+                failure = "event " + sequence + " after " + last;
+            }
+            if (failure == null && (event.timestamp() != sequence * 10 || event.motion() != motion
+                    || !event.label().equals(motion.label()))) {
+                failure = "torn event " + event;
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.mediapipemultihandstracking.gesture.feature;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandFeatureExtractorTest {
+    private static final float EPSILON = 1e-4f;
+    // Direction of each finger in the palm plane, in radians from straight up, thumb first.
+    private static final double[] SPREAD = {-0.9, -0.25, 0, 0.2, 0.4};
+    private static final double[] METACARPAL = {0.3, 0.9, 1.0, 0.95, 0.85};
+    private static final double[] PHALANGES = {0.4, 0.3, 0.25};
+
+    private final HandFeatureExtractor extractor = new HandFeatureExtractor();
+    private final float[] features = new float[HandFeatures.SIZE];
+
+    @Test
+    public void straightHandHasNoFlexionAndFacesTheCamera() {
+        extractor.extract(hand(new double[15]), 0, features, 0);
+
+        for (int i = 0; i < 15; i++) {
+            assertEquals(0f, features[HandFeatures.JOINT_ANGLES + i], EPSILON);
+        }
+        assertEquals(1f, Math.abs(features[HandFeatures.PALM_NORMAL + 2]), EPSILON);
+        assertEquals(1f, features[HandFeatures.PALM_SIZE], EPSILON);
+    }
+
+    @Test
+    public void recoversEveryJointAngle() {
+        Random random = new Random(3);
+        double[] bends = new double[15];
+        for (int i = 0; i < bends.length; i++) {
+            bends[i] = random.nextDouble() * 1.5;
+        }
+
+        extractor.extract(hand(bends), 0, features, 0);
+
+        for (int finger = 0; finger < HandFeatures.FINGERS; finger++) {
+            for (int joint = 0; joint < HandFeatures.JOINTS_PER_FINGER; joint++) {
+                assertEquals("finger " + finger + " joint " + joint, bends[finger * 3 + joint],
+                        features[HandFeatures.jointAngle(finger, joint)], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void curledFingertipsAreCloserToThePalm() {
+        double[] fist = new double[15];
+        Arrays.fill(fist, 1.4);
+        float[] open = new float[HandFeatures.SIZE];
+        extractor.extract(hand(new double[15]), 0, open, 0);
+
+        extractor.extract(hand(fist), 0, features, 0);
+
+        for (int finger = 1; finger < HandFeatures.FINGERS; finger++) {
+            float curled = features[HandFeatures.TIP_TO_PALM + finger];
+            float straight = open[HandFeatures.TIP_TO_PALM + finger];
+            assertTrue(curled + " < " + straight, curled < straight * 0.6f);
+        }
+    }
+
+    @Test
+    public void featuresIgnorePositionRotationAndSize() {
+        double[] bends = {0.2, 0.1, 0.3, 0.9, 1.2, 0.6, 0, 0.1, 0, 1.3, 1.4, 0.8, 0.2, 0.5, 0.4};
+        float[] landmarks = hand(bends);
+        extractor.extract(landmarks, 0, features, 0);
+        float[] moved = landmarks.clone();
+        // Rotate about an arbitrary axis, scale by 0.3 and shift.
+        double[][] rotation = rotation(0.3, -0.5, 0.8, 1.1);
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            double[] p = {landmarks[3 * i], landmarks[3 * i + 1], landmarks[3 * i + 2]};
+            for (int axis = 0; axis < 3; axis++) {
+                double value = rotation[axis][0] * p[0] + rotation[axis][1] * p[1] + rotation[axis][2] * p[2];
+                moved[3 * i + axis] = (float) (value * 0.3 + 0.5 - 0.1 * axis);
+            }
+        }
+        float[] movedFeatures = new float[HandFeatures.SIZE];
+
+        extractor.extract(moved, 0, movedFeatures, 0);
+
+        for (int i = 0; i < HandFeatures.SIZE; i++) {
+            if (i >= HandFeatures.PALM_NORMAL && i < HandFeatures.PALM_NORMAL + 3) {
+                continue;
+            }
+            float expected = i == HandFeatures.PALM_SIZE ? features[i] * 0.3f : features[i];
+            assertEquals("feature " + i, expected, movedFeatures[i], EPSILON);
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            double rotated = 0;
+            for (int k = 0; k < 3; k++) {
+                rotated += rotation[axis][k] * features[HandFeatures.PALM_NORMAL + k];
+            }
+            assertEquals(rotated, movedFeatures[HandFeatures.PALM_NORMAL + axis], EPSILON);
+        }
+    }
+
+    @Test
+    public void yScaleUndoesTheImageAspectRatio() {
+        float[] landmarks = hand(new double[]{0, 0.2, 0.4, 0.5, 0.5, 0.5, 0, 0, 0, 1, 1, 1, 0.3, 0, 0});
+        extractor.extract(landmarks, 0, features, 0);
+        float[] squashed = landmarks.clone();
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            squashed[HandLandmark.y(0, i)] *= 0.75f;
+        }
+        float[] unsquashed = new float[HandFeatures.SIZE];
+
+        new HandFeatureExtractor(1 / 0.75f).extract(squashed, 0, unsquashed, 0);
+
+        for (int i = 0; i < HandFeatures.SIZE; i++) {
+            assertEquals("feature " + i, features[i], unsquashed[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void pairwiseDistancesFollowTheDocumentedLayout() {
+        float[] landmarks = hand(new double[]{0.5, 0.1, 0, 0, 1, 0, 0.2, 0, 0.7, 0, 0, 0, 1.2, 0.4, 0});
+        extractor.extract(landmarks, 0, features, 0);
+        boolean[] seen = new boolean[HandFeatures.SIZE];
+
+        for (int a = 0; a < HandLandmark.COUNT; a++) {
+            for (int b = a + 1; b < HandLandmark.COUNT; b++) {
+                int index = HandFeatures.pair(a, b);
+                assertEquals(index, HandFeatures.pair(b, a));
+                assertTrue(index >= HandFeatures.PAIRWISE && index < HandFeatures.PALM_SIZE && !seen[index]);
+                seen[index] = true;
+                double dx = landmarks[3 * b] - landmarks[3 * a];
+                double dy = landmarks[3 * b + 1] - landmarks[3 * a + 1];
+                double dz = landmarks[3 * b + 2] - landmarks[3 * a + 2];
+                assertEquals(Math.sqrt(dx * dx + dy * dy + dz * dz) / features[HandFeatures.PALM_SIZE],
+                        features[index], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void writesOnlyItsOwnSlice() {
+        float[] landmarks = new float[2 * HandLandmark.FLOATS_PER_HAND];
+        System.arraycopy(hand(new double[15]), 0, landmarks, HandLandmark.handOffset(1), HandLandmark.FLOATS_PER_HAND);
+        float[] slices = new float[3 * HandFeatures.SIZE];
+        Arrays.fill(slices, -7f);
+
+        extractor.extract(landmarks, HandLandmark.handOffset(1), slices, HandFeatures.SIZE);
+
+        assertEquals(-7f, slices[HandFeatures.SIZE - 1], 0f);
+        assertEquals(1f, slices[HandFeatures.SIZE + HandFeatures.PALM_SIZE], EPSILON);
+        assertEquals(-7f, slices[2 * HandFeatures.SIZE], 0f);
+    }
+
+    @Test
+    public void extractingDoesNotAllocate() {
+        float[] landmarks = hand(new double[15]);
+
+        long bytes = Allocations.measure(() -> {
+            for (int i = 0; i < 1000; i++) {
+                extractor.extract(landmarks, 0, features, 0);
+            }
+        });
+
+        assertEquals(0, bytes);
+    }
+
+    // A hand with its palm in the xy plane, fingers pointing up (-y) and every joint curling its
+    // finger towards +z by the given angle, three per finger from the palm outwards.
+    private static float[] hand(double[] bends) {
+        float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+        for (int finger = 0; finger < HandFeatures.FINGERS; finger++) {
+            double dx = Math.sin(SPREAD[finger]);
+            double dy = -Math.cos(SPREAD[finger]);
+            double x = dx * METACARPAL[finger];
+            double y = dy * METACARPAL[finger];
+            double z = 0;
+            double angle = 0;
+            int base = 1 + 4 * finger;
+            set(landmarks, base, x, y, z);
+            for (int joint = 0; joint < 3; joint++) {
+                angle += bends[finger * 3 + joint];
+                double length = PHALANGES[joint];
+                x += dx * Math.cos(angle) * length;
+                y += dy * Math.cos(angle) * length;
+                z += Math.sin(angle) * length;
+                set(landmarks, base + joint + 1, x, y, z);
+            }
+        }
+        return landmarks;
+    }
+
+    private static void set(float[] landmarks, int landmark, double x, double y, double z) {
+        landmarks[HandLandmark.x(0, landmark)] = (float) x;
+        landmarks[HandLandmark.y(0, landmark)] = (float) y;
+        landmarks[HandLandmark.z(0, landmark)] = (float) z;
+    }
+
+    // Rotation by `angle` about the axis (x, y, z).
+    private static double[][] rotation(double x, double y, double z, double angle) {
+        double norm = Math.sqrt(x * x + y * y + z * z);
+        x /= norm;
+        y /= norm;
+        z /= norm;
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        double t = 1 - c;
+        return new double[][]{
+                {t * x * x + c, t * x * y - s * z, t * x * z + s * y},
+                {t * x * y + s * z, t * y * y + c, t * y * z - s * x},
+                {t * x * z - s * y, t * y * z + s * x, t * z * z + c}
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.mediapipemultihandstracking.gesture.filter;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the filters over synthetic noisy trajectories at 30 frames per second and checks, for
+ * each, how much jitter is left on a still hand and how far behind a moving hand it lags.
+ */
+public class LandmarkFilterTest {
+    private static final long FRAME_MICROS = 33_333;
+    private static final int FRAMES = 600;
+    private static final int WARM_UP_FRAMES = 30;
+    // MediaPipe's landmark jitter on a still hand is a few thousandths of the image width.
+    private static final double NOISE = 0.004;
+    private static final DoubleUnaryOperator STILL = t -> 0.5;
+    // Half a swing per second, peaking at about 0.6 widths per second.
+    private static final DoubleUnaryOperator SWING = t -> 0.5 + 0.2 * Math.sin(Math.PI * t);
+
+    @Test
+    public void oneEuroRemovesMostJitterWithLittleLag() {
+        Result still = run(new OneEuroFilter(1), STILL, 0);
+        Result moving = run(new OneEuroFilter(1), SWING, 0);
+
+        assertTrue("still: " + still, still.jitterReduction() > 3);
+        assertTrue("moving: " + moving, moving.lagMillis < 30);
+    }
+
+    @Test
+    public void kalmanRemovesSomeJitterWithNextToNoLag() {
+        Result still = run(new KalmanLandmarkFilter(1), STILL, 0);
+        Result moving = run(new KalmanLandmarkFilter(1), SWING, 0);
+
+        assertTrue("still: " + still, still.jitterReduction() > 1.5);
+        assertTrue("moving: " + moving, moving.lagMillis < 15);
+    }
+
+    @Test
+    public void predictionCompensatesLatency() {
+        long lead = 100_000;
+        Result oneEuro = run(new OneEuroFilter(1), SWING, lead);
+        Result kalman = run(new KalmanLandmarkFilter(1), SWING, lead);
+
+        // Output 100 ms ahead of the input: a lag of -100 ms would be perfect.
+        assertTrue("one euro: " + oneEuro, oneEuro.lagMillis < -60);
+        assertTrue("kalman: " + kalman, kalman.lagMillis < -60);
+    }
+
+    @Test
+    public void kalmanFollowsASteadyMovementWithoutLag() {
+        Result ramp = run(new KalmanLandmarkFilter(1), t -> 0.2 + 0.3 * t / 20, 0);
+
+        assertEquals(0, ramp.lagMillis, 10);
+    }
+
+    @Test
+    public void resetTakesTheNextHandAsIs() {
+        for (LandmarkFilter filter : new LandmarkFilter[]{new OneEuroFilter(2), new KalmanLandmarkFilter(2)}) {
+            float[] hand = new float[HandLandmark.FLOATS_PER_HAND];
+            Arrays.fill(hand, 0.2f);
+            filter.filter(1, hand, 0, 0, 0);
+            Arrays.fill(hand, 0.8f);
+            filter.filter(1, hand, 0, FRAME_MICROS, 0);
+            assertTrue(hand[0] < 0.8f);
+
+            filter.reset(1);
+            Arrays.fill(hand, 0.8f);
+            filter.filter(1, hand, 0, 2 * FRAME_MICROS, 0);
+
+            assertEquals(0.8f, hand[0], 0f);
+        }
+    }
+
+    @Test
+    public void smootherFiltersTrackedHandsOnly() {
+        HandTracker tracker = new HandTracker(4);
+        LandmarkSmoother smoother = new LandmarkSmoother(new OneEuroFilter(4));
+        tracker.setListener(smoother);
+        HandFrame frame = new HandFrame(2);
+        frame.setHandCount(2);
+        frame.setRectCount(1);
+        float[] rects = frame.rects();
+        rects[HandRect.X_CENTER] = 0.3f;
+        rects[HandRect.Y_CENTER] = 0.5f;
+        rects[HandRect.WIDTH] = 0.2f;
+        rects[HandRect.HEIGHT] = 0.2f;
+        for (int step = 0; step < 2; step++) {
+            float[] landmarks = frame.landmarks();
+            for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+                landmarks[HandLandmark.x(0, landmark)] = 0.3f + 0.01f * step;
+                landmarks[HandLandmark.y(0, landmark)] = 0.5f;
+                landmarks[HandLandmark.x(HandLandmark.handOffset(1), landmark)] = 0.7f + 0.01f * step;
+                landmarks[HandLandmark.y(HandLandmark.handOffset(1), landmark)] = 0.5f;
+            }
+            frame.setTimestamp(step * FRAME_MICROS);
+            tracker.update(frame);
+            smoother.apply(tracker, frame);
+        }
+
+        assertTrue(frame.landmarks()[HandLandmark.x(0, HandLandmark.WRIST)] < 0.31f);
+        assertEquals(0.71f, frame.landmarks()[HandLandmark.x(HandLandmark.handOffset(1), HandLandmark.WRIST)], 0f);
+    }
+
+    @Test
+    public void smootherCapsTheLead() {
+        LandmarkSmoother smoother = new LandmarkSmoother(new OneEuroFilter(1));
+
+        smoother.setLeadMicros(-5);
+        assertEquals(0, smoother.leadMicros());
+        smoother.setLeadMicros(20_000);
+        assertEquals(20_000, smoother.leadMicros());
+        smoother.setLeadMicros(250_000);
+        assertEquals(LandmarkSmoother.MAX_LEAD_MICROS, smoother.leadMicros());
+    }
+
+    @Test
+    public void filteringDoesNotAllocate() {
+        LandmarkFilter[] filters = {new OneEuroFilter(1), new KalmanLandmarkFilter(1)};
+        float[] hand = new float[HandLandmark.FLOATS_PER_HAND];
+        long[] timestamp = {0};
+        int iterations = 1000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                timestamp[0] += FRAME_MICROS;
+                for (LandmarkFilter filter : filters) {
+                    filter.filter(0, hand, 0, timestamp[0], 50_000);
+                }
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    // Feeds every coordinate of one hand the trajectory `truth` plus independent noise and
+    // compares the output with the truth.
+    private static Result run(LandmarkFilter filter, DoubleUnaryOperator truth, long leadMicros) {
+        Random random = new Random(17);
+        float[] hand = new float[HandLandmark.FLOATS_PER_HAND];
+        float[][] output = new float[FRAMES][];
+        double rawSquares = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            double t = frame * FRAME_MICROS / 1e6;
+            double value = truth.applyAsDouble(t);
+            for (int i = 0; i < hand.length; i++) {
+                double noise = NOISE * random.nextGaussian();
+                hand[i] = (float) (value + noise);
+                if (frame >= WARM_UP_FRAMES) {
+                    rawSquares += noise * noise;
+                }
+            }
+            filter.filter(0, hand, 0, frame * FRAME_MICROS, leadMicros);
+            output[frame] = hand.clone();
+        }
+        int samples = (FRAMES - WARM_UP_FRAMES) * hand.length;
+        // Lag: the shift of the truth that fits the output best. Jitter: what is left after it.
+        double bestLag = 0;
+        double bestError = Double.MAX_VALUE;
+        for (int lagMillis = -200; lagMillis <= 300; lagMillis++) {
+            double squares = 0;
+            for (int frame = WARM_UP_FRAMES; frame < FRAMES; frame++) {
+                double expected = truth.applyAsDouble(frame * FRAME_MICROS / 1e6 - lagMillis / 1000.0);
+                for (float value : output[frame]) {
+                    squares += (value - expected) * (value - expected);
+                }
+            }
+            if (squares < bestError) {
+                bestError = squares;
+                bestLag = lagMillis;
+            }
+        }
+        return new Result(Math.sqrt(rawSquares / samples), Math.sqrt(bestError / samples), bestLag);
+    }
+
+    private static final class Result {
+        final double rawJitter;
+        final double filteredJitter;
+        final double lagMillis;
+
+        Result(double rawJitter, double filteredJitter, double lagMillis) {
+            this.rawJitter = rawJitter;
+            this.filteredJitter = filteredJitter;
+            this.lagMillis = lagMillis;
+        }
+
+        double jitterReduction() {
+            return rawJitter / filteredJitter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "jitter %.4f -> %.4f (%.1fx less), lag %.0f ms", rawJitter,
+                    filteredJitter, jitterReduction(), lagMillis);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.mediapipemultihandstracking.gesture.load;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGovernorTest {
+    private static final long MILLIS = 1_000_000;
+    private static final long SECONDS = 1000 * MILLIS;
+    private static final long FRAME = 33_333_333;
+    // Camera timestamps are on another clock, hours off the governor's.
+    private static final long CLOCK_OFFSET = -3 * 3600 * SECONDS;
+
+    /** Latency of a frame, in nanoseconds, given the current tier and the simulated time. */
+    private interface Trace {
+        long latency(int tier, long now);
+    }
+
+    private final List<LoadTier> tiers = LoadTier.defaults();
+    private long now;
+    private final LoadGovernor governor = new LoadGovernor(tiers, 1, () -> now, FRAME, 120 * MILLIS, 60 * MILLIS);
+
+    {
+        // The traces give latencies beyond the fastest frame, which this one sets.
+        governor.onFrame(CLOCK_OFFSET);
+        governor.reset();
+    }
+
+    @Test
+    public void aLoadBetweenTheThresholdsKeepsTheTier() {
+        run(60 * SECONDS, FRAME, (tier, time) -> 90 * MILLIS);
+
+        assertEquals(1, governor.tierIndex());
+        assertEquals(0, governor.changeCount());
+    }
+
+    @Test
+    public void overloadStepsDownOnceItLastedPastTheSettleAndDowngradeDelays() {
+        Trace overloaded = (tier, time) -> 200 * MILLIS;
+        long firstDecision = LoadGovernor.SETTLE_NANOS + 8 * FRAME;
+
+        run(firstDecision + LoadGovernor.DOWNGRADE_AFTER_NANOS - FRAME, FRAME, overloaded);
+        assertEquals(1, governor.tierIndex());
+
+        run(4 * FRAME, FRAME, overloaded);
+        assertEquals(2, governor.tierIndex());
+
+        // The next step waits for the new tier to settle again.
+        run(LoadGovernor.SETTLE_NANOS, FRAME, overloaded);
+        assertEquals(2, governor.tierIndex());
+        run(30 * SECONDS, FRAME, overloaded);
+        assertEquals(tiers.size() - 1, governor.tierIndex());
+        assertEquals(tiers.size() - 2, governor.changeCount());
+    }
+
+    @Test
+    public void framesArrivingTooSlowlyAreAnOverload() {
+        run(10 * SECONDS, 3 * FRAME / 2 + 5 * MILLIS, (tier, time) -> 50 * MILLIS);
+
+        assertTrue(governor.tierIndex() > 1);
+    }
+
+    @Test
+    public void spareRoomStepsUpOnlyAfterTheLongerUpgradeDelay() {
+        Trace light = (tier, time) -> 30 * MILLIS;
+
+        run(LoadGovernor.SETTLE_NANOS + LoadGovernor.UPGRADE_AFTER_NANOS, FRAME, light);
+        assertEquals(1, governor.tierIndex());
+
+        run(LoadGovernor.SETTLE_NANOS, FRAME, light);
+        assertEquals(0, governor.tierIndex());
+    }
+
+    @Test
+    public void shortSpikesAndNoiseAroundTheThresholdsDoNotChangeTheTier() {
+        Random random = new Random(3);
+        run(120 * SECONDS, FRAME, (tier, time) -> {
+            // Half a second of 300 ms latency every 10 s, otherwise 50 to 130 ms.
+            if (time % (10 * SECONDS) < 500 * MILLIS) {
+                return 300 * MILLIS;
+            }
+            return (50 + random.nextInt(80)) * MILLIS;
+        });
+
+        assertEquals(0, governor.changeCount());
+    }
+
+    @Test
+    public void aDeviceThatOnlyKeepsUpWithALighterTierStopsOscillating() {
+        // Overloaded at tier 1, spare at tier 2: every upgrade is bound to fail.
+        Trace trace = (tier, time) -> tier <= 1 ? 150 * MILLIS : 40 * MILLIS;
+        long[] timeAtTier = new long[tiers.size()];
+        long end = now + 600 * SECONDS;
+        while (now < end) {
+            now += FRAME;
+            timeAtTier[governor.tierIndex()] += FRAME;
+            governor.onFrame(CLOCK_OFFSET + trace.latency(governor.tierIndex(), now));
+        }
+
+        assertEquals(4, governor.upgradeBackoff());
+        // Without the backoff an upgrade would be tried about every 10 s, 120 changes.
+        assertTrue("changes " + governor.changeCount(), governor.changeCount() < 25);
+        assertTrue(timeAtTier[2] > 500 * SECONDS);
+    }
+
+    @Test
+    public void anUpgradeThatHoldsResetsTheBackoff() {
+        int[] capacity = {1};
+        Trace trace = (tier, time) -> tier < capacity[0] ? 150 * MILLIS : 40 * MILLIS;
+        run(60 * SECONDS, FRAME, trace);
+        assertTrue(governor.upgradeBackoff() > 0);
+
+        capacity[0] = 0;
+        run(200 * SECONDS, FRAME, trace);
+
+        assertEquals(0, governor.tierIndex());
+        assertEquals(0, governor.upgradeBackoff());
+    }
+
+    @Test
+    public void aPauseIsNotAFrameIntervalAndResetSettlesAgain() {
+        Trace steady = (tier, time) -> 90 * MILLIS;
+        run(10 * SECONDS, FRAME, steady);
+
+        now += 5 * SECONDS;
+        governor.reset();
+        // Right after resuming, the first frames are slow while everything warms up.
+        run(LoadGovernor.SETTLE_NANOS - FRAME, FRAME, (tier, time) -> 500 * MILLIS);
+        run(30 * SECONDS, FRAME, steady);
+
+        assertEquals(0, governor.changeCount());
+    }
+
+    @Test
+    public void latencyIsTheDelayBeyondTheShortestOne() {
+        LoadGovernor unseeded = new LoadGovernor(tiers, 1, () -> now, FRAME, 120 * MILLIS, 60 * MILLIS);
+        long end = now + 30 * SECONDS;
+        while (now < end) {
+            now += FRAME;
+            // However long the constant part of the delay, steady frames are not an overload.
+            unseeded.onFrame(CLOCK_OFFSET + 500 * MILLIS + (now / FRAME % 3) * MILLIS);
+        }
+        assertEquals(0, unseeded.tierIndex());
+
+        end = now + 3 * SECONDS;
+        while (now < end) {
+            now += FRAME;
+            unseeded.onFrame(CLOCK_OFFSET + 700 * MILLIS);
+        }
+        assertEquals(1, unseeded.tierIndex());
+    }
+
+    @Test
+    public void listenerHearsEveryChange() {
+        List<String> changes = new ArrayList<>();
+        governor.setListener((previous, current) -> {
+            assertSame(tiers.get(1), previous);
+            assertTrue(previous.needsRestart(current));
+            changes.add(previous + " -> " + current);
+        });
+
+        run(10 * SECONDS, FRAME, (tier, time) -> 30 * MILLIS);
+
+        assertEquals(1, changes.size());
+        assertEquals("640x480, 2 hands, analysis every frame -> 1280x720, 2 hands, analysis every frame",
+                changes.get(0));
+        assertFalse(tiers.get(1).needsRestart(tiers.get(2)));
+    }
+
+    @Test
+    public void onFrame_doesNotAllocate() {
+        int iterations = 10_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                now += FRAME;
+                governor.onFrame(CLOCK_OFFSET + (i % 1000 < 500 ? 30 * MILLIS : 200 * MILLIS));
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    // Feeds a frame every interval for duration, with the latency the trace gives.
+    private void run(long duration, long interval, Trace trace) {
+        long end = now + duration;
+        while (now + interval <= end) {
+            now += interval;
+            governor.onFrame(CLOCK_OFFSET + trace.latency(governor.tierIndex(), now));
+        }
+    }
+}
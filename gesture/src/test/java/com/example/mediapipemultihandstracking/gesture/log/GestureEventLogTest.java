@@ -0,0 +1,253 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GestureEventLogTest {
+    private static final int MAX_HANDS = 2;
+    private static final long SECOND = 1_000_000;
+    private static final Gesture[] GESTURES = {Gesture.FIVE, Gesture.FIST, Gesture.OK, Gesture.ONE, Gesture.ROCK};
+    private static final Motion[] MOTIONS = {Motion.NONE, Motion.SCROLL_LEFT, Motion.ZOOM_IN, Motion.SLIDE_RIGHT};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final GestureEvent event = new GestureEvent(MAX_HANDS);
+    private final Gesture[] hands = new Gesture[MAX_HANDS];
+    private final Handedness[] handedness = {Handedness.RIGHT, Handedness.LEFT};
+
+    @Test
+    public void addsUpCountsAndDwellTimes() throws IOException {
+        File dir = folder.newFolder();
+        TrajectoryTemplate circle = TrajectoryTemplate.defaults().get(0);
+        try (GestureEventLog log = new GestureEventLog(dir, 1 << 20, 1 << 20)) {
+            gestures(log, 0, TwoHandGesture.NONE, Gesture.FIVE);
+            motion(log, SECOND / 2, Motion.SCROLL_LEFT, null);
+            motion(log, SECOND * 7 / 10, Motion.NONE, null);
+            gestures(log, SECOND, TwoHandGesture.BOTH_FIVE, Gesture.FIVE, Gesture.FIVE);
+            motion(log, 2 * SECOND, Motion.ZOOM_IN, circle);
+            motion(log, SECOND * 5 / 2, Motion.NONE, null);
+            gestures(log, 3 * SECOND, TwoHandGesture.NONE, Gesture.OK, Gesture.FIST);
+            gestures(log, 4 * SECOND, TwoHandGesture.NONE);
+        }
+
+        GestureUsage usage = GestureUsage.read(dir);
+
+        assertEquals(8, usage.eventCount());
+        // FIVE on the first hand from 0 to 3 s, on the second from 1 to 3 s.
+        assertEquals(2, usage.count(GestureUsage.Kind.GESTURE, "FIVE"));
+        assertEquals(5 * SECOND, usage.dwellMicros(GestureUsage.Kind.GESTURE, "FIVE"));
+        assertEquals(1, usage.count(GestureUsage.Kind.GESTURE, "OK"));
+        assertEquals(SECOND, usage.dwellMicros(GestureUsage.Kind.GESTURE, "OK"));
+        assertEquals(1, usage.count(GestureUsage.Kind.TWO_HAND_GESTURE, "BOTH_FIVE"));
+        assertEquals(2 * SECOND, usage.dwellMicros(GestureUsage.Kind.TWO_HAND_GESTURE, "BOTH_FIVE"));
+        assertEquals(1, usage.count(GestureUsage.Kind.MOTION, "SCROLL_LEFT"));
+        assertEquals(SECOND / 5, usage.dwellMicros(GestureUsage.Kind.MOTION, "SCROLL_LEFT"));
+        assertEquals(SECOND / 2, usage.dwellMicros(GestureUsage.Kind.MOTION, "ZOOM_IN"));
+        assertEquals(1, usage.count(GestureUsage.Kind.TRAJECTORY, circle.name()));
+        assertEquals(0, usage.count(GestureUsage.Kind.GESTURE, "ROCK"));
+        assertEquals(0, usage.skippedBlockCount());
+    }
+
+    @Test
+    public void everyLogStartsANewSession() throws IOException {
+        File dir = folder.newFolder();
+        try (GestureEventLog log = new GestureEventLog(dir, 1 << 20, 1 << 20)) {
+            gestures(log, 0, TwoHandGesture.NONE, Gesture.FIVE);
+        }
+        try (GestureEventLog log = new GestureEventLog(dir, 1 << 20, 1 << 20)) {
+            gestures(log, 10 * SECOND, TwoHandGesture.NONE, Gesture.FIVE);
+            gestures(log, 11 * SECOND, TwoHandGesture.NONE);
+        }
+
+        GestureUsage usage = GestureUsage.read(dir);
+
+        // The first session ends with its only event, so FIVE is not held across the restart.
+        assertEquals(2, usage.count(GestureUsage.Kind.GESTURE, "FIVE"));
+        assertEquals(SECOND, usage.dwellMicros(GestureUsage.Kind.GESTURE, "FIVE"));
+    }
+
+    @Test
+    public void rotatesAndCompactsWithoutLosingUsage() throws IOException {
+        File compacted = folder.newFolder();
+        File whole = folder.newFolder();
+        long maxLogBytes = 4096;
+        int events = 20_000;
+        long compactions;
+        try (GestureEventLog log = new GestureEventLog(compacted, 1024, maxLogBytes, 8, 256, 1000)) {
+            appendRandom(log, events, 7);
+            compactions = log.compactedFileCount();
+        }
+        try (GestureEventLog log = new GestureEventLog(whole, Long.MAX_VALUE, Long.MAX_VALUE)) {
+            appendRandom(log, events, 7);
+        }
+
+        GestureUsage expected = GestureUsage.read(whole);
+        GestureUsage actual = GestureUsage.read(compacted);
+
+        assertTrue(compactions > 0);
+        assertTrue(new File(compacted, EventLogFormat.SUMMARY).isFile());
+        List<Integer> files = GestureEventLog.logFiles(compacted);
+        long bytes = 0;
+        for (int number : files) {
+            bytes += new File(compacted, EventLogFormat.fileName(number)).length();
+        }
+        assertTrue(bytes + " bytes left", bytes <= maxLogBytes);
+        assertEquals(events, expected.eventCount());
+        assertEquals(events, actual.eventCount());
+        for (GestureUsage.Kind kind : GestureUsage.Kind.values()) {
+            assertEquals(expected.names(kind).size(), actual.names(kind).size());
+            for (String name : expected.names(kind)) {
+                assertEquals(kind + " " + name, expected.count(kind, name), actual.count(kind, name));
+                assertEquals(kind + " " + name, expected.dwellMicros(kind, name), actual.dwellMicros(kind, name));
+            }
+        }
+
+        // A log opened later numbers its files after those compacted away.
+        try (GestureEventLog log = new GestureEventLog(compacted, 1024, maxLogBytes)) {
+            gestures(log, 0, TwoHandGesture.NONE, Gesture.ROCK);
+        }
+        assertEquals(events + 1, GestureUsage.read(compacted).eventCount());
+    }
+
+    @Test
+    public void aTornOrCorruptBlockEndsItsFile() throws IOException {
+        File dir = folder.newFolder();
+        int events = 1000;
+        try (GestureEventLog log = new GestureEventLog(dir, Long.MAX_VALUE, Long.MAX_VALUE, 8, 128, 1000)) {
+            appendRandom(log, events, 3);
+        }
+        File file = new File(dir, EventLogFormat.fileName(GestureEventLog.logFiles(dir).get(0)));
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 3);
+        }
+        GestureUsage torn = GestureUsage.read(dir);
+        assertEquals(1, torn.skippedBlockCount());
+        assertTrue(torn.eventCount() + " events", torn.eventCount() < events && torn.eventCount() > events - 128);
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(raw.length() / 2);
+            int b = raw.read();
+            raw.seek(raw.length() / 2);
+            raw.write(b ^ 0x10);
+        }
+        GestureUsage corrupt = GestureUsage.read(dir);
+        assertEquals(1, corrupt.skippedBlockCount());
+        assertTrue(corrupt.eventCount() + " events", corrupt.eventCount() < events * 6 / 10);
+    }
+
+    @Test
+    public void encodesAnEventInAFewBytes() throws IOException {
+        File dir = folder.newFolder();
+        int events = 10_000;
+        try (GestureEventLog log = new GestureEventLog(dir, Long.MAX_VALUE, Long.MAX_VALUE)) {
+            for (int i = 0; i < events; i++) {
+                // A camera frame apart, 30 frames per second.
+                long timestamp = 1_700_000_000_000_000L + 33_333L * i;
+                Gesture gesture = GESTURES[i % GESTURES.length];
+                appendOrWait(() -> gestures(log, timestamp, TwoHandGesture.NONE, gesture));
+            }
+        }
+
+        long bytes = new File(dir, EventLogFormat.fileName(GestureEventLog.logFiles(dir).get(0))).length();
+        assertTrue(bytes / (double) events + " bytes per event", bytes < events * 7L);
+    }
+
+    @Test
+    public void appendingDoesNotAllocate() throws IOException {
+        File dir = folder.newFolder();
+        int iterations = 10_000;
+        Gesture[][] pairs = new Gesture[GESTURES.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new Gesture[] {GESTURES[i], Gesture.FIST};
+        }
+        try (GestureEventLog log = new GestureEventLog(dir, Long.MAX_VALUE, Long.MAX_VALUE, 4, 1 << 20, 60_000)) {
+            long[] timestamp = {0};
+            long allocated = Allocations.measure(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    timestamp[0] += 33_333L;
+                    gestures(log, timestamp[0], TwoHandGesture.NONE, pairs[i % pairs.length]);
+                    motion(log, timestamp[0], MOTIONS[i % MOTIONS.length], null);
+                }
+            });
+
+            assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+            assertEquals(4L * iterations, log.appendedCount());
+        }
+    }
+
+    @Test
+    public void readsAMillionEvents() throws IOException {
+        File dir = folder.newFolder();
+        int events = 1_000_000;
+        try (GestureEventLog log = new GestureEventLog(dir, 4 << 20, Long.MAX_VALUE, 8, 64 * 1024, 1000)) {
+            appendRandom(log, events, 11);
+        }
+
+        GestureUsage usage = GestureUsage.read(dir);
+
+        assertEquals(events, usage.eventCount());
+        assertEquals(0, usage.skippedBlockCount());
+    }
+
+    // Appends a random mix of gesture and motion events, waiting for the writer instead of dropping.
+    private void appendRandom(GestureEventLog log, int events, long seed) {
+        Random random = new Random(seed);
+        long timestamp = 0;
+        for (int i = 0; i < events; i++) {
+            timestamp += 33_333L * (1 + random.nextInt(30));
+            long at = timestamp;
+            if (random.nextInt(3) == 0) {
+                Motion motion = MOTIONS[random.nextInt(MOTIONS.length)];
+                appendOrWait(() -> motion(log, at, motion, null));
+            } else {
+                int count = random.nextInt(MAX_HANDS + 1);
+                Gesture first = GESTURES[random.nextInt(GESTURES.length)];
+                Gesture second = GESTURES[random.nextInt(GESTURES.length)];
+                TwoHandGesture twoHand = count == 2 && random.nextBoolean() ? TwoHandGesture.BOTH_FIST : TwoHandGesture.NONE;
+                appendOrWait(() -> count == 0 ? gestures(log, at, twoHand)
+                        : count == 1 ? gestures(log, at, twoHand, first) : gestures(log, at, twoHand, first, second));
+            }
+        }
+    }
+
+    private interface Append {
+        boolean append();
+    }
+
+    private static void appendOrWait(Append append) {
+        while (!append.append()) {
+            Thread.yield();
+        }
+    }
+
+    private boolean gestures(GestureEventLog log, long timestamp, TwoHandGesture twoHand, Gesture... gestures) {
+        System.arraycopy(gestures, 0, hands, 0, gestures.length);
+        event.setGestures(timestamp, "", gestures.length, hands, handedness, twoHand);
+        return log.append(event);
+    }
+
+    private boolean motion(GestureEventLog log, long timestamp, Motion motion, TrajectoryTemplate trajectory) {
+        event.setMotion(timestamp, "", motion, trajectory);
+        return log.append(event);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.gesture.log;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GestureLogTest {
+    private final List<String> lines = new ArrayList<>();
+    private long now;
+    private final GestureLog log = new GestureLog((tag, message) -> lines.add(tag + ": " + message),
+            () -> now);
+
+    @Test
+    public void everyNthLogsTheFirstCallThenOneInN() {
+        GestureLog.Channel channel = log.everyNth("T", 3);
+        for (int i = 0; i < 7; i++) {
+            channel.log(i, (out, value) -> out.append("call ").append(value));
+        }
+
+        assertEquals(3, lines.size());
+        assertEquals("T: call 0", lines.get(0));
+        assertEquals("T: call 3", lines.get(1));
+        assertEquals("T: call 6", lines.get(2));
+        assertEquals(4, channel.suppressedCount());
+    }
+
+    @Test
+    public void atMostEveryLogsOncePerInterval() {
+        GestureLog.Channel channel = log.atMostEvery("T", 1000);
+        long frame = 33_000_000;
+        for (int i = 0; i < 90; i++) {
+            now = i * frame;
+            channel.log("frame");
+        }
+
+        // Logged at 0 ms, 1023 ms and 2046 ms.
+        assertEquals(3, lines.size());
+        assertEquals(87, channel.suppressedCount());
+    }
+
+    @Test
+    public void disabledLogNeitherBuildsNorSamples() {
+        GestureLog.Channel channel = log.everyNth("T", 2);
+        log.setEnabled(false);
+        channel.log("frame");
+        channel.log(1, (out, value) -> out.append(value));
+        log.setEnabled(true);
+        channel.log("frame");
+
+        assertEquals(1, lines.size());
+        assertEquals(0, channel.suppressedCount());
+    }
+
+    @Test
+    public void disabledLogDoesNotAllocate() {
+        HandFrame frame = twoHandFrame();
+        GestureLog.Channel channel = log.channel("T");
+        log.setEnabled(false);
+        int iterations = 100_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                channel.log(frame, HandFrameText::landmarks);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    public void sampledOutCallsDoNotAllocate() {
+        HandFrame frame = twoHandFrame();
+        GestureLog.Channel channel = log.atMostEvery("T", 1000);
+        channel.log(frame, HandFrameText::landmarks);
+        int iterations = 100_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                channel.log(frame, HandFrameText::landmarks);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+        assertEquals(1, lines.size());
+    }
+
+    @Test
+    public void landmarkTextMatchesTheOriginalDebugString() {
+        HandFrame frame = twoHandFrame();
+        StringBuilder out = new StringBuilder();
+
+        HandFrameText.landmarks(out, frame);
+
+        assertEquals("[TS:" + frame.timestamp() + "] " + originalDebugString(frame), out.toString());
+        out.setLength(0);
+        frame.setHandCount(0);
+        HandFrameText.landmarks(out, frame);
+        assertEquals("[TS:" + frame.timestamp() + "] No hand landmarks", out.toString());
+    }
+
+    private static HandFrame twoHandFrame() {
+        HandFrame frame = new HandFrame(2);
+        HandPoses.write(frame.landmarks(), 0, true, true, true, true, true);
+        HandPoses.write(frame.landmarks(), HandLandmark.handOffset(1), false, true, false, false, false);
+        frame.setHandCount(2);
+        frame.setTimestamp(123_456);
+        return frame;
+    }
+
+    // The string MainActivity used to build on every frame.
+    private static String originalDebugString(HandFrame frame) {
+        int handCount = frame.handCount();
+        float[] landmarkBuffer = frame.landmarks();
+        String multiHandLandmarksStr = "Number of hands detected: " + handCount + "\n";
+        for (int handIndex = 0; handIndex < handCount; handIndex++) {
+            int offset = HandLandmark.handOffset(handIndex);
+            multiHandLandmarksStr +=
+                    "\t#Hand landmarks for hand[" + handIndex + "]: " + HandLandmark.COUNT + "\n";
+            for (int landmarkIndex = 0; landmarkIndex < HandLandmark.COUNT; landmarkIndex++) {
+                multiHandLandmarksStr +=
+                        "\t\tLandmark ["
+                                + landmarkIndex
+                                + "]: ("
+                                + landmarkBuffer[HandLandmark.x(offset, landmarkIndex)]
+                                + ", "
+                                + landmarkBuffer[HandLandmark.y(offset, landmarkIndex)]
+                                + ", "
+                                + landmarkBuffer[HandLandmark.z(offset, landmarkIndex)]
+                                + ")\n";
+            }
+        }
+        return multiHandLandmarksStr;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mediapipemultihandstracking.gesture.metrics;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void bucketsCoverEveryValueWithin25Percent() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket >= 0 && bucket < LatencyHistogram.BUCKETS);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(value + " <= " + upper, value <= upper);
+            assertTrue(value + " in bucket " + bucket, bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+            assertTrue(value + " vs " + upper, upper - value <= value / 4);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesOfAUniformDistribution() {
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500, histogram.mean(), 1e-6);
+        assertEquals(1_000_000, histogram.max());
+        assertWithin(500_000, histogram.percentile(0.5));
+        assertWithin(990_000, histogram.percentile(0.99));
+        assertEquals(1_000_000, histogram.percentile(1));
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        histogram.record(-5);
+
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.count());
+        assertEquals(100_002, histogram.max());
+    }
+
+    @Test
+    public void record_doesNotAllocate() {
+        int iterations = 100_000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                histogram.record(i * 997L);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected * 5 / 4);
+    }
+}
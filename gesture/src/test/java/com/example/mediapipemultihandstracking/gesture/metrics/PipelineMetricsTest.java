@@ -0,0 +1,46 @@
+package com.example.mediapipemultihandstracking.gesture.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineMetricsTest {
+    @Test
+    public void dumpsStagesAndCounters() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.DECODE, 20_000);
+        metrics.record(PipelineMetrics.Stage.DECODE, 40_000);
+        metrics.addCounter("frames_dropped", () -> 3);
+        StringBuilder json = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+
+        metrics.dumpJson(json);
+        metrics.dumpText(text);
+
+        assertTrue(json.toString(), json.toString().startsWith("{\"stages\":{\"arrival\":{\"count\":0,"));
+        assertTrue(json.toString(), json.toString().contains(
+                "\"decode\":{\"count\":2,\"mean_ns\":30000,\"p50_ns\":20479,\"p90_ns\":40000,"
+                        + "\"p99_ns\":40000,\"max_ns\":40000}"));
+        assertTrue(json.toString(), json.toString().endsWith("\"counters\":{\"frames_dropped\":3}}"));
+        assertTrue(text.toString(), text.toString().contains("decode              2      30.0"));
+        assertTrue(text.toString(), text.toString().endsWith("counters: frames_dropped=3\n"));
+    }
+
+    @Test
+    public void medianProcessingAddsTheMedianOfEveryStageButArrival() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        assertEquals(0, metrics.medianProcessingNanos());
+
+        metrics.record(PipelineMetrics.Stage.ARRIVAL, 1 << 20);
+        metrics.record(PipelineMetrics.Stage.DECODE, 1 << 12);
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, 1 << 10);
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, 1 << 10);
+        metrics.record(PipelineMetrics.Stage.CLASSIFY, 1 << 16);
+
+        assertEquals(metrics.histogram(PipelineMetrics.Stage.DECODE).percentile(0.5)
+                + metrics.histogram(PipelineMetrics.Stage.CLASSIFY).percentile(0.5),
+                metrics.medianProcessingNanos());
+        assertTrue(metrics.medianProcessingNanos() < (1 << 12) + (1 << 16));
+    }
+}
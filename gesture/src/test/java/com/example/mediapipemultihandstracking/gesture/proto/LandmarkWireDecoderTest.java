@@ -0,0 +1,148 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LandmarkWireDecoderTest {
+    private final Random random = new Random(42);
+
+    @Test
+    public void landmarkList_matchesMessageParser() throws Exception {
+        float[] buffer = new float[2 * HandLandmark.FLOATS_PER_HAND];
+        LandmarkListParser parser = new LandmarkListParser(buffer);
+        for (int round = 0; round < 200; round++) {
+            byte[][] hands = {randomLandmarkList(), randomLandmarkList()};
+            parser.reset();
+            for (byte[] hand : hands) {
+                parser.parseFrom(hand);
+            }
+
+            assertEquals(2, parser.handCount());
+            for (int hand = 0; hand < hands.length; hand++) {
+                assertArrayEquals(expectedLandmarks(hands[hand]),
+                        Arrays.copyOfRange(buffer, HandLandmark.handOffset(hand),
+                                HandLandmark.handOffset(hand + 1)), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void rect_matchesMessageParser() throws Exception {
+        float[] buffer = new float[HandRect.FLOATS_PER_RECT];
+        RectListParser parser = new RectListParser(buffer);
+        for (int round = 0; round < 200; round++) {
+            byte[] bytes = MediaPipeProtos.rect(random.nextFloat(), random.nextFloat(),
+                    random.nextFloat(), random.nextFloat(), random.nextFloat() * 6f - 3f);
+            parser.reset();
+            parser.parseFrom(bytes);
+
+            DynamicMessage rect = DynamicMessage.parseFrom(MediaPipeProtos.NORMALIZED_RECT, bytes);
+            float[] expected = {
+                    floatField(rect, "x_center"), floatField(rect, "y_center"),
+                    floatField(rect, "height"), floatField(rect, "width"), floatField(rect, "rotation")};
+            assertEquals(1, parser.rectCount());
+            assertArrayEquals(expected, buffer, 0f);
+        }
+    }
+
+    @Test
+    public void skipsUnknownAndUnstoredFields() throws Exception {
+        DynamicMessage.Builder landmark = DynamicMessage.newBuilder(MediaPipeProtos.NORMALIZED_LANDMARK)
+                .setField(MediaPipeProtos.NORMALIZED_LANDMARK.findFieldByName("visibility"), 0.9f)
+                .setField(MediaPipeProtos.NORMALIZED_LANDMARK.findFieldByName("y"), 0.25f)
+                .setUnknownFields(UnknownFieldSet.newBuilder()
+                        .addField(15, UnknownFieldSet.Field.newBuilder().addVarint(7).build())
+                        .build());
+        DynamicMessage.Builder list = DynamicMessage.newBuilder(MediaPipeProtos.NORMALIZED_LANDMARK_LIST);
+        FieldDescriptor landmarkField = MediaPipeProtos.NORMALIZED_LANDMARK_LIST.findFieldByName("landmark");
+        for (int i = 0; i < HandLandmark.COUNT + 2; i++) {
+            list.addRepeatedField(landmarkField, landmark.build());
+        }
+        float[] buffer = new float[HandLandmark.FLOATS_PER_HAND];
+        Arrays.fill(buffer, -1f);
+        LandmarkListParser parser = new LandmarkListParser(buffer);
+
+        parser.parseFrom(list.build().toByteArray());
+
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            assertEquals(0f, buffer[HandLandmark.x(0, i)], 0f);
+            assertEquals(0.25f, buffer[HandLandmark.y(0, i)], 0f);
+            assertEquals(0f, buffer[HandLandmark.z(0, i)], 0f);
+        }
+    }
+
+    @Test
+    public void handsBeyondCapacityAreSkipped() throws Exception {
+        float[] buffer = new float[HandLandmark.FLOATS_PER_HAND];
+        LandmarkListParser parser = new LandmarkListParser(buffer);
+        byte[] first = randomLandmarkList();
+
+        parser.parseFrom(first);
+        parser.parseFrom(randomLandmarkList());
+
+        assertEquals(1, parser.handCount());
+        assertArrayEquals(expectedLandmarks(first), buffer, 0f);
+    }
+
+    @Test
+    public void handedness_topClassificationAsRightHandProbability() throws Exception {
+        float[] scores = new float[3];
+        HandednessListParser parser = new HandednessListParser(scores);
+
+        parser.parseFrom(MediaPipeProtos.handedness(0.9f));
+        parser.parseFrom(MediaPipeProtos.handedness(0.2f, 0.8f));
+        parser.parseFrom(new byte[0]);
+
+        assertEquals(3, parser.handCount());
+        assertEquals(0.1f, scores[0], 1e-6f);
+        assertEquals(0.8f, scores[1], 1e-6f);
+        assertTrue(Float.isNaN(scores[2]));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void truncatedInputFails() throws Exception {
+        byte[] bytes = randomLandmarkList();
+        new LandmarkListParser(new float[HandLandmark.FLOATS_PER_HAND])
+                .parseFrom(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    private byte[] randomLandmarkList() {
+        float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+        for (int i = 0; i < landmarks.length; i++) {
+            landmarks[i] = random.nextFloat() * 1.2f - 0.1f;
+        }
+        return MediaPipeProtos.landmarkList(landmarks, 0, HandLandmark.COUNT);
+    }
+
+    private static float[] expectedLandmarks(byte[] bytes) throws InvalidProtocolBufferException {
+        DynamicMessage list = DynamicMessage.parseFrom(MediaPipeProtos.NORMALIZED_LANDMARK_LIST, bytes);
+        @SuppressWarnings("unchecked")
+        List<DynamicMessage> landmarks = (List<DynamicMessage>)
+                list.getField(MediaPipeProtos.NORMALIZED_LANDMARK_LIST.findFieldByName("landmark"));
+        float[] expected = new float[HandLandmark.FLOATS_PER_HAND];
+        for (int i = 0; i < landmarks.size(); i++) {
+            expected[HandLandmark.x(0, i)] = floatField(landmarks.get(i), "x");
+            expected[HandLandmark.y(0, i)] = floatField(landmarks.get(i), "y");
+            expected[HandLandmark.z(0, i)] = floatField(landmarks.get(i), "z");
+        }
+        return expected;
+    }
+
+    private static float floatField(DynamicMessage message, String name) {
+        return (Float) message.getField(message.getDescriptorForType().findFieldByName(name));
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.mediapipemultihandstracking.gesture.record;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HandFrameRecorderTest {
+    private static final int MAX_HANDS = 2;
+    private static final long FRAME = 33_333;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsEveryFieldAcrossBatches() throws IOException {
+        File file = folder.newFile();
+        List<HandFrame> frames = randomFrames(100);
+        try (HandFrameRecorder recorder = new HandFrameRecorder(file, MAX_HANDS, 0.75f, 8, 2)) {
+            for (HandFrame frame : frames) {
+                assertTrue(recordWithRetry(recorder, frame));
+            }
+        }
+        assertEquals(HandFrameRecording.HEADER_SIZE + 100 * HandFrameRecording.recordSize(MAX_HANDS),
+                file.length());
+
+        HandFrame read = new HandFrame(MAX_HANDS);
+        try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+            assertEquals(100, recording.frameCount());
+            assertEquals(MAX_HANDS, recording.maxHands());
+            assertEquals(0.75f, recording.yScale(), 0f);
+            for (int i = 0; i < frames.size(); i++) {
+                recording.read(i, read);
+                assertSameFrame(frames.get(i), read);
+                assertEquals(frames.get(i).timestamp(), recording.timestamp(i));
+            }
+        }
+    }
+
+    @Test
+    public void ignoresARecordCutShort() throws IOException {
+        File file = folder.newFile();
+        try (HandFrameRecorder recorder = new HandFrameRecorder(file, MAX_HANDS)) {
+            for (HandFrame frame : randomFrames(3)) {
+                recorder.record(frame);
+            }
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 10);
+        }
+
+        try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+            assertEquals(2, recording.frameCount());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.write(new byte[64]);
+        }
+        HandFrameRecording.open(file).close();
+    }
+
+    @Test
+    public void replayReproducesTheLivePipeline() throws IOException {
+        File file = folder.newFile();
+        GesturePipeline live = new GesturePipeline(MAX_HANDS);
+        List<String> liveLabels = new ArrayList<>();
+        try (HandFrameRecorder recorder = new HandFrameRecorder(file, MAX_HANDS)) {
+            for (HandFrame frame : movingHandFrames(120)) {
+                live.process(frame);
+                liveLabels.add(live.gestureLabel() + " | " + live.motion().label());
+                assertTrue(recorder.record(frame));
+            }
+        }
+
+        GesturePipeline replayed = new GesturePipeline(MAX_HANDS);
+        List<String> replayedLabels = new ArrayList<>();
+        try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+            recording.replay(frame -> {
+                replayed.process(frame);
+                replayedLabels.add(replayed.gestureLabel() + " | " + replayed.motion().label());
+            });
+        }
+
+        assertEquals(liveLabels, replayedLabels);
+        assertTrue(liveLabels.contains("FIVE | Scrolling right"));
+    }
+
+    @Test
+    public void recordAndReadDoNotAllocate() throws IOException {
+        File file = folder.newFile();
+        HandFrame frame = randomFrames(1).get(0);
+        int iterations = 10_000;
+        try (HandFrameRecorder recorder = new HandFrameRecorder(file, MAX_HANDS, iterations, 2)) {
+            long allocated = Allocations.measure(() -> {
+                for (int i = 0; i < iterations / 2; i++) {
+                    recorder.record(frame);
+                }
+            });
+            assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+        }
+
+        HandFrame read = new HandFrame(MAX_HANDS);
+        try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+            long allocated = Allocations.measure(() -> {
+                for (int i = 0; i < recording.frameCount(); i++) {
+                    recording.read(i, read);
+                }
+            });
+            assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+        }
+    }
+
+    @Test
+    public void dropsFramesAfterClose() throws IOException {
+        HandFrameRecorder recorder = new HandFrameRecorder(folder.newFile(), MAX_HANDS);
+        recorder.close();
+
+        assertFalse(recorder.record(new HandFrame(MAX_HANDS)));
+        assertEquals(1, recorder.droppedCount());
+    }
+
+    // The writer thread may briefly hold every batch with tiny batches; wait for it.
+    private static boolean recordWithRetry(HandFrameRecorder recorder, HandFrame frame) {
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            if (recorder.record(frame)) {
+                return true;
+            }
+            Thread.yield();
+        }
+        return false;
+    }
+
+    private static List<HandFrame> randomFrames(int count) {
+        Random random = new Random(5);
+        List<HandFrame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HandFrame frame = new HandFrame(MAX_HANDS);
+            frame.setTimestamp(i * FRAME);
+            frame.setHandCount(random.nextInt(MAX_HANDS + 1));
+            frame.setRectCount(random.nextInt(MAX_HANDS + 1));
+            for (int f = 0; f < frame.handCount() * HandLandmark.FLOATS_PER_HAND; f++) {
+                frame.landmarks()[f] = random.nextFloat();
+            }
+            for (int f = 0; f < frame.rectCount() * HandRect.FLOATS_PER_RECT; f++) {
+                frame.rects()[f] = random.nextFloat();
+            }
+            for (int hand = 0; hand < frame.handCount(); hand++) {
+                frame.handedness()[hand] = random.nextBoolean() ? random.nextFloat() : Float.NaN;
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    // One open hand moving right, then left.
+    private static List<HandFrame> movingHandFrames(int count) {
+        List<HandFrame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HandFrame frame = new HandFrame(MAX_HANDS);
+            float dx = 0.01f * (i < count / 2 ? i : count - i) - 0.3f;
+            frame.setTimestamp(i * FRAME);
+            HandPoses.write(frame.landmarks(), 0, true, true, true, true, true);
+            HandPoses.translate(frame.landmarks(), 0, dx, 0f);
+            frame.setHandCount(1);
+            frame.rects()[HandRect.X_CENTER] = 0.5f + dx;
+            frame.rects()[HandRect.Y_CENTER] = 0.5f;
+            frame.rects()[HandRect.HEIGHT] = 0.4f;
+            frame.rects()[HandRect.WIDTH] = 0.4f;
+            frame.setRectCount(1);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static void assertSameFrame(HandFrame expected, HandFrame actual) {
+        assertEquals(expected.timestamp(), actual.timestamp());
+        assertEquals(expected.handCount(), actual.handCount());
+        assertEquals(expected.rectCount(), actual.rectCount());
+        int landmarkFloats = expected.handCount() * HandLandmark.FLOATS_PER_HAND;
+        assertArrayEquals(Arrays.copyOf(expected.landmarks(), landmarkFloats),
+                Arrays.copyOf(actual.landmarks(), landmarkFloats), 0f);
+        int rectFloats = expected.rectCount() * HandRect.FLOATS_PER_RECT;
+        assertArrayEquals(Arrays.copyOf(expected.rects(), rectFloats),
+                Arrays.copyOf(actual.rects(), rectFloats), 0f);
+        assertArrayEquals(Arrays.copyOf(expected.handedness(), expected.handCount()),
+                Arrays.copyOf(actual.handedness(), actual.handCount()), 0f);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventBus;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LandmarkExporterTest {
+    private static final int MAX_HANDS = 2;
+    private static final int TRACKS = 4;
+    private static final int FRAMES = 300;
+    private static final long FRAME = 33_333;
+
+    @Test
+    public void streamsFramesAndEventsOverTcp() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            Receiver receiver = new Receiver();
+            GestureEventBus bus = new GestureEventBus(MAX_HANDS);
+            LandmarkExporter exporter = new LandmarkExporter(LandmarkExporter.Transport.TCP,
+                    (InetSocketAddress) server.getLocalAddress(), MAX_HANDS, TRACKS,
+                    bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 16));
+            Thread reader;
+            try (SocketChannel accepted = server.accept()) {
+                reader = new Thread(() -> {
+                    ByteBuffer chunk = ByteBuffer.allocate(4096);
+                    try {
+                        while (accepted.read(chunk) >= 0) {
+                            chunk.flip();
+                            receiver.decoder.feed(chunk);
+                            chunk.clear();
+                        }
+                    } catch (IOException e) {
+                        receiver.failure = e;
+                    }
+                });
+                reader.start();
+                // Larger than the room left with a frame: dropped, but counted.
+                bus.event().setMotion(0, repeat('x', 1000), Motion.SCROLL_RIGHT, null);
+                bus.publish();
+                exportAll(exporter, bus, 0);
+                exporter.close();
+                reader.join(10_000);
+            }
+
+            receiver.assertReceivedIntact();
+            assertEquals(FRAMES, receiver.decoder.frameCount());
+            assertEquals(0, receiver.decoder.skippedCount());
+            assertEquals(FRAMES / 50, receiver.events.size());
+            assertEquals("#2 MOTION at 0: Scrolling right", receiver.events.get(0));
+            assertEquals(1, exporter.droppedEventCount());
+            assertCompressed(exporter);
+        }
+    }
+
+    @Test
+    public void streamsFramesOverUdp() throws Exception {
+        // Closed while the reader is blocked on it, to stop the reader.
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            Receiver receiver = new Receiver();
+            Thread reader = new Thread(() -> {
+                ByteBuffer datagram = ByteBuffer.allocate(65_536);
+                try {
+                    while (true) {
+                        channel.receive(datagram);
+                        datagram.flip();
+                        receiver.decoder.decodeDatagram(datagram);
+                        datagram.clear();
+                    }
+                } catch (AsynchronousCloseException e) {
+                    // Done.
+                } catch (IOException e) {
+                    receiver.failure = e;
+                }
+            });
+            reader.start();
+            LandmarkExporter exporter = new LandmarkExporter(LandmarkExporter.Transport.UDP,
+                    (InetSocketAddress) channel.getLocalAddress(), MAX_HANDS, TRACKS, null);
+            exportAll(exporter, null, 1);
+            exporter.close();
+            // Let the last datagrams arrive.
+            for (int wait = 0; wait < 100 && receiver.decoder.frameCount() + receiver.decoder.skippedCount() < FRAMES; wait++) {
+                Thread.sleep(10);
+            }
+            channel.close();
+            reader.join(10_000);
+
+            receiver.assertReceivedIntact();
+            // Loopback datagrams are rarely lost; any loss costs frames up to the next keyframe.
+            assertTrue(receiver.decoder.frameCount() + " frames", receiver.decoder.frameCount() > FRAMES * 8 / 10);
+            assertCompressed(exporter);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Mostly delta frames, with the events and keyframes among them.
+    private static void assertCompressed(LandmarkExporter exporter) {
+        double bytesPerFrame = exporter.sentBytes() / (double) exporter.exportedCount();
+        assertTrue(bytesPerFrame + " bytes per frame, " + LandmarkStreamTest.FLOAT_FRAME_BYTES + " as floats",
+                bytesPerFrame < LandmarkStreamTest.FLOAT_FRAME_BYTES / 2.0);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] text = new char[count];
+        Arrays.fill(text, c);
+        return new String(text);
+    }
+
+    @Test
+    public void dropsFramesOnceTheConnectionFailed() throws Exception {
+        InetSocketAddress closedPort;
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            closedPort = (InetSocketAddress) server.getLocalAddress();
+        }
+        LandmarkExporter exporter = new LandmarkExporter(LandmarkExporter.Transport.TCP, closedPort,
+                MAX_HANDS, TRACKS, null);
+        HandFrame frame = LandmarkStreamTest.movingHands(1).get(0);
+        for (int attempt = 0; attempt < 1000 && exporter.export(frame, null); attempt++) {
+            Thread.sleep(1);
+        }
+
+        assertFalse(exporter.export(frame, null));
+        try {
+            exporter.close();
+            fail("connecting to a closed port succeeded");
+        } catch (IOException expected) {
+            assertTrue(exporter.droppedCount() >= 2);
+        }
+    }
+
+    // Exports the frames, with a motion event every 50 frames.
+    private static void exportAll(LandmarkExporter exporter, GestureEventBus bus, long pauseMillis)
+            throws InterruptedException {
+        HandTracker tracker = new HandTracker(TRACKS);
+        List<HandFrame> frames = LandmarkStreamTest.movingHands(FRAMES);
+        for (int i = 0; i < frames.size(); i++) {
+            HandFrame frame = frames.get(i);
+            tracker.update(frame);
+            if (bus != null && i % 50 == 0) {
+                bus.event().setMotion(frame.timestamp(), "Scrolling right", Motion.SCROLL_RIGHT, null);
+                bus.publish();
+            }
+            // The sender may briefly hold every buffer; wait for it rather than drop.
+            while (!exporter.export(frame, tracker)) {
+                Thread.yield();
+            }
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+    }
+
+    private static final class Receiver implements LandmarkStreamDecoder.Listener {
+        final LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, this);
+        final List<String> events = new ArrayList<>();
+        final List<HandFrame> expected = LandmarkStreamTest.movingHands(FRAMES);
+        volatile IOException failure;
+        volatile AssertionError mismatch;
+
+        void assertReceivedIntact() {
+            assertEquals(null, failure);
+            if (mismatch != null) {
+                throw mismatch;
+            }
+        }
+
+        @Override
+        public void onFrame(HandFrame frame) {
+            int index = (int) (frame.timestamp() / FRAME);
+            try {
+                LandmarkStreamTest.assertSameFrame(expected.get(index), frame);
+            } catch (AssertionError e) {
+                mismatch = e;
+            }
+        }
+
+        @Override
+        public void onEvent(GestureEvent event) {
+            events.add(event.toString());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.mediapipemultihandstracking.gesture.stream;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.TwoHandGesture;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.track.HandTracker;
+import com.example.mediapipemultihandstracking.gesture.track.TrajectoryTemplate;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LandmarkStreamTest {
+    private static final int MAX_HANDS = 2;
+    private static final int TRACKS = 4;
+    private static final long FRAME = 33_333;
+    // Half a quantization step, and float rounding on top.
+    private static final float TOLERANCE = 0.5f / StreamFormat.SCALE + 1e-6f;
+    // A frame of two hands sent as plain floats, with a 16-byte header.
+    static final int FLOAT_FRAME_BYTES =
+            MAX_HANDS * (HandLandmark.FLOATS_PER_HAND + HandRect.FLOATS_PER_RECT + 1) * 4 + 16;
+
+    @Test
+    public void roundTripsFramesWithinHalfAQuantizationStep() {
+        List<HandFrame> frames = movingHands(100);
+        HandTracker tracker = new HandTracker(TRACKS);
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 30);
+        ByteBuffer stream = ByteBuffer.allocate(100 * LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+        List<int[]> sentTracks = new ArrayList<>();
+        for (HandFrame frame : frames) {
+            tracker.update(frame);
+            assertTrue(encoder.encodeFrame(frame, tracker, stream));
+            sentTracks.add(new int[]{tracker.slotOfHand(0), tracker.slotOfHand(1)});
+        }
+        stream.flip();
+
+        Received received = new Received();
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, received);
+        received.decoder = decoder;
+        // Chunks that cut messages apart, as TCP reads do.
+        while (stream.hasRemaining()) {
+            int limit = stream.limit();
+            stream.limit(Math.min(limit, stream.position() + 7));
+            decoder.feed(stream);
+            stream.limit(limit);
+        }
+
+        assertEquals(frames.size(), received.frames.size());
+        assertEquals(0, decoder.skippedCount());
+        for (int i = 0; i < frames.size(); i++) {
+            assertSameFrame(frames.get(i), received.frames.get(i));
+            assertEquals(sentTracks.get(i)[0], received.tracks.get(i)[0]);
+            assertEquals(sentTracks.get(i)[1], received.tracks.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void deltaFramesTakeFarLessThanKeyframes() {
+        HandTracker tracker = new HandTracker(TRACKS);
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 30);
+        ByteBuffer out = ByteBuffer.allocate(LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+        int keyframeBytes = 0;
+        int deltaBytes = 0;
+        int keyframes = 0;
+        List<HandFrame> frames = movingHands(90);
+        for (int i = 0; i < frames.size(); i++) {
+            tracker.update(frames.get(i));
+            out.clear();
+            encoder.encodeFrame(frames.get(i), tracker, out);
+            if (i % 30 == 0) {
+                keyframeBytes += out.position();
+                keyframes++;
+            } else {
+                deltaBytes += out.position();
+            }
+        }
+        float keyframe = keyframeBytes / (float) keyframes;
+        float delta = deltaBytes / (float) (frames.size() - keyframes);
+
+        assertTrue(keyframe + " bytes per keyframe, " + FLOAT_FRAME_BYTES + " as floats",
+                keyframe < FLOAT_FRAME_BYTES / 2f);
+        assertTrue(delta + " bytes per delta frame, " + keyframe + " per keyframe", delta < keyframe * 0.6f);
+    }
+
+    @Test
+    public void skipsFromALostFrameToTheNextKeyframe() {
+        HandTracker tracker = new HandTracker(TRACKS);
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 10);
+        List<ByteBuffer> messages = new ArrayList<>();
+        for (HandFrame frame : movingHands(25)) {
+            tracker.update(frame);
+            ByteBuffer message = ByteBuffer.allocate(LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+            encoder.encodeFrame(frame, tracker, message);
+            message.flip();
+            messages.add(message);
+        }
+        messages.remove(3);
+
+        Received received = new Received();
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, received);
+        for (ByteBuffer message : messages) {
+            decoder.decodeDatagram(message);
+        }
+
+        // Frames 0 to 2, then none up to the keyframe at 10.
+        assertEquals(3 + 15, decoder.frameCount());
+        assertEquals(6, decoder.skippedCount());
+        assertEquals(10 * FRAME, received.frames.get(3).timestamp());
+    }
+
+    @Test
+    public void skipsMalformedMessages() {
+        Received received = new Received();
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, received);
+        ByteBuffer garbage = ByteBuffer.allocate(8);
+        garbage.putShort((short) 6).put(new byte[]{9, 0, 0, 0, 9, 0}).flip();
+        decoder.decodeDatagram(garbage);
+
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 30);
+        ByteBuffer valid = ByteBuffer.allocate(LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+        encoder.encodeFrame(movingHands(1).get(0), null, valid);
+        valid.flip();
+        decoder.decodeDatagram(valid);
+
+        assertEquals(1, decoder.skippedCount());
+        assertEquals(1, decoder.frameCount());
+    }
+
+    @Test
+    public void roundTripsEvents() {
+        GestureEvent gestures = new GestureEvent(MAX_HANDS);
+        gestures.setGestures(5 * FRAME, "FIVE \u270B | fist", 2, new Gesture[]{Gesture.FIVE, Gesture.FIST},
+                new Handedness[]{Handedness.LEFT, Handedness.RIGHT}, TwoHandGesture.NONE);
+        gestures.setSequence(7);
+        TrajectoryTemplate swipe = TrajectoryTemplate.defaults().get(0);
+        GestureEvent motion = new GestureEvent(MAX_HANDS);
+        motion.setMotion(6 * FRAME, "Zoom in \uD83D\uDD0D", Motion.ZOOM_IN, swipe);
+        motion.setSequence(8);
+
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 30);
+        ByteBuffer out = ByteBuffer.allocate(256);
+        assertTrue(encoder.encodeEvent(gestures, out));
+        assertTrue(encoder.encodeEvent(motion, out));
+        out.flip();
+        List<String> received = new ArrayList<>();
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, new LandmarkStreamDecoder.Listener() {
+            @Override
+            public void onFrame(HandFrame frame) {
+            }
+
+            @Override
+            public void onEvent(GestureEvent event) {
+                if (event.type() == GestureEvent.Type.GESTURE) {
+                    received.add(event + " " + event.handCount() + " " + event.gesture(0) + " "
+                            + event.handedness(0) + " " + event.gesture(1) + " " + event.handedness(1));
+                } else {
+                    assertEquals(swipe.name(), event.trajectory().name());
+                    received.add(event + " " + event.motion());
+                }
+            }
+        });
+        decoder.decodeDatagram(out);
+
+        assertEquals(2, decoder.eventCount());
+        assertEquals("#7 GESTURE at 166665: FIVE \u270B | fist 2 FIVE LEFT FIST RIGHT", received.get(0));
+        assertEquals("#8 MOTION at 199998: Zoom in \uD83D\uDD0D ZOOM_IN", received.get(1));
+    }
+
+    @Test
+    public void encodingAndDecodingFramesDoNotAllocate() {
+        List<HandFrame> frames = movingHands(64);
+        HandTracker tracker = new HandTracker(TRACKS);
+        LandmarkStreamEncoder encoder = new LandmarkStreamEncoder(TRACKS, 30);
+        ByteBuffer stream = ByteBuffer.allocate(frames.size() * LandmarkStreamEncoder.maxFrameBytes(MAX_HANDS));
+        LandmarkStreamDecoder decoder = new LandmarkStreamDecoder(MAX_HANDS, new Received() {
+            @Override
+            public void onFrame(HandFrame frame) {
+            }
+        });
+        int iterations = 1000;
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                HandFrame frame = frames.get(i % frames.size());
+                tracker.update(frame);
+                if (!encoder.encodeFrame(frame, tracker, stream)) {
+                    stream.flip();
+                    decoder.feed(stream);
+                    stream.clear();
+                    encoder.encodeFrame(frame, tracker, stream);
+                }
+            }
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+        assertEquals(0, decoder.skippedCount());
+    }
+
+    static class Received implements LandmarkStreamDecoder.Listener {
+        final List<HandFrame> frames = new ArrayList<>();
+        final List<int[]> tracks = new ArrayList<>();
+        final List<String> events = new ArrayList<>();
+        LandmarkStreamDecoder decoder;
+
+        @Override
+        public void onFrame(HandFrame frame) {
+            HandFrame copy = new HandFrame(frame.maxHands());
+            copy.copyFrom(frame);
+            frames.add(copy);
+            if (decoder != null) {
+                tracks.add(new int[]{decoder.handTrack(0), decoder.handTrack(1)});
+            }
+        }
+
+        @Override
+        public void onEvent(GestureEvent event) {
+            events.add(event.toString());
+        }
+    }
+
+    // An open hand sweeping right and a fist sweeping down, with slightly trembling landmarks and
+    // a handedness score that is sometimes unknown.
+    static List<HandFrame> movingHands(int count) {
+        List<HandFrame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HandFrame frame = new HandFrame(MAX_HANDS);
+            frame.setTimestamp(i * FRAME);
+            float[] landmarks = frame.landmarks();
+            HandPoses.write(landmarks, HandLandmark.handOffset(0), true, true, true, true, true);
+            HandPoses.translate(landmarks, HandLandmark.handOffset(0), 0.004f * i - 0.3f, 0f);
+            HandPoses.write(landmarks, HandLandmark.handOffset(1), false, false, false, false, false);
+            HandPoses.translate(landmarks, HandLandmark.handOffset(1), 0.2f, 0.003f * i - 0.2f);
+            for (int f = 0; f < 2 * HandLandmark.FLOATS_PER_HAND; f++) {
+                landmarks[f] += 0.0005f * (float) Math.sin(i * 1.7 + f);
+            }
+            frame.handedness()[0] = 0.9f;
+            frame.handedness()[1] = i % 10 == 0 ? Float.NaN : 0.1f;
+            frame.setHandCount(2);
+            float[] rects = frame.rects();
+            rects[HandRect.X_CENTER] = 0.2f + 0.004f * i;
+            rects[HandRect.Y_CENTER] = 0.5f;
+            rects[HandRect.HEIGHT] = 0.3f;
+            rects[HandRect.WIDTH] = 0.3f;
+            rects[HandRect.ROTATION] = -0.1f;
+            int second = HandRect.rectOffset(1);
+            rects[second + HandRect.X_CENTER] = 0.7f;
+            rects[second + HandRect.Y_CENTER] = 0.3f + 0.003f * i;
+            rects[second + HandRect.HEIGHT] = 0.25f;
+            rects[second + HandRect.WIDTH] = 0.25f;
+            rects[second + HandRect.ROTATION] = 0.2f;
+            frame.setRectCount(2);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    static void assertSameFrame(HandFrame expected, HandFrame actual) {
+        assertEquals(expected.timestamp(), actual.timestamp());
+        assertEquals(expected.handCount(), actual.handCount());
+        assertEquals(expected.rectCount(), actual.rectCount());
+        for (int f = 0; f < expected.handCount() * HandLandmark.FLOATS_PER_HAND; f++) {
+            assertEquals(expected.landmarks()[f], actual.landmarks()[f], TOLERANCE);
+        }
+        for (int f = 0; f < expected.rectCount() * HandRect.FLOATS_PER_RECT; f++) {
+            assertEquals(expected.rects()[f], actual.rects()[f], TOLERANCE);
+        }
+        for (int hand = 0; hand < expected.handCount(); hand++) {
+            float score = expected.handedness()[hand];
+            if (Float.isNaN(score)) {
+                assertTrue(Float.isNaN(actual.handedness()[hand]));
+            } else {
+                assertEquals(score, actual.handedness()[hand], 0.5f / 254 + 1e-6f);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.mediapipemultihandstracking.gesture.sync;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameJoinerTest {
+    private static final int MAX_HANDS = 2;
+
+    private final float[] landmarks = new float[MAX_HANDS * HandLandmark.FLOATS_PER_HAND];
+    private final float[] rects = new float[MAX_HANDS * HandRect.FLOATS_PER_RECT];
+
+    @Test
+    public void joinsOutOfOrderStreamsAndSkipsMissingTimestamps() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 64);
+        List<Long> landmarkTimestamps = new ArrayList<>();
+        List<Long> rectTimestamps = new ArrayList<>();
+        List<Long> expected = new ArrayList<>();
+        for (long timestamp = 1; timestamp <= 40; timestamp++) {
+            boolean hasLandmarks = timestamp % 7 != 0;
+            boolean hasRects = timestamp % 5 != 0;
+            if (hasLandmarks) {
+                landmarkTimestamps.add(timestamp);
+            }
+            if (hasRects) {
+                rectTimestamps.add(timestamp);
+            }
+            if (hasLandmarks && hasRects) {
+                expected.add(timestamp);
+            }
+        }
+        Random random = new Random(3);
+        Collections.shuffle(landmarkTimestamps, random);
+        Collections.shuffle(rectTimestamps, random);
+        for (long timestamp : landmarkTimestamps) {
+            offerLandmarks(joiner, timestamp);
+        }
+        for (long timestamp : rectTimestamps) {
+            offerRects(joiner, timestamp);
+        }
+
+        List<Long> emitted = new ArrayList<>();
+        joiner.drain(frame -> {
+            assertConsistent(frame);
+            emitted.add(frame.timestamp());
+        });
+        // A later frame flushes the unmatched tail.
+        offerLandmarks(joiner, 100);
+        offerRects(joiner, 100);
+        joiner.drain(frame -> emitted.add(frame.timestamp()));
+        expected.add(100L);
+
+        assertEquals(expected, emitted);
+        assertEquals(expected.size(), joiner.joinedCount());
+        int unmatched = landmarkTimestamps.size() + rectTimestamps.size() - 2 * (expected.size() - 1);
+        assertEquals(unmatched, joiner.droppedCount());
+    }
+
+    @Test
+    public void emitsFramesWhoseOptionalRectsAreMissing() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 8, false, true);
+        List<Long> emitted = new ArrayList<>();
+        List<Integer> emittedRectCounts = new ArrayList<>();
+        FrameJoiner.Listener listener = frame -> {
+            emitted.add(frame.timestamp());
+            emittedRectCounts.add(frame.rectCount());
+        };
+        List<Integer> expectedRectCounts = new ArrayList<>();
+        for (long timestamp = 1; timestamp <= 20; timestamp++) {
+            offerLandmarks(joiner, timestamp);
+            // Rects skip every third frame. The hand count changes every frame here, so the last
+            // rects never fit a frame without its own.
+            if (timestamp % 3 != 0) {
+                offerRects(joiner, timestamp);
+                expectedRectCounts.add(handCount(timestamp));
+            } else {
+                expectedRectCounts.add(0);
+            }
+            joiner.drain(listener);
+        }
+
+        // 18 waits only until 19 shows its rects are not coming.
+        List<Long> expected = new ArrayList<>();
+        for (long timestamp = 1; timestamp <= 20; timestamp++) {
+            expected.add(timestamp);
+        }
+        assertEquals(expected, emitted);
+        assertEquals(expectedRectCounts, emittedRectCounts);
+        assertEquals(0, joiner.droppedCount());
+
+        // Without later records, a frame still waits for its rects.
+        offerLandmarks(joiner, 21);
+        assertEquals(0, joiner.drain(listener));
+        offerRects(joiner, 21);
+        assertEquals(1, joiner.drain(listener));
+    }
+
+    @Test
+    public void reusesTheLastRectsOnlyForTheSameHandCount() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 8, false, true);
+        List<Integer> rectCounts = new ArrayList<>();
+        List<Float> firstRects = new ArrayList<>();
+        FrameJoiner.Listener listener = frame -> {
+            rectCounts.add(frame.rectCount());
+            firstRects.add(frame.rects()[0]);
+        };
+        // A second hand comes in frame 2; frames 2 and 4 have no rects.
+        int[] handCounts = {1, 2, 2, 2, 2};
+        for (int frame = 0; frame < handCounts.length; frame++) {
+            long timestamp = frame + 1;
+            joiner.offerLandmarks(timestamp, landmarks, handCounts[frame]);
+            if (timestamp % 2 != 0) {
+                rects[0] = timestamp + 0.5f;
+                joiner.offerRects(timestamp, rects, handCounts[frame]);
+            }
+            joiner.drain(listener);
+        }
+
+        assertEquals(5, rectCounts.size());
+        assertEquals(Integer.valueOf(0), rectCounts.get(1));
+        assertEquals(Integer.valueOf(2), rectCounts.get(3));
+        assertEquals(3.5f, firstRects.get(3), 0f);
+    }
+
+    @Test
+    public void dropsRecordsOlderThanTheLastEmittedFrame() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 8);
+        offerLandmarks(joiner, 1);
+        offerLandmarks(joiner, 2);
+        offerRects(joiner, 2);
+        List<Long> emitted = new ArrayList<>();
+
+        joiner.drain(frame -> emitted.add(frame.timestamp()));
+        offerRects(joiner, 1);
+        joiner.drain(frame -> emitted.add(frame.timestamp()));
+
+        assertEquals(Collections.singletonList(2L), emitted);
+        assertEquals(2, joiner.droppedCount());
+    }
+
+    @Test
+    public void overwritesOldestRecordWhenFull() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 4);
+        for (long timestamp = 1; timestamp <= 10; timestamp++) {
+            offerLandmarks(joiner, timestamp);
+        }
+        offerRects(joiner, 2);
+        offerRects(joiner, 9);
+        List<Long> emitted = new ArrayList<>();
+
+        joiner.drain(frame -> emitted.add(frame.timestamp()));
+
+        // 1..6 were overwritten; 7, 8 and rect 2 went stale once 9 was emitted.
+        assertEquals(Collections.singletonList(9L), emitted);
+        assertEquals(9, joiner.droppedCount());
+    }
+
+    @Test
+    public void waitsForHandednessWhenJoiningIt() {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 8, true);
+        float[] handedness = {0.9f, 0.1f};
+        offerLandmarks(joiner, 1);
+        offerRects(joiner, 1);
+        List<float[]> emitted = new ArrayList<>();
+        FrameJoiner.Listener listener = frame -> emitted.add(frame.handedness().clone());
+
+        joiner.drain(listener);
+        assertTrue(emitted.isEmpty());
+        joiner.offerHandedness(1, handedness, 2);
+        joiner.drain(listener);
+
+        assertEquals(1, emitted.size());
+        assertArrayEquals(handedness, emitted.get(0), 0f);
+    }
+
+    @Test
+    public void concurrentProducersEmitOrderedConsistentFrames() throws Exception {
+        FrameJoiner joiner = new FrameJoiner(MAX_HANDS, 16);
+        int frames = 50_000;
+        AtomicInteger inListener = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+        long[] last = {Long.MIN_VALUE};
+        FrameJoiner.Listener listener = frame -> {
+            if (inListener.incrementAndGet() != 1) {
+                failure.compareAndSet(null, "listener entered concurrently");
+            }
+            if (frame.timestamp() <= last[0]) {
+                failure.compareAndSet(null, "timestamp " + frame.timestamp() + " after " + last[0]);
+            }
+            if (frame.landmarks()[0] != frame.timestamp() || frame.rects()[0] != frame.timestamp() + 0.5f
+                    || frame.handCount() != handCount(frame.timestamp())) {
+                failure.compareAndSet(null, "torn frame at " + frame.timestamp());
+            }
+            last[0] = frame.timestamp();
+            inListener.decrementAndGet();
+        };
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        // Keeps the producers within a few frames of each other, like MediaPipe's output streams.
+        AtomicLongArray progress = new AtomicLongArray(4);
+        // Two threads per stream, each taking every other timestamp and skipping a few.
+        for (int stream = 0; stream < 2; stream++) {
+            for (int parity = 0; parity < 2; parity++) {
+                boolean isLandmarks = stream == 0;
+                int first = parity + 1;
+                int producer = stream * 2 + parity;
+                producers.add(new Thread(() -> {
+                    float[] landmarkSource = new float[MAX_HANDS * HandLandmark.FLOATS_PER_HAND];
+                    float[] rectSource = new float[MAX_HANDS * HandRect.FLOATS_PER_RECT];
+                    awaitQuietly(start);
+                    for (long timestamp = first; timestamp <= frames; timestamp += 2) {
+                        while (timestamp - minimum(progress) > 8) {
+                            Thread.yield();
+                        }
+                        if (isLandmarks && timestamp % 97 != 0) {
+                            landmarkSource[0] = timestamp;
+                            joiner.offerLandmarks(timestamp, landmarkSource, handCount(timestamp));
+                        } else if (!isLandmarks && timestamp % 89 != 0) {
+                            rectSource[0] = timestamp + 0.5f;
+                            joiner.offerRects(timestamp, rectSource, handCount(timestamp));
+                        }
+                        joiner.drain(listener);
+                        progress.set(producer, timestamp);
+                    }
+                    progress.set(producer, Long.MAX_VALUE / 2);
+                }));
+            }
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        joiner.drain(listener);
+
+        assertNull(failure.get());
+        assertTrue("joined " + joiner.joinedCount(), joiner.joinedCount() > frames / 2);
+        assertTrue(joiner.joinedCount() <= frames);
+    }
+
+    private void offerLandmarks(FrameJoiner joiner, long timestamp) {
+        landmarks[0] = timestamp;
+        joiner.offerLandmarks(timestamp, landmarks, handCount(timestamp));
+    }
+
+    private void offerRects(FrameJoiner joiner, long timestamp) {
+        rects[0] = timestamp + 0.5f;
+        joiner.offerRects(timestamp, rects, handCount(timestamp));
+    }
+
+    private static int handCount(long timestamp) {
+        return (int) (timestamp % MAX_HANDS) + 1;
+    }
+
+    private static void assertConsistent(HandFrame frame) {
+        assertEquals(frame.timestamp(), frame.landmarks()[0], 0f);
+        assertEquals(frame.timestamp() + 0.5f, frame.rects()[0], 0f);
+        assertEquals(handCount(frame.timestamp()), frame.handCount());
+        assertEquals(handCount(frame.timestamp()), frame.rectCount());
+    }
+
+    private static long minimum(AtomicLongArray values) {
+        long minimum = Long.MAX_VALUE;
+        for (int i = 0; i < values.length(); i++) {
+            minimum = Math.min(minimum, values.get(i));
+        }
+        return minimum;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.mediapipemultihandstracking.gesture.sync;
+
+import com.example.mediapipemultihandstracking.gesture.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LatestValueDispatcherTest {
+    private final Queue<Runnable> posted = new ArrayDeque<>();
+    private final List<String> shown = new ArrayList<>();
+    private final LatestValueDispatcher<String> dispatcher =
+            new LatestValueDispatcher<>(posted::add, shown::add);
+
+    @Test
+    public void skipsValuesEqualToTheLastOffered() {
+        assertTrue(dispatcher.offer("FIVE"));
+        runPosted();
+        assertFalse(dispatcher.offer("FIVE"));
+        assertFalse(dispatcher.offer(new String("FIVE")));
+
+        assertTrue(posted.isEmpty());
+        assertEquals(2, dispatcher.skippedCount());
+        assertEquals(1, dispatcher.deliveredCount());
+    }
+
+    @Test
+    public void postsOnceAndDeliversOnlyTheLatestWhileTheConsumerIsBusy() {
+        for (int i = 0; i < 100; i++) {
+            dispatcher.offer("label " + i);
+        }
+
+        assertEquals(1, posted.size());
+        runPosted();
+
+        assertEquals(1, shown.size());
+        assertEquals("label 99", shown.get(0));
+        assertEquals(99, dispatcher.coalescedCount());
+        assertEquals(1, dispatcher.dispatchCount());
+    }
+
+    @Test
+    public void offerAfterDeliveryStartedPostsAgain() {
+        dispatcher.offer("ONE");
+        Runnable first = posted.poll();
+        first.run();
+        dispatcher.offer("TWO");
+
+        assertEquals(1, posted.size());
+        runPosted();
+        assertEquals(2, shown.size());
+        assertEquals("TWO", shown.get(1));
+    }
+
+    @Test
+    public void recordsTheDelayOfEveryPost() {
+        LatencyHistogram delays = new LatencyHistogram();
+        dispatcher.setDelayHistogram(delays);
+        dispatcher.offer("ONE");
+        runPosted();
+        dispatcher.offer("TWO");
+        dispatcher.offer("THREE");
+        runPosted();
+
+        assertEquals(2, delays.count());
+    }
+
+    @Test
+    public void stressedSlowConsumerNeverQueuesMoreThanOnePost() throws Exception {
+        int producers = 4;
+        int offersPerProducer = 20_000;
+        ExecutorService uiThread = Executors.newSingleThreadExecutor();
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger maxQueued = new AtomicInteger();
+        long[] lastPerProducer = new long[producers];
+        List<Long> outOfOrder = new ArrayList<>();
+        List<Long> delivered = new ArrayList<>();
+        Random stalls = new Random(3);
+        LatestValueDispatcher<Long> longs = new LatestValueDispatcher<>(task -> {
+            maxQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+            uiThread.execute(() -> {
+                queued.decrementAndGet();
+                task.run();
+            });
+        }, value -> {
+            // Runs on the single consumer thread.
+            if (stalls.nextInt(64) == 0) {
+                sleep();
+            }
+            delivered.add(value);
+            if (value >= 0) {
+                int producer = (int) (value / offersPerProducer);
+                // A repeat may be delivered again when another producer offered in between, but a
+                // producer's values never arrive older than one already shown.
+                if (value < lastPerProducer[producer]) {
+                    outOfOrder.add(value);
+                }
+                lastPerProducer[producer] = value;
+            }
+        });
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * offersPerProducer;
+            threads[p] = new Thread(() -> {
+                await(start);
+                for (int i = 1; i < offersPerProducer; i++) {
+                    // Repeats, like an unchanged label, are skipped.
+                    for (int repeat = 0; repeat < 2; repeat++) {
+                        if (longs.offer(base + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(longs.offer(-1L));
+        accepted.incrementAndGet();
+        uiThread.shutdown();
+        assertTrue(uiThread.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, maxQueued.get());
+        assertTrue(outOfOrder.toString(), outOfOrder.isEmpty());
+        assertEquals(-1L, (long) delivered.get(delivered.size() - 1));
+        assertEquals(accepted.get(), longs.coalescedCount() + longs.deliveredCount());
+        assertEquals(2L * producers * (offersPerProducer - 1) + 1,
+                accepted.get() + longs.skippedCount());
+        assertTrue(longs.coalescedCount() > 0);
+    }
+
+    private void runPosted() {
+        Runnable task;
+        while ((task = posted.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandTrackerTest {
+    @Test
+    public void keepsIdsWhenHandOrderFlips() {
+        HandTracker tracker = new HandTracker(4);
+        HandFrame frame = new HandFrame(2);
+        setRects(frame, 0.3f, 0.5f, 0.7f, 0.5f);
+        tracker.update(frame);
+        int left = tracker.trackId(tracker.slotOfRect(0));
+        int right = tracker.trackId(tracker.slotOfRect(1));
+
+        setRects(frame, 0.71f, 0.5f, 0.31f, 0.5f);
+        tracker.update(frame);
+
+        assertNotEquals(left, right);
+        assertEquals(right, tracker.trackId(tracker.slotOfRect(0)));
+        assertEquals(left, tracker.trackId(tracker.slotOfRect(1)));
+    }
+
+    @Test
+    public void attachesLandmarkHandsToTheirTracks() {
+        HandTracker tracker = new HandTracker(4);
+        HandFrame frame = new HandFrame(2);
+        setRects(frame, 0.3f, 0.5f, 0.7f, 0.5f);
+        frame.setHandCount(2);
+        placeHand(frame, 0, 0.7f, 0.5f);
+        placeHand(frame, 1, 0.3f, 0.5f);
+
+        tracker.update(frame);
+
+        assertEquals(tracker.slotOfRect(1), tracker.slotOfHand(0));
+        assertEquals(tracker.slotOfRect(0), tracker.slotOfHand(1));
+        assertEquals(0, tracker.handIndex(tracker.slotOfRect(1)));
+    }
+
+    @Test
+    public void handsEnterAndLeave() {
+        HandTracker tracker = new HandTracker(4, 0.2f, 2);
+        List<Integer> removed = new ArrayList<>();
+        tracker.setListener(removed::add);
+        HandFrame frame = new HandFrame(2);
+        setRects(frame, 0.3f, 0.5f);
+        tracker.update(frame);
+        int first = tracker.trackId(tracker.slotOfRect(0));
+
+        setRects(frame, 0.3f, 0.5f, 0.8f, 0.2f);
+        tracker.update(frame);
+        int second = tracker.trackId(tracker.slotOfRect(1));
+        assertEquals(first, tracker.trackId(tracker.slotOfRect(0)));
+        assertNotEquals(first, second);
+        assertEquals(2, tracker.trackCount());
+
+        // The first hand leaves; its track survives two missed frames.
+        setRects(frame, 0.8f, 0.2f);
+        tracker.update(frame);
+        tracker.update(frame);
+        assertEquals(2, tracker.trackCount());
+        tracker.update(frame);
+        assertEquals(1, tracker.trackCount());
+        assertEquals(1, removed.size());
+        assertEquals(second, tracker.trackId(tracker.slotOfRect(0)));
+
+        // Coming back it is a new hand.
+        setRects(frame, 0.8f, 0.2f, 0.3f, 0.5f);
+        tracker.update(frame);
+        int third = tracker.trackId(tracker.slotOfRect(1));
+        assertNotEquals(first, third);
+        assertNotEquals(second, third);
+    }
+
+    @Test
+    public void matchesAcrossTwoCellsWhenTheGateDoesNotDivideTheImage() {
+        HandTracker tracker = new HandTracker(4, 0.3f, 2);
+        HandFrame frame = new HandFrame(2);
+        setRects(frame, 0.24f, 0.5f);
+        tracker.update(frame);
+        int id = tracker.trackId(tracker.slotOfRect(0));
+
+        // Within the gate, though two cells of a quarter of the image away.
+        setRects(frame, 0.51f, 0.5f);
+        tracker.update(frame);
+
+        assertEquals(id, tracker.trackId(tracker.slotOfRect(0)));
+        assertEquals(1, tracker.trackCount());
+    }
+
+    @Test
+    public void tracksTensOfShuffledHands() {
+        int hands = 36;
+        HandTracker tracker = new HandTracker(hands, 0.1f, 3);
+        HandFrame frame = new HandFrame(hands);
+        float[] x = new float[hands];
+        float[] y = new float[hands];
+        for (int i = 0; i < hands; i++) {
+            x[i] = 0.08f + 0.16f * (i % 6);
+            y[i] = 0.08f + 0.16f * (i / 6);
+        }
+        Random random = new Random(7);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < hands; i++) {
+            order.add(i);
+        }
+        int[] idOfHand = new int[hands];
+        for (int step = 0; step < 100; step++) {
+            Collections.shuffle(order, random);
+            for (int rect = 0; rect < hands; rect++) {
+                int hand = order.get(rect);
+                x[hand] += (random.nextFloat() - 0.5f) * 0.02f;
+                y[hand] += (random.nextFloat() - 0.5f) * 0.02f;
+                setRect(frame.rects(), rect, x[hand], y[hand], 0.1f);
+            }
+            frame.setRectCount(hands);
+            tracker.update(frame);
+
+            for (int rect = 0; rect < hands; rect++) {
+                int id = tracker.trackId(tracker.slotOfRect(rect));
+                if (step == 0) {
+                    idOfHand[order.get(rect)] = id;
+                } else {
+                    assertEquals(idOfHand[order.get(rect)], id);
+                }
+            }
+            // Only the neighbouring cells are searched, not every track.
+            assertTrue("checks " + tracker.lastCandidateChecks(), tracker.lastCandidateChecks() <= hands * 9);
+        }
+        assertEquals(hands, tracker.trackCount());
+    }
+
+    static void setRects(HandFrame frame, float... centers) {
+        int count = centers.length / 2;
+        for (int rect = 0; rect < count; rect++) {
+            setRect(frame.rects(), rect, centers[2 * rect], centers[2 * rect + 1], 0.3f);
+        }
+        frame.setRectCount(count);
+    }
+
+    static void setRect(float[] rects, int rect, float x, float y, float size) {
+        int offset = HandRect.rectOffset(rect);
+        rects[offset + HandRect.X_CENTER] = x;
+        rects[offset + HandRect.Y_CENTER] = y;
+        rects[offset + HandRect.WIDTH] = size;
+        rects[offset + HandRect.HEIGHT] = size;
+    }
+
+    /** Places an upright hand of 0.2 x 0.2 centered on (x, y). */
+    static void placeHand(HandFrame frame, int hand, float x, float y) {
+        int offset = HandLandmark.handOffset(hand);
+        float[] landmarks = frame.landmarks();
+        for (int i = 0; i < HandLandmark.COUNT; i++) {
+            landmarks[HandLandmark.x(offset, i)] = x;
+            landmarks[HandLandmark.y(offset, i)] = y;
+        }
+        landmarks[HandLandmark.x(offset, HandLandmark.THUMB_TIP)] = x - 0.1f;
+        landmarks[HandLandmark.x(offset, HandLandmark.PINKY_TIP)] = x + 0.1f;
+        landmarks[HandLandmark.y(offset, HandLandmark.WRIST)] = y + 0.1f;
+        landmarks[HandLandmark.y(offset, HandLandmark.MIDDLE_FINGER_TIP)] = y - 0.1f;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MotionAnalyzerTest {
+    private static final long FRAME_MICROS = 33_333;
+
+    private HandTracker tracker;
+    private MotionAnalyzer analyzer;
+    private HandFrame frame;
+
+    @Before
+    public void setUp() {
+        tracker = new HandTracker(4);
+        analyzer = new MotionAnalyzer(4, 8);
+        tracker.setListener(analyzer);
+        frame = new HandFrame(2);
+    }
+
+    @Test
+    public void handOrderFlipIsNotAMovement() {
+        step(0, 0.3f, 0.5f, 0.7f, 0.5f);
+        step(1, 0.7f, 0.5f, 0.3f, 0.5f);
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+        assertEquals(Motion.NONE, motionOfRect(1));
+    }
+
+    @Test
+    public void eachHandScrollsOnItsOwn() {
+        step(0, 0.3f, 0.5f, 0.7f, 0.5f);
+        // Hand 0 moves right, hand 1 moves down (y grows downwards, angles are measured upwards).
+        step(1, 0.7f, 0.53f, 0.33f, 0.5f);
+        step(2, 0.7f, 0.56f, 0.36f, 0.5f);
+
+        assertEquals(Motion.SCROLL_DOWN, motionOfRect(0));
+        assertEquals(Motion.SCROLL_RIGHT, motionOfRect(1));
+    }
+
+    @Test
+    public void aSingleJitteryFrameIsNotAScroll() {
+        step(0, 0.3f, 0.5f);
+        step(1, 0.3f, 0.5f);
+        step(2, 0.33f, 0.5f);
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+
+        step(3, 0.3f, 0.5f);
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+
+        step(4, 0.27f, 0.5f);
+
+        assertEquals(Motion.SCROLL_LEFT, motionOfRect(0));
+    }
+
+    @Test
+    public void zoomUsesTheTracksOwnHeight() {
+        step(0, 0.3f, 0.5f, 0.7f, 0.5f);
+        float[] rects = frame.rects();
+        for (float height : new float[] {0.35f, 0.4f}) {
+            rects[HandRect.rectOffset(1) + HandRect.HEIGHT] = height;
+            tracker.update(frame);
+            analyzer.update(tracker, frame);
+        }
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+        assertEquals(Motion.ZOOM_IN, motionOfRect(1));
+    }
+
+    @Test
+    public void slideNeedsAnUprightHandTurning() {
+        frame.setHandCount(1);
+        setHandAngle(90);
+        step(0, 0.5f, 0.5f);
+        step(FRAME_MICROS, 0.5f, 0.5f);
+        setHandAngle(110);
+        step(2 * FRAME_MICROS, 0.5f, 0.5f);
+
+        assertEquals(Motion.SLIDE_LEFT, motionOfRect(0));
+    }
+
+    @Test
+    public void thresholdsDecideWhatCountsAsAMotion() {
+        analyzer = new MotionAnalyzer(4, 8, new MotionThresholds(0.02f, 0.03f, 25f));
+        tracker.setListener(analyzer);
+        frame.setHandCount(1);
+        setHandAngle(90);
+        step(0, 0.5f, 0.5f);
+        step(FRAME_MICROS, 0.5f, 0.5f);
+        setHandAngle(110);
+        step(2 * FRAME_MICROS, 0.5f, 0.5f);
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+    }
+
+    @Test
+    public void slideComparesAnglesAtLeastASampleIntervalApart() {
+        frame.setHandCount(1);
+        setHandAngle(90);
+        step(0, 0.5f, 0.5f);
+        setHandAngle(110);
+        step(MotionAnalyzer.SLIDE_SAMPLE_MICROS - 1, 0.5f, 0.5f);
+
+        assertEquals(Motion.NONE, motionOfRect(0));
+
+        step(MotionAnalyzer.SLIDE_SAMPLE_MICROS, 0.5f, 0.5f);
+
+        assertEquals(Motion.SLIDE_LEFT, motionOfRect(0));
+    }
+
+    @Test
+    public void historyKeepsRecentSamplesPerTrack() {
+        for (int i = 0; i < 10; i++) {
+            step(i, 0.3f, 0.5f, 0.7f, 0.5f);
+        }
+        int slot = tracker.slotOfRect(1);
+        MotionHistory history = analyzer.history();
+
+        assertEquals(8, history.size(slot));
+        assertEquals(9, history.timestamp(slot, 0));
+        assertEquals(2, history.timestamp(slot, 7));
+        assertEquals(0.7f, history.centerX(slot, 0), 0f);
+    }
+
+    @Test
+    public void pipelineAnalyzesMotionOnEveryNthFrame() {
+        GesturePipeline pipeline = new GesturePipeline(2);
+        pipeline.setAnalysisEveryNth(3);
+        for (int i = 0; i < 9; i++) {
+            HandTrackerTest.setRects(frame, 0.3f + 0.01f * i, 0.5f);
+            frame.setTimestamp(i * FRAME_MICROS);
+            pipeline.process(frame);
+        }
+        int slot = pipeline.tracker().slotOfRect(0);
+
+        assertEquals(3, pipeline.motionAnalyzer().history().size(slot));
+        assertEquals(6 * FRAME_MICROS, pipeline.motionAnalyzer().history().timestamp(slot, 0));
+    }
+
+    private void step(long timestamp, float... centers) {
+        HandTrackerTest.setRects(frame, centers);
+        frame.setTimestamp(timestamp);
+        tracker.update(frame);
+        analyzer.update(tracker, frame);
+    }
+
+    private Motion motionOfRect(int rect) {
+        return analyzer.motion(tracker.slotOfRect(rect));
+    }
+
+    // Hand centered on (0.5, 0.5) with the wrist-to-middle-finger axis at the given angle.
+    private void setHandAngle(double degrees) {
+        HandTrackerTest.placeHand(frame, 0, 0.5f, 0.5f);
+        float[] landmarks = frame.landmarks();
+        double radian = Math.toRadians(degrees);
+        landmarks[HandLandmark.x(0, HandLandmark.MIDDLE_FINGER_MCP)] =
+                landmarks[HandLandmark.x(0, HandLandmark.WRIST)] + (float) (0.1 * Math.cos(radian));
+        landmarks[HandLandmark.y(0, HandLandmark.MIDDLE_FINGER_MCP)] =
+                landmarks[HandLandmark.y(0, HandLandmark.WRIST)] - (float) (0.1 * Math.sin(radian));
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.mediapipemultihandstracking.gesture.track;
+
+import com.example.mediapipemultihandstracking.gesture.Allocations;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrajectoryRecognizerTest {
+    private static final int WINDOW = 24;
+    private static final int BAND = 4;
+
+    private final Random random = new Random(5);
+    private final HandFrame frame = new HandFrame(1);
+    private final float[] openHand = HandPoses.pose(true, true, true, true, true);
+    private HandTracker tracker;
+    private TrajectoryRecognizer recognizer;
+    private long timestamp;
+
+    @Before
+    public void setUp() {
+        use(new TrajectoryRecognizer(2, TrajectoryTemplate.defaults()));
+    }
+
+    private void use(TrajectoryRecognizer newRecognizer) {
+        tracker = new HandTracker(2);
+        recognizer = newRecognizer;
+        tracker.setListener(recognizer);
+    }
+
+    @Test
+    public void swipesInEveryDirection() {
+        assertEquals("SWIPE_RIGHT", swipe(0.4f, 0f));
+        assertEquals("SWIPE_LEFT", swipe(-0.4f, 0f));
+        assertEquals("SWIPE_UP", swipe(0f, -0.3f));
+        assertEquals("SWIPE_DOWN", swipe(0f, 0.3f));
+    }
+
+    // Moves the hand by (dx, dy), slow at both ends, with some jitter.
+    private String swipe(float dx, float dy) {
+        String name = null;
+        for (int i = 0; i < WINDOW && name == null; i++) {
+            float t = (float) (1 - Math.cos(Math.PI * i / (WINDOW - 1))) / 2;
+            name = step(0.3f + dx * t, 0.4f + dy * t, 0.005f);
+        }
+        return name;
+    }
+
+    @Test
+    public void circlesInBothDirectionsFromAnyStartingAngle() {
+        assertEquals("CIRCLE_CLOCKWISE", circle(Math.PI / 4, 1));
+        assertEquals("CIRCLE_COUNTERCLOCKWISE", circle(Math.PI / 4, -1));
+        assertEquals("CIRCLE_CLOCKWISE", circle(2.5, 1));
+    }
+
+    private String circle(double start, int direction) {
+        String name = null;
+        for (int i = 0; i < WINDOW && name == null; i++) {
+            double angle = start + direction * 2 * Math.PI * i / (WINDOW - 1);
+            name = step(0.5f + 0.12f * (float) Math.cos(angle), 0.4f + 0.12f * (float) Math.sin(angle), 0.004f);
+        }
+        return name;
+    }
+
+    @Test
+    public void wave() {
+        String name = null;
+        for (int i = 0; i < WINDOW && name == null; i++) {
+            name = step(0.5f + 0.12f * (float) Math.sin(4 * Math.PI * i / (WINDOW - 1)), 0.4f, 0.004f);
+        }
+
+        assertEquals("WAVE", name);
+    }
+
+    @Test
+    public void aHandHoldingStillNeverMoves() {
+        for (int i = 0; i < 300; i++) {
+            assertNull(step(0.5f, 0.4f, 0.01f));
+        }
+        assertEquals(0, recognizer.lastDtwCount() + recognizer.lastLowerBoundPruned());
+    }
+
+    @Test
+    public void aMovementIsReportedOnceThenTheWindowStartsOver() {
+        assertEquals("SWIPE_RIGHT", swipe(0.4f, 0f));
+
+        for (int i = 0; i < WINDOW - 1; i++) {
+            assertNull(step(0.7f, 0.4f, 0f));
+        }
+    }
+
+    @Test
+    public void lowerBoundsNeverPruneTheBestMatch() {
+        List<TrajectoryTemplate> templates = new ArrayList<>();
+        for (int t = 0; t < 200; t++) {
+            templates.add(new TrajectoryTemplate("T" + t, "T" + t, TrajectoryTemplate.Point.WRIST, randomPath(16)));
+        }
+        use(new TrajectoryRecognizer(2, templates, WINDOW, BAND, 100f, 0f));
+        int pruned = 0;
+
+        for (int trial = 0; trial < 50; trial++) {
+            float[] path = randomPath(WINDOW);
+            TrajectoryTemplate recognized = null;
+            for (int i = 0; i < WINDOW; i++) {
+                step(0.5f + 0.05f * path[2 * i], 0.4f + 0.05f * path[2 * i + 1], 0f);
+                recognized = recognizer.recognized(tracker.slotOfHand(0));
+            }
+
+            assertSame(templates.get(bruteForce(templates, path)), recognized);
+            assertEquals(templates.size(), recognizer.lastDtwCount() + recognizer.lastLowerBoundPruned());
+            pruned += recognizer.lastLowerBoundPruned();
+        }
+        assertTrue("pruned " + pruned, pruned > 50 * templates.size() / 2);
+    }
+
+    @Test
+    public void updatingDoesNotAllocate() {
+        int iterations = 1000;
+
+        long allocated = Allocations.measure(() -> {
+            for (int i = 0; i < iterations; i++) {
+                double angle = 2 * Math.PI * i / (WINDOW - 1);
+                step(0.5f + 0.12f * (float) Math.cos(angle), 0.4f + 0.12f * (float) Math.sin(angle), 0f);
+            }
+        });
+
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    // Puts one upright hand with its wrist at (x, y) into a new frame and returns the movement
+    // recognized for it, if any.
+    private String step(float x, float y, float noise) {
+        float[] landmarks = frame.landmarks();
+        System.arraycopy(openHand, 0, landmarks, 0, HandLandmark.FLOATS_PER_HAND);
+        HandPoses.translate(landmarks, 0, x - 0.5f + noise * (random.nextFloat() - 0.5f),
+                y - 0.8f + noise * (random.nextFloat() - 0.5f));
+        float[] rects = frame.rects();
+        rects[HandRect.X_CENTER] = landmarks[HandLandmark.x(0, HandLandmark.MIDDLE_FINGER_MCP)];
+        rects[HandRect.Y_CENTER] = landmarks[HandLandmark.y(0, HandLandmark.MIDDLE_FINGER_MCP)];
+        rects[HandRect.WIDTH] = 0.4f;
+        rects[HandRect.HEIGHT] = 0.4f;
+        frame.setHandCount(1);
+        frame.setRectCount(1);
+        frame.setTimestamp(timestamp += 33_000);
+        tracker.update(frame);
+        recognizer.update(tracker, frame);
+        TrajectoryTemplate recognized = recognizer.recognized(tracker.slotOfHand(0));
+        return recognized == null ? null : recognized.name();
+    }
+
+    // A smooth random path of `points` samples.
+    private float[] randomPath(int points) {
+        float[] path = new float[2 * points];
+        double ax = random.nextGaussian();
+        double bx = random.nextGaussian();
+        double ay = random.nextGaussian();
+        double by = random.nextGaussian();
+        double phase = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < points; i++) {
+            double t = 2 * Math.PI * i / (points - 1);
+            path[2 * i] = (float) (ax * Math.sin(t + phase) + bx * Math.sin(2 * t));
+            path[2 * i + 1] = (float) (ay * Math.cos(t) + by * Math.cos(3 * t + phase));
+        }
+        return path;
+    }
+
+    // Index of the template with the least full-matrix banded DTW cost against `path`.
+    private static int bruteForce(List<TrajectoryTemplate> templates, float[] path) {
+        float[][] query = normalized(path, WINDOW);
+        int best = -1;
+        double bestCost = Double.MAX_VALUE;
+        for (int t = 0; t < templates.size(); t++) {
+            TrajectoryTemplate template = templates.get(t);
+            float[] resampled = new float[2 * WINDOW];
+            for (int i = 0; i < WINDOW; i++) {
+                resampled[2 * i] = template.x(i / (WINDOW - 1f));
+                resampled[2 * i + 1] = template.y(i / (WINDOW - 1f));
+            }
+            float[][] reference = normalized(resampled, WINDOW);
+            double[][] cost = new double[WINDOW][WINDOW];
+            for (int i = 0; i < WINDOW; i++) {
+                for (int j = 0; j < WINDOW; j++) {
+                    if (Math.abs(i - j) > BAND) {
+                        cost[i][j] = Double.POSITIVE_INFINITY;
+                        continue;
+                    }
+                    double dx = query[0][i] - reference[0][j];
+                    double dy = query[1][i] - reference[1][j];
+                    double before = i == 0 && j == 0 ? 0 : Double.POSITIVE_INFINITY;
+                    if (i > 0) {
+                        before = Math.min(before, cost[i - 1][j]);
+                    }
+                    if (j > 0) {
+                        before = Math.min(before, cost[i][j - 1]);
+                    }
+                    if (i > 0 && j > 0) {
+                        before = Math.min(before, cost[i - 1][j - 1]);
+                    }
+                    cost[i][j] = dx * dx + dy * dy + before;
+                }
+            }
+            if (cost[WINDOW - 1][WINDOW - 1] < bestCost) {
+                bestCost = cost[WINDOW - 1][WINDOW - 1];
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    private static float[][] normalized(float[] path, int points) {
+        float[][] xy = new float[2][points];
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < points; i++) {
+            meanX += path[2 * i];
+            meanY += path[2 * i + 1];
+        }
+        meanX /= points;
+        meanY /= points;
+        double squares = 0;
+        for (int i = 0; i < points; i++) {
+            squares += Math.pow(path[2 * i] - meanX, 2) + Math.pow(path[2 * i + 1] - meanY, 2);
+        }
+        double radius = Math.sqrt(squares / points);
+        for (int i = 0; i < points; i++) {
+            xy[0][i] = (float) ((path[2 * i] - meanX) / radius);
+            xy[1][i] = (float) ((path[2 * i + 1] - meanY) / radius);
+        }
+        return xy;
+    }
+}
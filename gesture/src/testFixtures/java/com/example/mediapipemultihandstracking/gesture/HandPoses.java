@@ -0,0 +1,62 @@
+package com.example.mediapipemultihandstracking.gesture;
+
+/** Hand-crafted landmark buffers for an upright hand facing the camera. */
+public final class HandPoses {
+    private static final float[] FINGER_X = {0.45f, 0.5f, 0.55f, 0.6f};
+
+    private HandPoses() {
+    }
+
+    public static float[] pose(boolean thumb, boolean first, boolean second, boolean third, boolean fourth) {
+        float[] landmarks = new float[HandLandmark.FLOATS_PER_HAND];
+        write(landmarks, 0, thumb, first, second, third, fourth);
+        return landmarks;
+    }
+
+    public static float[] ok() {
+        float[] landmarks = pose(false, false, true, true, true);
+        set(landmarks, 0, HandLandmark.THUMB_TIP, 0.44f, 0.57f);
+        return landmarks;
+    }
+
+    public static void write(float[] buffer, int offset,
+                      boolean thumb, boolean first, boolean second, boolean third, boolean fourth) {
+        set(buffer, offset, HandLandmark.WRIST, 0.5f, 0.8f);
+        set(buffer, offset, HandLandmark.THUMB_CMC, 0.43f, 0.75f);
+        set(buffer, offset, HandLandmark.THUMB_MCP, 0.4f, 0.7f);
+        if (thumb) {
+            set(buffer, offset, HandLandmark.THUMB_IP, 0.35f, 0.65f);
+            set(buffer, offset, HandLandmark.THUMB_TIP, 0.3f, 0.6f);
+        } else {
+            set(buffer, offset, HandLandmark.THUMB_IP, 0.44f, 0.7f);
+            set(buffer, offset, HandLandmark.THUMB_TIP, 0.47f, 0.72f);
+        }
+        boolean[] open = {first, second, third, fourth};
+        for (int finger = 0; finger < 4; finger++) {
+            int mcp = HandLandmark.INDEX_FINGER_MCP + finger * 4;
+            float x = FINGER_X[finger];
+            set(buffer, offset, mcp, x, 0.6f);
+            set(buffer, offset, mcp + 1, x, 0.5f);
+            if (open[finger]) {
+                set(buffer, offset, mcp + 2, x, 0.45f);
+                set(buffer, offset, mcp + 3, x, 0.4f);
+            } else {
+                set(buffer, offset, mcp + 2, x, 0.55f);
+                set(buffer, offset, mcp + 3, x, 0.58f);
+            }
+        }
+    }
+
+    /** Moves the hand starting at {@code offset} by (dx, dy). */
+    public static void translate(float[] buffer, int offset, float dx, float dy) {
+        for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+            buffer[HandLandmark.x(offset, landmark)] += dx;
+            buffer[HandLandmark.y(offset, landmark)] += dy;
+        }
+    }
+
+    public static void set(float[] buffer, int offset, int landmark, float x, float y) {
+        buffer[HandLandmark.x(offset, landmark)] = x;
+        buffer[HandLandmark.y(offset, landmark)] = y;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mediapipemultihandstracking.gesture.proto;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * Descriptors mirroring MediaPipe's {@code landmark.proto}, {@code rect.proto} and
+ * {@code classification.proto}.
+ *
+ * <p>The generated classes only ship inside the MediaPipe AAR, so JVM tests and benchmarks build
+ * the same schema at runtime and use protobuf-java's {@link DynamicMessage} as the reference
+ * parser and serializer.
+ */
+public final class MediaPipeProtos {
+    public static final Descriptor NORMALIZED_LANDMARK;
+    public static final Descriptor NORMALIZED_LANDMARK_LIST;
+    public static final Descriptor NORMALIZED_RECT;
+    public static final Descriptor CLASSIFICATION;
+    public static final Descriptor CLASSIFICATION_LIST;
+
+    static {
+        FileDescriptorProto landmarkProto = FileDescriptorProto.newBuilder()
+                .setName("mediapipe/framework/formats/landmark.proto")
+                .setPackage("mediapipe")
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedLandmark")
+                        .addField(field("x", 1, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("y", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("z", 3, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("visibility", 4, FieldDescriptorProto.Type.TYPE_FLOAT)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedLandmarkList")
+                        .addField(FieldDescriptorProto.newBuilder()
+                                .setName("landmark")
+                                .setNumber(1)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                                .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setTypeName(".mediapipe.NormalizedLandmark")))
+                .build();
+        FileDescriptorProto rectProto = FileDescriptorProto.newBuilder()
+                .setName("mediapipe/framework/formats/rect.proto")
+                .setPackage("mediapipe")
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("NormalizedRect")
+                        .addField(field("x_center", 1, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("y_center", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("height", 3, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("width", 4, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("rotation", 5, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("rect_id", 6, FieldDescriptorProto.Type.TYPE_INT64)))
+                .build();
+        FileDescriptorProto classificationProto = FileDescriptorProto.newBuilder()
+                .setName("mediapipe/framework/formats/classification.proto")
+                .setPackage("mediapipe")
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("Classification")
+                        .addField(field("index", 1, FieldDescriptorProto.Type.TYPE_INT32))
+                        .addField(field("score", 2, FieldDescriptorProto.Type.TYPE_FLOAT))
+                        .addField(field("label", 3, FieldDescriptorProto.Type.TYPE_STRING))
+                        .addField(field("display_name", 4, FieldDescriptorProto.Type.TYPE_STRING)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("ClassificationList")
+                        .addField(FieldDescriptorProto.newBuilder()
+                                .setName("classification")
+                                .setNumber(1)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                                .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setTypeName(".mediapipe.Classification")))
+                .build();
+        try {
+            FileDescriptor landmarks = FileDescriptor.buildFrom(landmarkProto, new FileDescriptor[0]);
+            FileDescriptor rects = FileDescriptor.buildFrom(rectProto, new FileDescriptor[0]);
+            NORMALIZED_LANDMARK = landmarks.findMessageTypeByName("NormalizedLandmark");
+            NORMALIZED_LANDMARK_LIST = landmarks.findMessageTypeByName("NormalizedLandmarkList");
+            NORMALIZED_RECT = rects.findMessageTypeByName("NormalizedRect");
+            FileDescriptor classifications = FileDescriptor.buildFrom(classificationProto, new FileDescriptor[0]);
+            CLASSIFICATION = classifications.findMessageTypeByName("Classification");
+            CLASSIFICATION_LIST = classifications.findMessageTypeByName("ClassificationList");
+        } catch (DescriptorValidationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MediaPipeProtos() {
+    }
+
+    /** Serializes a {@code NormalizedLandmarkList} holding the hand at {@code offset}. */
+    public static byte[] landmarkList(float[] landmarks, int offset, int count) {
+        DynamicMessage.Builder list = DynamicMessage.newBuilder(NORMALIZED_LANDMARK_LIST);
+        for (int i = 0; i < count; i++) {
+            int at = offset + i * 3;
+            list.addRepeatedField(NORMALIZED_LANDMARK_LIST.findFieldByName("landmark"),
+                    DynamicMessage.newBuilder(NORMALIZED_LANDMARK)
+                            .setField(NORMALIZED_LANDMARK.findFieldByName("x"), landmarks[at])
+                            .setField(NORMALIZED_LANDMARK.findFieldByName("y"), landmarks[at + 1])
+                            .setField(NORMALIZED_LANDMARK.findFieldByName("z"), landmarks[at + 2])
+                            .build());
+        }
+        return list.build().toByteArray();
+    }
+
+    /** Serializes a {@code NormalizedRect}. */
+    public static byte[] rect(float xCenter, float yCenter, float height, float width, float rotation) {
+        return DynamicMessage.newBuilder(NORMALIZED_RECT)
+                .setField(NORMALIZED_RECT.findFieldByName("x_center"), xCenter)
+                .setField(NORMALIZED_RECT.findFieldByName("y_center"), yCenter)
+                .setField(NORMALIZED_RECT.findFieldByName("height"), height)
+                .setField(NORMALIZED_RECT.findFieldByName("width"), width)
+                .setField(NORMALIZED_RECT.findFieldByName("rotation"), rotation)
+                .build()
+                .toByteArray();
+    }
+
+    /**
+     * Serializes a {@code ClassificationList} as output by the handedness model; {@code scores[i]}
+     * is the score of label {@code i} of {@code handedness.txt}.
+     */
+    public static byte[] handedness(float... scores) {
+        String[] labels = {"Left", "Right"};
+        DynamicMessage.Builder list = DynamicMessage.newBuilder(CLASSIFICATION_LIST);
+        for (int i = 0; i < scores.length; i++) {
+            list.addRepeatedField(CLASSIFICATION_LIST.findFieldByName("classification"),
+                    DynamicMessage.newBuilder(CLASSIFICATION)
+                            .setField(CLASSIFICATION.findFieldByName("index"), i)
+                            .setField(CLASSIFICATION.findFieldByName("score"), scores[i])
+                            .setField(CLASSIFICATION.findFieldByName("label"), labels[i])
+                            .build());
+        }
+        return list.build().toByteArray();
+    }
+
+    private static FieldDescriptorProto.Builder field(String name, int number, FieldDescriptorProto.Type type) {
+        return FieldDescriptorProto.newBuilder()
+                .setName(name)
+                .setNumber(number)
+                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+                .setType(type);
+    }
+}
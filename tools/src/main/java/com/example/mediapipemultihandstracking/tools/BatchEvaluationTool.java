@@ -0,0 +1,500 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.GestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.GestureRules;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.filter.OneEuroFilter;
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecording;
+import com.example.mediapipemultihandstracking.gesture.track.MotionThresholds;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the gesture and motion logic of the app over a directory of recordings, on every core, to
+ * see what a change of the rules, the model or the motion thresholds does without waving hands
+ * at a phone.
+ *
+ * <pre>
+ * &lt;recordings&gt; [options]
+ *
+ * options: --threads N          parallelism (default: available processors)
+ *          --rules FILE         gesture rules, see GestureRules (default: built-in)
+ *          --model FILE         k-NN gesture model, see KnnGestureClassifier, instead of rules
+ *          --scroll F           scroll threshold, share of the hand height (default 0.02)
+ *          --zoom F             zoom threshold, share of the hand height (default 0.03)
+ *          --slide DEG          slide threshold in degrees (default 12)
+ *          --sweep NAME=A:B:S   try NAME (scroll, zoom or slide) from A to B in steps of S;
+ *                               several sweeps try every combination
+ * </pre>
+ *
+ * <p>Recordings are {@link HandFrameRecording} files made by the debug app, laid out as for
+ * {@link GestureModelTool}: {@code <recordings>/THUMB_UP/*.hfr}. A directory named after a
+ * {@link Motion}, e.g. {@code SCROLL_LEFT}, holds takes of that motion. Any other directory holds
+ * takes of the gesture it is named after, with the hand held still, so the first hand of every
+ * frame should show that gesture and no motion should be seen. Files directly under
+ * {@code <recordings>} are unlabeled and only count for the speed.
+ *
+ * <p>Every recording is replayed in order through its own {@link GesturePipeline}, exactly as
+ * the app would see it, and recordings are spread over a fork/join pool. Gestures are scored per
+ * frame with a hand, from the debounced gesture; motions per recording, from the motion seen on
+ * most frames, or none. The tool prints per-class precision and recall, confusion matrices and
+ * frames per second; a sweep prints one line per setting, then the full report of the best.
+ */
+public final class BatchEvaluationTool {
+    private BatchEvaluationTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            usage();
+            return;
+        }
+        Options options = Options.parse(Arrays.copyOfRange(args, 1, args.length));
+        List<Sequence> sequences = find(new File(args[0]));
+        if (sequences.isEmpty()) {
+            System.err.println("no recordings found under " + args[0]);
+            System.exit(1);
+        }
+        List<MotionThresholds> settings = options.settings();
+        ThreadLocal<GestureClassifier> classifiers = options.classifiers();
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        Sequence[] sequenceArray = sequences.toArray(new Sequence[0]);
+
+        long start = System.nanoTime();
+        List<ForkJoinTask<Evaluation>> runs = new ArrayList<>();
+        for (MotionThresholds setting : settings) {
+            runs.add(pool.submit(new EvaluateTask(sequenceArray, 0, sequenceArray.length, setting, classifiers)));
+        }
+        List<Evaluation> results = new ArrayList<>();
+        for (ForkJoinTask<Evaluation> run : runs) {
+            results.add(run.join());
+        }
+        long wallNanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        long frames = 0;
+        for (Evaluation result : results) {
+            frames += result.frames;
+        }
+        System.out.printf(Locale.US, "%d recordings, %d settings, %d threads: %d frames in %.1f s, %.0f frames/s%n",
+                sequences.size(), settings.size(), options.threads, frames, wallNanos / 1e9,
+                frames / (wallNanos / 1e9));
+        if (settings.size() == 1) {
+            results.get(0).print(settings.get(0));
+            return;
+        }
+        System.out.printf("%-40s %9s %9s %9s %12s%n", "setting", "gest F1", "motion F1", "accuracy", "frames/s/thr");
+        int best = 0;
+        for (int i = 0; i < settings.size(); i++) {
+            Evaluation result = results.get(i);
+            System.out.printf(Locale.US, "%-40s %9.3f %9.3f %8.1f%% %12.0f%n", settings.get(i),
+                    result.gestures.macroF1(), result.motions.macroF1(), 100 * result.gestures.accuracy(),
+                    result.framesPerThreadSecond());
+            if (result.score() > results.get(best).score()) {
+                best = i;
+            }
+        }
+        System.out.println();
+        System.out.println("best, by mean of the gesture and motion F1:");
+        results.get(best).print(settings.get(best));
+    }
+
+    private static void usage() {
+        System.err.println("usage: BatchEvaluationTool <recordings> [--threads N] [--rules FILE | --model FILE]");
+        System.err.println("       [--scroll F] [--zoom F] [--slide DEG] [--sweep scroll|zoom|slide=FROM:TO:STEP]...");
+        System.exit(2);
+    }
+
+    static List<Sequence> find(File recordings) throws IOException {
+        File[] entries = recordings.listFiles();
+        if (entries == null) {
+            throw new IOException("not a directory: " + recordings);
+        }
+        Arrays.sort(entries);
+        List<Sequence> sequences = new ArrayList<>();
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                File[] files = entry.listFiles((dir, name) -> name.endsWith(".hfr"));
+                Arrays.sort(files);
+                for (File file : files) {
+                    sequences.add(new Sequence(file, entry.getName()));
+                }
+            } else if (entry.getName().endsWith(".hfr")) {
+                sequences.add(new Sequence(entry, null));
+            }
+        }
+        return sequences;
+    }
+
+    // Replays one recording through a fresh pipeline on the current thread.
+    private static Evaluation evaluate(Sequence sequence, GestureClassifier classifier, MotionThresholds thresholds)
+            throws IOException {
+        Evaluation evaluation = new Evaluation();
+        try (HandFrameRecording recording = HandFrameRecording.open(sequence.file)) {
+            if (classifier instanceof KnnGestureClassifier) {
+                ((KnnGestureClassifier) classifier).setYScale(recording.yScale());
+            }
+            GesturePipeline pipeline = new GesturePipeline(recording.maxHands(), classifier, OneEuroFilter::new,
+                    thresholds);
+            HandFrame frame = new HandFrame(recording.maxHands());
+            int[] motionFrames = new int[Motion.values().length];
+            long start = System.nanoTime();
+            for (int i = 0; i < recording.frameCount(); i++) {
+                recording.read(i, frame);
+                pipeline.process(frame);
+                motionFrames[pipeline.motion().ordinal()]++;
+                if (sequence.gesture != null && frame.handCount() > 0) {
+                    evaluation.gestures.add(sequence.gesture, pipeline.handGestures().stableGesture(0).name());
+                }
+            }
+            evaluation.nanos = System.nanoTime() - start;
+            evaluation.frames = recording.frameCount();
+            if (sequence.motion != null) {
+                evaluation.motions.add(sequence.motion.name(), mostSeen(motionFrames).name());
+            }
+        }
+        return evaluation;
+    }
+
+    // The motion seen on most frames, NONE aside, or NONE if there was none.
+    private static Motion mostSeen(int[] motionFrames) {
+        Motion[] motions = Motion.values();
+        Motion most = Motion.NONE;
+        for (Motion motion : motions) {
+            if (motion != Motion.NONE && motionFrames[motion.ordinal()] > 0
+                    && (most == Motion.NONE || motionFrames[motion.ordinal()] > motionFrames[most.ordinal()])) {
+                most = motion;
+            }
+        }
+        return most;
+    }
+
+    /** Evaluates a range of recordings, splitting it until every task has one. */
+    static final class EvaluateTask extends RecursiveTask<Evaluation> {
+        private static final long serialVersionUID = 1L;
+
+        private final Sequence[] sequences;
+        private final int from;
+        private final int to;
+        private final MotionThresholds thresholds;
+        private final ThreadLocal<GestureClassifier> classifiers;
+
+        EvaluateTask(Sequence[] sequences, int from, int to, MotionThresholds thresholds,
+                     ThreadLocal<GestureClassifier> classifiers) {
+            this.sequences = sequences;
+            this.from = from;
+            this.to = to;
+            this.thresholds = thresholds;
+            this.classifiers = classifiers;
+        }
+
+        @Override
+        protected Evaluation compute() {
+            if (to - from == 1) {
+                try {
+                    return evaluate(sequences[from], classifiers.get(), thresholds);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("cannot replay " + sequences[from].file, e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            EvaluateTask left = new EvaluateTask(sequences, from, middle, thresholds, classifiers);
+            left.fork();
+            Evaluation result = new EvaluateTask(sequences, middle, to, thresholds, classifiers).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    static final class Sequence {
+        final File file;
+        // What the recording shows: a gesture, held still, or a motion; both null if unlabeled.
+        final String gesture;
+        final Motion motion;
+
+        Sequence(File file, String label) {
+            this.file = file;
+            Motion labeledMotion = null;
+            for (Motion candidate : Motion.values()) {
+                if (candidate.name().equals(label)) {
+                    labeledMotion = candidate;
+                }
+            }
+            this.gesture = labeledMotion == null ? label : null;
+            this.motion = labeledMotion != null || label == null ? labeledMotion : Motion.NONE;
+        }
+    }
+
+    /** Counts of expected against predicted classes. */
+    static final class Confusion {
+        final Map<String, Map<String, Long>> rows = new TreeMap<>();
+
+        void add(String expected, String predicted) {
+            rows.computeIfAbsent(expected, name -> new TreeMap<>()).merge(predicted, 1L, Long::sum);
+        }
+
+        void merge(Confusion other) {
+            for (Map.Entry<String, Map<String, Long>> row : other.rows.entrySet()) {
+                Map<String, Long> counts = rows.computeIfAbsent(row.getKey(), name -> new TreeMap<>());
+                for (Map.Entry<String, Long> count : row.getValue().entrySet()) {
+                    counts.merge(count.getKey(), count.getValue(), Long::sum);
+                }
+            }
+        }
+
+        long count(String expected, String predicted) {
+            Map<String, Long> row = rows.get(expected);
+            return row == null ? 0 : row.getOrDefault(predicted, 0L);
+        }
+
+        long expectedTotal(String expected) {
+            Map<String, Long> row = rows.get(expected);
+            long total = 0;
+            if (row != null) {
+                for (long count : row.values()) {
+                    total += count;
+                }
+            }
+            return total;
+        }
+
+        long predictedTotal(String predicted) {
+            long total = 0;
+            for (Map<String, Long> row : rows.values()) {
+                total += row.getOrDefault(predicted, 0L);
+            }
+            return total;
+        }
+
+        double precision(String name) {
+            long predicted = predictedTotal(name);
+            return predicted == 0 ? Double.NaN : (double) count(name, name) / predicted;
+        }
+
+        double recall(String name) {
+            long expected = expectedTotal(name);
+            return expected == 0 ? Double.NaN : (double) count(name, name) / expected;
+        }
+
+        double f1(String name) {
+            double precision = precision(name);
+            double recall = recall(name);
+            if (Double.isNaN(precision) || precision + recall == 0) {
+                return 0;
+            }
+            return 2 * precision * recall / (precision + recall);
+        }
+
+        /** Mean F1 of the expected classes, 0 if there are none. */
+        double macroF1() {
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            double sum = 0;
+            for (String name : rows.keySet()) {
+                sum += f1(name);
+            }
+            return sum / rows.size();
+        }
+
+        double accuracy() {
+            long correct = 0;
+            long total = 0;
+            for (String name : rows.keySet()) {
+                correct += count(name, name);
+                total += expectedTotal(name);
+            }
+            return total == 0 ? 0 : (double) correct / total;
+        }
+
+        // A ratio with nothing to divide by, e.g. the precision of a class never predicted, is "-".
+        private static String ratio(double value) {
+            return Double.isNaN(value) ? "-" : String.format(Locale.US, "%.3f", value);
+        }
+
+        void print(String title) {
+            if (rows.isEmpty()) {
+                return;
+            }
+            TreeSet<String> predictedNames = new TreeSet<>();
+            for (Map<String, Long> row : rows.values()) {
+                predictedNames.addAll(row.keySet());
+            }
+            System.out.println();
+            System.out.printf(Locale.US, "%s: accuracy %.1f%%, macro F1 %.3f%n", title, 100 * accuracy(), macroF1());
+            System.out.printf("%-14s %9s %9s %9s%n", "", "precision", "recall", "count");
+            for (String name : rows.keySet()) {
+                System.out.printf(Locale.US, "%-14s %9s %9s %9d%n", name, ratio(precision(name)),
+                        ratio(recall(name)), expectedTotal(name));
+            }
+            System.out.println("confusion, rows expected, columns predicted:");
+            System.out.printf("%-14s", "");
+            for (String predicted : predictedNames) {
+                System.out.printf(" %11s", predicted);
+            }
+            System.out.println();
+            for (String expected : rows.keySet()) {
+                System.out.printf("%-14s", expected);
+                for (String predicted : predictedNames) {
+                    System.out.printf(" %11d", count(expected, predicted));
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    /** What replaying some recordings gave; merged up the fork/join tree. */
+    static final class Evaluation {
+        final Confusion gestures = new Confusion();
+        final Confusion motions = new Confusion();
+        long frames;
+        long nanos;
+
+        void merge(Evaluation other) {
+            gestures.merge(other.gestures);
+            motions.merge(other.motions);
+            frames += other.frames;
+            nanos += other.nanos;
+        }
+
+        double framesPerThreadSecond() {
+            return nanos == 0 ? 0 : frames / (nanos / 1e9);
+        }
+
+        double score() {
+            return (gestures.macroF1() + motions.macroF1()) / 2;
+        }
+
+        void print(MotionThresholds thresholds) {
+            System.out.printf(Locale.US, "motion thresholds: %s; %.0f frames/s per thread%n", thresholds,
+                    framesPerThreadSecond());
+            gestures.print("gestures, per frame with a hand");
+            motions.print("motions, per recording");
+        }
+    }
+
+    private static final class Options {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String rules;
+        byte[] model;
+        float scroll = MotionThresholds.defaults().scrollFactor();
+        float zoom = MotionThresholds.defaults().zoomFactor();
+        float slide = MotionThresholds.defaults().slideDegrees();
+        final Map<String, float[]> sweeps = new LinkedHashMap<>();
+
+        static Options parse(String[] args) throws IOException {
+            Options options = new Options();
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("option " + args[args.length - 1] + " needs a value");
+            }
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--rules":
+                        options.rules = new String(Files.readAllBytes(new File(value).toPath()), StandardCharsets.UTF_8);
+                        break;
+                    case "--model":
+                        options.model = Files.readAllBytes(new File(value).toPath());
+                        break;
+                    case "--scroll":
+                        options.scroll = Float.parseFloat(value);
+                        break;
+                    case "--zoom":
+                        options.zoom = Float.parseFloat(value);
+                        break;
+                    case "--slide":
+                        options.slide = Float.parseFloat(value);
+                        break;
+                    case "--sweep":
+                        String[] sweep = value.split("=", 2);
+                        if (sweep.length != 2 || !Arrays.asList("scroll", "zoom", "slide").contains(sweep[0])) {
+                            throw new IllegalArgumentException("--sweep expects scroll|zoom|slide=FROM:TO:STEP");
+                        }
+                        options.sweeps.put(sweep[0], range(sweep[1]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            if (options.rules != null && options.model != null) {
+                throw new IllegalArgumentException("--rules and --model are exclusive");
+            }
+            return options;
+        }
+
+        private static float[] range(String spec) {
+            String[] parts = spec.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("a sweep range is FROM:TO:STEP, not " + spec);
+            }
+            double from = Double.parseDouble(parts[0]);
+            double to = Double.parseDouble(parts[1]);
+            double step = Double.parseDouble(parts[2]);
+            if (!(step > 0) || to < from) {
+                throw new IllegalArgumentException("bad sweep range " + spec);
+            }
+            // Counted in steps rather than summed, so 0.1 steps do not drift past the end.
+            int count = (int) Math.floor((to - from) / step + 1e-6) + 1;
+            float[] values = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = (float) (from + i * step);
+            }
+            return values;
+        }
+
+        // Every combination of the swept values, the other thresholds as given.
+        List<MotionThresholds> settings() {
+            List<MotionThresholds> settings = new ArrayList<>();
+            for (float scrollValue : values("scroll", scroll)) {
+                for (float zoomValue : values("zoom", zoom)) {
+                    for (float slideValue : values("slide", slide)) {
+                        settings.add(new MotionThresholds(scrollValue, zoomValue, slideValue));
+                    }
+                }
+            }
+            return settings;
+        }
+
+        private float[] values(String name, float fixed) {
+            float[] swept = sweeps.get(name);
+            return swept != null ? swept : new float[] {fixed};
+        }
+
+        // Classifiers keep scratch state, so every worker thread reads its own.
+        ThreadLocal<GestureClassifier> classifiers() {
+            return ThreadLocal.withInitial(() -> {
+                try {
+                    if (model != null) {
+                        return KnnGestureClassifier.read(new ByteArrayInputStream(model));
+                    }
+                    return rules != null ? GestureRules.parse(new StringReader(rules)) : GestureRules.defaults();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GestureEngine;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecording;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Trains a {@link KnnGestureClassifier} from labeled recordings, or estimates how well one would
+ * do.
+ *
+ * <pre>
+ * train    &lt;recordings&gt; &lt;model&gt; [options]   writes the model file, e.g. the app's gestures.knn asset
+ * evaluate &lt;recordings&gt; [options]           leave-one-recording-out accuracy and confusion matrix
+ *
+ * options: --k N            neighbours that vote (default 5)
+ *          --reject D       reject hands farther than D standard deviations from every example
+ *          --spacing D      drop examples within D deviations of a kept one (default 0.25)
+ *          --label NAME=Text  text shown for a gesture that is not built in
+ * </pre>
+ *
+ * <p>Recordings are {@link HandFrameRecording} files made by the debug app, one directory per
+ * gesture: {@code <recordings>/THUMB_UP/*.hfr}. The first hand of every frame is an example of
+ * the directory's gesture, so record one gesture, with one hand in view, per file. Evaluation
+ * holds out one recording at a time, so frames from the same take never help classify each
+ * other.
+ */
+public final class GestureModelTool {
+    private GestureModelTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+        String command = args[0];
+        File recordings = new File(args[1]);
+        int optionsStart = command.equals("train") ? 3 : 2;
+        if (!(command.equals("train") && args.length >= 3) && !command.equals("evaluate")) {
+            usage();
+            return;
+        }
+        Options options = Options.parse(Arrays.copyOfRange(args, optionsStart, args.length));
+        List<Example> examples = load(recordings);
+        if (examples.isEmpty()) {
+            System.err.println("no hands found under " + recordings);
+            System.exit(1);
+        }
+        if (command.equals("train")) {
+            KnnGestureClassifier model = options.builder(examples, -1).build();
+            try (OutputStream out = new FileOutputStream(args[2])) {
+                model.write(out);
+            }
+            System.out.printf(Locale.US, "wrote %s: %d examples of %s, %d dimensions%n",
+                    args[2], model.sampleCount(), model.gestures(), model.dimensions());
+        } else {
+            evaluate(examples, options);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: GestureModelTool train <recordings> <model> [--k N] [--reject D] [--spacing D] [--label NAME=Text]...");
+        System.err.println("       GestureModelTool evaluate <recordings> [--k N] [--reject D] [--spacing D] [--label NAME=Text]...");
+        System.exit(2);
+    }
+
+    private static List<Example> load(File recordings) throws IOException {
+        File[] gestureDirs = recordings.listFiles(File::isDirectory);
+        if (gestureDirs == null) {
+            throw new IOException("not a directory: " + recordings);
+        }
+        Arrays.sort(gestureDirs);
+        List<Example> examples = new ArrayList<>();
+        int recordingIndex = 0;
+        for (File gestureDir : gestureDirs) {
+            File[] files = gestureDir.listFiles((dir, name) -> name.endsWith(".hfr"));
+            Arrays.sort(files);
+            for (File file : files) {
+                try (HandFrameRecording recording = HandFrameRecording.open(file)) {
+                    HandFrame frame = new HandFrame(recording.maxHands());
+                    for (int i = 0; i < recording.frameCount(); i++) {
+                        recording.read(i, frame);
+                        if (frame.handCount() > 0) {
+                            examples.add(new Example(gestureDir.getName(), recordingIndex, recording.yScale(),
+                                    Arrays.copyOf(frame.landmarks(), HandLandmark.FLOATS_PER_HAND)));
+                        }
+                    }
+                }
+                recordingIndex++;
+            }
+        }
+        return examples;
+    }
+
+    private static void evaluate(List<Example> examples, Options options) {
+        Map<String, Map<String, Integer>> confusion = new LinkedHashMap<>();
+        List<String> predictedNames = new ArrayList<>();
+        int correct = 0;
+        int rulesTotal = 0;
+        int rulesCorrect = 0;
+        long classifyNanos = 0;
+        GestureEngine rules = new GestureEngine();
+        int recordings = examples.get(examples.size() - 1).recording + 1;
+        for (int heldOut = 0; heldOut < recordings; heldOut++) {
+            KnnGestureClassifier model = null;
+            for (Example example : examples) {
+                if (example.recording != heldOut) {
+                    continue;
+                }
+                if (model == null) {
+                    KnnGestureClassifier.Builder builder = options.builder(examples, heldOut);
+                    if (builder.sampleCount() == 0) {
+                        break;
+                    }
+                    model = builder.build();
+                }
+                model.setYScale(example.yScale);
+                long start = System.nanoTime();
+                Gesture predicted = model.classify(example.landmarks, 0, 0);
+                classifyNanos += System.nanoTime() - start;
+                if (predicted.name().equals(example.name)) {
+                    correct++;
+                }
+                if (!predictedNames.contains(predicted.name())) {
+                    predictedNames.add(predicted.name());
+                }
+                confusion.computeIfAbsent(example.name, name -> new LinkedHashMap<>())
+                        .merge(predicted.name(), 1, Integer::sum);
+                if (Gesture.builtIn(example.name) != null) {
+                    rulesTotal++;
+                    if (rules.classify(example.landmarks, 0).name().equals(example.name)) {
+                        rulesCorrect++;
+                    }
+                }
+            }
+        }
+
+        System.out.printf(Locale.US, "held-out accuracy: %.1f%% (%d of %d hands, %d recordings)%n",
+                100.0 * correct / examples.size(), correct, examples.size(), recordings);
+        System.out.printf(Locale.US, "classification: %.1f us per hand%n",
+                classifyNanos / 1000.0 / examples.size());
+        if (rulesTotal > 0) {
+            System.out.printf(Locale.US, "rules on built-in gestures: %.1f%% (%d of %d hands)%n",
+                    100.0 * rulesCorrect / rulesTotal, rulesCorrect, rulesTotal);
+        }
+        System.out.println("confusion, rows expected, columns predicted:");
+        System.out.printf("%-12s", "");
+        for (String predicted : predictedNames) {
+            System.out.printf(" %10s", predicted);
+        }
+        System.out.println();
+        for (Map.Entry<String, Map<String, Integer>> row : confusion.entrySet()) {
+            System.out.printf("%-12s", row.getKey());
+            for (String predicted : predictedNames) {
+                System.out.printf(" %10d", row.getValue().getOrDefault(predicted, 0));
+            }
+            System.out.println();
+        }
+    }
+
+    private static final class Example {
+        final String name;
+        final int recording;
+        // Height over width of the frames the example was recorded in.
+        final float yScale;
+        final float[] landmarks;
+
+        Example(String name, int recording, float yScale, float[] landmarks) {
+            this.name = name;
+            this.recording = recording;
+            this.yScale = yScale;
+            this.landmarks = landmarks;
+        }
+    }
+
+    private static final class Options {
+        int k = 5;
+        float rejectDeviations;
+        float minSpacing = 0.25f;
+        final Map<String, String> labels = new LinkedHashMap<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--k":
+                        options.k = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--reject":
+                        options.rejectDeviations = Float.parseFloat(args[i + 1]);
+                        break;
+                    case "--spacing":
+                        options.minSpacing = Float.parseFloat(args[i + 1]);
+                        break;
+                    case "--label":
+                        String[] label = args[i + 1].split("=", 2);
+                        if (label.length != 2) {
+                            throw new IllegalArgumentException("--label expects NAME=Text");
+                        }
+                        options.labels.put(label[0], label[1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("option " + args[args.length - 1] + " needs a value");
+            }
+            return options;
+        }
+
+        // A builder holding every example except those of recording `excluded`, defaulting to the
+        // frame shape of the first recording.
+        KnnGestureClassifier.Builder builder(List<Example> examples, int excluded) {
+            KnnGestureClassifier.Builder builder = new KnnGestureClassifier.Builder()
+                    .setYScale(examples.get(0).yScale)
+                    .setK(k)
+                    .setRejectDeviations(rejectDeviations)
+                    .setMinSpacing(minSpacing);
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                builder.setLabel(label.getKey(), label.getValue());
+            }
+            for (Example example : examples) {
+                if (example.recording != excluded) {
+                    builder.add(example.name, example.landmarks, 0, example.yScale);
+                }
+            }
+            return builder;
+        }
+    }
+}
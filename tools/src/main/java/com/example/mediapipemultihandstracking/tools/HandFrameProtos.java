@@ -0,0 +1,129 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Handedness;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Serializes the hands of a {@link HandFrame} the way the MediaPipe graph hands them to the app:
+ * one {@code NormalizedLandmarkList}, {@code NormalizedRect} and {@code ClassificationList} per
+ * hand, so a load test can decode them with the app's parsers. Field numbers follow
+ * {@link com.example.mediapipemultihandstracking.gesture.proto.LandmarkWireDecoder}. The bytes go
+ * into buffers owned by this object and are overwritten by the next {@link #write}.
+ */
+final class HandFrameProtos {
+    // A landmark: three fixed32 fields of a tag byte and 4 bytes, in a length-delimited entry.
+    private static final int LANDMARK_BYTES = 3 * 5;
+    private static final int LANDMARK_LIST_BYTES = HandLandmark.COUNT * (2 + LANDMARK_BYTES);
+    private static final int RECT_BYTES = HandRect.FLOATS_PER_RECT * 5;
+    // A classification: a varint index and a fixed32 score, in a length-delimited entry.
+    private static final int CLASSIFICATION_LIST_BYTES = 2 + 2 + 5;
+
+    private final byte[][] landmarks;
+    private final byte[][] rects;
+    private final byte[][] handedness;
+    private final int[] landmarkLengths;
+    private final int[] rectLengths;
+    private final int[] handednessLengths;
+    private int handCount;
+    private int rectCount;
+
+    HandFrameProtos(int maxHands) {
+        landmarks = new byte[maxHands][LANDMARK_LIST_BYTES];
+        rects = new byte[maxHands][RECT_BYTES];
+        handedness = new byte[maxHands][CLASSIFICATION_LIST_BYTES];
+        landmarkLengths = new int[maxHands];
+        rectLengths = new int[maxHands];
+        handednessLengths = new int[maxHands];
+    }
+
+    /** Serializes the hands and rects of {@code frame}. */
+    void write(HandFrame frame) {
+        handCount = frame.handCount();
+        rectCount = frame.rectCount();
+        try {
+            for (int hand = 0; hand < handCount; hand++) {
+                landmarkLengths[hand] = writeLandmarks(frame.landmarks(), HandLandmark.handOffset(hand), landmarks[hand]);
+                handednessLengths[hand] = writeHandedness(frame.handedness()[hand], handedness[hand]);
+            }
+            for (int rect = 0; rect < rectCount; rect++) {
+                rectLengths[rect] = writeRect(frame.rects(), HandRect.rectOffset(rect), rects[rect]);
+            }
+        } catch (IOException e) {
+            // Only thrown when a buffer is too small, which the sizes above rule out.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int handCount() {
+        return handCount;
+    }
+
+    int rectCount() {
+        return rectCount;
+    }
+
+    byte[] landmarks(int hand) {
+        return landmarks[hand];
+    }
+
+    int landmarksLength(int hand) {
+        return landmarkLengths[hand];
+    }
+
+    byte[] rect(int rect) {
+        return rects[rect];
+    }
+
+    int rectLength(int rect) {
+        return rectLengths[rect];
+    }
+
+    byte[] handedness(int hand) {
+        return handedness[hand];
+    }
+
+    int handednessLength(int hand) {
+        return handednessLengths[hand];
+    }
+
+    private static int writeLandmarks(float[] values, int offset, byte[] out) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+            output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(LANDMARK_BYTES);
+            output.writeFloat(1, values[HandLandmark.x(offset, landmark)]);
+            output.writeFloat(2, values[HandLandmark.y(offset, landmark)]);
+            output.writeFloat(3, values[HandLandmark.z(offset, landmark)]);
+        }
+        return out.length - output.spaceLeft();
+    }
+
+    private static int writeRect(float[] values, int offset, byte[] out) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        output.writeFloat(1, values[offset + HandRect.X_CENTER]);
+        output.writeFloat(2, values[offset + HandRect.Y_CENTER]);
+        output.writeFloat(3, values[offset + HandRect.HEIGHT]);
+        output.writeFloat(4, values[offset + HandRect.WIDTH]);
+        output.writeFloat(5, values[offset + HandRect.ROTATION]);
+        return out.length - output.spaceLeft();
+    }
+
+    // The model's top classification: the likelier of right and left, with its score.
+    private static int writeHandedness(float right, byte[] out) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        boolean isRight = right >= 0.5f;
+        int index = isRight ? Handedness.RIGHT_LABEL_INDEX : 1 - Handedness.RIGHT_LABEL_INDEX;
+        output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(CodedOutputStream.computeInt32Size(1, index) + CodedOutputStream.computeFloatSize(2, 0f));
+        output.writeInt32(1, index);
+        output.writeFloat(2, isRight ? right : 1f - right);
+        return out.length - output.spaceLeft();
+    }
+}
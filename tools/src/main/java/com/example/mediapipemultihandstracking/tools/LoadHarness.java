@@ -0,0 +1,521 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.GesturePipeline;
+import com.example.mediapipemultihandstracking.gesture.GestureRules;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.KnnGestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEvent;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventBus;
+import com.example.mediapipemultihandstracking.gesture.event.GestureEventSource;
+import com.example.mediapipemultihandstracking.gesture.metrics.LatencyHistogram;
+import com.example.mediapipemultihandstracking.gesture.proto.HandednessListParser;
+import com.example.mediapipemultihandstracking.gesture.proto.LandmarkListParser;
+import com.example.mediapipemultihandstracking.gesture.proto.RectListParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs many simulated camera sessions at once through the app's gesture pipeline, to see how
+ * many a machine sustains at frame rate, what latency that costs and whether recognition holds
+ * up while it does.
+ *
+ * <pre>
+ * [options]
+ *
+ * options: --sessions N   concurrent sessions (default 200)
+ *          --seconds N    how long to run (default 10)
+ *          --fps N        frames per second per session, 0 for as fast as possible (default 30)
+ *          --threads N    worker threads (default: available processors)
+ *          --hands N      hands per frame (default 2)
+ *          --noise F      landmark noise, see SyntheticHands (default 0.002)
+ *          --protos       decode every frame from MediaPipe protos with the app's parsers
+ *          --rules FILE   gesture rules, see GestureRules (default: built-in)
+ *          --model FILE   k-NN gesture model, see KnnGestureClassifier, instead of rules
+ *          --seed N       random seed (default 1)
+ * </pre>
+ *
+ * <p>Every session has its own {@link SyntheticHands}, {@link GesturePipeline} and
+ * {@link GestureEventBus} with one subscriber, as the app has one per camera. Sessions are ticked
+ * at their frame rate on a shared scheduled pool, spread evenly over the frame period, and every
+ * tick decodes the frame if asked, runs the pipeline, publishes its events and drains them. The
+ * next frame is generated after the tick, so only the app's work is timed.
+ *
+ * <p>The report gives the throughput against the target, latency percentiles from when each
+ * frame was due to when its events were drained (so a pool that falls behind shows up as
+ * latency), the heap retained per session and the bytes allocated per frame, and how well the
+ * gestures and motions the generator made were recognized under load.
+ */
+public final class LoadHarness {
+    // Frames a held gesture is given to settle before it is scored.
+    private static final int GESTURE_SETTLE_FRAMES = 10;
+    // Frames after a hand reappears in which a jump may be taken for a motion.
+    private static final int MOTION_SETTLE_FRAMES = 3;
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+        GestureClassifier classifier = new PerThreadClassifier(options.classifiers());
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long periodNanos = options.fps > 0 ? TimeUnit.SECONDS.toNanos(1) / options.fps : 0;
+
+        long heapBefore = usedHeap();
+        List<Session> sessions = new ArrayList<>(options.sessions);
+        for (int i = 0; i < options.sessions; i++) {
+            sessions.add(new Session(options, classifier, options.seed * 1_000_003 + i, latency, service, failure));
+        }
+        long heapPerSession = (usedHeap() - heapBefore) / Math.max(1, options.sessions);
+
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(options.threads);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.seconds);
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (periodNanos > 0) {
+                // Spread over the frame period, as independent cameras would be.
+                long delay = periodNanos * i / sessions.size();
+                session.start(pool, System.nanoTime() + delay, periodNanos, end);
+                pool.scheduleAtFixedRate(session, delay, periodNanos, TimeUnit.NANOSECONDS);
+            } else {
+                session.start(pool, start, 0, end);
+                pool.execute(session);
+            }
+        }
+        TimeUnit.NANOSECONDS.sleep(end - System.nanoTime());
+        // Periodic ticks stop at shutdown; the running ones finish.
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw new IllegalStateException("a session failed", failure.get());
+        }
+        report(options, sessions, latency, service, elapsed, periodNanos, heapPerSession);
+    }
+
+    private static void usage() {
+        System.err.println("usage: LoadHarness [--sessions N] [--seconds N] [--fps N] [--threads N] [--hands N]"
+                + " [--noise F] [--protos] [--rules FILE | --model FILE] [--seed N]");
+        System.exit(2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(Options options, List<Session> sessions, LatencyHistogram latency,
+                               LatencyHistogram service, long elapsedNanos, long periodNanos, long heapPerSession) {
+        Tally total = new Tally();
+        for (Session session : sessions) {
+            session.finish();
+            total.add(session.tally);
+        }
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf(Locale.US, "%d sessions of %d hands%s on %d threads for %.1f s%n", options.sessions,
+                options.hands, options.protos ? " from protos" : "", options.threads, seconds);
+        if (periodNanos > 0) {
+            double target = (double) options.sessions * options.fps;
+            System.out.printf(Locale.US, "throughput: %.0f frames/s of %.0f targeted (%.1f%%), %d frames late by more"
+                            + " than a frame period (%s)%n",
+                    total.frames / seconds, target, 100 * total.frames / seconds / target, total.lateFrames,
+                    percent(total.lateFrames, total.frames));
+        } else {
+            System.out.printf(Locale.US, "throughput: %.0f frames/s, %.0f per session%n", total.frames / seconds,
+                    total.frames / seconds / options.sessions);
+        }
+        System.out.printf(Locale.US, "latency from due: %s%n", percentiles(latency));
+        System.out.printf(Locale.US, "service time:     %s%n", percentiles(service));
+        System.out.printf(Locale.US, "memory: %d KiB retained per session, %s allocated per frame%n",
+                heapPerSession / 1024,
+                total.allocatedBytes < 0 ? "unknown bytes" : String.format(Locale.US, "%.1f bytes",
+                        total.allocatedBytes / (double) total.frames));
+        System.out.printf(Locale.US, "gestures: %d of %d settled frames right (%s)%n", total.rightGestures,
+                total.gestureFrames, percent(total.rightGestures, total.gestureFrames));
+        System.out.printf(Locale.US, "motions: %d of %d made recognized (%s), %d of %d still frames with a"
+                        + " motion (%s), %d events%n",
+                total.recognizedMotions, total.motionSegments, percent(total.recognizedMotions, total.motionSegments),
+                total.spuriousMotionFrames, total.stillFrames, percent(total.spuriousMotionFrames, total.stillFrames),
+                total.events);
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format(Locale.US, "p50 %s, p90 %s, p99 %s, p99.9 %s, max %s",
+                micros(histogram.percentile(0.5)), micros(histogram.percentile(0.9)),
+                micros(histogram.percentile(0.99)), micros(histogram.percentile(0.999)), micros(histogram.max()));
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.US, "%.0f us", nanos / 1000.0);
+    }
+
+    private static String percent(long part, long whole) {
+        return whole == 0 ? "-" : String.format(Locale.US, "%.1f%%", 100.0 * part / whole);
+    }
+
+    // Classifiers keep scratch state and sessions move from pool thread to pool thread, so every
+    // thread classifies with its own.
+    private static final class PerThreadClassifier implements GestureClassifier {
+        private final ThreadLocal<GestureClassifier> classifiers;
+
+        PerThreadClassifier(ThreadLocal<GestureClassifier> classifiers) {
+            this.classifiers = classifiers;
+        }
+
+        @Override
+        public Gesture classify(float[] landmarks, int offset, int mask) {
+            return classifiers.get().classify(landmarks, offset, mask);
+        }
+    }
+
+    /**
+     * One camera session. Runs of a session never overlap, and the pool orders one run before
+     * the next, so its state needs no locking even as runs move between threads.
+     */
+    private static final class Session implements Runnable {
+        private final SyntheticHands hands;
+        private final HandFrame frame;
+        private final GesturePipeline pipeline;
+        private final GestureEventSource eventSource;
+        private final GestureEventBus.Subscription subscription;
+        private final GestureEvent event;
+        private final HandFrameProtos protos;
+        private final LandmarkListParser landmarkParser;
+        private final RectListParser rectParser;
+        private final HandednessListParser handednessParser;
+        private final LatencyHistogram latency;
+        private final LatencyHistogram service;
+        private final AtomicReference<Throwable> failure;
+        // Per scripted hand: the segment being scored and whether its motion was seen.
+        private final int[] segment;
+        private final boolean[] motionSeen;
+        private final Motion[] segmentMotion;
+
+        private ScheduledThreadPoolExecutor pool;
+        private long firstDue;
+        private long periodNanos;
+        private long end;
+
+        final Tally tally = new Tally();
+
+        Session(Options options, GestureClassifier classifier, long seed, LatencyHistogram latency,
+                LatencyHistogram service, AtomicReference<Throwable> failure) {
+            hands = new SyntheticHands(options.hands, options.noise, seed);
+            frame = new HandFrame(options.hands);
+            pipeline = new GesturePipeline(options.hands, classifier);
+            GestureEventBus bus = new GestureEventBus(options.hands);
+            eventSource = new GestureEventSource(bus);
+            subscription = bus.subscribe(GestureEventBus.Policy.BOUNDED_QUEUE, 16);
+            event = new GestureEvent(options.hands);
+            if (options.protos) {
+                protos = new HandFrameProtos(options.hands);
+                landmarkParser = new LandmarkListParser(frame.landmarks());
+                rectParser = new RectListParser(frame.rects());
+                handednessParser = new HandednessListParser(frame.handedness());
+            } else {
+                protos = null;
+                landmarkParser = null;
+                rectParser = null;
+                handednessParser = null;
+            }
+            this.latency = latency;
+            this.service = service;
+            this.failure = failure;
+            segment = new int[options.hands];
+            motionSeen = new boolean[options.hands];
+            segmentMotion = new Motion[options.hands];
+            Arrays.fill(segment, -1);
+            nextFrame();
+        }
+
+        void start(ScheduledThreadPoolExecutor pool, long firstDue, long periodNanos, long end) {
+            this.pool = pool;
+            this.firstDue = firstDue;
+            this.periodNanos = periodNanos;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long due = periodNanos > 0 ? firstDue + tally.frames * periodNanos : System.nanoTime();
+                long allocatedBefore = Allocation.currentThread();
+                long started = System.nanoTime();
+                if (protos != null) {
+                    decode();
+                }
+                pipeline.process(frame);
+                eventSource.publish(pipeline, frame.timestamp());
+                while (subscription.poll(event)) {
+                    tally.events++;
+                }
+                long done = System.nanoTime();
+                long allocatedAfter = Allocation.currentThread();
+                latency.record(done - due);
+                service.record(done - started);
+                if (periodNanos > 0 && started - due > periodNanos) {
+                    tally.lateFrames++;
+                }
+                if (tally.allocatedBytes >= 0) {
+                    tally.allocatedBytes = allocatedBefore < 0 ? -1
+                            : tally.allocatedBytes + allocatedAfter - allocatedBefore - Allocation.OVERHEAD;
+                }
+                tally.frames++;
+                score();
+                nextFrame();
+                if (periodNanos == 0 && System.nanoTime() < end) {
+                    pool.execute(this);
+                }
+            } catch (RejectedExecutionException e) {
+                // Shut down between the check and the resubmission.
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+        }
+
+        // Generates the next frame and, with protos, serializes it the way the graph hands it over.
+        private void nextFrame() {
+            hands.next(frame);
+            if (protos != null) {
+                protos.write(frame);
+            }
+        }
+
+        // Decodes the frame's protos back into it with the app's parsers.
+        private void decode() {
+            try {
+                landmarkParser.reset();
+                handednessParser.reset();
+                for (int hand = 0; hand < protos.handCount(); hand++) {
+                    landmarkParser.parseFrom(protos.landmarks(hand), 0, protos.landmarksLength(hand));
+                    handednessParser.parseFrom(protos.handedness(hand), 0, protos.handednessLength(hand));
+                }
+                rectParser.reset();
+                for (int rect = 0; rect < protos.rectCount(); rect++) {
+                    rectParser.parseFrom(protos.rect(rect), 0, protos.rectLength(rect));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            frame.setHandCount(landmarkParser.handCount());
+            frame.setRectCount(rectParser.rectCount());
+        }
+
+        // Compares what the pipeline saw in the frame with what the generator made.
+        private void score() {
+            for (int hand = 0; hand < frame.handCount(); hand++) {
+                int script = hands.scriptHand(hand);
+                if (hands.segment(hand) != segment[script]) {
+                    endSegment(script);
+                    segment[script] = hands.segment(hand);
+                    segmentMotion[script] = hands.expectedMotion(hand);
+                }
+                int slot = pipeline.tracker().slotOfHand(hand);
+                Motion motion = slot < 0 ? Motion.NONE : pipeline.motionAnalyzer().motion(slot);
+                int age = hands.frameInSegment(hand);
+                if (segmentMotion[script] != Motion.NONE) {
+                    motionSeen[script] |= motion == segmentMotion[script];
+                    continue;
+                }
+                if (age >= MOTION_SETTLE_FRAMES) {
+                    tally.stillFrames++;
+                    if (motion != Motion.NONE) {
+                        tally.spuriousMotionFrames++;
+                    }
+                }
+                if (age >= GESTURE_SETTLE_FRAMES) {
+                    tally.gestureFrames++;
+                    if (pipeline.handGestures().stableGesture(hand) == hands.expectedGesture(hand)) {
+                        tally.rightGestures++;
+                    }
+                }
+            }
+        }
+
+        private void endSegment(int script) {
+            if (segment[script] >= 0 && segmentMotion[script] != Motion.NONE) {
+                tally.motionSegments++;
+                if (motionSeen[script]) {
+                    tally.recognizedMotions++;
+                }
+            }
+            motionSeen[script] = false;
+        }
+
+        /** Ends the segments still being scored, once the session has stopped. */
+        void finish() {
+            for (int script = 0; script < segment.length; script++) {
+                endSegment(script);
+            }
+        }
+    }
+
+    private static final class Tally {
+        long frames;
+        long lateFrames;
+        // -1 when the JVM does not count allocations.
+        long allocatedBytes;
+        long events;
+        long gestureFrames;
+        long rightGestures;
+        long stillFrames;
+        long spuriousMotionFrames;
+        long motionSegments;
+        long recognizedMotions;
+
+        void add(Tally other) {
+            frames += other.frames;
+            lateFrames += other.lateFrames;
+            allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1
+                    : allocatedBytes + other.allocatedBytes;
+            events += other.events;
+            gestureFrames += other.gestureFrames;
+            rightGestures += other.rightGestures;
+            stillFrames += other.stillFrames;
+            spuriousMotionFrames += other.spuriousMotionFrames;
+            motionSegments += other.motionSegments;
+            recognizedMotions += other.recognizedMotions;
+        }
+    }
+
+    // Bytes allocated by the current thread, where the JVM counts them.
+    private static final class Allocation {
+        private static final com.sun.management.ThreadMXBean THREADS = threads();
+        // What reading the counter twice allocates by itself.
+        static final long OVERHEAD = overhead();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) threads;
+            }
+            return null;
+        }
+
+        private static long overhead() {
+            long overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 100; i++) {
+                long before = currentThread();
+                long after = currentThread();
+                overhead = Math.min(overhead, after - before);
+            }
+            return Math.max(0, overhead);
+        }
+
+        /** Bytes allocated so far, or -1 if unknown. */
+        static long currentThread() {
+            return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    private static final class Options {
+        int sessions = 200;
+        int seconds = 10;
+        int fps = 30;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hands = 2;
+        float noise = 0.002f;
+        boolean protos;
+        String rules;
+        byte[] model;
+        long seed = 1;
+
+        static Options parse(String[] args) throws IOException {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--protos")) {
+                    options.protos = true;
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("option " + args[i] + " needs a value");
+                }
+                String value = args[++i];
+                switch (args[i - 1]) {
+                    case "--sessions":
+                        options.sessions = Integer.parseInt(value);
+                        break;
+                    case "--seconds":
+                        options.seconds = Integer.parseInt(value);
+                        break;
+                    case "--fps":
+                        options.fps = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--hands":
+                        options.hands = Integer.parseInt(value);
+                        break;
+                    case "--noise":
+                        options.noise = Float.parseFloat(value);
+                        break;
+                    case "--rules":
+                        options.rules = new String(Files.readAllBytes(new File(value).toPath()), StandardCharsets.UTF_8);
+                        break;
+                    case "--model":
+                        options.model = Files.readAllBytes(new File(value).toPath());
+                        break;
+                    case "--seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i - 1]);
+                }
+            }
+            if (options.rules != null && options.model != null) {
+                throw new IllegalArgumentException("--rules and --model are exclusive");
+            }
+            if (options.sessions < 1 || options.hands < 1 || options.fps < 0 || options.threads < 1) {
+                throw new IllegalArgumentException("sessions, hands and threads must be positive, fps not negative");
+            }
+            return options;
+        }
+
+        ThreadLocal<GestureClassifier> classifiers() {
+            return ThreadLocal.withInitial(() -> {
+                try {
+                    if (model != null) {
+                        return KnnGestureClassifier.read(new ByteArrayInputStream(model));
+                    }
+                    return rules != null ? GestureRules.parse(new StringReader(rules)) : GestureRules.defaults();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
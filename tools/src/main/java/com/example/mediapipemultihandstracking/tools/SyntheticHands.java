@@ -0,0 +1,425 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.HandFrame;
+import com.example.mediapipemultihandstracking.gesture.HandLandmark;
+import com.example.mediapipemultihandstracking.gesture.HandPoses;
+import com.example.mediapipemultihandstracking.gesture.HandRect;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.record.HandFrameRecorder;
+import com.example.mediapipemultihandstracking.gesture.track.MotionThresholds;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthesizes the hands a camera session would see: every hand goes through segments of one
+ * static gesture held more or less still, or of one motion made with an open hand, with a quarter
+ * second or so without the hand between segments. Landmarks get Gaussian noise of a chosen size, the
+ * palm rect follows the hand with half as much.
+ *
+ * <p>Motions are sized from {@link MotionThresholds#defaults()}: scrolls move the hand twice as far
+ * per frame as the scroll threshold, zooms grow or shrink it twice as fast as the zoom
+ * threshold, slides turn it from upright by 10 degrees a frame, so well past the slide threshold
+ * from one angle sample to the next. Each hand moves within its own column of the image, so hands never cross.
+ *
+ * <p>The generator knows what every hand does, see {@link #expectedGesture} and
+ * {@link #expectedMotion}, so what the pipeline recognizes can be scored against it.
+ *
+ * <pre>
+ * &lt;output dir&gt; [options]
+ *
+ * options: --takes N     recordings per gesture and motion (default 4)
+ *          --frames N    frames per recording (default 150)
+ *          --hands N     hands per frame (default 1)
+ *          --noise F     landmark noise, standard deviation in image units (default 0.002)
+ *          --seed N      random seed (default 1)
+ * </pre>
+ *
+ * <p>As a program it writes {@link com.example.mediapipemultihandstracking.gesture.record.HandFrameRecording}s
+ * laid out for {@link BatchEvaluationTool} and {@link GestureModelTool}: {@code <dir>/FIVE/take0.hfr}
+ * holds only FIVE held still, {@code <dir>/SCROLL_LEFT/take0.hfr} only scrolls to the left.
+ */
+public final class SyntheticHands {
+    public static final long FRAME_MICROS = 33_333;
+
+    /** Static gestures the built-in rules know, each with a pose. */
+    public static final Gesture[] GESTURES = {
+            Gesture.FIVE, Gesture.FOUR, Gesture.TREE, Gesture.TWO, Gesture.ONE, Gesture.YEAH,
+            Gesture.ROCK, Gesture.SPIDER_MAN, Gesture.FIST, Gesture.OK
+    };
+    public static final Motion[] MOTIONS = {
+            Motion.SCROLL_RIGHT, Motion.SCROLL_UP, Motion.SCROLL_LEFT, Motion.SCROLL_DOWN,
+            Motion.ZOOM_OUT, Motion.ZOOM_IN, Motion.SLIDE_LEFT, Motion.SLIDE_RIGHT
+    };
+
+    // The palm center and the wrist of the HandPoses poses. Hands are placed, scaled and turned
+    // around their palm center, which the palm rect stays on, so zooms and slides do not move it.
+    private static final float POSE_PALM_X = 0.5f;
+    private static final float POSE_PALM_Y = 0.65f;
+    private static final float POSE_WRIST_Y = 0.8f;
+    // Palm rect height for a hand of scale 1, a little taller than the hand.
+    private static final float RECT_HEIGHT = 0.45f;
+    private static final float DEPTH_PER_DISTANCE = -0.1f;
+    private static final float SLIDE_STEP_DEGREES = 10f;
+    private static final int SLIDE_STEPS = 6;
+    // Long enough for the pipeline's tracker to drop the hand, so segments do not run together.
+    private static final int MIN_GAP = 7;
+    private static final int MAX_GAP = 12;
+    private static final int MIN_STILL = 30;
+    private static final int MAX_STILL = 60;
+    private static final float DRIFT = 0.0005f;
+
+    private final int hands;
+    private final float noise;
+    private final Random random;
+    // Fixed action of every segment, or null for a random mix.
+    private final Gesture fixedGesture;
+    private final Motion fixedMotion;
+    private final float baseScale;
+
+    // Per scripted hand; poses are upright at the HandPoses position.
+    private final float[] poses;
+    private final Gesture[] gesture;
+    private final Motion[] motion;
+    private final int[] segment;
+    private final int[] frameInSegment;
+    private final int[] segmentFrames;
+    private final int[] gap;
+    private final float[] x;
+    private final float[] y;
+    private final float[] scale;
+    private final float[] degrees;
+    private final float[] dx;
+    private final float[] dy;
+    private final float[] growth;
+    private final float[] turn;
+
+    // Scripted hand of each hand of the last frame.
+    private final int[] frameHands;
+    private int frameHandCount;
+    private int segments;
+    private long timestamp;
+
+    /** A random mix of gestures and motions. */
+    public SyntheticHands(int hands, float noise, long seed) {
+        this(hands, noise, seed, null, null);
+    }
+
+    /**
+     * Segments that all show {@code gesture} held still, or all make {@code motion}.
+     *
+     * @param gesture the gesture, or null for the open hand of a motion
+     * @param motion the motion, or null or {@link Motion#NONE} to hold still
+     */
+    public SyntheticHands(int hands, float noise, long seed, Gesture gesture, Motion motion) {
+        this.hands = hands;
+        this.noise = noise;
+        random = new Random(seed);
+        fixedMotion = gesture == null && motion == null ? null : motion == null ? Motion.NONE : motion;
+        fixedGesture = fixedMotion == null ? null : gesture == null ? Gesture.FIVE : gesture;
+        // Two hands side by side are smaller than one filling the image.
+        baseScale = hands == 1 ? 1f : 1.2f / hands;
+        this.gesture = new Gesture[hands];
+        this.motion = new Motion[hands];
+        segment = new int[hands];
+        frameInSegment = new int[hands];
+        segmentFrames = new int[hands];
+        gap = new int[hands];
+        x = new float[hands];
+        y = new float[hands];
+        scale = new float[hands];
+        degrees = new float[hands];
+        dx = new float[hands];
+        dy = new float[hands];
+        growth = new float[hands];
+        turn = new float[hands];
+        poses = new float[hands * HandLandmark.FLOATS_PER_HAND];
+        frameHands = new int[hands];
+        for (int hand = 0; hand < hands; hand++) {
+            startSegment(hand);
+            // Hands start at different points of their scripts.
+            gap[hand] = random.nextInt(MAX_GAP + 1);
+        }
+        timestamp = -FRAME_MICROS;
+    }
+
+    /**
+     * Moves every hand on by one frame and writes the hands shown into {@code frame}, which must
+     * hold as many hands as this generator makes.
+     */
+    public void next(HandFrame frame) {
+        timestamp += FRAME_MICROS;
+        frame.setTimestamp(timestamp);
+        frameHandCount = 0;
+        for (int hand = 0; hand < hands; hand++) {
+            if (gap[hand] > 0) {
+                if (--gap[hand] == 0) {
+                    startSegment(hand);
+                }
+                continue;
+            }
+            write(hand, frame, frameHandCount);
+            frameHands[frameHandCount++] = hand;
+            step(hand);
+        }
+        frame.setHandCount(frameHandCount);
+        frame.setRectCount(frameHandCount);
+    }
+
+    public int hands() {
+        return hands;
+    }
+
+    /** Gesture hand {@code hand} of the last frame shows. */
+    public Gesture expectedGesture(int hand) {
+        return gesture[frameHands[hand]];
+    }
+
+    /** Motion hand {@code hand} of the last frame makes, {@link Motion#NONE} when held still. */
+    public Motion expectedMotion(int hand) {
+        return motion[frameHands[hand]];
+    }
+
+    /** Which of this generator's hands hand {@code hand} of the last frame is. */
+    public int scriptHand(int hand) {
+        return frameHands[hand];
+    }
+
+    /** Number of the segment hand {@code hand} of the last frame is in, unique per generator. */
+    public int segment(int hand) {
+        return segment[frameHands[hand]];
+    }
+
+    /** Frames hand {@code hand} of the last frame has been in its segment before this one. */
+    public int frameInSegment(int hand) {
+        return frameInSegment[frameHands[hand]] - 1;
+    }
+
+    private void startSegment(int hand) {
+        segment[hand] = segments++;
+        frameInSegment[hand] = 0;
+        boolean still = fixedMotion != null ? fixedMotion == Motion.NONE : random.nextBoolean();
+        if (still) {
+            gesture[hand] = fixedGesture != null ? fixedGesture : GESTURES[random.nextInt(GESTURES.length)];
+            motion[hand] = Motion.NONE;
+        } else {
+            gesture[hand] = fixedGesture != null ? fixedGesture : Gesture.FIVE;
+            motion[hand] = fixedMotion != null ? fixedMotion : MOTIONS[random.nextInt(MOTIONS.length)];
+        }
+        writePose(HandLandmark.handOffset(hand), gesture[hand]);
+
+        // The hand's column of the image, and where in it the wrist may go.
+        float columnWidth = 0.7f / hands;
+        float left = 0.15f + hand * columnWidth + 0.1f * columnWidth;
+        float right = left + 0.8f * columnWidth;
+        scale[hand] = baseScale * (0.9f + 0.2f * random.nextFloat());
+        x[hand] = left + (right - left) * random.nextFloat();
+        y[hand] = 0.45f + 0.25f * random.nextFloat();
+        degrees[hand] = 0f;
+        dx[hand] = 0f;
+        dy[hand] = 0f;
+        growth[hand] = 1f;
+        turn[hand] = 0f;
+
+        MotionThresholds thresholds = MotionThresholds.defaults();
+        float speed = 2f * thresholds.scrollFactor() * RECT_HEIGHT * scale[hand];
+        float travelX = right - left;
+        float travelY = 0.3f;
+        switch (motion[hand]) {
+            case SCROLL_RIGHT:
+                x[hand] = left;
+                dx[hand] = speed;
+                segmentFrames[hand] = (int) (travelX / speed);
+                break;
+            case SCROLL_LEFT:
+                x[hand] = right;
+                dx[hand] = -speed;
+                segmentFrames[hand] = (int) (travelX / speed);
+                break;
+            case SCROLL_UP:
+                y[hand] = 0.75f;
+                dy[hand] = -speed;
+                segmentFrames[hand] = (int) (travelY / speed);
+                break;
+            case SCROLL_DOWN:
+                y[hand] = 0.75f - travelY;
+                dy[hand] = speed;
+                segmentFrames[hand] = (int) (travelY / speed);
+                break;
+            case ZOOM_IN:
+            case ZOOM_OUT:
+                float rate = 1f + 2f * thresholds.zoomFactor();
+                boolean in = motion[hand] == Motion.ZOOM_IN;
+                scale[hand] = baseScale * (in ? 0.7f : 1.3f);
+                growth[hand] = in ? rate : 1f / rate;
+                segmentFrames[hand] = (int) Math.ceil(Math.log(1.3 / 0.7) / Math.log(rate));
+                break;
+            case SLIDE_LEFT:
+            case SLIDE_RIGHT:
+                float step = Math.max(SLIDE_STEP_DEGREES, 0.6f * thresholds.slideDegrees());
+                turn[hand] = motion[hand] == Motion.SLIDE_LEFT ? -step : step;
+                segmentFrames[hand] = SLIDE_STEPS;
+                break;
+            default:
+                segmentFrames[hand] = MIN_STILL + random.nextInt(MAX_STILL - MIN_STILL + 1);
+                dx[hand] = DRIFT * (2 * random.nextFloat() - 1);
+                dy[hand] = DRIFT * (2 * random.nextFloat() - 1);
+                break;
+        }
+    }
+
+    // Writes the landmarks of `gesture` into `poses` at `offset`.
+    private void writePose(int offset, Gesture gesture) {
+        boolean[] open = fingers(gesture);
+        HandPoses.write(poses, offset, open[0], open[1], open[2], open[3], open[4]);
+        if (gesture == Gesture.OK) {
+            // Thumb tip on the index finger tip.
+            HandPoses.set(poses, offset, HandLandmark.THUMB_TIP, 0.44f, 0.57f);
+        }
+    }
+
+    // Thumb and fingers held open, as the built-in rules expect them.
+    private static boolean[] fingers(Gesture gesture) {
+        String pattern;
+        if (gesture == Gesture.FIVE) {
+            pattern = "11111";
+        } else if (gesture == Gesture.FOUR) {
+            pattern = "01111";
+        } else if (gesture == Gesture.TREE) {
+            pattern = "11100";
+        } else if (gesture == Gesture.TWO) {
+            pattern = "11000";
+        } else if (gesture == Gesture.ONE) {
+            pattern = "01000";
+        } else if (gesture == Gesture.YEAH) {
+            pattern = "01100";
+        } else if (gesture == Gesture.ROCK) {
+            pattern = "01001";
+        } else if (gesture == Gesture.SPIDER_MAN) {
+            pattern = "11001";
+        } else if (gesture == Gesture.FIST) {
+            pattern = "00000";
+        } else if (gesture == Gesture.OK) {
+            pattern = "00111";
+        } else {
+            throw new IllegalArgumentException("no pose for " + gesture);
+        }
+        boolean[] open = new boolean[pattern.length()];
+        for (int i = 0; i < open.length; i++) {
+            open[i] = pattern.charAt(i) == '1';
+        }
+        return open;
+    }
+
+    private void step(int hand) {
+        frameInSegment[hand]++;
+        x[hand] += dx[hand];
+        y[hand] += dy[hand];
+        scale[hand] *= growth[hand];
+        degrees[hand] += turn[hand];
+        if (frameInSegment[hand] >= segmentFrames[hand]) {
+            gap[hand] = MIN_GAP + random.nextInt(MAX_GAP - MIN_GAP + 1);
+        }
+    }
+
+    // Writes scripted hand `hand` as hand `index` of `frame`: the pose turned by its angle around
+    // the palm center, scaled, and moved to its position, with noise.
+    private void write(int hand, HandFrame frame, int index) {
+        double radians = Math.toRadians(degrees[hand]);
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float s = scale[hand];
+        float[] landmarks = frame.landmarks();
+        int pose = HandLandmark.handOffset(hand);
+        int offset = HandLandmark.handOffset(index);
+        for (int landmark = 0; landmark < HandLandmark.COUNT; landmark++) {
+            // HandPoses are right hands; a left hand is their mirror image.
+            float px = (poses[HandLandmark.x(pose, landmark)] - POSE_PALM_X) * (hand == 0 ? 1 : -1);
+            float py = poses[HandLandmark.y(pose, landmark)] - POSE_PALM_Y;
+            landmarks[HandLandmark.x(offset, landmark)] = x[hand] + s * (cos * px - sin * py) + gaussian(noise);
+            landmarks[HandLandmark.y(offset, landmark)] = y[hand] + s * (sin * px + cos * py) + gaussian(noise);
+            // Further from the wrist is closer to the camera.
+            float wristDistance = (float) Math.hypot(px, py - (POSE_WRIST_Y - POSE_PALM_Y));
+            landmarks[HandLandmark.z(offset, landmark)] = DEPTH_PER_DISTANCE * s * wristDistance + gaussian(noise);
+        }
+        float[] rects = frame.rects();
+        int rect = HandRect.rectOffset(index);
+        rects[rect + HandRect.X_CENTER] = x[hand] + gaussian(noise / 2);
+        rects[rect + HandRect.Y_CENTER] = y[hand] + gaussian(noise / 2);
+        rects[rect + HandRect.HEIGHT] = RECT_HEIGHT * s * (1 + gaussian(noise / 2));
+        rects[rect + HandRect.WIDTH] = rects[rect + HandRect.HEIGHT];
+        rects[rect + HandRect.ROTATION] = (float) radians;
+        // The first hand is a right hand, the others left hands.
+        frame.handedness()[index] = hand == 0 ? 0.95f : 0.05f;
+    }
+
+    private float gaussian(float deviation) {
+        return deviation == 0 ? 0 : deviation * (float) random.nextGaussian();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            System.err.println("usage: SyntheticHands <output dir> [--takes N] [--frames N] [--hands N] [--noise F] [--seed N]");
+            System.exit(2);
+        }
+        File root = new File(args[0]);
+        int takes = 4;
+        int frames = 150;
+        int hands = 1;
+        float noise = 0.002f;
+        long seed = 1;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--takes":
+                    takes = Integer.parseInt(args[++i]);
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                case "--hands":
+                    hands = Integer.parseInt(args[++i]);
+                    break;
+                case "--noise":
+                    noise = Float.parseFloat(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        int written = 0;
+        for (Gesture gesture : GESTURES) {
+            written += record(new File(root, gesture.name()), takes, frames, hands, noise, seed++, gesture, Motion.NONE);
+        }
+        for (Motion motion : MOTIONS) {
+            written += record(new File(root, motion.name()), takes, frames, hands, noise, seed++, null, motion);
+        }
+        System.out.println("wrote " + written + " recordings of " + frames + " frames to " + root + " for "
+                + Arrays.toString(GESTURES) + " and " + Arrays.toString(MOTIONS));
+    }
+
+    static int record(File dir, int takes, int frames, int hands, float noise, long seed,
+                      Gesture gesture, Motion motion) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        HandFrame frame = new HandFrame(hands);
+        for (int take = 0; take < takes; take++) {
+            SyntheticHands generator = new SyntheticHands(hands, noise, seed * 1000 + take, gesture, motion);
+            // One batch holds the whole take, so no frame is dropped.
+            try (HandFrameRecorder recorder = new HandFrameRecorder(new File(dir, "take" + take + ".hfr"),
+                    hands, frames, 2)) {
+                for (int i = 0; i < frames; i++) {
+                    generator.next(frame);
+                    recorder.record(frame);
+                }
+            }
+        }
+        return takes;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mediapipemultihandstracking.tools;
+
+import com.example.mediapipemultihandstracking.gesture.Gesture;
+import com.example.mediapipemultihandstracking.gesture.GestureClassifier;
+import com.example.mediapipemultihandstracking.gesture.GestureRules;
+import com.example.mediapipemultihandstracking.gesture.Motion;
+import com.example.mediapipemultihandstracking.gesture.track.MotionThresholds;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchEvaluationToolTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void confusionScoresEveryClass() {
+        BatchEvaluationTool.Confusion confusion = new BatchEvaluationTool.Confusion();
+        for (int i = 0; i < 8; i++) {
+            confusion.add("FIVE", "FIVE");
+        }
+        confusion.add("FIVE", "FOUR");
+        confusion.add("FIVE", "FOUR");
+        for (int i = 0; i < 3; i++) {
+            confusion.add("FOUR", "FOUR");
+        }
+        confusion.add("FOUR", "FIVE");
+
+        // FIVE: 8 of 10 recalled, 8 of 9 predicted right. FOUR: 3 of 4 recalled, 3 of 5 right.
+        assertEquals(0.8, confusion.recall("FIVE"), 1e-9);
+        assertEquals(8.0 / 9, confusion.precision("FIVE"), 1e-9);
+        assertEquals(0.75, confusion.recall("FOUR"), 1e-9);
+        assertEquals(0.6, confusion.precision("FOUR"), 1e-9);
+        assertEquals(2 * 0.6 * 0.75 / (0.6 + 0.75), confusion.f1("FOUR"), 1e-9);
+        assertEquals(11.0 / 14, confusion.accuracy(), 1e-9);
+        // Never predicted: no precision, and no F1.
+        assertTrue(Double.isNaN(confusion.precision("FIST")));
+        assertEquals(0, confusion.f1("FIST"), 0);
+    }
+
+    @Test
+    public void mergedConfusionsAddUp() {
+        BatchEvaluationTool.Confusion first = new BatchEvaluationTool.Confusion();
+        BatchEvaluationTool.Confusion second = new BatchEvaluationTool.Confusion();
+        first.add("FIVE", "FIVE");
+        second.add("FIVE", "FIVE");
+        second.add("FIVE", "FIST");
+
+        first.merge(second);
+
+        assertEquals(2, first.count("FIVE", "FIVE"));
+        assertEquals(1, first.count("FIVE", "FIST"));
+        assertEquals(3, first.expectedTotal("FIVE"));
+    }
+
+    @Test
+    public void replaysSyntheticRecordingsThroughThePipeline() throws IOException {
+        File root = folder.getRoot();
+        int frames = 150;
+        SyntheticHands.record(new File(root, "FIVE"), 2, frames, 1, 0.002f, 1, Gesture.FIVE, null);
+        SyntheticHands.record(new File(root, "FIST"), 2, frames, 1, 0.002f, 2, Gesture.FIST, null);
+        SyntheticHands.record(new File(root, "SCROLL_LEFT"), 2, frames, 1, 0.002f, 3, null, Motion.SCROLL_LEFT);
+        List<BatchEvaluationTool.Sequence> sequences = BatchEvaluationTool.find(root);
+        ThreadLocal<GestureClassifier> classifiers = ThreadLocal.withInitial(GestureRules::defaults);
+
+        BatchEvaluationTool.Evaluation evaluation = new BatchEvaluationTool.EvaluateTask(
+                sequences.toArray(new BatchEvaluationTool.Sequence[0]), 0, sequences.size(),
+                MotionThresholds.defaults(), classifiers).invoke();
+
+        assertEquals(6, sequences.size());
+        assertEquals(6L * frames, evaluation.frames);
+        assertTrue("gesture accuracy " + evaluation.gestures.accuracy(), evaluation.gestures.accuracy() > 0.9);
+        assertEquals(2, evaluation.motions.count("SCROLL_LEFT", "SCROLL_LEFT"));
+        // Only the motion recordings are scored for motion.
+        assertEquals(2, evaluation.motions.expectedTotal("SCROLL_LEFT"));
+        assertEquals(1.0, evaluation.motions.accuracy(), 0);
+    }
+}